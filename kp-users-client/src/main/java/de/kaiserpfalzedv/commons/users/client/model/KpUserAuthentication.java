@@ -18,7 +18,13 @@
 package de.kaiserpfalzedv.commons.users.client.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import de.kaiserpfalzedv.commons.users.domain.model.abac.EffectivePermissions;
+import de.kaiserpfalzedv.commons.users.domain.model.abac.HasOwner;
 import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import de.kaiserpfalzedv.commons.users.domain.services.AbacService;
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -28,9 +34,16 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 
 import java.util.Collection;
+import java.util.UUID;
 
 
 /**
+ * The authentication of a user.
+ *
+ * <p>The {@link EffectivePermissions} of the user are derived once when the authentication is created and carried
+ * with it. Permission checks of a request are bit tests then. The permissions are derived again when the policies or
+ * the roles have changed since (see {@link #permissions(AbacService)}). They are never serialized.</p>
+ *
  * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
  * @since 04.05.2025
  */
@@ -42,6 +55,43 @@ import java.util.Collection;
 public class KpUserAuthentication implements Authentication {
   private final User principal;
   
+  /** The permissions materialized at login. Replaced when they are outdated. */
+  @JsonIgnore
+  @Nullable
+  @ToString.Exclude
+  private volatile EffectivePermissions permissions;
+  
+  
+  /**
+   * Returns the permissions of the user. The permissions carried by this authentication are used as long as they are
+   * current, otherwise they are derived again and kept for the following checks.
+   *
+   * @param abac the ABAC service holding the current policies.
+   * @return the current permissions of the user.
+   */
+  public EffectivePermissions permissions(@NotNull final AbacService abac) {
+    EffectivePermissions current = permissions;
+    EffectivePermissions result = abac.permissions(principal, current);
+    
+    if (result != current) {
+      permissions = result;
+    }
+    
+    return result;
+  }
+  
+  /**
+   * Checks if the user may execute the action on the object.
+   *
+   * @param abac the ABAC service holding the current policies.
+   * @param object the object to access.
+   * @param action the action to execute.
+   * @return true if the access is allowed.
+   */
+  public boolean allows(@NotNull final AbacService abac, @NotNull final HasOwner<UUID> object, final String action) {
+    return permissions(abac).allows(object, action);
+  }
+  
   @Override
   public Collection<? extends GrantedAuthority> getAuthorities() {
     return principal.getAuthorities();
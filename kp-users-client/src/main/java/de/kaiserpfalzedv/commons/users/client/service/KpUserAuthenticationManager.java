@@ -2,13 +2,16 @@ package de.kaiserpfalzedv.commons.users.client.service;
 
 
 import de.kaiserpfalzedv.commons.users.client.model.KpUserAuthentication;
+import de.kaiserpfalzedv.commons.users.domain.model.abac.EffectivePermissions;
 import de.kaiserpfalzedv.commons.users.domain.model.user.UserCantBeCreatedException;
 import de.kaiserpfalzedv.commons.users.domain.model.user.UserIsInactiveException;
 import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import de.kaiserpfalzedv.commons.users.domain.services.AbacService;
 import de.kaiserpfalzedv.commons.users.domain.services.AuthenticationService;
 import de.kaiserpfalzedv.commons.users.domain.services.UserAuthenticationException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.XSlf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.core.Authentication;
@@ -23,6 +26,10 @@ import org.springframework.stereotype.Service;
  * authenticate the user and return the {@link de.kaiserpfalzedv.commons.users.domain.model.user.User} as
  * {@link Authentication}.</p>
  *
+ * <p>If an {@link AbacService} is available, the effective permissions of the user are materialized into the
+ * authentication. The reactive {@link de.kaiserpfalzedv.commons.users.client.reactive.KpReactUserAuthenticationManager}
+ * delegates to this manager and gets them too.</p>
+ *
  * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
  * @since 03.05.2025
  */
@@ -31,6 +38,7 @@ import org.springframework.stereotype.Service;
 @XSlf4j
 public class KpUserAuthenticationManager implements AuthenticationManager {
   private final AuthenticationService authenticationService;
+  private final ObjectProvider<AbacService> abac;
   
   
   @Override
@@ -47,11 +55,20 @@ public class KpUserAuthenticationManager implements AuthenticationManager {
     
     try {
       User user = authenticationService.authenticate(oidcUser);
-      result = KpUserAuthentication.builder().principal(user).build();
+      result = KpUserAuthentication.builder()
+          .principal(user)
+          .permissions(permissions(user))
+          .build();
     } catch (UserIsInactiveException | UserCantBeCreatedException e) {
       throw new UserAuthenticationException(e);
     }
     
     return log.exit(result);
   }
+  
+  private EffectivePermissions permissions(final User user) {
+    AbacService service = abac.getIfAvailable();
+    
+    return service != null ? service.permissions(user) : null;
+  }
 }
@@ -19,11 +19,13 @@ package de.kaiserpfalzedv.commons.users.client.service;
 
 
 import de.kaiserpfalzedv.commons.users.client.model.KpUserAuthentication;
+import de.kaiserpfalzedv.commons.users.domain.model.abac.EffectivePermissions;
 import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
 import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
 import de.kaiserpfalzedv.commons.users.domain.model.user.User;
 import de.kaiserpfalzedv.commons.users.domain.model.user.UserCantBeCreatedException;
 import de.kaiserpfalzedv.commons.users.domain.model.user.UserIsBannedException;
+import de.kaiserpfalzedv.commons.users.domain.services.AbacService;
 import de.kaiserpfalzedv.commons.users.domain.services.AuthenticationService;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.XSlf4j;
@@ -33,6 +35,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
 import org.springframework.security.authentication.ott.OneTimeTokenAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
@@ -46,6 +49,7 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.Mockito.when;
 
 /**
@@ -61,6 +65,11 @@ public class KpUserAuthenticationManagerTest {
   @Mock
   private AuthenticationService authenticationService;
   
+  @Mock
+  private AbacService abac;
+  @Mock
+  private EffectivePermissions permissions;
+  
   @Mock
   private Authentication authentication;
   @Mock
@@ -71,7 +80,10 @@ public class KpUserAuthenticationManagerTest {
   
   @BeforeEach
   public void setUpTest() {
-    sut = new KpUserAuthenticationManager(authenticationService);
+    StaticListableBeanFactory beans = new StaticListableBeanFactory();
+    beans.addBean("abacService", abac);
+    
+    sut = new KpUserAuthenticationManager(authenticationService, beans.getBeanProvider(AbacService.class));
   }
 
   
@@ -90,6 +102,24 @@ public class KpUserAuthenticationManagerTest {
     
     log.exit(result);
   }
+  
+  @SneakyThrows
+  @Test
+  public void shouldCarryThePermissionsWhenUserIsAuthenticated() {
+    log.entry();
+    
+    when(authentication.getPrincipal()).thenReturn(oidcUser);
+    when(authenticationService.authenticate(oidcUser)).thenReturn(PLAYER);
+    when(abac.permissions(PLAYER)).thenReturn(permissions);
+    when(abac.permissions(PLAYER, permissions)).thenReturn(permissions);
+    
+    KpUserAuthentication result = (KpUserAuthentication) sut.authenticate(authentication);
+    
+    assertSame(permissions, result.getPermissions());
+    assertSame(permissions, result.permissions(abac));
+    
+    log.exit(result);
+  }
 
   
   @SneakyThrows
@@ -24,19 +24,22 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.XSlf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cloud.stream.function.StreamBridge;
-import org.springframework.messaging.Message;
 
 
 /**
+ * Base of the event listeners sending the local events to the broker.
+ *
+ * <p>The events are handed to the {@link UserEventsOutbox}, which converts and sends them on its own thread. Events
+ * received from other applications are not sent again. When the outbox is full its
+ * {@link UserEventsOutbox.OutboxFullException} is passed on to the publisher of the event.</p>
+ *
  * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
  * @since 2025-05-23
  */
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 @XSlf4j
 public class AbstractSendUserEventsHandler {
-  private final StreamBridge sender;
-  private final UserEventMessagingConverter converter;
+  private final UserEventsOutbox outbox;
   
   @Value("${spring.application.name:kp-users}")
   private String application = "kp-users";
@@ -45,21 +48,13 @@ public class AbstractSendUserEventsHandler {
     log.entry(binding, event);
     
     if (isLocalEvent(event)) {
-      //noinspection unchecked
-      Message<String> message = (Message<String>) converter.toMessage(event, converter.headers(event));
-      
-      if (message == null) {
-        throw log.throwing(new IllegalArgumentException("Cannot convert event to message. event=%s".formatted(event)));
-      }
-      
-      log.info("Sending event. binding={}, message={}", binding, message);
-      sender.send(binding, message);
+      outbox.send(binding, event);
     }
     
     log.exit();
   }
   
-  private boolean isLocalEvent(final BaseEvent event) {
+  protected boolean isLocalEvent(final BaseEvent event) {
     return application.equals(event.getApplication());
   }
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import de.kaiserpfalzedv.commons.users.domain.services.StoreSaturationEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.endpoint.BindingsLifecycleController;
+import org.springframework.cloud.stream.endpoint.BindingsLifecycleController.State;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Stops the consumers of external events while the store is saturated.
+ *
+ * <p>Without it the consumers keep taking messages from the broker while every handling blocks on a database
+ * connection until it times out. On a {@link StoreSaturationEvent} the bindings listed in
+ * {@code kp-users.messaging.flow-control.bindings} are changed to {@code kp-users.messaging.flow-control.state}
+ * ({@code STOPPED} by default, {@code PAUSED} for binders supporting it) and restarted (or resumed) when the store has
+ * recovered. A stopped rabbit consumer returns its prefetched messages to the broker, so the other nodes can take
+ * them.</p>
+ *
+ * <p>The lanes of the {@link UserEventDispatcher} are not paused. They keep working on the events they already have,
+ * so up to {@code lanes} &times; {@code lane-capacity} events still hit the saturated store (and are retried and
+ * dead-lettered by the {@link UserEventRetry} if the store doesn't recover in time). A small lane capacity keeps that
+ * tail short.</p>
+ *
+ * <p>Only bindings stopped by the flow control are started again. Bindings which couldn't be started are kept and
+ * retried every {@code kp-users.messaging.flow-control.retry-interval} as long as the store is not saturated
+ * again.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@Service
+@ToString(of = {"enabled", "bindings", "state", "retryInterval", "stopped"})
+@XSlf4j
+public class ConsumerFlowControl {
+  private final BindingsLifecycleController controller;
+  
+  private final boolean enabled;
+  private final List<String> bindings;
+  private final State state;
+  private final Duration retryInterval;
+  
+  /** The bindings stopped by the flow control. */
+  private final ArrayList<String> stopped = new ArrayList<>();
+  private boolean saturated = false;
+  
+  private ScheduledExecutorService scheduler;
+  
+  
+  public ConsumerFlowControl(
+      final BindingsLifecycleController controller,
+      @Value("${kp-users.messaging.flow-control.enabled:true}") final boolean enabled,
+      @Value("${kp-users.messaging.flow-control.bindings:userActivity-in-0,userModification-in-0,userState-in-0,petitionedUser-in-0,changePolicy-in-0}") final List<String> bindings,
+      @Value("${kp-users.messaging.flow-control.state:STOPPED}") final State state,
+      @Value("${kp-users.messaging.flow-control.retry-interval:PT5S}") final Duration retryInterval
+  ) {
+    if (state != State.STOPPED && state != State.PAUSED) {
+      throw new IllegalArgumentException("The flow control state has to be STOPPED or PAUSED. state=" + state);
+    }
+    
+    this.controller = controller;
+    this.enabled = enabled;
+    this.bindings = List.copyOf(bindings);
+    this.state = state;
+    this.retryInterval = retryInterval;
+  }
+  
+  
+  @PostConstruct
+  public void init() {
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread result = new Thread(r, "kp-users-flow-control");
+      result.setDaemon(true);
+      return result;
+    });
+  }
+  
+  @PreDestroy
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+  
+  
+  @EventListener
+  public synchronized void onStoreSaturation(@NotNull final StoreSaturationEvent event) {
+    log.entry(event);
+    
+    if (!enabled) {
+      log.exit();
+      return;
+    }
+    
+    saturated = event.saturated();
+    if (saturated) {
+      stop();
+    } else {
+      start();
+    }
+    
+    log.exit();
+  }
+  
+  private void stop() {
+    for (String binding : bindings) {
+      if (!stopped.contains(binding) && change(binding, state)) {
+        stopped.add(binding);
+      }
+    }
+    
+    log.warn("Stopped consumers while the store is saturated. bindings={}", stopped);
+  }
+  
+  private void start() {
+    State resume = state == State.PAUSED ? State.RESUMED : State.STARTED;
+    
+    for (String binding : List.copyOf(stopped)) {
+      if (change(binding, resume)) {
+        stopped.remove(binding);
+      }
+    }
+    
+    if (stopped.isEmpty()) {
+      log.info("Started consumers after the store has recovered. bindings={}", bindings);
+    } else {
+      log.warn("Some consumers could not be started. Retrying. bindings={}, retry={}", stopped, retryInterval);
+      
+      if (scheduler != null) {
+        scheduler.schedule(this::retry, retryInterval.toMillis(), TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+  
+  /**
+   * Starts the bindings which could not be started when the store recovered.
+   */
+  synchronized void retry() {
+    log.entry();
+    
+    if (!saturated && !stopped.isEmpty()) {
+      start();
+    }
+    
+    log.exit();
+  }
+  
+  private boolean change(@NotNull final String binding, @NotNull final State target) {
+    try {
+      controller.changeState(binding, target);
+      return true;
+    } catch (RuntimeException e) {
+      log.warn("Could not change the state of the binding. binding={}, state={}, error={}",
+          binding, target, e.getMessage());
+      return false;
+    }
+  }
+  
+  
+  public synchronized boolean isStopped() {
+    return !stopped.isEmpty();
+  }
+}
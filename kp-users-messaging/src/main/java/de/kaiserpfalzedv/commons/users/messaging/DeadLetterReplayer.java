@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import de.kaiserpfalzedv.commons.api.events.BaseEvent;
+import jakarta.validation.constraints.NotNull;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.stream.binder.PollableMessageSource;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Replays dead-lettered user events on request of an operator.
+ *
+ * <p>The dead letters are read from the pollable source {@code replayDeadLetters}. It is only created when configured,
+ * e.g. {@code spring.cloud.stream.pollable-source: replayDeadLetters} with the binding
+ * {@code replayDeadLetters-in-0.destination: kp-users.state.dlq} and {@code replayDeadLetters-in-0.group: replay}.
+ * Every replayed event is handed to the {@link UserEventDispatcher} like a received one, so a user event is handled
+ * in the lane of its user and in order with the other events of the user. The events without a user (policies, roles
+ * and api keys in {@code kp-users.events.dlq}) are replayed in the calling thread. If it fails again it is sent to the parking lot of its
+ * destination, so a poisoned event is replayed only once.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@Service
+@ManagedResource(objectName = "de.kaiserpfalzedv.commons.users:name=DeadLetterReplayer")
+@RequiredArgsConstructor
+@ToString(of = {"replayed"})
+@XSlf4j
+public class DeadLetterReplayer {
+  private final ObjectProvider<PollableMessageSource> source;
+  private final UserEventMessagingConverter converter;
+  private final ApplicationEventPublisher bus;
+  private final UserEventRetry retry;
+  private final UserEventDispatcher dispatcher;
+  
+  private final AtomicLong replayed = new AtomicLong();
+  
+  
+  /**
+   * Replays dead letters.
+   *
+   * @param max the maximum number of dead letters to replay.
+   * @return the number of replayed dead letters.
+   */
+  @ManagedOperation(description = "Replays up to max dead-lettered user events")
+  public int replay(final int max) {
+    log.entry(max);
+    
+    PollableMessageSource deadLetters = source.getIfAvailable();
+    if (deadLetters == null) {
+      log.warn("No dead letter source configured. Set spring.cloud.stream.pollable-source=replayDeadLetters.");
+      return log.exit(0);
+    }
+    
+    int result = 0;
+    while (result < max && deadLetters.poll(message -> replay((BaseEvent) converter.fromMessage(message, BaseEvent.class)))) {
+      result++;
+    }
+    
+    replayed.addAndGet(result);
+    log.info("Replayed dead letters. count={}, total={}", result, replayed.get());
+    return log.exit(result);
+  }
+  
+  private void replay(@NotNull final BaseEvent event) {
+    log.debug("Replaying dead letter. event={}", event);
+    
+    dispatcher.dispatch(
+        UserEventDispatcher.key(event),
+        () -> retry.run(event, () -> bus.publishEvent(event), UserEventRetry.PARKING_LOT_SUFFIX)
+    );
+  }
+  
+  
+  @ManagedAttribute(description = "Number of replayed dead letters")
+  public long getReplayed() {
+    return replayed.get();
+  }
+}
@@ -33,6 +33,7 @@ import java.lang.annotation.*;
 @Target(ElementType.TYPE)
 @Documented
 @Import({
+    ReceivePolicyEventsConfig.class,
     ReceiveUserActivityConfig.class,
     ReceiveUserArbitrationEventsConfig.class,
     ReceiveUserModificationEventsConfig.class,
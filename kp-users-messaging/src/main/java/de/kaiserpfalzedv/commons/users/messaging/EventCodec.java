@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.util.MimeType;
+
+import java.util.Map;
+
+
+/**
+ * The pre-built readers, writers and constant headers of a single event class.
+ *
+ * <p>Jackson resolves the serializers of a class when the reader or writer is created. Keeping them per event class
+ * saves the lookup on every message.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-25
+ */
+@Getter
+@ToString(of = {"eventType"})
+public final class EventCodec {
+  /** The header naming the event class. */
+  public static final String EVENT_TYPE = "eventType";
+  /** The header carrying the id of the user of a user event, used as partition key. */
+  public static final String USER_ID = "userId";
+  
+  private final Class<?> type;
+  /** The canonical name of the event class, used as {@link #EVENT_TYPE} header. */
+  private final String eventType;
+  
+  private final ObjectReader jsonReader;
+  private final ObjectWriter jsonWriter;
+  private final ObjectReader cborReader;
+  private final ObjectWriter cborWriter;
+  
+  /** The headers that are the same for all events of this class. */
+  private final Map<String, Object> headers;
+  
+  
+  EventCodec(
+      @NotNull final Class<?> type,
+      @NotNull final ObjectMapper json,
+      @NotNull final ObjectMapper cbor,
+      @NotNull final MimeType contentType
+  ) {
+    this.type = type;
+    this.eventType = type.getCanonicalName();
+    
+    this.jsonReader = json.readerFor(type);
+    this.jsonWriter = json.writerFor(type);
+    this.cborReader = cbor.readerFor(type);
+    this.cborWriter = cbor.writerFor(type);
+    
+    this.headers = Map.of(
+        EVENT_TYPE, eventType,
+        MessageHeaders.CONTENT_TYPE, contentType
+    );
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+
+/**
+ * The single consumer of a destination, passing each event to the handler of its class.
+ *
+ * <p>The converter decodes the message into the class named by its {@link EventCodec#EVENT_TYPE} header. The router
+ * looks up the handler of that class in a table built once, so one binding serves all event types of a destination.
+ * Events without a handler are logged and dropped.</p>
+ *
+ * @param <T> the base class of the events of the destination.
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@ToString(of = {"destination"})
+@XSlf4j
+public final class EventRouter<T> implements Consumer<T> {
+  private final String destination;
+  private final Map<Class<?>, Consumer<T>> handlers;
+  
+  
+  private EventRouter(@NotNull final String destination, @NotNull final Map<Class<?>, Consumer<T>> handlers) {
+    this.destination = destination;
+    this.handlers = Map.copyOf(handlers);
+  }
+  
+  /**
+   * @param destination the destination served by the router (for logging).
+   * @param <T> the base class of the events of the destination.
+   * @return the builder of the router.
+   */
+  public static <T> Builder<T> of(@NotNull final String destination) {
+    return new Builder<>(destination);
+  }
+  
+  
+  @Override
+  public void accept(final T event) {
+    Consumer<T> handler = event != null ? handler(event.getClass()) : null;
+    
+    if (handler == null) {
+      log.warn("No handler for event. destination={}, event={}", destination, event);
+      return;
+    }
+    
+    handler.accept(event);
+  }
+  
+  /**
+   * @param type the class of the event.
+   * @return the handler of the class or of its nearest superclass with a handler (e.g. for proxies).
+   */
+  private Consumer<T> handler(final Class<?> type) {
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      Consumer<T> result = handlers.get(c);
+      
+      if (result != null) {
+        return result;
+      }
+    }
+    
+    return null;
+  }
+  
+  
+  /**
+   * Collects the handlers of a router.
+   *
+   * @param <T> the base class of the events of the destination.
+   */
+  public static final class Builder<T> {
+    private final String destination;
+    private final HashMap<Class<?>, Consumer<T>> handlers = new HashMap<>();
+    
+    private Builder(@NotNull final String destination) {
+      this.destination = destination;
+    }
+    
+    /**
+     * @param type the event class.
+     * @param handler the handler of the event class.
+     * @param <E> the event class.
+     * @return this builder.
+     */
+    public <E extends T> Builder<T> route(@NotNull final Class<E> type, @NotNull final Consumer<? super E> handler) {
+      handlers.put(type, event -> handler.accept(type.cast(event)));
+      
+      return this;
+    }
+    
+    public EventRouter<T> build() {
+      return new EventRouter<>(destination, handlers);
+    }
+  }
+}
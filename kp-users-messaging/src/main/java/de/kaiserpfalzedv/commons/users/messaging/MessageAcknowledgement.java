@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import com.rabbitmq.client.Channel;
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.acks.AcknowledgmentCallback;
+import org.springframework.messaging.Message;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+
+/**
+ * The acknowledgement of a received message, given when its event has been handled in the lane of its user.
+ *
+ * <p>{@link #manual(Consumer)} wraps the consumer of a binding. While the consumer runs, the acknowledgement of the
+ * message is the current one of the binder thread. The {@link UserEventDispatcher} takes it and acknowledges the
+ * message after the event has been handled (or dead-lettered by the {@link UserEventRetry}). If the handling fails anyway, the message is rejected and goes to the dead letter queue of
+ * the binder. A message not taken by the consumer (e.g. an event without handler) is acknowledged when the consumer
+ * returns.</p>
+ *
+ * <p>Supported are the rabbit binder with {@code acknowledge-mode: MANUAL} and sources with an
+ * {@link AcknowledgmentCallback} (e.g. pollable sources). Messages of other binders are acknowledged by the binder
+ * itself when the consumer returns, so their events are handled by the binder thread.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@ToString(of = {"kind", "done"})
+@XSlf4j
+public final class MessageAcknowledgement {
+  private static final String AMQP_CHANNEL = "amqp_channel";
+  private static final String AMQP_DELIVERY_TAG = "amqp_deliveryTag";
+  
+  private static final ThreadLocal<MessageAcknowledgement> CURRENT = new ThreadLocal<>();
+  
+  private enum Kind {
+    /** Acknowledged by the binder when the consumer returns. */
+    AUTO,
+    /** Acknowledged via the channel of the rabbit message. */
+    RABBIT,
+    /** Acknowledged via the acknowledgement callback of the message. */
+    CALLBACK
+  }
+  
+  private final Kind kind;
+  private final Message<?> message;
+  private final AtomicBoolean done = new AtomicBoolean(false);
+  
+  
+  private MessageAcknowledgement(@NotNull final Kind kind, @NotNull final Message<?> message) {
+    this.kind = kind;
+    this.message = message;
+  }
+  
+  /**
+   * @param message the received message.
+   * @return the acknowledgement of the message.
+   */
+  static MessageAcknowledgement of(@NotNull final Message<?> message) {
+    if (message.getHeaders().get(AMQP_CHANNEL) != null && message.getHeaders().get(AMQP_DELIVERY_TAG) != null) {
+      return new MessageAcknowledgement(Kind.RABBIT, message);
+    }
+    
+    AcknowledgmentCallback callback = StaticMessageHeaderAccessor.getAcknowledgmentCallback(message);
+    if (callback != null) {
+      callback.noAutoAck();
+      return new MessageAcknowledgement(Kind.CALLBACK, message);
+    }
+    
+    return new MessageAcknowledgement(Kind.AUTO, message);
+  }
+  
+  /**
+   * Wraps the consumer of a binding, so the messages are acknowledged after their events have been handled.
+   *
+   * @param consumer the consumer of the events.
+   * @param <T> the type of the events.
+   * @return the consumer of the messages.
+   */
+  public static <T> Consumer<Message<T>> manual(@NotNull final Consumer<T> consumer) {
+    return message -> {
+      MessageAcknowledgement acknowledgement = of(message);
+      CURRENT.set(acknowledgement);
+      
+      try {
+        consumer.accept(message.getPayload());
+      } catch (RuntimeException e) {
+        if (acknowledgement.isAuto()) {
+          // the binder retries and dead-letters the message itself.
+          throw e;
+        }
+        
+        log.error("Handling of message failed. Rejecting it. message={}, error={}", message, e.getMessage(), e);
+        take();
+        acknowledgement.reject();
+      } finally {
+        if (take() != null) {
+          acknowledgement.accept();
+        }
+      }
+    };
+  }
+  
+  /**
+   * Takes the acknowledgement of the message currently consumed by this thread. The one taking it has to accept or
+   * reject it.
+   *
+   * @return the acknowledgement or null if the thread is not consuming a message.
+   */
+  @Nullable
+  static MessageAcknowledgement take() {
+    MessageAcknowledgement result = CURRENT.get();
+    CURRENT.remove();
+    
+    return result;
+  }
+  
+  
+  /**
+   * @return true if the binder acknowledges the message itself when the consumer returns.
+   */
+  boolean isAuto() {
+    return kind == Kind.AUTO;
+  }
+  
+  /**
+   * Acknowledges the message.
+   */
+  void accept() {
+    complete(true);
+  }
+  
+  /**
+   * Rejects the message without requeuing it.
+   */
+  void reject() {
+    complete(false);
+  }
+  
+  private void complete(final boolean accepted) {
+    if (!done.compareAndSet(false, true)) {
+      return;
+    }
+    
+    switch (kind) {
+      case RABBIT -> Rabbit.complete(message, accepted);
+      case CALLBACK -> StaticMessageHeaderAccessor.getAcknowledgmentCallback(message).acknowledge(
+          accepted ? AcknowledgmentCallback.Status.ACCEPT : AcknowledgmentCallback.Status.REJECT
+      );
+      case AUTO -> {
+        // done by the binder.
+      }
+    }
+  }
+  
+  
+  /**
+   * Keeps the rabbit client classes out of the acknowledgement, so they are only loaded with the rabbit binder.
+   */
+  private static final class Rabbit {
+    private static void complete(@NotNull final Message<?> message, final boolean accepted) {
+      Channel channel = (Channel) message.getHeaders().get(AMQP_CHANNEL);
+      long tag = (Long) message.getHeaders().get(AMQP_DELIVERY_TAG);
+      
+      try {
+        if (accepted) {
+          channel.basicAck(tag, false);
+        } else {
+          channel.basicReject(tag, false);
+        }
+      } catch (IOException | RuntimeException e) {
+        // the broker redelivers the message when the channel has been closed.
+        log.warn("Could not acknowledge message. accepted={}, deliveryTag={}, error={}", accepted, tag, e.getMessage());
+      }
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.policy.events.PolicyChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.Consumer;
+
+/**
+ * Configuration for receiving policy events.
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-22
+ */
+@Configuration
+@RequiredArgsConstructor(onConstructor_ = @__(@Autowired))
+@ToString(onlyExplicitlyIncluded = true)
+@XSlf4j
+public class ReceivePolicyEventsConfig {
+  private final ApplicationEventPublisher bus;
+  
+  @Bean
+  public Consumer<PolicyChangedEvent> changePolicy() {
+    return event -> {
+      log.entry(event);
+      
+      log.info("Received external event. event = {}", event);
+      bus.publishEvent(event);
+      
+      log.exit();
+    };
+  }
+}
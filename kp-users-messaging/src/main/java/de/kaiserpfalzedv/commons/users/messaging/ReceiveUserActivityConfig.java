@@ -19,6 +19,7 @@ package de.kaiserpfalzedv.commons.users.messaging;
 
 
 import de.kaiserpfalzedv.commons.users.domain.model.user.events.UserBaseEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.activity.UserActivityBaseEvent;
 import de.kaiserpfalzedv.commons.users.domain.model.user.events.activity.UserLoginEvent;
 import de.kaiserpfalzedv.commons.users.domain.model.user.events.activity.UserLogoutEvent;
 import jakarta.inject.Inject;
@@ -30,6 +31,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
 
 import java.util.function.Consumer;
 
@@ -45,11 +47,27 @@ import java.util.function.Consumer;
 @XSlf4j
 public class ReceiveUserActivityConfig {
   private final ApplicationEventPublisher bus;
+  private final UserEventDispatcher dispatcher;
   
   @Value("${spring.application.name:kp-users}")
   private String application = "kp-users";
   
   
+  /**
+   * The single consumer of the destination {@code kp-users.activity}.
+   *
+   * @return the consumer passing the events to the consumers of their classes. The messages are acknowledged when
+   *     their events have been handled.
+   */
+  @Bean
+  Consumer<Message<UserActivityBaseEvent>> userActivity() {
+    return MessageAcknowledgement.manual(EventRouter.<UserActivityBaseEvent>of("kp-users.activity")
+        .route(UserLoginEvent.class, loginUser())
+        .route(UserLogoutEvent.class, logoutUser())
+        .build()
+    );
+  }
+  
   @Bean
   Consumer<UserLoginEvent> loginUser() {
     return event -> {
@@ -58,7 +76,7 @@ public class ReceiveUserActivityConfig {
       if (isExternalEvent(event)) {
         log.info("Sending event locally. event={}", event);
         
-        bus.publishEvent(event);
+        dispatcher.dispatch(event, () -> bus.publishEvent(event));
       }
       log.exit();
     };
@@ -72,7 +90,7 @@ public class ReceiveUserActivityConfig {
       
       if (isExternalEvent(event)) {
         log.info("Sending event locally. event={}", event);
-        bus.publishEvent(event);
+        dispatcher.dispatch(event, () -> bus.publishEvent(event));
       }
       
       log.exit();
@@ -26,6 +26,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
 
 import java.util.function.Consumer;
 
@@ -41,16 +42,21 @@ import java.util.function.Consumer;
 @XSlf4j
 public class ReceiveUserArbitrationEventsConfig {
   private final ApplicationEventPublisher bus;
+  private final UserEventDispatcher dispatcher;
   
+  /**
+   * @return the consumer of the destination {@code kp-users.arbitration}. The messages are acknowledged when their
+   *     events have been handled.
+   */
   @Bean
-  public Consumer<UserPetitionedEvent> petitionedUser() {
-    return event -> {
+  public Consumer<Message<UserPetitionedEvent>> petitionedUser() {
+    return MessageAcknowledgement.manual(event -> {
       log.entry(event);
       
       log.info("Received external event. event={}", event);
-      bus.publishEvent(event);
+      dispatcher.dispatch(event, () -> bus.publishEvent(event));
       
       log.exit();
-    };
+    });
   }
 }
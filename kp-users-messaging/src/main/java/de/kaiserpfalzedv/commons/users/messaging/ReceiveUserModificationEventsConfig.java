@@ -19,19 +19,37 @@ package de.kaiserpfalzedv.commons.users.messaging;
 
 
 import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.*;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.state.UserStateBaseEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.extern.slf4j.XSlf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 
+import java.time.Duration;
 import java.util.function.Consumer;
 
 /**
  * Configuration for receiving user modification events.
  *
+ * <p>{@link #userModification()} consumes all modification events of the destination. The consumers of the single
+ * event types are kept for applications binding them one by one.</p>
+ *
+ * <p>With {@code kp-users.messaging.coalesce.receive-window} set, the received modifications of a user are collected
+ * by a {@link UserEventCoalescer} and published merged when the window closes. The merged events are published in the
+ * lane of the user with retry and dead letters like any other received event, and the messages are acknowledged
+ * afterwards. Pending modifications of a user are published before any state event of that user.</p>
+ *
  * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
  * @since 2025-05-18
  */
@@ -41,6 +59,101 @@ import java.util.function.Consumer;
 @XSlf4j
 public class ReceiveUserModificationEventsConfig {
   private final ApplicationEventPublisher bus;
+  private final UserEventDispatcher dispatcher;
+  private final UserEventRetry retry;
+  
+  @Value("${kp-users.messaging.coalesce.receive-window:PT0S}")
+  private Duration window = Duration.ZERO;
+  
+  @ToString.Include
+  private UserEventCoalescer coalescer;
+  
+  
+  /**
+   * The single consumer of the destination {@code kp-users.modification}.
+   *
+   * @return the consumer passing the events to the consumers of their classes. The messages are acknowledged when
+   *     their events have been handled.
+   */
+  @Bean
+  public Consumer<Message<UserModificationBaseEvent>> userModification() {
+    return MessageAcknowledgement.manual(EventRouter.<UserModificationBaseEvent>of("kp-users.modification")
+        .route(RoleAddedToUserEvent.class, addingRole())
+        .route(RoleRemovedFromUserEvent.class, removeRole())
+        .route(UserDiscordModificationEvent.class, modifyDiscord())
+        .route(UserEmailModificationEvent.class, modifyEmail())
+        .route(UserNameModificationEvent.class, modifyName())
+        .route(UserNamespaceModificationEvent.class, modifyNamespace())
+        .route(UserNamespaceAndNameModificationEvent.class, modifyNamespaceAndName())
+        .route(UserSubjectModificationEvent.class, modifySubject())
+        .build()
+    );
+  }
+  
+  
+  @PostConstruct
+  public void init() {
+    log.entry(window);
+    
+    if (window.isPositive()) {
+      coalescer = new UserEventCoalescer(
+          "receive", window, dispatcher::dispatch,
+          event -> retry.run(event, () -> bus.publishEvent(event))
+      );
+    }
+    
+    log.exit(coalescer);
+  }
+  
+  @PreDestroy
+  public void close() {
+    log.entry(coalescer);
+    
+    if (coalescer != null) {
+      coalescer.close();
+    }
+    
+    log.exit();
+  }
+  
+  /**
+   * Publishes the pending modifications of the user before the state event is handled.
+   *
+   * @param event the state event of the user.
+   */
+  @EventListener
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public void onUserStateChange(@NotNull final UserStateBaseEvent event) {
+    log.entry(event);
+    
+    if (coalescer != null && event.getUser() != null) {
+      coalescer.flush(event.getUser().getId());
+    }
+    
+    log.exit();
+  }
+  
+  private void receive(@NotNull final UserModificationBaseEvent event) {
+    if (coalescer == null) {
+      dispatcher.dispatch(event, () -> bus.publishEvent(event));
+      return;
+    }
+    
+    // the coalescer acknowledges the message when the merged events have been published.
+    MessageAcknowledgement taken = MessageAcknowledgement.take();
+    MessageAcknowledgement acknowledgement = taken != null && !taken.isAuto() ? taken : null;
+    
+    dispatcher.dispatch(UserEventDispatcher.key(event), () -> {
+      try {
+        coalescer.offer(event, acknowledgement);
+      } catch (RuntimeException e) {
+        if (acknowledgement != null) {
+          acknowledgement.reject();
+        }
+        throw e;
+      }
+    });
+  }
   
   
   @Bean
@@ -49,7 +162,7 @@ public class ReceiveUserModificationEventsConfig {
       log.entry(event);
       
       log.info("Received external event. event={}", event);
-      bus.publishEvent(event);
+      receive(event);
       
       log.exit();
     };
@@ -61,7 +174,7 @@ public class ReceiveUserModificationEventsConfig {
       log.entry(event);
       
       log.info("Received external event. event={}", event);
-      bus.publishEvent(event);
+      receive(event);
       
       log.exit();
     };
@@ -73,7 +186,7 @@ public class ReceiveUserModificationEventsConfig {
       log.entry(event);
       
       log.info("Received external event. event={}", event);
-      bus.publishEvent(event);
+      receive(event);
       
       log.exit();
     };
@@ -85,7 +198,7 @@ public class ReceiveUserModificationEventsConfig {
       log.entry(event);
       
       log.info("Received external event. event={}", event);
-      bus.publishEvent(event);
+      receive(event);
       
       log.exit();
     };
@@ -97,7 +210,7 @@ public class ReceiveUserModificationEventsConfig {
       log.entry(event);
       
       log.info("Received external event. event={}", event);
-      bus.publishEvent(event);
+      receive(event);
       
       log.exit();
     };
@@ -109,7 +222,7 @@ public class ReceiveUserModificationEventsConfig {
       log.entry(event);
       
       log.info("Received external event. event={}", event);
-      bus.publishEvent(event);
+      receive(event);
       
       log.exit();
     };
@@ -121,7 +234,7 @@ public class ReceiveUserModificationEventsConfig {
       log.entry(event);
       
       log.info("Received external event. event={}", event);
-      bus.publishEvent(event);
+      receive(event);
       
       log.exit();
     };
@@ -133,7 +246,7 @@ public class ReceiveUserModificationEventsConfig {
       log.entry(event);
       
       log.info("Received external event. event={}", event);
-      bus.publishEvent(event);
+      receive(event);
       
       log.exit();
     };
@@ -26,12 +26,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.Message;
 
 import java.util.function.Consumer;
 
 /**
  * Configuration for receiving user state events.
  *
+ * <p>{@link #userState()} consumes all state events of the destination. The consumers of the single event types are
+ * kept for applications binding them one by one.</p>
+ *
  * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
  * @since 2025-05-18
  */
@@ -41,6 +45,27 @@ import java.util.function.Consumer;
 @XSlf4j
 public class ReceiveUserStateEventsConfig {
   private final ApplicationEventPublisher bus;
+  private final UserEventDispatcher dispatcher;
+  
+  /**
+   * The single consumer of the destination {@code kp-users.state}.
+   *
+   * @return the consumer passing the events to the consumers of their classes. The messages are acknowledged when
+   *     their events have been handled.
+   */
+  @Bean
+  public Consumer<Message<UserStateBaseEvent>> userState() {
+    return MessageAcknowledgement.manual(EventRouter.<UserStateBaseEvent>of("kp-users.state")
+        .route(UserActivatedEvent.class, activateUser())
+        .route(UserBannedEvent.class, banUser())
+        .route(UserCreatedEvent.class, createUser())
+        .route(UserDeletedEvent.class, deleteUser())
+        .route(UserDetainedEvent.class, detainUser())
+        .route(UserReleasedEvent.class, releaseUser())
+        .route(UserRemovedEvent.class, removeUser())
+        .build()
+    );
+  }
   
   @Bean
   public Consumer<UserActivatedEvent> activateUser() {
@@ -48,7 +73,7 @@ public class ReceiveUserStateEventsConfig {
       log.entry(event);
       
       log.info("Received external event. event = {}", event);
-      bus.publishEvent(event);
+      dispatcher.dispatch(event, () -> bus.publishEvent(event));
       
       log.exit();
     };
@@ -60,7 +85,7 @@ public class ReceiveUserStateEventsConfig {
       log.entry(event);
       
       log.info("Received external event. event = {}", event);
-      bus.publishEvent(event);
+      dispatcher.dispatch(event, () -> bus.publishEvent(event));
       
       log.exit();
     };
@@ -72,7 +97,7 @@ public class ReceiveUserStateEventsConfig {
       log.entry(event);
       
       log.info("Received external event. event = {}", event);
-      bus.publishEvent(event);
+      dispatcher.dispatch(event, () -> bus.publishEvent(event));
       
       log.exit();
     };
@@ -84,7 +109,7 @@ public class ReceiveUserStateEventsConfig {
       log.entry(event);
       
       log.info("Received external event. event = {}", event);
-      bus.publishEvent(event);
+      dispatcher.dispatch(event, () -> bus.publishEvent(event));
       
       log.exit();
     };
@@ -96,7 +121,7 @@ public class ReceiveUserStateEventsConfig {
       log.entry(event);
       
       log.info("Received external event. event = {}", event);
-      bus.publishEvent(event);
+      dispatcher.dispatch(event, () -> bus.publishEvent(event));
       
       log.exit();
     };
@@ -108,7 +133,7 @@ public class ReceiveUserStateEventsConfig {
       log.entry(event);
       
       log.info("Received external event. event = {}", event);
-      bus.publishEvent(event);
+      dispatcher.dispatch(event, () -> bus.publishEvent(event));
       
       log.exit();
     };
@@ -120,7 +145,7 @@ public class ReceiveUserStateEventsConfig {
       log.entry(event);
       
       log.info("Received external event. event = {}", event);
-      bus.publishEvent(event);
+      dispatcher.dispatch(event, () -> bus.publishEvent(event));
       
       log.exit();
     };
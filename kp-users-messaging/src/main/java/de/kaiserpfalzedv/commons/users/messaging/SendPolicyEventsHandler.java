@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.policy.events.PolicyChangedEvent;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sends policy changes to the other nodes, so their enforcers apply them without reloading.
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-22
+ */
+@Service
+@Scope("singleton")
+@ToString(onlyExplicitlyIncluded = true)
+@XSlf4j
+public class SendPolicyEventsHandler extends AbstractSendUserEventsHandler {
+  
+  @Autowired
+  public SendPolicyEventsHandler(@NotNull final UserEventsOutbox outbox) {
+    super(outbox);
+  }
+  
+  @EventListener
+  public void onPolicyChanged(@NotNull @Valid final PolicyChangedEvent event) {
+    log.entry(event);
+
+    sendEvent("changePolicy-in-0", event);
+
+    log.exit();
+  }
+}
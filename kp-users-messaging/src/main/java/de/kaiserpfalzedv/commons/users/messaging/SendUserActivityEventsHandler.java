@@ -25,7 +25,6 @@ import jakarta.validation.constraints.NotNull;
 import lombok.ToString;
 import lombok.extern.slf4j.XSlf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cloud.stream.function.StreamBridge;
 import org.springframework.context.annotation.Scope;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
@@ -41,8 +40,8 @@ import org.springframework.stereotype.Service;
 public class SendUserActivityEventsHandler extends AbstractSendUserEventsHandler {
 
   @Autowired
-  public SendUserActivityEventsHandler(final StreamBridge sender, final UserEventMessagingConverter converter) {
-    super(sender, converter);
+  public SendUserActivityEventsHandler(@NotNull final UserEventsOutbox outbox) {
+    super(outbox);
   }
   
   
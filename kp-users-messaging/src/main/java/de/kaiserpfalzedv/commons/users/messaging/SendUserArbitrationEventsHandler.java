@@ -24,7 +24,6 @@ import jakarta.validation.constraints.NotNull;
 import lombok.ToString;
 import lombok.extern.slf4j.XSlf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cloud.stream.function.StreamBridge;
 import org.springframework.context.annotation.Scope;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
@@ -41,8 +40,8 @@ public class SendUserArbitrationEventsHandler extends AbstractSendUserEventsHand
   private static final String DESTINATION = "petitionedUser-in-0";
   
   @Autowired
-  public SendUserArbitrationEventsHandler(@NotNull StreamBridge sender, @NotNull final UserEventMessagingConverter converter) {
-    super(sender, converter);
+  public SendUserArbitrationEventsHandler(@NotNull final UserEventsOutbox outbox) {
+    super(outbox);
   }
   
   @EventListener
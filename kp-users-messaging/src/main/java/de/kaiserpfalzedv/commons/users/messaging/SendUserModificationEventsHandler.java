@@ -19,17 +19,31 @@ package de.kaiserpfalzedv.commons.users.messaging;
 
 
 import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.*;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.state.UserStateBaseEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.ToString;
 import lombok.extern.slf4j.XSlf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Scope;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Map;
+
 /**
+ * Sends the local user modification events.
+ *
+ * <p>With {@code kp-users.messaging.coalesce.send-window} set, the modifications of a user are collected by a
+ * {@link UserEventCoalescer} and sent merged when the window closes. Pending modifications of a user are sent before
+ * any state event of that user.</p>
+ *
  * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
  * @since 2025-05-18
  */
@@ -38,17 +52,82 @@ import org.springframework.stereotype.Service;
 @ToString(onlyExplicitlyIncluded = true)
 @XSlf4j
 public class SendUserModificationEventsHandler extends AbstractSendUserEventsHandler {
+  private static final Map<Class<?>, String> BINDINGS = Map.of(
+      RoleAddedToUserEvent.class, "addingRole-in-0",
+      RoleRemovedFromUserEvent.class, "removeRole-in-0",
+      UserDiscordModificationEvent.class, "modifyDiscord-in-0",
+      UserEmailModificationEvent.class, "modifyEmail-in-0",
+      UserNameModificationEvent.class, "modifyName-in-0",
+      UserNamespaceModificationEvent.class, "modifyNamespace-in-0",
+      UserNamespaceAndNameModificationEvent.class, "modifyNamespaceAndName-in-0",
+      UserSubjectModificationEvent.class, "modifySubject-in-0"
+  );
+  
+  @Value("${kp-users.messaging.coalesce.send-window:PT0S}")
+  private Duration window = Duration.ZERO;
+  
+  @ToString.Include
+  private UserEventCoalescer coalescer;
+  
   
   @Autowired
-  public SendUserModificationEventsHandler(@NotNull StreamBridge sender, @NotNull final UserEventMessagingConverter converter) {
-    super(sender, converter);
+  public SendUserModificationEventsHandler(@NotNull final UserEventsOutbox outbox) {
+    super(outbox);
+  }
+  
+  @PostConstruct
+  public void init() {
+    log.entry(window);
+    
+    if (window.isPositive()) {
+      coalescer = new UserEventCoalescer("send", window, e -> sendEvent(BINDINGS.get(e.getClass()), e));
+    }
+    
+    log.exit(coalescer);
+  }
+  
+  @PreDestroy
+  public void close() {
+    log.entry(coalescer);
+    
+    if (coalescer != null) {
+      coalescer.close();
+    }
+    
+    log.exit();
+  }
+  
+  
+  /**
+   * Sends the pending modifications of the user before the state event is sent.
+   *
+   * @param event the state event of the user.
+   */
+  @EventListener
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public void onUserStateChange(@NotNull final UserStateBaseEvent event) {
+    log.entry(event);
+    
+    if (coalescer != null && event.getUser() != null) {
+      coalescer.flush(event.getUser().getId());
+    }
+    
+    log.exit();
+  }
+  
+  private void send(@NotNull final String binding, @NotNull final UserModificationBaseEvent event) {
+    if (coalescer != null && isLocalEvent(event)) {
+      coalescer.offer(event);
+    } else {
+      sendEvent(binding, event);
+    }
   }
   
   @EventListener
   public void onRoleAddedToUser(@NotNull @Valid final RoleAddedToUserEvent event) {
     log.entry(event);
 
-    sendEvent("addingRole-in-0", event);
+    send("addingRole-in-0", event);
 
     log.exit();
   }
@@ -58,7 +137,7 @@ public class SendUserModificationEventsHandler extends AbstractSendUserEventsHan
   public void onRoleRemovedFromUser(@NotNull @Valid final RoleRemovedFromUserEvent event) {
     log.entry(event);
 
-    sendEvent("removeRole-in-0", event);
+    send("removeRole-in-0", event);
 
     log.exit();
   }
@@ -68,7 +147,7 @@ public class SendUserModificationEventsHandler extends AbstractSendUserEventsHan
   public void onModifyDiscord(@Valid final UserDiscordModificationEvent event) {
     log.entry(event);
 
-    sendEvent("modifyDiscord-in-0", event);
+    send("modifyDiscord-in-0", event);
 
     log.exit();
   }
@@ -77,7 +156,7 @@ public class SendUserModificationEventsHandler extends AbstractSendUserEventsHan
   public void onUserEmailModification(@Valid final UserEmailModificationEvent event) {
     log.entry(event);
 
-    sendEvent("modifyEmail-in-0", event);
+    send("modifyEmail-in-0", event);
 
     log.exit();
   }
@@ -87,7 +166,7 @@ public class SendUserModificationEventsHandler extends AbstractSendUserEventsHan
   public void onUserNameModification(@Valid final UserNameModificationEvent event) {
     log.entry(event);
 
-    sendEvent("modifyName-in-0", event);
+    send("modifyName-in-0", event);
 
     log.exit();
   }
@@ -97,7 +176,7 @@ public class SendUserModificationEventsHandler extends AbstractSendUserEventsHan
   public void onUserNamespaceModification(@Valid final UserNamespaceModificationEvent event) {
     log.entry(event);
 
-    sendEvent("modifyNamespace-in-0", event);
+    send("modifyNamespace-in-0", event);
 
     log.exit();
   }
@@ -107,7 +186,7 @@ public class SendUserModificationEventsHandler extends AbstractSendUserEventsHan
   public void onUserNamespaceAndNameModification(@Valid final UserNamespaceAndNameModificationEvent event) {
     log.entry(event);
 
-    sendEvent("modifyNamespaceAndName-in-0", event);
+    send("modifyNamespaceAndName-in-0", event);
 
     log.exit();
   }
@@ -117,7 +196,7 @@ public class SendUserModificationEventsHandler extends AbstractSendUserEventsHan
   public void onUserSubjectModification(@Valid final UserSubjectModificationEvent event) {
     log.entry(event);
 
-    sendEvent("modifySubject-in-0", event);
+    send("modifySubject-in-0", event);
 
     log.exit();
   }
@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.*;
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+
+/**
+ * Merges bursts of modification events of a user into as few events as possible.
+ *
+ * <p>The first modification of a user opens a window. All modifications of the user within the window are kept and
+ * handed to the sink when the window closes. A later modification of the same field replaces the earlier one, adding
+ * and removing the same role keeps only the latest, and a name and a namespace change are merged into one
+ * {@link UserNamespaceAndNameModificationEvent}. Modifications of different fields stay separate events, there is no
+ * event type for an arbitrary set of changed fields.</p>
+ *
+ * <p>State transitions must not overtake the modifications sent before them. So the owner calls {@link #flush(UUID)}
+ * before a state event of the user is passed on. A flush waits for a running flush of the same user, so the pending
+ * modifications always reach the sink first.</p>
+ *
+ * <p>A flush hands the events to the sink in the calling thread. Flushes of closing windows are started via the
+ * {@code lanes} given to the constructor, for received events the lane of the user in the {@link UserEventDispatcher}.
+ * So the merged events are handled in order with the other events of the user. The acknowledgements of the messages
+ * offered with {@link #offer(UserModificationBaseEvent, MessageAcknowledgement)} are given when all events of the
+ * window have been handed to the sink, or rejected when the sink failed.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@ToString(of = {"name", "window", "offered", "coalesced"})
+@XSlf4j
+public class UserEventCoalescer implements AutoCloseable {
+  private static final String NAME_KEY = "name";
+  private static final int STRIPES = 64;
+  
+  private final String name;
+  private final Duration window;
+  private final BiConsumer<Object, Runnable> lanes;
+  private final Consumer<UserModificationBaseEvent> sink;
+  
+  /** The pending modifications per user id. Guarded by itself. */
+  private final HashMap<UUID, Pending> pending = new HashMap<>();
+  
+  /** Serializes the flushes per stripe of user ids, so a flush of a user can't overtake a running one. */
+  private final ReentrantLock[] flushing = new ReentrantLock[STRIPES];
+  
+  private final ScheduledExecutorService scheduler;
+  
+  private final AtomicLong offered = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  
+  
+  /**
+   * @param name the name of the coalescer (used for the thread name and logging).
+   * @param window the time modifications of a user are collected.
+   * @param sink the receiver of the coalesced events.
+   */
+  public UserEventCoalescer(
+      @NotNull final String name,
+      @NotNull final Duration window,
+      @NotNull final Consumer<UserModificationBaseEvent> sink
+  ) {
+    this(name, window, (key, task) -> task.run(), sink);
+  }
+  
+  /**
+   * @param name the name of the coalescer (used for the thread name and logging).
+   * @param window the time modifications of a user are collected.
+   * @param lanes runs the flush of a closing window for the user id (e.g. {@link UserEventDispatcher#dispatch(Object,
+   *     Runnable)}).
+   * @param sink the receiver of the coalesced events.
+   */
+  public UserEventCoalescer(
+      @NotNull final String name,
+      @NotNull final Duration window,
+      @NotNull final BiConsumer<Object, Runnable> lanes,
+      @NotNull final Consumer<UserModificationBaseEvent> sink
+  ) {
+    this.name = name;
+    this.window = window;
+    this.lanes = lanes;
+    this.sink = sink;
+    
+    for (int i = 0; i < STRIPES; i++) {
+      flushing[i] = new ReentrantLock();
+    }
+    
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread result = new Thread(r, "kp-users-coalesce-" + name);
+      result.setDaemon(true);
+      
+      return result;
+    });
+  }
+  
+  
+  /**
+   * Adds a modification to the window of its user.
+   *
+   * @param event the modification.
+   */
+  public void offer(@NotNull final UserModificationBaseEvent event) {
+    offer(event, null);
+  }
+  
+  /**
+   * Adds a received modification to the window of its user. The message is acknowledged when the window has been
+   * handed to the sink.
+   *
+   * @param event the modification.
+   * @param acknowledgement the acknowledgement of the message of the event (may be null).
+   */
+  public void offer(
+      @NotNull final UserModificationBaseEvent event,
+      @Nullable final MessageAcknowledgement acknowledgement
+  ) {
+    log.entry(event, acknowledgement);
+    
+    UUID userId = event.getUser() != null ? event.getUser().getId() : null;
+    if (userId == null) {
+      deliver(List.of(event), acknowledgement != null ? List.of(acknowledgement) : List.of());
+      
+      log.exit();
+      return;
+    }
+    
+    offered.incrementAndGet();
+    
+    synchronized (pending) {
+      Pending events = pending.computeIfAbsent(userId, id -> new Pending(
+          scheduler.schedule(() -> closeWindow(id), window.toMillis(), TimeUnit.MILLISECONDS)
+      ));
+      
+      if (acknowledgement != null) {
+        events.acknowledgements.add(acknowledgement);
+      }
+      
+      Object key = key(event);
+      UserModificationBaseEvent earlier = events.events.remove(key);
+      
+      if (earlier != null) {
+        coalesced.incrementAndGet();
+        events.events.put(key, merge(earlier, event));
+      } else {
+        events.events.put(key, event);
+      }
+    }
+    
+    log.exit();
+  }
+  
+  /**
+   * Hands the pending modifications of a user to the sink.
+   *
+   * @param userId the id of the user.
+   */
+  public void flush(@Nullable final UUID userId) {
+    if (userId == null) {
+      return;
+    }
+    
+    ReentrantLock lock = flushing[Math.floorMod(userId.hashCode(), STRIPES)];
+    lock.lock();
+    try {
+      Pending events;
+      synchronized (pending) {
+        events = pending.remove(userId);
+      }
+      
+      if (events != null) {
+        events.flush.cancel(false);
+        deliver(events.events.values(), events.acknowledgements);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+  
+  /**
+   * Hands all pending modifications to the sink.
+   */
+  public void flushAll() {
+    List<UUID> users;
+    synchronized (pending) {
+      users = new ArrayList<>(pending.keySet());
+    }
+    
+    users.forEach(this::closeWindow);
+  }
+  
+  /**
+   * Flushes the window of the user in its lane.
+   *
+   * @param userId the id of the user.
+   */
+  private void closeWindow(@NotNull final UUID userId) {
+    try {
+      lanes.accept(userId, () -> flush(userId));
+    } catch (RuntimeException e) {
+      log.error("Can't flush the coalesced events. coalescer={}, user={}, error={}", name, userId, e.getMessage(), e);
+    }
+  }
+  
+  @Override
+  public void close() {
+    log.entry(name);
+    
+    scheduler.shutdownNow();
+    flushAll();
+    
+    log.exit();
+  }
+  
+  
+  /**
+   * @return the number of modifications offered since startup.
+   */
+  public long getOffered() {
+    return offered.get();
+  }
+  
+  /**
+   * @return the number of modifications merged into an earlier one since startup.
+   */
+  public long getCoalesced() {
+    return coalesced.get();
+  }
+  
+  
+  private void deliver(
+      @NotNull final Collection<UserModificationBaseEvent> events,
+      @NotNull final List<MessageAcknowledgement> acknowledgements
+  ) {
+    boolean delivered = true;
+    
+    for (UserModificationBaseEvent event : events) {
+      try {
+        sink.accept(event);
+      } catch (RuntimeException e) {
+        delivered = false;
+        log.error("Can't pass on the coalesced event. coalescer={}, event={}, error={}", name, event, e.getMessage(), e);
+      }
+    }
+    
+    for (MessageAcknowledgement acknowledgement : acknowledgements) {
+      if (delivered) {
+        acknowledgement.accept();
+      } else {
+        acknowledgement.reject();
+      }
+    }
+  }
+  
+  /**
+   * @param event the modification.
+   * @return the key of the changed data: the event class, the role or the name of the user.
+   */
+  private static Object key(@NotNull final UserModificationBaseEvent event) {
+    if (event instanceof RoleAddedToUserEvent added && added.getRole() != null) {
+      return added.getRole().getId();
+    } else if (event instanceof RoleRemovedFromUserEvent removed && removed.getRole() != null) {
+      return removed.getRole().getId();
+    } else if (setsName(event) || setsNameSpace(event)) {
+      return NAME_KEY;
+    }
+    
+    return event.getClass();
+  }
+  
+  /**
+   * Merges two modifications of the same data. The later one wins, only name and namespace are combined.
+   *
+   * @param earlier the earlier modification.
+   * @param later the later modification.
+   * @return the merged modification.
+   */
+  static UserModificationBaseEvent merge(
+      @NotNull final UserModificationBaseEvent earlier,
+      @NotNull final UserModificationBaseEvent later
+  ) {
+    if (later instanceof UserNamespaceAndNameModificationEvent || !NAME_KEY.equals(key(earlier))) {
+      return later;
+    }
+    
+    boolean nameSpace = setsNameSpace(later) || setsNameSpace(earlier);
+    boolean name = setsName(later) || setsName(earlier);
+    
+    if (!nameSpace || !name) {
+      return later;
+    }
+    
+    User user = later.getUser();
+    KpUserDetails.KpUserDetailsBuilder merged = user instanceof KpUserDetails details
+        ? details.toBuilder()
+        : KpUserDetails.builder().id(user.getId()).created(user.getCreated()).modified(user.getModified());
+    
+    return UserNamespaceAndNameModificationEvent.builder()
+        .id(later.getId())
+        .timestamp(later.getTimestamp())
+        .application(later.getApplication())
+        .delta(later.isDelta())
+        .user(merged
+            .nameSpace(setsNameSpace(later) ? user.getNameSpace() : earlier.getUser().getNameSpace())
+            .name(setsName(later) ? user.getName() : earlier.getUser().getName())
+            .build())
+        .build();
+  }
+  
+  private static boolean setsNameSpace(@NotNull final UserModificationBaseEvent event) {
+    return event instanceof UserNamespaceModificationEvent || event instanceof UserNamespaceAndNameModificationEvent;
+  }
+  
+  private static boolean setsName(@NotNull final UserModificationBaseEvent event) {
+    return event instanceof UserNameModificationEvent || event instanceof UserNamespaceAndNameModificationEvent;
+  }
+  
+  
+  /**
+   * The modifications of a user within the current window in the order of their last change.
+   */
+  private static class Pending {
+    private final LinkedHashMap<Object, UserModificationBaseEvent> events = new LinkedHashMap<>();
+    private final ArrayList<MessageAcknowledgement> acknowledgements = new ArrayList<>();
+    private final ScheduledFuture<?> flush;
+    
+    private Pending(@NotNull final ScheduledFuture<?> flush) {
+      this.flush = flush;
+    }
+  }
+}
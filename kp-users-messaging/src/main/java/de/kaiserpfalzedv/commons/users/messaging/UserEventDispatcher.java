@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import de.kaiserpfalzedv.commons.api.events.BaseEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.UserBaseEvent;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Hands the received events to a fixed number of lanes, keyed by the user id.
+ *
+ * <p>All events of a user go to the same lane and are handled strictly in the order they have been received. Events
+ * of different users are handled in parallel by {@code kp-users.messaging.lanes} threads (default: number of cores).
+ * With 0 lanes the events are handled by the calling binder thread, as before.</p>
+ *
+ * <p>Every lane has a queue of {@code kp-users.messaging.lane-capacity} events (default: 100). A full queue blocks the
+ * binder thread, so the broker stops delivering instead of the node buffering without bounds.</p>
+ *
+ * <p>A message is acknowledged only after its event has been handled by the lane (see
+ * {@link MessageAcknowledgement}), so the events of a crashing node are redelivered by the broker and the prefetch of
+ * the binding limits the events in the lanes. A failing event is retried and then dead-lettered by the
+ * {@link UserEventRetry}. If that fails too, the message is rejected and goes to the dead letter queue of the binder.
+ * Binders which can't acknowledge manually acknowledge a message when the consumer returns, so their events are
+ * handled by the binder thread.</p>
+ *
+ * <p>On shutdown the lanes stop accepting events and finish their queues. The running events are not interrupted, so
+ * they are not dead-lettered while they wait for their next retry. Events dispatched meanwhile are still queued, so
+ * they keep their order. Once a lane has finished, its events are handled by the calling thread.</p>
+ *
+ * <p>The order is kept per node only. The consumers have no group, so every node receives all events of a destination
+ * from its own queue in the order they have been sent.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@Service
+@ToString(of = {"capacity"})
+@XSlf4j
+public class UserEventDispatcher implements AutoCloseable {
+  private final UserEventRetry retry;
+  private final int capacity;
+  
+  private final Lane[] lanes;
+  
+  private boolean closed = false;
+  
+  
+  public UserEventDispatcher(
+      @NotNull final UserEventRetry retry,
+      @Value("${kp-users.messaging.lanes:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") final int lanes,
+      @Value("${kp-users.messaging.lane-capacity:100}") final int capacity
+  ) {
+    if (lanes > 0 && capacity <= 0) {
+      throw new IllegalArgumentException("The lane capacity has to be positive. lanes=" + lanes + ", capacity=" + capacity);
+    }
+    
+    this.retry = retry;
+    this.capacity = capacity;
+    this.lanes = new Lane[Math.max(0, lanes)];
+    
+    for (int i = 0; i < this.lanes.length; i++) {
+      this.lanes[i] = new Lane(i, capacity);
+    }
+  }
+  
+  
+  @PostConstruct
+  public void init() {
+    log.entry();
+    
+    for (Lane lane : lanes) {
+      lane.start();
+    }
+    
+    log.info("Started event lanes. lanes={}, capacity={}", lanes.length, capacity);
+    log.exit();
+  }
+  
+  @Override
+  @PreDestroy
+  public synchronized void close() {
+    log.entry();
+    
+    if (closed) {
+      log.exit();
+      return;
+    }
+    
+    closed = true;
+    for (Lane lane : lanes) {
+      lane.stop();
+    }
+    for (Lane lane : lanes) {
+      lane.join(Duration.ofSeconds(10L));
+    }
+    
+    log.info("Stopped event lanes. left={}", getDepth());
+    log.exit();
+  }
+  
+  
+  /**
+   * Handles the event in the lane of its user. Failures are retried and dead-lettered. The message of the event is
+   * acknowledged when the event has been handled.
+   *
+   * @param event the received event.
+   * @param task the handling of the event.
+   */
+  public void dispatch(@NotNull final BaseEvent event, @NotNull final Runnable task) {
+    MessageAcknowledgement acknowledgement = MessageAcknowledgement.take();
+    
+    if (acknowledgement == null) {
+      dispatch(lanes.length > 0 ? key(event) : null, () -> retry.run(event, task));
+      return;
+    }
+    
+    if (acknowledgement.isAuto()) {
+      // the binder acknowledges the message when the consumer returns, so the event has to be handled before.
+      retry.run(event, task);
+      return;
+    }
+    
+    dispatch(lanes.length > 0 ? key(event) : null, () -> {
+      try {
+        retry.run(event, task);
+      } catch (RuntimeException e) {
+        acknowledgement.reject();
+        throw e;
+      }
+      
+      acknowledgement.accept();
+    });
+  }
+  
+  /**
+   * Handles a task in the lane of the key.
+   *
+   * @param key the partition key (the user id). Tasks without a key or dispatched after the lane has finished are
+   *     handled by the calling thread.
+   * @param task the task.
+   */
+  public void dispatch(@Nullable final Object key, @NotNull final Runnable task) {
+    if (lanes.length == 0 || key == null || !lanes[lane(key)].put(task)) {
+      task.run();
+    }
+  }
+  
+  /**
+   * @param key the partition key.
+   * @return the index of the lane handling the key.
+   */
+  int lane(@NotNull final Object key) {
+    int hash = key.hashCode();
+    return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+  }
+  
+  /**
+   * @return the number of lanes (0 if events are handled by the binder threads).
+   */
+  public int getLanes() {
+    return lanes.length;
+  }
+  
+  /**
+   * @return the number of events waiting in all lanes.
+   */
+  public int getDepth() {
+    int result = 0;
+    
+    for (Lane lane : lanes) {
+      result += lane.queue.size();
+    }
+    
+    return result;
+  }
+  
+  
+  /**
+   * @param event the event.
+   * @return the partition key of the event: the user id of user events, nothing otherwise.
+   */
+  @Nullable
+  static Object key(@NotNull final BaseEvent event) {
+    if (event instanceof UserBaseEvent user && user.getUser() != null) {
+      return user.getUser().getId();
+    }
+    
+    return null;
+  }
+  
+  
+  /**
+   * A single thread working on its queue.
+   */
+  private static class Lane implements Runnable {
+    /** Wakes up the worker waiting for the next task when the lane is stopped. */
+    private static final Runnable WAKE_UP = () -> {};
+    
+    private final ArrayBlockingQueue<Runnable> queue;
+    private final Thread worker;
+    
+    private volatile boolean running = false;
+    /** Set when the worker works on the last tasks and won't wait for new ones. */
+    private volatile boolean done = false;
+    
+    
+    private Lane(final int index, final int capacity) {
+      this.queue = new ArrayBlockingQueue<>(capacity);
+      
+      this.worker = new Thread(this, "kp-users-lane-" + index);
+      this.worker.setDaemon(true);
+    }
+    
+    private void start() {
+      running = true;
+      worker.start();
+    }
+    
+    private void stop() {
+      running = false;
+      
+      // a full queue can't be offered to, but then the worker doesn't wait for the next task either.
+      //noinspection ResultOfMethodCallIgnored
+      queue.offer(WAKE_UP);
+    }
+    
+    private void join(@NotNull final Duration timeout) {
+      try {
+        worker.join(timeout.toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    
+    /**
+     * @param task the task to queue.
+     * @return true if the lane handles the task, false if the lane has finished and the caller has to.
+     */
+    private boolean put(@NotNull final Runnable task) {
+      try {
+        while (!queue.offer(task, 100L, TimeUnit.MILLISECONDS)) {
+          if (done) {
+            awaitFinished();
+            return false;
+          }
+        }
+        
+        if (!done) {
+          return true;
+        }
+        
+        // the worker may have taken its last task meanwhile. Either it has handled this one too or the caller has to
+        // after the earlier tasks.
+        awaitFinished();
+        return !queue.remove(task);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        
+        throw new IllegalStateException("Interrupted while waiting for a free slot in the event lane.", e);
+      }
+    }
+    
+    private void awaitFinished() throws InterruptedException {
+      if (Thread.currentThread() != worker) {
+        worker.join();
+      }
+    }
+    
+    @Override
+    public void run() {
+      while (running) {
+        try {
+          work(queue.take());
+        } catch (InterruptedException e) {
+          log.warn("Event lane has been interrupted. Finishing the queue. lane={}", worker.getName());
+          running = false;
+        }
+      }
+      
+      drain();
+      done = true;
+      drain();
+    }
+    
+    private void drain() {
+      for (Runnable task = queue.poll(); task != null; task = queue.poll()) {
+        work(task);
+      }
+    }
+    
+    private void work(@NotNull final Runnable task) {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        log.error("Event handling failed. lane={}, error={}", worker.getName(), e.getMessage(), e);
+      }
+    }
+  }
+}
@@ -18,33 +18,65 @@
 package de.kaiserpfalzedv.commons.users.messaging;
 
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import de.kaiserpfalzedv.commons.api.events.BaseEvent;
 import de.kaiserpfalzedv.commons.users.domain.model.apikey.events.ApiKeyBaseEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.policy.events.PolicyBaseEvent;
 import de.kaiserpfalzedv.commons.users.domain.model.role.events.RoleBaseEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
 import de.kaiserpfalzedv.commons.users.domain.model.user.events.UserBaseEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.UserModificationBaseEvent;
 import jakarta.annotation.PostConstruct;
+import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.extern.slf4j.XSlf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AssignableTypeFilter;
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.converter.AbstractMessageConverter;
 import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
 
+import java.io.IOException;
 import java.io.Serial;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
- * A mapper to map user events to messages with content type {@link MimeTypes.APPLICATION_JSON}.
- * The encoding is {@link String} and not {@link byte[]}.
+ * A mapper to map user events to messages with content type {@link MimeTypeUtils#APPLICATION_JSON} or
+ * {@link #APPLICATION_CBOR}.
+ *
+ * <p>Outgoing events are encoded as configured by {@code kp-users.messaging.content-type}: JSON as {@link String}
+ * (default) or CBOR as {@code byte[]}. CBOR messages are smaller and cheaper to parse, which pays off for the events
+ * embedding a complete user. Incoming events are decoded by the content type of the message, so nodes with different
+ * settings can share a destination during a rollout.</p>
+ *
+ * <p>The {@code eventType} header names the class to decode. The payload is read directly into that class, it has to
+ * be assignable to the target class of the binding. The {@link EventCodec}s of all event classes are built at startup
+ * by scanning the packages of the supported classes, classes found later are added on first use. Only classes of the
+ * registry are decoded.</p>
+ *
+ * <p>Modification events are sent as {@link UserModificationBaseEvent#toDelta() deltas}: the user only contains the
+ * id, the modification timestamp and the changed fields, empty fields are left out. The fields having a default in
+ * the user builder ({@code created}, {@code nameSpace}) are sent as explicit {@code null}, so the receiver does not
+ * fill them with made-up defaults. That is switched off by
+ * {@code kp-users.messaging.delta-modifications=false} for consumers still expecting the full user.</p>
  *
  * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
  * @since 2025-05-23
@@ -60,36 +92,118 @@ public class UserEventMessagingConverter extends AbstractMessageConverter {
   private static final Set<Class<?>> SUPPORTED_CLASSES = Set.of(
       UserBaseEvent.class,
       ApiKeyBaseEvent.class,
+      PolicyBaseEvent.class,
       RoleBaseEvent.class
   );
   
+  /** The cached {@link #supports(Class)} decision per class. */
+  private static final ClassValue<Boolean> SUPPORTED = new ClassValue<>() {
+    @Override
+    protected Boolean computeValue(final Class<?> type) {
+      return SUPPORTED_CLASSES.stream().anyMatch(c -> c.isAssignableFrom(type));
+    }
+  };
+  
+  /** The content type of CBOR encoded events. */
+  public static final MimeType APPLICATION_CBOR = MimeType.valueOf("application/cbor");
+  
   private final ObjectMapper objectMapper;
   
+  /** The mapper for CBOR, sharing the configuration and modules of the JSON mapper. */
+  @ToString.Exclude
+  private ObjectMapper cborMapper;
+  
+  /** The codecs by their {@code eventType} header. */
+  @ToString.Exclude
+  private final Map<String, EventCodec> codecs = new ConcurrentHashMap<>();
+  
+  /** The codecs by their event class. */
+  @ToString.Exclude
+  private final Map<Class<?>, EventCodec> codecsByClass = new ConcurrentHashMap<>();
+  
+  /** The mappers leaving out empty fields, used for the delta modification events. */
+  @ToString.Exclude
+  private ObjectMapper compactJsonMapper;
+  @ToString.Exclude
+  private ObjectMapper compactCborMapper;
+  
+  @Value("${kp-users.messaging.delta-modifications:true}")
+  private boolean deltaModifications = true;
+  
+  @Value("${kp-users.messaging.content-type:application/json}")
+  private String contentType = MimeTypeUtils.APPLICATION_JSON_VALUE;
+  
+  /** The content type of outgoing events. */
+  private MimeType outgoing = MimeTypeUtils.APPLICATION_JSON;
+  
   @PostConstruct
   public void init() {
     log.entry(objectMapper);
     
     log.debug("Registering supported classes: {}", SUPPORTED_CLASSES);
     
-    super.addSupportedMimeTypes(MimeTypeUtils.APPLICATION_JSON);
+    cborMapper = objectMapper.copyWith(new CBORFactory());
+    compactJsonMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_EMPTY)
+        .addMixIn(KpUserDetails.class, DeltaUserMixIn.class);
+    compactCborMapper = cborMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_EMPTY)
+        .addMixIn(KpUserDetails.class, DeltaUserMixIn.class);
+    outgoing = MimeType.valueOf(contentType);
+    super.addSupportedMimeTypes(MimeTypeUtils.APPLICATION_JSON, APPLICATION_CBOR);
+    
+    registerEventClasses();
     
     log.exit();
   }
   
-  @Override
-  protected boolean supports(final Class<?> clazz) {
-    log.entry(clazz);
-    
-    boolean result = false;
+  /**
+   * Builds the codecs of all concrete event classes found below the packages of the supported classes.
+   */
+  private void registerEventClasses() {
+    ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+    SUPPORTED_CLASSES.forEach(c -> scanner.addIncludeFilter(new AssignableTypeFilter(c)));
     
-    for (Class<?> supportedClass : SUPPORTED_CLASSES) {
-      if (supportedClass.isAssignableFrom(clazz)) {
-        result = true;
-        break;
-      }
-    }
+    SUPPORTED_CLASSES.stream()
+        .map(Class::getPackageName)
+        .distinct()
+        .flatMap(p -> scanner.findCandidateComponents(p).stream())
+        .map(BeanDefinition::getBeanClassName)
+        .distinct()
+        .forEach(name -> {
+          try {
+            codec(ClassUtils.forName(name, getClass().getClassLoader()));
+          } catch (ClassNotFoundException | LinkageError e) {
+            log.warn("Can't load event class. class={}, error={}", name, e.getMessage());
+          }
+        });
     
-    return log.exit(result);
+    log.info("Registered event codecs. count={}", codecs.size());
+  }
+  
+  /**
+   * Returns the codec of an event class and creates it if the class has not been seen before.
+   *
+   * @param type the event class.
+   * @return the codec of the event class.
+   */
+  private EventCodec codec(@NotNull final Class<?> type) {
+    return codecsByClass.computeIfAbsent(type, t -> {
+      EventCodec result = isDelta(t)
+          ? new EventCodec(t, compactJsonMapper, compactCborMapper, outgoing)
+          : new EventCodec(t, objectMapper, cborMapper, outgoing);
+      codecs.put(result.getEventType(), result);
+      
+      return result;
+    });
+  }
+  
+  private boolean isDelta(@NotNull final Class<?> type) {
+    return deltaModifications && UserModificationBaseEvent.class.isAssignableFrom(type);
+  }
+  
+  @Override
+  protected boolean supports(final Class<?> clazz) {
+    // BaseEvent is accepted as target for the readers of mixed destinations (dead letters), the eventType decides.
+    return clazz == BaseEvent.class || SUPPORTED.get(clazz);
   }
   
   
@@ -97,32 +211,58 @@ public class UserEventMessagingConverter extends AbstractMessageConverter {
   protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
     log.entry(message, targetClass, conversionHint);
     
-    String eventType = message.getHeaders().get("eventType", String.class);
+    String eventType = message.getHeaders().get(EventCodec.EVENT_TYPE, String.class);
+    EventCodec codec = eventType != null ? codecs.get(eventType) : null;
     
-    if (! eventType.equals(targetClass.getCanonicalName())) {
+    if (codec == null || !targetClass.isAssignableFrom(codec.getType())) {
       throw log.throwing(
           new IllegalStateException("The target class and the the event type does not match! targetClass=%s, eventType=%s".formatted(targetClass.getCanonicalName(), eventType))
       );
     }
     log.debug("Working on message. eventType={}", eventType);
     
-    return log.exit(objectMapper.convertValue(message.getPayload(), targetClass));
+    Object payload = message.getPayload();
+    
+    try {
+      if (payload instanceof byte[] bytes) {
+        ObjectReader reader = isCbor(getMimeType(message.getHeaders())) ? codec.getCborReader() : codec.getJsonReader();
+        return log.exit(reader.readValue(bytes));
+      } else if (payload instanceof String string) {
+        return log.exit(codec.getJsonReader().readValue(string));
+      }
+    } catch (IOException e) {
+      throw log.throwing(new IllegalArgumentException("Cannot read event. eventType=%s".formatted(eventType), e));
+    }
+    
+    return log.exit(objectMapper.convertValue(payload, codec.getType()));
+  }
+  
+  private static boolean isCbor(@Nullable final MimeType mimeType) {
+    return mimeType != null && APPLICATION_CBOR.equalsTypeAndSubtype(mimeType);
   }
   
   
   @Override
-  protected String convertToInternal(
+  protected Object convertToInternal(
       final Object payload,
       @Nullable final MessageHeaders headers,
       @Nullable final Object conversionHint
   ) {
     log.entry(payload, headers, conversionHint);
     
-    String result;
+    EventCodec codec = codec(payload.getClass());
+    Object event = isDelta(payload.getClass()) ? ((UserModificationBaseEvent) payload).toDelta() : payload;
+    
+    Object result;
     try {
-      result = objectMapper.writeValueAsString(payload);
-      log.debug("Converted payload to JSON. json='{}'", result);
-    } catch (JsonProcessingException e) {
+      if (isCbor(getMimeType(headers))) {
+        result = codec.getCborWriter().writeValueAsBytes(event);
+        log.trace("Converted payload to CBOR. size={}", ((byte[]) result).length);
+      } else {
+        result = codec.getJsonWriter().writeValueAsString(event);
+        log.trace("Converted payload to JSON. json='{}'", result);
+      }
+    } catch (IOException e) {
       log.error(e.getMessage(), e);
       
       result = null;
@@ -132,13 +272,32 @@ public class UserEventMessagingConverter extends AbstractMessageConverter {
   }
   
   public MessageHeaders headers(BaseEvent payload) {
-    log.entry(payload);
+    return headers(payload, Map.of());
+  }
+  
+  /**
+   * @param payload the event.
+   * @param additional additional headers (e.g. the failure of a dead letter).
+   * @return the headers of the message carrying the event.
+   */
+  public MessageHeaders headers(BaseEvent payload, Map<String, Object> additional) {
+    log.entry(payload, additional);
+    
+    Map<String, Object> constant = codec(payload.getClass()).getHeaders();
+    Object userId = UserEventDispatcher.key(payload);
+    
+    Map<String, Object> values = constant;
+    if (userId != null || !additional.isEmpty()) {
+      values = new HashMap<>(constant);
+      values.putAll(additional);
+      
+      if (userId != null) {
+        values.put(EventCodec.USER_ID, userId.toString());
+      }
+    }
     
     final var headers = new BaseEventMessageHeaders(
-        Map.of(
-            "eventType", payload.getClass().getCanonicalName(),
-            MessageHeaders.CONTENT_TYPE, getSupportedMimeTypes().get(0)
-        ),
+        values,
         payload.getId(),
         payload.getTimestamp().toInstant().toEpochMilli()
     );
@@ -146,6 +305,18 @@ public class UserEventMessagingConverter extends AbstractMessageConverter {
     return log.exit(headers);
   }
   
+  /**
+   * Writes the user fields with a builder default even when they are empty. Otherwise the receiver of a delta would
+   * read the defaults (creation now, namespace {@code ./.}) instead of the missing values.
+   */
+  private abstract static class DeltaUserMixIn {
+    @JsonInclude(JsonInclude.Include.ALWAYS)
+    abstract OffsetDateTime getCreated();
+    
+    @JsonInclude(JsonInclude.Include.ALWAYS)
+    abstract String getNameSpace();
+  }
+  
   /**
    * Need to override {@link MessageHeaders} to make the id and timestamp accessible.
    */
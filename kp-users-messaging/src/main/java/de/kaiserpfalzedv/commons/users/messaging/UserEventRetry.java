@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import de.kaiserpfalzedv.commons.api.events.BaseEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.activity.UserActivityBaseEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.arbitration.UserArbitrationBaseEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.UserModificationBaseEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.state.UserStateBaseEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Retries the handling of a received event and dead-letters it when all attempts failed.
+ *
+ * <p>A failing event is retried up to {@code kp-users.messaging.retry.max-attempts} times. The delay starts with
+ * {@code initial-interval} and grows by {@code multiplier} up to {@code max-interval}. Each delay is shortened by a
+ * random part of up to {@code jitter} (0 to 1), so the nodes of a cluster don't retry in lock-step. The retry waits in
+ * the lane of the user, so a slow database slows down the consumption instead of piling up redeliveries. Errors in
+ * the event itself ({@link IllegalArgumentException}, {@link UnsupportedOperationException}) are not retried.</p>
+ *
+ * <p>After the last attempt the event is sent to the dead-letter destination of its destination (e.g.
+ * {@code kp-users.state.dlq}) with the failure in the {@value #EXCEPTION_HEADER} and {@value #ATTEMPTS_HEADER}
+ * headers. Events failing again on replay go to the parking lot (e.g. {@code kp-users.state.parking-lot}), see
+ * {@link DeadLetterReplayer}. The dead letter is sent synchronously and not through the {@link UserEventsOutbox}, so
+ * the received message is only acknowledged after the broker took its dead letter. When the dead letter can't be
+ * sent, the failure is thrown to the caller, so the binder rejects the received message instead of losing it. With
+ * {@code kp-users.messaging.retry.dead-letter=false} the failure is thrown to the caller right away.</p>
+ *
+ * <p>Retries, dead letters and parked events are counted as {@code kp-users.inbound.retries},
+ * {@code kp-users.inbound.dead-lettered} and {@code kp-users.inbound.parked}. Dead letters that couldn't be sent are
+ * counted as {@code kp-users.inbound.dead-letters-failed}.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@Service
+@ToString(of = {"maxAttempts", "initialInterval", "multiplier", "maxInterval", "jitter", "deadLetter"})
+@XSlf4j
+public class UserEventRetry {
+  public static final String DEAD_LETTER_SUFFIX = ".dlq";
+  public static final String PARKING_LOT_SUFFIX = ".parking-lot";
+  
+  /** The header with the last failure of a dead letter. */
+  public static final String EXCEPTION_HEADER = "x-kp-users-exception";
+  /** The header with the number of failed attempts of a dead letter. */
+  public static final String ATTEMPTS_HEADER = "x-kp-users-attempts";
+  
+  private final StreamBridge sender;
+  private final UserEventMessagingConverter converter;
+  private final ObjectProvider<MeterRegistry> meters;
+  
+  private final int maxAttempts;
+  private final Duration initialInterval;
+  private final double multiplier;
+  private final Duration maxInterval;
+  private final double jitter;
+  private final boolean deadLetter;
+  
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong deadLettered = new AtomicLong();
+  private final AtomicLong parked = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  
+  
+  @Autowired
+  public UserEventRetry(
+      @Nullable final StreamBridge sender,
+      @Nullable final UserEventMessagingConverter converter,
+      @Nullable final ObjectProvider<MeterRegistry> meters,
+      @Value("${kp-users.messaging.retry.max-attempts:3}") final int maxAttempts,
+      @Value("${kp-users.messaging.retry.initial-interval:PT0.1S}") final Duration initialInterval,
+      @Value("${kp-users.messaging.retry.multiplier:2.0}") final double multiplier,
+      @Value("${kp-users.messaging.retry.max-interval:PT5S}") final Duration maxInterval,
+      @Value("${kp-users.messaging.retry.jitter:0.5}") final double jitter,
+      @Value("${kp-users.messaging.retry.dead-letter:true}") final boolean deadLetter
+  ) {
+    this.sender = sender;
+    this.converter = converter;
+    this.meters = meters;
+    this.maxAttempts = Math.max(1, maxAttempts);
+    this.initialInterval = initialInterval;
+    this.multiplier = multiplier;
+    this.maxInterval = maxInterval;
+    this.jitter = Math.min(1.0, Math.max(0.0, jitter));
+    this.deadLetter = deadLetter && sender != null && converter != null;
+  }
+  
+  /**
+   * @return a policy running the handling once and throwing the failure to the caller.
+   */
+  public static UserEventRetry none() {
+    return new UserEventRetry(null, null, null, 1, Duration.ZERO, 1.0, Duration.ZERO, 0.0, false);
+  }
+  
+  
+  @PostConstruct
+  public void init() {
+    log.entry();
+    
+    if (meters != null) {
+      meters.ifAvailable(registry -> {
+        counter(registry, "kp-users.inbound.retries", retries, "Retried handlings of received events");
+        counter(registry, "kp-users.inbound.dead-lettered", deadLettered, "Received events sent to the dead letters");
+        counter(registry, "kp-users.inbound.parked", parked, "Replayed dead letters sent to the parking lot");
+        counter(registry, "kp-users.inbound.dead-letters-failed", failed, "Dead letters the broker didn't accept");
+      });
+    }
+    
+    log.info("Configured retry of received events. retry={}", this);
+    log.exit();
+  }
+  
+  private static void counter(
+      @NotNull final MeterRegistry registry,
+      @NotNull final String name,
+      @NotNull final AtomicLong value,
+      @NotNull final String description
+  ) {
+    FunctionCounter.builder(name, value, AtomicLong::doubleValue)
+        .description(description)
+        .register(registry);
+  }
+  
+  
+  /**
+   * Handles a received event, failures are sent to the dead letters.
+   *
+   * @param event the received event.
+   * @param task the handling of the event.
+   */
+  public void run(@NotNull final BaseEvent event, @NotNull final Runnable task) {
+    run(event, task, DEAD_LETTER_SUFFIX);
+  }
+  
+  /**
+   * Handles an event.
+   *
+   * @param event the event.
+   * @param task the handling of the event.
+   * @param suffix the suffix of the destination the event is sent to when all attempts failed.
+   */
+  public void run(@NotNull final BaseEvent event, @NotNull final Runnable task, @NotNull final String suffix) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        task.run();
+        return;
+      } catch (RuntimeException e) {
+        if (attempt >= maxAttempts || !isRetryable(e) || !backOff(attempt)) {
+          giveUp(event, e, attempt, suffix);
+          return;
+        }
+        
+        retries.incrementAndGet();
+        log.warn("Handling of event failed. Retrying. attempt={}, event={}, error={}", attempt, event, e.getMessage());
+      }
+    }
+  }
+  
+  private void giveUp(
+      @NotNull final BaseEvent event,
+      @NotNull final RuntimeException failure,
+      final int attempts,
+      @NotNull final String suffix
+  ) {
+    if (!deadLetter) {
+      throw failure;
+    }
+    
+    String destination = destination(event) + suffix;
+    log.error("Handling of event failed. Sending it to the dead letters. destination={}, attempts={}, event={}, error={}",
+        destination, attempts, event, failure.getMessage(), failure);
+    
+    try {
+      Message<?> message = converter.toMessage(event, converter.headers(event, Map.of(
+          EXCEPTION_HEADER, String.valueOf(failure),
+          ATTEMPTS_HEADER, attempts
+      )));
+      
+      if (message == null || !sender.send(destination, message)) {
+        throw new IllegalStateException("Dead letter has not been accepted. destination=" + destination);
+      }
+    } catch (RuntimeException e) {
+      failed.incrementAndGet();
+      log.error("Could not send dead letter. Handing the failure to the binder. destination={}, event={}, error={}",
+          destination, event, e.getMessage());
+      
+      failure.addSuppressed(e);
+      throw failure;
+    }
+    
+    if (PARKING_LOT_SUFFIX.equals(suffix)) {
+      parked.incrementAndGet();
+    } else {
+      deadLettered.incrementAndGet();
+    }
+  }
+  
+  /**
+   * Waits before the next attempt.
+   *
+   * @param attempt the number of the failed attempt.
+   * @return false if the thread has been interrupted (shutdown), so no further attempt should be made.
+   */
+  private boolean backOff(final int attempt) {
+    double delay = Math.min(
+        initialInterval.toMillis() * Math.pow(multiplier, attempt - 1),
+        maxInterval.toMillis()
+    );
+    long millis = (long) (delay * (1.0 - jitter * ThreadLocalRandom.current().nextDouble()));
+    
+    try {
+      Thread.sleep(millis);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+  
+  private static boolean isRetryable(@NotNull final Throwable failure) {
+    for (Throwable t = failure; t != null; t = t.getCause()) {
+      if (t instanceof IllegalArgumentException || t instanceof UnsupportedOperationException) {
+        return false;
+      }
+      
+      if (t.getCause() == t) {
+        break;
+      }
+    }
+    
+    return true;
+  }
+  
+  /**
+   * @param event the event.
+   * @return the destination the events of this kind are received from.
+   */
+  static String destination(@NotNull final BaseEvent event) {
+    if (event instanceof UserStateBaseEvent) {
+      return "kp-users.state";
+    } else if (event instanceof UserModificationBaseEvent) {
+      return "kp-users.modification";
+    } else if (event instanceof UserActivityBaseEvent) {
+      return "kp-users.activity";
+    } else if (event instanceof UserArbitrationBaseEvent) {
+      return "kp-users.arbitration";
+    }
+    
+    return "kp-users.events";
+  }
+  
+  
+  public long getRetries() {
+    return retries.get();
+  }
+  
+  public long getDeadLettered() {
+    return deadLettered.get();
+  }
+  
+  public long getParked() {
+    return parked.get();
+  }
+  
+  public long getFailed() {
+    return failed.get();
+  }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import de.kaiserpfalzedv.commons.api.events.BaseEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Sends the local events to the broker on a dedicated thread.
+ *
+ * <p>The event listeners only put the event into a bounded queue, so a domain operation never waits for the
+ * serialization or the broker. The sender thread drains up to {@code kp-users.messaging.outbox.batch-size} events at a
+ * time and converts and sends them one by one in the order they have been queued ({@link StreamBridge} has no batch
+ * send, draining only saves the hand-over between the threads). The events of a user are never reordered, so a state
+ * transition can't overtake the modifications sent before it.</p>
+ *
+ * <p>An event the broker doesn't accept is sent again, waiting {@code kp-users.messaging.outbox.retry-interval}
+ * before the first retry and twice as long before each following one, up to
+ * {@code kp-users.messaging.outbox.max-retry-interval}. The following events wait for it, so a broker outage fills the
+ * queue instead of losing events. Only events that can't be converted into a message and events still failing when
+ * the outbox is shut down are lost.</p>
+ *
+ * <p>When the queue is full, {@code kp-users.messaging.outbox.overflow} decides what happens:</p>
+ * <dl>
+ *   <dt>{@link Overflow#FAIL}</dt><dd>the publisher gets an {@link OutboxFullException}, so the domain operation
+ *   publishing the event fails instead of losing it silently (default).</dd>
+ *   <dt>{@link Overflow#BLOCK}</dt><dd>the publisher waits up to {@code kp-users.messaging.outbox.block-timeout} for
+ *   free space and gets an {@link OutboxFullException} afterwards. Don't use it when events are published on reactive
+ *   threads.</dd>
+ *   <dt>{@link Overflow#DROP_NEWEST}</dt><dd>the new event is dropped.</dd>
+ *   <dt>{@link Overflow#DROP_OLDEST}</dt><dd>the oldest queued event is dropped to make room.</dd>
+ * </dl>
+ *
+ * <p>The queue depth is exported as gauge {@code kp-users.outbox.depth}, sent, retried, rejected, dropped and failed
+ * events as counters {@code kp-users.outbox.sent}, {@code kp-users.outbox.retries}, {@code kp-users.outbox.rejected},
+ * {@code kp-users.outbox.dropped} and {@code kp-users.outbox.failed}.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-25
+ */
+@Service
+@ToString(of = {"capacity", "batchSize", "overflow"})
+@XSlf4j
+public class UserEventsOutbox {
+  /** What to do with an event when the queue is full. */
+  public enum Overflow {
+    FAIL,
+    BLOCK,
+    DROP_NEWEST,
+    DROP_OLDEST
+  }
+  
+  /** The outbox is full and can't take the event. */
+  public static class OutboxFullException extends IllegalStateException {
+    public OutboxFullException(@NotNull final String binding, @NotNull final BaseEvent event) {
+      super("Event outbox is full. binding=%s, event=%s".formatted(binding, event));
+    }
+  }
+  
+  /** An event waiting to be sent. */
+  record Outgoing(String binding, BaseEvent event, Map<String, Object> headers) {}
+  
+  private final StreamBridge sender;
+  private final UserEventMessagingConverter converter;
+  private final ObjectProvider<MeterRegistry> meters;
+  
+  private final int capacity;
+  private final int batchSize;
+  private final Overflow overflow;
+  private final Duration blockTimeout;
+  private final Duration retryInterval;
+  private final Duration maxRetryInterval;
+  
+  private final ArrayBlockingQueue<Outgoing> queue;
+  private final AtomicLong sent = new AtomicLong();
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong rejected = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  
+  private volatile boolean running = false;
+  private Thread worker;
+  
+  
+  public UserEventsOutbox(
+      @NotNull final StreamBridge sender,
+      @NotNull final UserEventMessagingConverter converter,
+      @NotNull final ObjectProvider<MeterRegistry> meters,
+      @Value("${kp-users.messaging.outbox.capacity:10000}") final int capacity,
+      @Value("${kp-users.messaging.outbox.batch-size:100}") final int batchSize,
+      @Value("${kp-users.messaging.outbox.overflow:FAIL}") final Overflow overflow,
+      @Value("${kp-users.messaging.outbox.block-timeout:PT0.1S}") final Duration blockTimeout,
+      @Value("${kp-users.messaging.outbox.retry-interval:PT0.1S}") final Duration retryInterval,
+      @Value("${kp-users.messaging.outbox.max-retry-interval:PT10S}") final Duration maxRetryInterval
+  ) {
+    this.sender = sender;
+    this.converter = converter;
+    this.meters = meters;
+    this.capacity = capacity;
+    this.batchSize = batchSize;
+    this.overflow = overflow;
+    this.blockTimeout = blockTimeout;
+    this.retryInterval = retryInterval;
+    this.maxRetryInterval = maxRetryInterval;
+    
+    this.queue = new ArrayBlockingQueue<>(capacity);
+  }
+  
+  
+  @PostConstruct
+  public void init() {
+    log.entry();
+    
+    meters.ifAvailable(registry -> {
+      Gauge.builder("kp-users.outbox.depth", queue, ArrayBlockingQueue::size)
+          .description("Events waiting to be sent to the broker")
+          .register(registry);
+      Gauge.builder("kp-users.outbox.remaining", queue, ArrayBlockingQueue::remainingCapacity)
+          .description("Free slots of the outbox queue")
+          .register(registry);
+      functionCounter(registry, "kp-users.outbox.sent", sent, "Events sent to the broker");
+      functionCounter(registry, "kp-users.outbox.retries", retries, "Events sent again after a failure");
+      functionCounter(registry, "kp-users.outbox.rejected", rejected, "Events rejected because the outbox was full");
+      functionCounter(registry, "kp-users.outbox.dropped", dropped, "Events dropped because the outbox was full");
+      functionCounter(registry, "kp-users.outbox.failed", failed, "Events that could not be sent");
+    });
+    
+    running = true;
+    worker = new Thread(this::run, "kp-users-outbox");
+    worker.setDaemon(true);
+    worker.start();
+    
+    log.info("Started event outbox. outbox={}", this);
+    log.exit();
+  }
+  
+  private static void functionCounter(
+      @NotNull final MeterRegistry registry,
+      @NotNull final String name,
+      @NotNull final AtomicLong value,
+      @NotNull final String description
+  ) {
+    FunctionCounter.builder(name, value, AtomicLong::doubleValue)
+        .description(description)
+        .register(registry);
+  }
+  
+  @PreDestroy
+  public void close() {
+    log.entry();
+    
+    running = false;
+    if (worker != null) {
+      worker.interrupt();
+      
+      try {
+        worker.join(Duration.ofSeconds(10).toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    
+    log.info("Stopped event outbox. sent={}, retries={}, rejected={}, dropped={}, failed={}, left={}",
+        sent.get(), retries.get(), rejected.get(), dropped.get(), failed.get(), queue.size());
+    log.exit();
+  }
+  
+  
+  /**
+   * Queues the event for sending. Never waits for the broker.
+   *
+   * @param binding the binding to send the event to.
+   * @param event the event to send.
+   * @return true if the event has been queued, false if it has been dropped.
+   * @throws OutboxFullException if the outbox is full and the overflow is {@link Overflow#FAIL} or
+   *     {@link Overflow#BLOCK}.
+   */
+  public boolean send(@NotNull final String binding, @NotNull final BaseEvent event) {
+    return send(binding, event, Map.of());
+  }
+  
+  /**
+   * Queues the event for sending with additional headers. Never waits for the broker.
+   *
+   * @param binding the binding to send the event to.
+   * @param event the event to send.
+   * @param headers the additional headers of the message.
+   * @return true if the event has been queued, false if it has been dropped.
+   * @throws OutboxFullException if the outbox is full and the overflow is {@link Overflow#FAIL} or
+   *     {@link Overflow#BLOCK}.
+   */
+  public boolean send(
+      @NotNull final String binding,
+      @NotNull final BaseEvent event,
+      @NotNull final Map<String, Object> headers
+  ) {
+    Outgoing outgoing = new Outgoing(binding, event, headers);
+    
+    boolean result = switch (overflow) {
+      case DROP_NEWEST -> queue.offer(outgoing);
+      case DROP_OLDEST -> offerDroppingOldest(outgoing);
+      case FAIL -> queue.offer(outgoing);
+      case BLOCK -> offerBlocking(outgoing);
+    };
+    
+    if (!result && (overflow == Overflow.FAIL || overflow == Overflow.BLOCK)) {
+      rejected.incrementAndGet();
+      throw log.throwing(new OutboxFullException(binding, event));
+    }
+    
+    if (!result) {
+      dropped.incrementAndGet();
+      log.warn("Event outbox is full. Dropping event. binding={}, event={}", binding, event);
+    }
+    
+    return result;
+  }
+  
+  private boolean offerDroppingOldest(@NotNull final Outgoing outgoing) {
+    while (!queue.offer(outgoing)) {
+      Outgoing oldest = queue.poll();
+      
+      if (oldest != null) {
+        dropped.incrementAndGet();
+        log.warn("Event outbox is full. Dropping oldest event. binding={}, event={}", oldest.binding(), oldest.event());
+      }
+    }
+    
+    return true;
+  }
+  
+  private boolean offerBlocking(@NotNull final Outgoing outgoing) {
+    try {
+      return queue.offer(outgoing, blockTimeout.toNanos(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+  
+  /**
+   * @return the number of events waiting to be sent.
+   */
+  public int getDepth() {
+    return queue.size();
+  }
+  
+  
+  private void run() {
+    ArrayList<Outgoing> batch = new ArrayList<>(batchSize);
+    
+    while (running || !queue.isEmpty()) {
+      try {
+        Outgoing first = running ? queue.take() : queue.poll();
+        if (first == null) {
+          break;
+        }
+        
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        
+        sendBatch(batch);
+      } catch (InterruptedException e) {
+        // shutting down, the loop sends the rest of the queue.
+        running = false;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+  
+  private void sendBatch(@NotNull final List<Outgoing> batch) {
+    log.trace("Sending batch. size={}", batch.size());
+    batch.forEach(this::sendOne);
+  }
+  
+  private void sendOne(@NotNull final Outgoing outgoing) {
+    String binding = outgoing.binding();
+    BaseEvent event = outgoing.event();
+    
+    Message<?> message;
+    try {
+      MessageHeaders headers = outgoing.headers().isEmpty()
+          ? converter.headers(event)
+          : converter.headers(event, outgoing.headers());
+      message = converter.toMessage(event, headers);
+    } catch (RuntimeException e) {
+      failed.incrementAndGet();
+      log.error("Could not convert event. binding={}, event={}, error={}", binding, event, e.getMessage());
+      return;
+    }
+    
+    if (message == null) {
+      failed.incrementAndGet();
+      log.error("Cannot convert event to message. binding={}, event={}", binding, event);
+      return;
+    }
+    
+    long delay = Math.max(1L, retryInterval.toMillis());
+    for (int attempt = 1; ; attempt++) {
+      String error;
+      try {
+        log.debug("Sending event. binding={}, attempt={}, event={}", binding, attempt, event);
+        if (sender.send(binding, message)) {
+          sent.incrementAndGet();
+          return;
+        }
+        
+        error = "not accepted";
+      } catch (RuntimeException e) {
+        error = e.getMessage();
+      }
+      
+      if (!running || !backOff(delay)) {
+        failed.incrementAndGet();
+        log.error("Could not send event while shutting down. The event is lost. binding={}, attempts={}, event={}, error={}",
+            binding, attempt, event, error);
+        return;
+      }
+      
+      retries.incrementAndGet();
+      log.warn("Could not send event. Retrying. binding={}, attempt={}, event={}, error={}",
+          binding, attempt, event, error);
+      delay = Math.min(delay * 2, maxRetryInterval.toMillis());
+    }
+  }
+  
+  /**
+   * Waits before sending an event again.
+   *
+   * @param millis the time to wait.
+   * @return false if the outbox is shutting down.
+   */
+  private boolean backOff(final long millis) {
+    try {
+      Thread.sleep(millis);
+      return running;
+    } catch (InterruptedException e) {
+      // shutting down, the loop sends the rest of the queue once.
+      running = false;
+      return false;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import de.kaiserpfalzedv.commons.users.domain.services.StoreSaturationEvent;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.stream.endpoint.BindingsLifecycleController;
+import org.springframework.cloud.stream.endpoint.BindingsLifecycleController.State;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@ExtendWith(MockitoExtension.class)
+@XSlf4j
+public class ConsumerFlowControlTest {
+  private static final StoreSaturationEvent SATURATED = new StoreSaturationEvent(true, 10, 10, 10);
+  private static final StoreSaturationEvent RECOVERED = new StoreSaturationEvent(false, 0, 2, 10);
+  
+  @Mock private BindingsLifecycleController controller;
+  
+  private ConsumerFlowControl sut;
+  
+  
+  @BeforeEach
+  public void setUp() {
+    reset(controller);
+    
+    sut = new ConsumerFlowControl(controller, true, List.of("userState-in-0", "userActivity-in-0"), State.STOPPED, Duration.ZERO);
+  }
+  
+  @AfterEach
+  public void tearDown() {
+    validateMockitoUsage();
+    verifyNoMoreInteractions(controller);
+  }
+  
+  
+  @Test
+  void shouldStopAndStartConsumersWhenStoreIsSaturatedAndRecovers() {
+    log.entry("shouldStopAndStartConsumersWhenStoreIsSaturatedAndRecovers");
+    
+    sut.onStoreSaturation(SATURATED);
+    sut.onStoreSaturation(SATURATED);
+    assertTrue(sut.isStopped());
+    
+    sut.onStoreSaturation(RECOVERED);
+    assertFalse(sut.isStopped());
+    
+    verify(controller).changeState("userState-in-0", State.STOPPED);
+    verify(controller).changeState("userActivity-in-0", State.STOPPED);
+    verify(controller).changeState("userState-in-0", State.STARTED);
+    verify(controller).changeState("userActivity-in-0", State.STARTED);
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldNotStartConsumerWhenItHasNotBeenStopped() {
+    log.entry("shouldNotStartConsumerWhenItHasNotBeenStopped");
+    
+    doThrow(new IllegalStateException("unknown binding")).when(controller).changeState("userState-in-0", State.STOPPED);
+    
+    sut.onStoreSaturation(SATURATED);
+    sut.onStoreSaturation(RECOVERED);
+    
+    verify(controller).changeState("userState-in-0", State.STOPPED);
+    verify(controller).changeState("userActivity-in-0", State.STOPPED);
+    verify(controller).changeState("userActivity-in-0", State.STARTED);
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldRetryStartingConsumerWhenStartingFailed() {
+    log.entry("shouldRetryStartingConsumerWhenStartingFailed");
+    
+    doThrow(new IllegalStateException("binder unavailable")).doNothing()
+        .when(controller).changeState("userState-in-0", State.STARTED);
+    
+    sut.onStoreSaturation(SATURATED);
+    sut.onStoreSaturation(RECOVERED);
+    assertTrue(sut.isStopped());
+    
+    sut.retry();
+    assertFalse(sut.isStopped());
+    
+    verify(controller).changeState("userState-in-0", State.STOPPED);
+    verify(controller).changeState("userActivity-in-0", State.STOPPED);
+    verify(controller, times(2)).changeState("userState-in-0", State.STARTED);
+    verify(controller).changeState("userActivity-in-0", State.STARTED);
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldNotRetryStartingConsumerWhenStoreIsSaturatedAgain() {
+    log.entry("shouldNotRetryStartingConsumerWhenStoreIsSaturatedAgain");
+    
+    doThrow(new IllegalStateException("binder unavailable"))
+        .when(controller).changeState("userState-in-0", State.STARTED);
+    
+    sut.onStoreSaturation(SATURATED);
+    sut.onStoreSaturation(RECOVERED);
+    sut.onStoreSaturation(SATURATED);
+    sut.retry();
+    
+    assertTrue(sut.isStopped());
+    
+    verify(controller).changeState("userState-in-0", State.STOPPED);
+    verify(controller, times(2)).changeState("userActivity-in-0", State.STOPPED);
+    verify(controller).changeState("userState-in-0", State.STARTED);
+    verify(controller).changeState("userActivity-in-0", State.STARTED);
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldResumeConsumersWhenTheyHaveBeenPaused() {
+    log.entry("shouldResumeConsumersWhenTheyHaveBeenPaused");
+    
+    sut = new ConsumerFlowControl(controller, true, List.of("userState-in-0"), State.PAUSED, Duration.ZERO);
+    
+    sut.onStoreSaturation(SATURATED);
+    sut.onStoreSaturation(RECOVERED);
+    
+    verify(controller).changeState("userState-in-0", State.PAUSED);
+    verify(controller).changeState("userState-in-0", State.RESUMED);
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldIgnoreSaturationWhenDisabled() {
+    log.entry("shouldIgnoreSaturationWhenDisabled");
+    
+    sut = new ConsumerFlowControl(controller, false, List.of("userState-in-0"), State.STOPPED, Duration.ZERO);
+    
+    sut.onStoreSaturation(SATURATED);
+    
+    assertFalse(sut.isStopped());
+    
+    log.exit();
+  }
+}
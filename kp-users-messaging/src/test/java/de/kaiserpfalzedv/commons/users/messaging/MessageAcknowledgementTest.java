@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.state.UserBannedEvent;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.acks.AcknowledgmentCallback;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@ExtendWith(MockitoExtension.class)
+@XSlf4j
+public class MessageAcknowledgementTest {
+  private static final UserBannedEvent EVENT = UserBannedEvent.builder()
+      .application("test")
+      .user(KpUserDetails.builder().id(UUID.randomUUID()).build())
+      .build();
+  
+  @Mock private AcknowledgmentCallback callback;
+  
+  private UserEventDispatcher dispatcher;
+  
+  
+  @BeforeEach
+  public void setUp() {
+    reset(callback);
+  }
+  
+  @AfterEach
+  public void tearDown() {
+    if (dispatcher != null) {
+      dispatcher.close();
+    }
+    
+    validateMockitoUsage();
+    verifyNoMoreInteractions(callback);
+  }
+  
+  
+  @Test
+  void shouldAcknowledgeMessageWhenLaneHasHandledTheEvent() throws InterruptedException {
+    log.entry("shouldAcknowledgeMessageWhenLaneHasHandledTheEvent");
+    
+    dispatcher = new UserEventDispatcher(UserEventRetry.none(), 1, 10);
+    dispatcher.init();
+    CountDownLatch release = new CountDownLatch(1);
+    Consumer<Message<UserBannedEvent>> sut = MessageAcknowledgement.manual(event -> dispatcher.dispatch(event, () -> {
+      try {
+        //noinspection ResultOfMethodCallIgnored
+        release.await(5L, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }));
+    
+    sut.accept(message());
+    
+    verify(callback).noAutoAck();
+    verify(callback, never()).acknowledge(any());
+    
+    release.countDown();
+    dispatcher.close();
+    
+    verify(callback).acknowledge(AcknowledgmentCallback.Status.ACCEPT);
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldRejectMessageWhenHandlingFails() {
+    log.entry("shouldRejectMessageWhenHandlingFails");
+    
+    dispatcher = new UserEventDispatcher(UserEventRetry.none(), 0, 0);
+    Consumer<Message<UserBannedEvent>> sut = MessageAcknowledgement.manual(event -> dispatcher.dispatch(event, () -> {
+      throw new IllegalStateException("database unavailable");
+    }));
+    
+    sut.accept(message());
+    
+    verify(callback).noAutoAck();
+    verify(callback).acknowledge(AcknowledgmentCallback.Status.REJECT);
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldAcknowledgeMessageWhenEventIsNotDispatched() {
+    log.entry("shouldAcknowledgeMessageWhenEventIsNotDispatched");
+    
+    MessageAcknowledgement.<UserBannedEvent>manual(event -> {}).accept(message());
+    
+    verify(callback).noAutoAck();
+    verify(callback).acknowledge(AcknowledgmentCallback.Status.ACCEPT);
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldHandleEventInBinderThreadWhenBinderAcknowledges() {
+    log.entry("shouldHandleEventInBinderThreadWhenBinderAcknowledges");
+    
+    dispatcher = new UserEventDispatcher(UserEventRetry.none(), 1, 10);
+    dispatcher.init();
+    Thread binder = Thread.currentThread();
+    Consumer<Message<UserBannedEvent>> sut = MessageAcknowledgement.manual(event -> dispatcher.dispatch(event, () -> {
+      assertSame(binder, Thread.currentThread());
+      throw new IllegalStateException("database unavailable");
+    }));
+    
+    assertThrows(IllegalStateException.class, () -> sut.accept(MessageBuilder.withPayload(EVENT).build()));
+    
+    log.exit();
+  }
+  
+  
+  private Message<UserBannedEvent> message() {
+    return MessageBuilder.withPayload(EVENT)
+        .setHeader(IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK, callback)
+        .build();
+  }
+}
@@ -26,6 +26,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
 
@@ -40,6 +41,7 @@ import static org.mockito.Mockito.*;
 public class ReceiveUserActivityConfigTest {
   @InjectMocks private ReceiveUserActivityConfig sut;
   @Mock private ApplicationEventPublisher bus;
+  @Spy private UserEventDispatcher dispatcher = new UserEventDispatcher(UserEventRetry.none(), 0, 0);
   
   
   @BeforeEach
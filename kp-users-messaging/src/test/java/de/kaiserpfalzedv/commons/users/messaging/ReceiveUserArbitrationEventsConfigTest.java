@@ -26,8 +26,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.support.MessageBuilder;
 
 import static org.mockito.Mockito.*;
 
@@ -43,6 +45,7 @@ public class ReceiveUserArbitrationEventsConfigTest {
   @InjectMocks private ReceiveUserArbitrationEventsConfig sut;
   
   @Mock private ApplicationEventPublisher bus;
+  @Spy private UserEventDispatcher dispatcher = new UserEventDispatcher(UserEventRetry.none(), 0, 0);
   
   
   @BeforeEach
@@ -65,7 +68,7 @@ public class ReceiveUserArbitrationEventsConfigTest {
     final var event = mock(UserPetitionedEvent.class);
     
     // When
-    sut.petitionedUser().accept(event);
+    sut.petitionedUser().accept(MessageBuilder.withPayload(event).build());
     
     // Then
     verify(bus).publishEvent(event);
@@ -26,8 +26,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.support.MessageBuilder;
 
 import static org.mockito.Mockito.*;
 
@@ -42,6 +44,7 @@ public class ReceiveUserModificationEventsConfigTest {
   @InjectMocks private ReceiveUserModificationEventsConfig sut;
   
   @Mock private ApplicationEventPublisher bus;
+  @Spy private UserEventDispatcher dispatcher = new UserEventDispatcher(UserEventRetry.none(), 0, 0);
   
   
   @BeforeEach
@@ -192,5 +195,20 @@ public class ReceiveUserModificationEventsConfigTest {
 
     log.exit();
   }
-
+  
+  @Test
+  void shouldRouteToTheEventTypeWhenTheDestinationConsumerReceivesAnEvent() {
+    log.entry();
+    
+    // Given
+    final var event = mock(UserEmailModificationEvent.class);
+    
+    // When
+    sut.userModification().accept(MessageBuilder.withPayload(event).build());
+    
+    // Then
+    verify(bus).publishEvent(event);
+    
+    log.exit();
+  }
 }
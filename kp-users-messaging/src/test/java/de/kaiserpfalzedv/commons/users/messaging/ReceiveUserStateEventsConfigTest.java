@@ -26,8 +26,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.support.MessageBuilder;
 
 import static org.mockito.Mockito.*;
 
@@ -42,6 +44,7 @@ public class ReceiveUserStateEventsConfigTest {
   @InjectMocks private ReceiveUserStateEventsConfig sut;
   
   @Mock private ApplicationEventPublisher bus;
+  @Spy private UserEventDispatcher dispatcher = new UserEventDispatcher(UserEventRetry.none(), 0, 0);
   
   
   @BeforeEach
@@ -167,4 +170,20 @@ public class ReceiveUserStateEventsConfigTest {
     
     log.exit();
   }
+  
+  @Test
+  void shouldRouteToTheEventTypeWhenTheDestinationConsumerReceivesAnEvent() {
+    log.entry();
+    
+    // Given
+    final var event = mock(UserBannedEvent.class);
+    
+    // When
+    sut.userState().accept(MessageBuilder.withPayload(event).build());
+    
+    // Then
+    verify(bus).publishEvent(event);
+    
+    log.exit();
+  }
 }
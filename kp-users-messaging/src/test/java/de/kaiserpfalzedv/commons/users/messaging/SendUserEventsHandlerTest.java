@@ -28,14 +28,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.cloud.stream.function.StreamBridge;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.MessageHeaders;
 
-import java.util.Collections;
-import java.util.UUID;
-
-import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 
@@ -48,45 +41,39 @@ import static org.mockito.Mockito.*;
 public class SendUserEventsHandlerTest {
   @InjectMocks private SendUserArbitrationEventsHandler sut;
   
-  @Mock StreamBridge streamBridge;
-  @Mock UserEventMessagingConverter converter;
+  @Mock UserEventsOutbox outbox;
 
   
   @BeforeEach
   public void setUp() {
-    reset(streamBridge, converter);
+    reset(outbox);
   }
   
   @AfterEach
   public void tearDown() {
     validateMockitoUsage();
-    verifyNoMoreInteractions(streamBridge, converter);
+    verifyNoMoreInteractions(outbox);
   }
   
   
   @Test
-  void shouldSendEventWhenMessageIsNotNull() {
+  void shouldQueueEventWhenEventIsLocal() {
     final UserPetitionedEvent event = Mockito.mock(UserPetitionedEvent.class);
-    //noinspection rawtypes
-    final Message message = Mockito.mock(Message.class);
     
     when(event.getApplication()).thenReturn("kp-users");
-    when(converter.headers(eq(event))).thenReturn(new MessageHeaders(Collections.singletonMap("kp-user-id", UUID.randomUUID().toString())));
-    //noinspection unchecked
-    when(converter.toMessage(eq(event), any())).thenReturn(message);
-    when(streamBridge.send(any(), any())).thenReturn(true);
+    when(outbox.send("petitionedUser-in-0", event)).thenReturn(true);
     
     sut.onUserPetitioned(event);
+    
+    verify(outbox).send("petitionedUser-in-0", event);
   }
   
   @Test
-  void shouldNotSendEventWhenMessageIsNull() {
+  void shouldNotQueueEventWhenEventIsFromOtherApplication() {
     final UserPetitionedEvent event = Mockito.mock(UserPetitionedEvent.class);
     
-    when(event.getApplication()).thenReturn("kp-users");
-    when(converter.headers(eq(event))).thenReturn(new MessageHeaders(Collections.singletonMap("kp-user-id", UUID.randomUUID().toString())));
-    when(converter.toMessage(eq(event), any())).thenReturn(null);
+    when(event.getApplication()).thenReturn("other-application");
     
-    assertThrows(IllegalArgumentException.class, () -> sut.onUserPetitioned(event));
+    sut.onUserPetitioned(event);
   }
 }
@@ -75,7 +75,7 @@ public class SendingUserActivityEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.activity");
+    var result = output.receive(1000L, "kp-users.activity");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserLoginEvent.class));
@@ -95,7 +95,7 @@ public class SendingUserActivityEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.activity");
+    var result = output.receive(1000L, "kp-users.activity");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserLogoutEvent.class));
@@ -75,7 +75,7 @@ public class SendingUserArbitrationEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.arbitration");
+    var result = output.receive(1000L, "kp-users.arbitration");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserPetitionedEvent.class));
@@ -78,7 +78,7 @@ public class SendingUserModificationEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.modification");
+    var result = output.receive(1000L, "kp-users.modification");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), RoleAddedToUserEvent.class));
@@ -100,7 +100,7 @@ public class SendingUserModificationEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.modification");
+    var result = output.receive(1000L, "kp-users.modification");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), RoleRemovedFromUserEvent.class));
@@ -121,7 +121,7 @@ public class SendingUserModificationEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.modification");
+    var result = output.receive(1000L, "kp-users.modification");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserDiscordModificationEvent.class));
@@ -142,7 +142,7 @@ public class SendingUserModificationEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.modification");
+    var result = output.receive(1000L, "kp-users.modification");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserEmailModificationEvent.class));
@@ -163,7 +163,7 @@ public class SendingUserModificationEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.modification");
+    var result = output.receive(1000L, "kp-users.modification");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserNameModificationEvent.class));
@@ -184,7 +184,7 @@ public class SendingUserModificationEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.modification");
+    var result = output.receive(1000L, "kp-users.modification");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserNamespaceModificationEvent.class));
@@ -205,7 +205,7 @@ public class SendingUserModificationEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.modification");
+    var result = output.receive(1000L, "kp-users.modification");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserNamespaceAndNameModificationEvent.class));
@@ -226,7 +226,7 @@ public class SendingUserModificationEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.modification");
+    var result = output.receive(1000L, "kp-users.modification");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserSubjectModificationEvent.class));
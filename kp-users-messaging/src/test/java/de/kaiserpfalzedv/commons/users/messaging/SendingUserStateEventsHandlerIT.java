@@ -75,7 +75,7 @@ public class SendingUserStateEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.state");
+    var result = output.receive(1000L, "kp-users.state");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserActivatedEvent.class));
@@ -95,7 +95,7 @@ public class SendingUserStateEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.state");
+    var result = output.receive(1000L, "kp-users.state");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserBannedEvent.class));
@@ -115,7 +115,7 @@ public class SendingUserStateEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.state");
+    var result = output.receive(1000L, "kp-users.state");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserCreatedEvent.class));
@@ -135,7 +135,7 @@ public class SendingUserStateEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.state");
+    var result = output.receive(1000L, "kp-users.state");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserDeletedEvent.class));
@@ -155,7 +155,7 @@ public class SendingUserStateEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.state");
+    var result = output.receive(1000L, "kp-users.state");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserDetainedEvent.class));
@@ -175,7 +175,7 @@ public class SendingUserStateEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.state");
+    var result = output.receive(1000L, "kp-users.state");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserReleasedEvent.class));
@@ -195,7 +195,7 @@ public class SendingUserStateEventsHandlerIT {
     
     bus.publishEvent(event);
     
-    var result = output.receive(0L, "kp-users.state");
+    var result = output.receive(1000L, "kp-users.state");
     
     assertNotNull(result);
     assertEquals(event, jsonMapper.readValue(result.getPayload(), UserRemovedEvent.class));
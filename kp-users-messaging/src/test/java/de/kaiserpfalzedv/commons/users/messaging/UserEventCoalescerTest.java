@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.*;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.acks.AcknowledgmentCallback;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@XSlf4j
+public class UserEventCoalescerTest {
+  private static final UUID USER_ID = UUID.randomUUID();
+  private static final OffsetDateTime NOW = OffsetDateTime.now();
+  
+  private final List<UserModificationBaseEvent> sent = new CopyOnWriteArrayList<>();
+  
+  private UserEventCoalescer sut;
+  
+  
+  @BeforeEach
+  void setUp() {
+    sent.clear();
+    
+    sut = new UserEventCoalescer("test", Duration.ofHours(1L), sent::add);
+  }
+  
+  @AfterEach
+  void tearDown() {
+    sut.close();
+  }
+  
+  
+  @Test
+  void shouldKeepOnlyTheLatestChangeWhenFieldIsModifiedTwice() {
+    log.entry("shouldKeepOnlyTheLatestChangeWhenFieldIsModifiedTwice");
+    
+    UserEmailModificationEvent latest = email("latest@email.email");
+    UserDiscordModificationEvent discord = UserDiscordModificationEvent.builder()
+        .application("kp-users")
+        .user(user().discord("discord").build())
+        .build();
+    
+    sut.offer(email("first@email.email"));
+    sut.offer(discord);
+    sut.offer(latest);
+    
+    assertTrue(sent.isEmpty());
+    
+    sut.flush(USER_ID);
+    
+    assertEquals(List.of(discord, latest), sent);
+    assertEquals("latest@email.email", sent.get(1).getUser().getEmail());
+    assertEquals(1L, sut.getCoalesced());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldMergeNameAndNamespaceWhenBothAreModified() {
+    log.entry("shouldMergeNameAndNamespaceWhenBothAreModified");
+    
+    sut.offer(UserNamespaceModificationEvent.builder()
+        .application("kp-users")
+        .user(user().nameSpace("namespace").build())
+        .build());
+    sut.offer(UserNameModificationEvent.builder()
+        .application("kp-users")
+        .user(user().name("name").build())
+        .build());
+    
+    sut.flush(USER_ID);
+    
+    assertEquals(1, sent.size());
+    UserNamespaceAndNameModificationEvent result = assertInstanceOf(UserNamespaceAndNameModificationEvent.class, sent.get(0));
+    assertEquals("namespace", result.getUser().getNameSpace());
+    assertEquals("name", result.getUser().getName());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldSendPendingModificationsWhenWindowCloses() throws InterruptedException {
+    log.entry("shouldSendPendingModificationsWhenWindowCloses");
+    
+    CountDownLatch received = new CountDownLatch(1);
+    try (UserEventCoalescer windowed = new UserEventCoalescer("windowed", Duration.ofMillis(10L), e -> received.countDown())) {
+      windowed.offer(email("email@email.email"));
+      
+      assertTrue(received.await(5L, TimeUnit.SECONDS));
+    }
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldFlushClosingWindowInLaneOfUser() throws InterruptedException {
+    log.entry("shouldFlushClosingWindowInLaneOfUser");
+    
+    List<Object> keys = new CopyOnWriteArrayList<>();
+    CountDownLatch received = new CountDownLatch(1);
+    try (UserEventCoalescer windowed = new UserEventCoalescer(
+        "laned", Duration.ofMillis(10L),
+        (key, task) -> {
+          keys.add(key);
+          task.run();
+        },
+        e -> received.countDown()
+    )) {
+      windowed.offer(email("email@email.email"));
+      
+      assertTrue(received.await(5L, TimeUnit.SECONDS));
+      assertEquals(List.of(USER_ID), keys);
+    }
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldAcknowledgeMessagesWhenWindowHasBeenHandedToSink() {
+    log.entry("shouldAcknowledgeMessagesWhenWindowHasBeenHandedToSink");
+    
+    AcknowledgmentCallback callback = mock(AcknowledgmentCallback.class);
+    
+    sut.offer(email("first@email.email"), acknowledgement(callback));
+    sut.offer(email("latest@email.email"), acknowledgement(callback));
+    
+    verify(callback, never()).acknowledge(any());
+    
+    sut.flush(USER_ID);
+    
+    assertEquals(1, sent.size());
+    verify(callback, times(2)).acknowledge(AcknowledgmentCallback.Status.ACCEPT);
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldRejectMessagesWhenSinkFails() {
+    log.entry("shouldRejectMessagesWhenSinkFails");
+    
+    AcknowledgmentCallback callback = mock(AcknowledgmentCallback.class);
+    
+    try (UserEventCoalescer failing = new UserEventCoalescer("failing", Duration.ofHours(1L), e -> {
+      throw new IllegalStateException("dead letters unavailable");
+    })) {
+      failing.offer(email("email@email.email"), acknowledgement(callback));
+      failing.flush(USER_ID);
+    }
+    
+    verify(callback).acknowledge(AcknowledgmentCallback.Status.REJECT);
+    verify(callback, never()).acknowledge(AcknowledgmentCallback.Status.ACCEPT);
+    
+    log.exit();
+  }
+  
+  
+  private static MessageAcknowledgement acknowledgement(final AcknowledgmentCallback callback) {
+    return MessageAcknowledgement.of(MessageBuilder.withPayload("event")
+        .setHeader(IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK, callback)
+        .build());
+  }
+  
+  private static KpUserDetails.KpUserDetailsBuilder user() {
+    return KpUserDetails.builder().id(USER_ID).modified(NOW);
+  }
+  
+  private static UserEmailModificationEvent email(final String email) {
+    return UserEmailModificationEvent.builder()
+        .application("kp-users")
+        .user(user().email(email).build())
+        .build();
+  }
+}
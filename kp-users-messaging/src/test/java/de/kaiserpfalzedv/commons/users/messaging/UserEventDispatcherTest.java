@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@XSlf4j
+public class UserEventDispatcherTest {
+  private UserEventDispatcher sut;
+  
+  
+  @AfterEach
+  void tearDown() {
+    if (sut != null) {
+      sut.close();
+    }
+  }
+  
+  
+  @Test
+  void shouldKeepOrderOfEachUserWhenDispatchingToSeveralLanes() {
+    log.entry("shouldKeepOrderOfEachUserWhenDispatchingToSeveralLanes");
+    
+    sut = createSut(4, 10);
+    List<UUID> users = IntStream.range(0, 8).mapToObj(i -> UUID.randomUUID()).toList();
+    Map<UUID, List<Integer>> handled = new ConcurrentHashMap<>();
+    users.forEach(user -> handled.put(user, new CopyOnWriteArrayList<>()));
+    
+    for (int i = 0; i < 100; i++) {
+      int sequence = i;
+      users.forEach(user -> sut.dispatch(user, () -> handled.get(user).add(sequence)));
+    }
+    sut.close();
+    
+    List<Integer> expected = IntStream.range(0, 100).boxed().toList();
+    users.forEach(user -> assertEquals(expected, handled.get(user), () -> "user=" + user));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldHandleUsersInParallelWhenTheyAreInDifferentLanes() throws InterruptedException {
+    log.entry("shouldHandleUsersInParallelWhenTheyAreInDifferentLanes");
+    
+    sut = createSut(2, 10);
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    while (sut.lane(first) == sut.lane(second)) {
+      second = UUID.randomUUID();
+    }
+    
+    CountDownLatch secondHandled = new CountDownLatch(1);
+    CountDownLatch firstHandled = new CountDownLatch(1);
+    
+    // the first user waits for the second one, which would never happen in a single lane.
+    sut.dispatch(first, () -> {
+      try {
+        if (secondHandled.await(5L, TimeUnit.SECONDS)) {
+          firstHandled.countDown();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    sut.dispatch(second, secondHandled::countDown);
+    
+    assertTrue(firstHandled.await(5L, TimeUnit.SECONDS));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldBlockTheProducerWhenTheLaneIsFull() throws InterruptedException {
+    log.entry("shouldBlockTheProducerWhenTheLaneIsFull");
+    
+    sut = createSut(1, 1);
+    UUID user = UUID.randomUUID();
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch handled = new CountDownLatch(3);
+    
+    sut.dispatch(user, () -> {
+      running.countDown();
+      await(release);
+      handled.countDown();
+    });
+    assertTrue(running.await(5L, TimeUnit.SECONDS));
+    sut.dispatch(user, handled::countDown);
+    
+    Thread producer = new Thread(() -> sut.dispatch(user, handled::countDown));
+    producer.start();
+    producer.join(200L);
+    
+    assertTrue(producer.isAlive(), "The producer should wait for a free slot in the lane.");
+    assertEquals(1, sut.getDepth());
+    
+    release.countDown();
+    producer.join(5000L);
+    
+    assertFalse(producer.isAlive());
+    assertTrue(handled.await(5L, TimeUnit.SECONDS));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldDrainTheLanesWithoutInterruptingWhenClosing() throws InterruptedException {
+    log.entry("shouldDrainTheLanesWithoutInterruptingWhenClosing");
+    
+    sut = createSut(1, 10);
+    UUID user = UUID.randomUUID();
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch running = new CountDownLatch(1);
+    AtomicBoolean interrupted = new AtomicBoolean(false);
+    List<Integer> handled = new CopyOnWriteArrayList<>();
+    
+    sut.dispatch(user, () -> {
+      running.countDown();
+      await(release);
+      interrupted.set(Thread.currentThread().isInterrupted());
+      handled.add(0);
+    });
+    for (int i = 1; i <= 5; i++) {
+      int sequence = i;
+      sut.dispatch(user, () -> handled.add(sequence));
+    }
+    assertTrue(running.await(5L, TimeUnit.SECONDS));
+    
+    Thread closing = new Thread(sut::close);
+    closing.start();
+    closing.join(200L);
+    release.countDown();
+    closing.join(5000L);
+    
+    assertFalse(closing.isAlive());
+    assertFalse(interrupted.get());
+    assertEquals(List.of(0, 1, 2, 3, 4, 5), handled);
+    assertEquals(0, sut.getDepth());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldHandleTaskInCallingThreadWhenDispatchedAfterClose() {
+    log.entry("shouldHandleTaskInCallingThreadWhenDispatchedAfterClose");
+    
+    sut = createSut(2, 10);
+    sut.close();
+    
+    Thread caller = Thread.currentThread();
+    AtomicBoolean inline = new AtomicBoolean(false);
+    sut.dispatch(UUID.randomUUID(), () -> inline.set(Thread.currentThread() == caller));
+    
+    assertTrue(inline.get());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldRejectConfigurationWhenLanesHaveNoCapacity() {
+    log.entry("shouldRejectConfigurationWhenLanesHaveNoCapacity");
+    
+    assertThrows(IllegalArgumentException.class, () -> new UserEventDispatcher(UserEventRetry.none(), 2, 0));
+    assertDoesNotThrow(() -> new UserEventDispatcher(UserEventRetry.none(), 0, 0));
+    
+    log.exit();
+  }
+  
+  
+  private static UserEventDispatcher createSut(final int lanes, final int capacity) {
+    UserEventDispatcher result = new UserEventDispatcher(UserEventRetry.none(), lanes, capacity);
+    result.init();
+    
+    return result;
+  }
+  
+  /** Waits within a lane. A failing assertion would end the worker of the lane, so the timeout is ignored. */
+  private static void await(final CountDownLatch latch) {
+    try {
+      //noinspection ResultOfMethodCallIgnored
+      latch.await(5L, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import de.kaiserpfalzedv.commons.api.events.BaseEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.UserBaseEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.UserEmailModificationEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.state.UserActivatedEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.state.UserBannedEvent;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MimeTypeUtils;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-25
+ */
+@XSlf4j
+public class UserEventMessagingConverterTest {
+  private static final ObjectMapper MAPPER = JsonMapper.builder()
+      .findAndAddModules()
+      .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+      .disable(DeserializationFeature.ADJUST_DATES_TO_CONTEXT_TIME_ZONE)
+      .build();
+  
+  private static final UserActivatedEvent EVENT = UserActivatedEvent.builder()
+      .application("kp-users")
+      .user(KpUserDetails.builder()
+          .issuer("issuer")
+          .subject("subject")
+          .nameSpace("namespace")
+          .name("name")
+          .email("email@email.email")
+          .created(OffsetDateTime.now(ZoneOffset.UTC))
+          .modified(OffsetDateTime.now(ZoneOffset.UTC))
+          .build())
+      .build();
+  
+  
+  @Test
+  void shouldWriteJsonStringWhenNoContentTypeIsConfigured() {
+    log.entry("shouldWriteJsonStringWhenNoContentTypeIsConfigured");
+    
+    UserEventMessagingConverter sut = createSut("application/json");
+    
+    Message<?> message = sut.toMessage(EVENT, sut.headers(EVENT));
+    
+    assertNotNull(message);
+    assertInstanceOf(String.class, message.getPayload());
+    assertEquals(EVENT, sut.fromMessage(message, UserActivatedEvent.class));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldWriteCborBytesWhenCborIsConfigured() {
+    log.entry("shouldWriteCborBytesWhenCborIsConfigured");
+    
+    UserEventMessagingConverter sut = createSut("application/cbor");
+    
+    Message<?> message = sut.toMessage(EVENT, sut.headers(EVENT));
+    
+    assertNotNull(message);
+    assertInstanceOf(byte[].class, message.getPayload());
+    assertEquals(EVENT, sut.fromMessage(message, UserActivatedEvent.class));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldDecodeEventTypeWhenTargetIsTheBaseClass() {
+    log.entry("shouldDecodeEventTypeWhenTargetIsTheBaseClass");
+    
+    UserEventMessagingConverter sut = createSut("application/cbor");
+    
+    Message<?> message = sut.toMessage(EVENT, sut.headers(EVENT));
+    assertNotNull(message);
+    
+    assertInstanceOf(UserActivatedEvent.class, sut.fromMessage(message, UserBaseEvent.class));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldDecodeEventTypeWhenTargetIsAnyEvent() {
+    log.entry("shouldDecodeEventTypeWhenTargetIsAnyEvent");
+    
+    UserEventMessagingConverter sut = createSut("application/json");
+    
+    Message<?> message = sut.toMessage(EVENT, sut.headers(EVENT));
+    assertNotNull(message);
+    
+    assertInstanceOf(UserActivatedEvent.class, sut.fromMessage(message, BaseEvent.class));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldRejectMessageWhenEventTypeDoesNotMatchTarget() {
+    log.entry("shouldRejectMessageWhenEventTypeDoesNotMatchTarget");
+    
+    UserEventMessagingConverter sut = createSut("application/json");
+    
+    Message<?> message = sut.toMessage(EVENT, sut.headers(EVENT));
+    assertNotNull(message);
+    
+    assertThrows(IllegalStateException.class, () -> sut.fromMessage(message, UserBannedEvent.class));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldRejectMessageWhenEventTypeIsNotAnEvent() {
+    log.entry("shouldRejectMessageWhenEventTypeIsNotAnEvent");
+    
+    UserEventMessagingConverter sut = createSut("application/json");
+    
+    Message<?> message = MessageBuilder.withPayload("{}")
+        .setHeader(EventCodec.EVENT_TYPE, Object.class.getCanonicalName())
+        .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+        .build();
+    
+    assertThrows(IllegalStateException.class, () -> sut.fromMessage(message, Object.class));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldReuseConstantHeadersWhenEventsHaveTheSameClass() {
+    log.entry("shouldReuseConstantHeadersWhenEventsHaveTheSameClass");
+    
+    UserEventMessagingConverter sut = createSut("application/cbor");
+    UserActivatedEvent other = EVENT.toBuilder().build();
+    
+    MessageHeaders first = sut.headers(EVENT);
+    MessageHeaders second = sut.headers(other);
+    
+    assertEquals(UserActivatedEvent.class.getCanonicalName(), first.get(EventCodec.EVENT_TYPE));
+    assertSame(first.get(EventCodec.EVENT_TYPE), second.get(EventCodec.EVENT_TYPE));
+    assertEquals(UserEventMessagingConverter.APPLICATION_CBOR, first.get(MessageHeaders.CONTENT_TYPE));
+    
+    log.exit();
+  }
+  
+  
+  @Test
+  void shouldSendOnlyTheChangedFieldsWhenUserIsModified() {
+    log.entry("shouldSendOnlyTheChangedFieldsWhenUserIsModified");
+    
+    UserEventMessagingConverter sut = createSut("application/json");
+    UserEmailModificationEvent event = UserEmailModificationEvent.builder()
+        .application("kp-users")
+        .user(EVENT.getUser())
+        .build();
+    
+    Message<?> message = sut.toMessage(event, sut.headers(event));
+    
+    assertNotNull(message);
+    String json = (String) message.getPayload();
+    assertFalse(json.contains("subject"));
+    assertFalse(json.contains("namespace"));
+    
+    UserEmailModificationEvent result = (UserEmailModificationEvent) sut.fromMessage(message, UserBaseEvent.class);
+    assertNotNull(result);
+    assertEquals(event, result);
+    assertTrue(result.isDelta());
+    assertEquals(EVENT.getUser().getId(), result.getUser().getId());
+    assertEquals(EVENT.getUser().getEmail(), result.getUser().getEmail());
+    assertEquals(EVENT.getUser().getModified().toInstant(), result.getUser().getModified().toInstant());
+    assertNull(result.getUser().getCreated(), "the receiver must not fill in the default creation timestamp");
+    assertNull(result.getUser().getNameSpace(), "the receiver must not fill in the default namespace");
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldSendTheFullUserWhenDeltasAreSwitchedOff() {
+    log.entry("shouldSendTheFullUserWhenDeltasAreSwitchedOff");
+    
+    UserEventMessagingConverter sut = new UserEventMessagingConverter(MAPPER);
+    ReflectionTestUtils.setField(sut, "deltaModifications", false);
+    sut.init();
+    
+    UserEmailModificationEvent event = UserEmailModificationEvent.builder()
+        .application("kp-users")
+        .user(EVENT.getUser())
+        .build();
+    
+    UserEmailModificationEvent result = (UserEmailModificationEvent) sut.fromMessage(
+        sut.toMessage(event, sut.headers(event)),
+        UserBaseEvent.class
+    );
+    
+    assertNotNull(result);
+    assertFalse(result.isDelta());
+    assertEquals(EVENT.getUser().getSubject(), result.getUser().getSubject());
+    
+    log.exit();
+  }
+  
+  
+  private static UserEventMessagingConverter createSut(final String contentType) {
+    UserEventMessagingConverter result = new UserEventMessagingConverter(MAPPER);
+    ReflectionTestUtils.setField(result, "contentType", contentType);
+    result.init();
+    
+    return result;
+  }
+}
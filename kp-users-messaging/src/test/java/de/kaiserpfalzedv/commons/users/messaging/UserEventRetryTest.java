@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.state.UserBannedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@ExtendWith(MockitoExtension.class)
+@XSlf4j
+public class UserEventRetryTest {
+  private UserEventRetry sut;
+  private SimpleMeterRegistry registry;
+  
+  @Mock private StreamBridge sender;
+  @Mock private UserEventMessagingConverter converter;
+  @Mock private MessageHeaders headers;
+  @Mock private Message<String> message;
+  
+  
+  @BeforeEach
+  public void setUp() {
+    reset(sender, converter, headers, message);
+    
+    registry = new SimpleMeterRegistry();
+    StaticListableBeanFactory beans = new StaticListableBeanFactory();
+    beans.addBean("meterRegistry", registry);
+    
+    sut = new UserEventRetry(
+        sender, converter, beans.getBeanProvider(MeterRegistry.class),
+        3, Duration.ofMillis(1), 2.0, Duration.ofMillis(5), 0.5, true
+    );
+    sut.init();
+  }
+  
+  @AfterEach
+  public void tearDown() {
+    validateMockitoUsage();
+    verifyNoMoreInteractions(sender, converter);
+  }
+  
+  
+  @Test
+  void shouldRetryWhenHandlingFailsOnce() {
+    log.entry("shouldRetryWhenHandlingFailsOnce");
+    
+    UserBannedEvent event = Mockito.mock(UserBannedEvent.class);
+    AtomicInteger calls = new AtomicInteger();
+    
+    sut.run(event, () -> {
+      if (calls.incrementAndGet() == 1) {
+        throw new IllegalStateException("database unavailable");
+      }
+    });
+    
+    assertEquals(2, calls.get());
+    assertEquals(1.0, registry.get("kp-users.inbound.retries").functionCounter().count());
+    assertEquals(0L, sut.getDeadLettered());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldSendToDeadLettersWhenAllAttemptsFailed() {
+    log.entry("shouldSendToDeadLettersWhenAllAttemptsFailed");
+    
+    UserBannedEvent event = Mockito.mock(UserBannedEvent.class);
+    IllegalStateException failure = new IllegalStateException("database unavailable");
+    AtomicInteger calls = new AtomicInteger();
+    when(converter.headers(eq(event), anyMap())).thenReturn(headers);
+    doReturn(message).when(converter).toMessage(event, headers);
+    when(sender.send("kp-users.state.dlq", message)).thenReturn(true);
+    
+    sut.run(event, () -> {
+      calls.incrementAndGet();
+      throw failure;
+    });
+    
+    assertEquals(3, calls.get());
+    verify(converter).headers(eq(event), eq(Map.of(
+        UserEventRetry.EXCEPTION_HEADER, failure.toString(),
+        UserEventRetry.ATTEMPTS_HEADER, 3
+    )));
+    verify(converter).toMessage(event, headers);
+    verify(sender).send("kp-users.state.dlq", message);
+    assertEquals(2.0, registry.get("kp-users.inbound.retries").functionCounter().count());
+    assertEquals(1.0, registry.get("kp-users.inbound.dead-lettered").functionCounter().count());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldNotRetryWhenEventIsInvalid() {
+    log.entry("shouldNotRetryWhenEventIsInvalid");
+    
+    UserBannedEvent event = Mockito.mock(UserBannedEvent.class);
+    AtomicInteger calls = new AtomicInteger();
+    when(converter.headers(eq(event), anyMap())).thenReturn(headers);
+    doReturn(message).when(converter).toMessage(event, headers);
+    when(sender.send("kp-users.state.parking-lot", message)).thenReturn(true);
+    
+    sut.run(event, () -> {
+      calls.incrementAndGet();
+      throw new IllegalArgumentException("invalid event");
+    }, UserEventRetry.PARKING_LOT_SUFFIX);
+    
+    assertEquals(1, calls.get());
+    verify(converter).headers(eq(event), eq(Map.of(
+        UserEventRetry.EXCEPTION_HEADER, "java.lang.IllegalArgumentException: invalid event",
+        UserEventRetry.ATTEMPTS_HEADER, 1
+    )));
+    verify(converter).toMessage(event, headers);
+    verify(sender).send("kp-users.state.parking-lot", message);
+    assertEquals(1L, sut.getParked());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldThrowFailureWhenBrokerRejectsDeadLetter() {
+    log.entry("shouldThrowFailureWhenBrokerRejectsDeadLetter");
+    
+    UserBannedEvent event = Mockito.mock(UserBannedEvent.class);
+    when(converter.headers(eq(event), anyMap())).thenReturn(headers);
+    doReturn(message).when(converter).toMessage(event, headers);
+    when(sender.send("kp-users.state.dlq", message)).thenReturn(false);
+    
+    IllegalArgumentException result = assertThrows(IllegalArgumentException.class, () -> sut.run(event, () -> {
+      throw new IllegalArgumentException("invalid event");
+    }));
+    
+    assertEquals(1, result.getSuppressed().length);
+    verify(converter).headers(eq(event), anyMap());
+    verify(converter).toMessage(event, headers);
+    verify(sender).send("kp-users.state.dlq", message);
+    assertEquals(0L, sut.getDeadLettered());
+    assertEquals(1.0, registry.get("kp-users.inbound.dead-letters-failed").functionCounter().count());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldThrowFailureWhenRetryIsDisabled() {
+    log.entry("shouldThrowFailureWhenRetryIsDisabled");
+    
+    UserBannedEvent event = Mockito.mock(UserBannedEvent.class);
+    
+    assertThrows(IllegalStateException.class, () -> UserEventRetry.none().run(event, () -> {
+      throw new IllegalStateException("failed");
+    }));
+    
+    log.exit();
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.messaging;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.arbitration.UserPetitionedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.stream.function.StreamBridge;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-25
+ */
+@ExtendWith(MockitoExtension.class)
+@XSlf4j
+public class UserEventsOutboxTest {
+  private static final String BINDING = "petitionedUser-in-0";
+  private static final MessageHeaders HEADERS = new MessageHeaders(Map.of());
+  
+  private UserEventsOutbox sut;
+  private SimpleMeterRegistry registry;
+  
+  @Mock private StreamBridge streamBridge;
+  @Mock private UserEventMessagingConverter converter;
+  
+  
+  @BeforeEach
+  public void setUp() {
+    reset(streamBridge, converter);
+    
+    registry = new SimpleMeterRegistry();
+  }
+  
+  @AfterEach
+  public void tearDown() {
+    validateMockitoUsage();
+    verifyNoMoreInteractions(streamBridge, converter);
+  }
+  
+  
+  @Test
+  void shouldSendEventWhenEventIsQueued() {
+    log.entry("shouldSendEventWhenEventIsQueued");
+    
+    UserPetitionedEvent event = Mockito.mock(UserPetitionedEvent.class);
+    //noinspection rawtypes
+    Message message = Mockito.mock(Message.class);
+    when(converter.headers(event)).thenReturn(HEADERS);
+    //noinspection unchecked
+    when(converter.toMessage(eq(event), any())).thenReturn(message);
+    when(streamBridge.send(BINDING, message)).thenReturn(true);
+    
+    createSut(10, UserEventsOutbox.Overflow.FAIL);
+    sut.init();
+    assertTrue(sut.send(BINDING, event));
+    sut.close();
+    
+    verify(streamBridge).send(BINDING, message);
+    assertEquals(0, sut.getDepth());
+    assertEquals(1.0, registry.get("kp-users.outbox.sent").functionCounter().count());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldSendEventAgainWhenBrokerDoesNotAcceptIt() throws InterruptedException {
+    log.entry("shouldSendEventAgainWhenBrokerDoesNotAcceptIt");
+    
+    UserPetitionedEvent event = Mockito.mock(UserPetitionedEvent.class);
+    //noinspection rawtypes
+    Message message = Mockito.mock(Message.class);
+    when(converter.headers(event)).thenReturn(HEADERS);
+    //noinspection unchecked
+    when(converter.toMessage(eq(event), any())).thenReturn(message);
+    when(streamBridge.send(BINDING, message)).thenReturn(false, true);
+    
+    createSut(10, UserEventsOutbox.Overflow.FAIL);
+    sut.init();
+    assertTrue(sut.send(BINDING, event));
+    awaitSent(1.0);
+    sut.close();
+    
+    verify(streamBridge, times(2)).send(BINDING, message);
+    assertEquals(1.0, registry.get("kp-users.outbox.sent").functionCounter().count());
+    assertEquals(1.0, registry.get("kp-users.outbox.retries").functionCounter().count());
+    assertEquals(0.0, registry.get("kp-users.outbox.failed").functionCounter().count());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldCountFailureWhenEventCanNotBeConverted() {
+    log.entry("shouldCountFailureWhenEventCanNotBeConverted");
+    
+    UserPetitionedEvent event = Mockito.mock(UserPetitionedEvent.class);
+    when(converter.headers(event)).thenReturn(HEADERS);
+    when(converter.toMessage(eq(event), any())).thenReturn(null);
+    
+    createSut(10, UserEventsOutbox.Overflow.BLOCK);
+    sut.init();
+    sut.send(BINDING, event);
+    sut.close();
+    
+    assertEquals(1.0, registry.get("kp-users.outbox.failed").functionCounter().count());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldDropNewEventWhenQueueIsFull() {
+    log.entry("shouldDropNewEventWhenQueueIsFull");
+    
+    UserPetitionedEvent first = Mockito.mock(UserPetitionedEvent.class);
+    UserPetitionedEvent second = Mockito.mock(UserPetitionedEvent.class);
+    
+    createSut(1, UserEventsOutbox.Overflow.DROP_NEWEST);
+    
+    assertTrue(sut.send(BINDING, first));
+    assertFalse(sut.send(BINDING, second));
+    assertEquals(1, sut.getDepth());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldDropOldestEventWhenQueueIsFull() {
+    log.entry("shouldDropOldestEventWhenQueueIsFull");
+    
+    UserPetitionedEvent first = Mockito.mock(UserPetitionedEvent.class);
+    UserPetitionedEvent second = Mockito.mock(UserPetitionedEvent.class);
+    
+    createSut(1, UserEventsOutbox.Overflow.DROP_OLDEST);
+    
+    assertTrue(sut.send(BINDING, first));
+    assertTrue(sut.send(BINDING, second));
+    assertEquals(1, sut.getDepth());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldFailPublisherWhenQueueIsFull() {
+    log.entry("shouldFailPublisherWhenQueueIsFull");
+    
+    UserPetitionedEvent first = Mockito.mock(UserPetitionedEvent.class);
+    UserPetitionedEvent second = Mockito.mock(UserPetitionedEvent.class);
+    
+    createSut(1, UserEventsOutbox.Overflow.FAIL);
+    
+    assertTrue(sut.send(BINDING, first));
+    assertThrows(UserEventsOutbox.OutboxFullException.class, () -> sut.send(BINDING, second));
+    assertEquals(1, sut.getDepth());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldFailPublisherWhenQueueStaysFullWhileBlocking() {
+    log.entry("shouldFailPublisherWhenQueueStaysFullWhileBlocking");
+    
+    UserPetitionedEvent first = Mockito.mock(UserPetitionedEvent.class);
+    UserPetitionedEvent second = Mockito.mock(UserPetitionedEvent.class);
+    
+    createSut(1, UserEventsOutbox.Overflow.BLOCK);
+    
+    assertTrue(sut.send(BINDING, first));
+    assertThrows(UserEventsOutbox.OutboxFullException.class, () -> sut.send(BINDING, second));
+    
+    log.exit();
+  }
+  
+  
+  private void createSut(final int capacity, final UserEventsOutbox.Overflow overflow) {
+    StaticListableBeanFactory beans = new StaticListableBeanFactory();
+    beans.addBean("meterRegistry", registry);
+    
+    sut = new UserEventsOutbox(
+        streamBridge, converter, beans.getBeanProvider(MeterRegistry.class),
+        capacity, 10, overflow, Duration.ofMillis(10), Duration.ofMillis(10), Duration.ofMillis(100)
+    );
+  }
+  
+  private void awaitSent(final double expected) throws InterruptedException {
+    for (int i = 0; i < 200 && registry.get("kp-users.outbox.sent").functionCounter().count() < expected; i++) {
+      Thread.sleep(10);
+    }
+  }
+}
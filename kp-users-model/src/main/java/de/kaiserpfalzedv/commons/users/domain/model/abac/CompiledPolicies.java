@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.model.abac;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * The compiled ABAC policies. A request is allowed if any policy allows it (like the casbin policy effect
+ * {@code some(where (p.eft == allow))}).
+ *
+ * <p>The policies are compiled once from the policy lines of the casbin enforcer. Evaluating a request walks a plain
+ * array of {@link CompiledPolicy} without parsing strings or allocating objects.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-21
+ */
+@ToString(of = {"policies"})
+@XSlf4j
+public final class CompiledPolicies {
+  /** No policies at all. Every request is denied. */
+  public static final CompiledPolicies EMPTY = new CompiledPolicies(new CompiledPolicy[0]);
+  
+  private final CompiledPolicy[] policies;
+  
+  
+  private CompiledPolicies(@NotNull final CompiledPolicy[] policies) {
+    this.policies = policies;
+  }
+  
+  /**
+   * Compiles the policy lines as returned by {@link org.casbin.jcasbin.main.Enforcer#getPolicy()}. Every line has to
+   * contain subject (role), object and actions.
+   *
+   * @param lines the policy lines.
+   * @return the compiled policies.
+   */
+  public static CompiledPolicies compile(@NotNull final Collection<? extends List<String>> lines) {
+    log.entry(lines.size());
+    
+    ArrayList<CompiledPolicy> result = new ArrayList<>(lines.size());
+    for (List<String> line : lines) {
+      if (line.size() < 3) {
+        log.warn("Ignoring incomplete ABAC policy. policy={}", line);
+        continue;
+      }
+      
+      result.add(CompiledPolicy.compile(line.get(0).trim(), line.get(1).trim(), line.get(2)));
+    }
+    
+    return log.exit(of(result));
+  }
+  
+  /**
+   * @param policies the already compiled policies.
+   * @return the policy set.
+   */
+  public static CompiledPolicies of(@NotNull final Collection<CompiledPolicy> policies) {
+    return new CompiledPolicies(policies.toArray(new CompiledPolicy[0]));
+  }
+  
+  
+  /**
+   * Checks if the subject may execute the action on the object.
+   *
+   * @param subject the user requesting access.
+   * @param object the object to access.
+   * @param action the action to execute.
+   * @return true if any policy allows the access.
+   */
+  public boolean enforce(@NotNull final User subject, @NotNull final HasOwner<UUID> object, @NotNull final String action) {
+    String objectType = object.getABACObjectName();
+    long mask = PolicyActions.lookup(action);
+    
+    for (CompiledPolicy policy : policies) {
+      if (policy.allows(subject, object, objectType, mask)) {
+        return true;
+      }
+    }
+    
+    return false;
+  }
+  
+  /**
+   * @return the compiled policies.
+   */
+  public List<CompiledPolicy> getPolicies() {
+    return List.of(policies);
+  }
+  
+  public int size() {
+    return policies.length;
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.model.abac;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.role.RoleRegistry;
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.UUID;
+
+
+/**
+ * A single ABAC policy line, parsed once.
+ *
+ * <p>A policy line like {@code p, PLAYER, User/self, view list update} is compiled into the authority of the role,
+ * the object type, the {@link OwnershipMode} and a bitmask of the actions (see {@link PolicyActions}). Checking a
+ * request against the compiled policy does not parse or allocate anything. The semantics are the same as
+ * {@link OwnedBy}.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-21
+ */
+@Builder(toBuilder = true)
+@Getter
+@ToString
+@EqualsAndHashCode
+public class CompiledPolicy {
+  /** The authority of the role the policy applies to (e.g. {@code ROLE_PLAYER}). */
+  @NotNull
+  private final String authority;
+  
+  /** The object type the policy applies to. {@code null} for any object type. */
+  @Nullable
+  private final String objectType;
+  
+  /** The ownership condition of the policy. */
+  @NotNull
+  @Builder.Default
+  private final OwnershipMode ownership = OwnershipMode.ANY;
+  
+  /** The allowed actions as bitmask of {@link PolicyActions}. */
+  private final long actions;
+  
+  
+  /**
+   * Compiles a policy line.
+   *
+   * @param role the role name (policy subject, without prefix).
+   * @param object the policy object in the form {@code Type[/ownership]}.
+   * @param actions the allowed actions separated by blanks.
+   * @return the compiled policy.
+   */
+  public static CompiledPolicy compile(@NotNull final String role, @NotNull final String object, @Nullable final String actions) {
+    int separator = object.indexOf('/');
+    String type = separator >= 0 ? object.substring(0, separator) : object;
+    String mode = separator >= 0 ? object.substring(separator + 1) : null;
+    
+    String authority = RoleRegistry.authority(role);
+    RoleRegistry.ordinal(authority); // the decision cache has to tell subjects with and without this role apart.
+    
+    return CompiledPolicy.builder()
+        .authority(authority)
+        .objectType("*".equals(type) ? null : type)
+        .ownership(OwnershipMode.of(mode))
+        .actions(PolicyActions.compile(actions))
+        .build();
+  }
+  
+  
+  /**
+   * Checks if the policy allows the action on objects of the given type.
+   *
+   * @param objectType the type of the object.
+   * @param action the action mask (see {@link PolicyActions#lookup(String)}).
+   * @return true if object type and action match. Role and ownership are not checked.
+   */
+  public boolean covers(@NotNull final String objectType, final long action) {
+    return (actions == PolicyActions.ALL || (actions & action) != 0L)
+        && (this.objectType == null || this.objectType.equals(objectType));
+  }
+  
+  /**
+   * Checks the request against this policy.
+   *
+   * @param subject the user requesting access.
+   * @param object the object to access.
+   * @param objectType the type of the object (passed in, so it is only resolved once for all policies).
+   * @param action the action mask (see {@link PolicyActions#lookup(String)}).
+   * @return true if the policy grants the access.
+   */
+  public boolean allows(@NotNull final User subject, @NotNull final HasOwner<UUID> object, @NotNull final String objectType, final long action) {
+    return covers(objectType, action)
+        && subject.hasRole(authority)
+        && (ownership == OwnershipMode.ANY || ownership.matches(object.getOwnerId(), subject.getId()));
+  }
+}
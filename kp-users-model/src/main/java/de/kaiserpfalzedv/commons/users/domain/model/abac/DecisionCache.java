@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.model.abac;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRoleSet;
+import de.kaiserpfalzedv.commons.users.domain.model.role.RoleRegistry;
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * A bounded cache of ABAC decisions.
+ *
+ * <p>A decision only depends on the roles of the subject, the object type, the action and whether the subject owns the
+ * object. These four values are the cache key, so a listing checking hundreds of rows of the same type needs only one
+ * or two policy evaluations. The roles are taken as the {@link RoleRegistry} bitset; for a {@link KpRoleSet} its
+ * bitset and hash are used as they are, so a lookup doesn't copy or hash the roles.</p>
+ *
+ * <p>The number of distinct keys is small (role combinations times object types times actions times two). When the
+ * cache still grows beyond its maximum size, it is cleared instead of evicting single entries.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-21
+ */
+@ToString(of = {"maxSize"})
+@XSlf4j
+public final class DecisionCache {
+  /** The default maximum number of cached decisions. */
+  public static final int DEFAULT_MAX_SIZE = 10_000;
+  
+  @Getter
+  private final int maxSize;
+  private final ConcurrentHashMap<Key, Boolean> decisions = new ConcurrentHashMap<>();
+  
+  
+  public DecisionCache(@Min(1) final int maxSize) {
+    this.maxSize = maxSize;
+  }
+  
+  
+  /**
+   * Returns the cached decision or evaluates the policies and caches the result.
+   *
+   * @param policies the policies to evaluate on a cache miss.
+   * @param subject the user requesting access.
+   * @param object the object to access.
+   * @param action the action to execute.
+   * @return true if the access is allowed.
+   */
+  public boolean decide(@NotNull final CompiledPolicies policies, @NotNull final User subject,
+                        @NotNull final HasOwner<UUID> object, @NotNull final String action) {
+    Collection<? extends GrantedAuthority> authorities = subject.getAuthorities();
+    long[] roles = RoleRegistry.bitsOf(authorities);
+    
+    Key key = new Key(
+        roles,
+        authorities instanceof KpRoleSet set ? set.getAuthorityHash() : Arrays.hashCode(roles),
+        object.getABACObjectName(),
+        action,
+        Objects.equals(object.getOwnerId(), subject.getId())
+    );
+    
+    Boolean result = decisions.get(key);
+    if (result == null) {
+      result = policies.enforce(subject, object, action);
+      
+      if (decisions.size() >= maxSize) {
+        log.debug("Decision cache is full. Clearing it. maxSize={}", maxSize);
+        decisions.clear();
+      }
+      decisions.put(key, result);
+    }
+    
+    return result;
+  }
+  
+  /**
+   * Removes all cached decisions.
+   */
+  public void clear() {
+    decisions.clear();
+  }
+  
+  public int size() {
+    return decisions.size();
+  }
+  
+  
+  @ToString(of = {"objectType", "action", "owned"})
+  private static final class Key {
+    private final long[] roles;
+    private final String objectType;
+    private final String action;
+    private final boolean owned;
+    private final int hash;
+    
+    private Key(final long[] roles, final int rolesHash, final String objectType, final String action, final boolean owned) {
+      this.roles = roles;
+      this.objectType = objectType;
+      this.action = action;
+      this.owned = owned;
+      
+      int h = rolesHash;
+      h = 31 * h + Objects.hashCode(objectType);
+      h = 31 * h + Objects.hashCode(action);
+      this.hash = 31 * h + (owned ? 1 : 0);
+    }
+    
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      
+      return o instanceof Key other
+          && hash == other.hash
+          && owned == other.owned
+          && Objects.equals(objectType, other.objectType)
+          && Objects.equals(action, other.action)
+          && Arrays.equals(roles, other.roles);
+    }
+    
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
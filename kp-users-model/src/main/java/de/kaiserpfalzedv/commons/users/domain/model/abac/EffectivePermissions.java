@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.model.abac;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.*;
+
+
+/**
+ * The permissions of a single subject, derived from the {@link CompiledPolicies}.
+ *
+ * <p>Everything that only depends on the subject (the roles) is evaluated once. What remains per object is a map
+ * lookup of the object type, two mask checks and, for policies restricted to owned objects, the comparison of the
+ * owner id. That makes checking long lists of objects cheap.</p>
+ *
+ * <p>The permissions are a snapshot. They have to be derived again when the policies or the roles of the subject
+ * change. The {@link #getGeneration() generation} of the {@link PolicySnapshot} and the roles of the subject they have
+ * been derived from tell whether they are still current.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-21
+ */
+@ToString(of = {"subject", "generation"})
+public final class EffectivePermissions {
+  private static final int ANY = 0;
+  private static final int OWNED = 1;
+  
+  /** The id of the subject these permissions belong to. */
+  @Getter
+  private final UUID subject;
+  
+  /** The generation of the {@link PolicySnapshot} these permissions have been derived from. */
+  @Getter
+  private final long generation;
+  
+  /** The authorities of the subject these permissions have been derived from. */
+  private final Collection<? extends GrantedAuthority> authorities;
+  
+  /** The names of the roles of the subject these permissions have been derived from. */
+  private final Set<String> roles;
+  
+  /** Actions allowed on every object type (for any owner and for owned objects). */
+  private final long[] wildcard;
+  
+  /** Actions allowed per object type (for any owner and for owned objects). */
+  private final Map<String, long[]> byType;
+  
+  
+  private EffectivePermissions(@NotNull final User subject, final long generation, @NotNull final long[] wildcard,
+                               @NotNull final Map<String, long[]> byType) {
+    this.subject = subject.getId();
+    this.generation = generation;
+    this.authorities = subject.getAuthorities();
+    this.roles = roles(authorities);
+    this.wildcard = wildcard;
+    this.byType = byType;
+  }
+  
+  /**
+   * Derives the permissions of the subject.
+   *
+   * @param policies the compiled policies.
+   * @param subject the subject.
+   * @return the permissions of the subject.
+   */
+  public static EffectivePermissions of(@NotNull final CompiledPolicies policies, @NotNull final User subject) {
+    return of(policies, subject, 0L);
+  }
+  
+  /**
+   * Derives the permissions of the subject.
+   *
+   * @param policies the compiled policies.
+   * @param subject the subject.
+   * @param generation the generation of the policy snapshot the policies belong to.
+   * @return the permissions of the subject.
+   */
+  public static EffectivePermissions of(@NotNull final CompiledPolicies policies, @NotNull final User subject,
+                                        final long generation) {
+    long[] wildcard = new long[2];
+    HashMap<String, long[]> byType = new HashMap<>();
+    
+    for (CompiledPolicy policy : policies.getPolicies()) {
+      if (policy.getOwnership() == OwnershipMode.NONE || !subject.hasRole(policy.getAuthority())) {
+        continue;
+      }
+      
+      long[] masks = policy.getObjectType() == null
+          ? wildcard
+          : byType.computeIfAbsent(policy.getObjectType(), k -> new long[2]);
+      masks[policy.getOwnership() == OwnershipMode.ANY ? ANY : OWNED] |= policy.getActions();
+    }
+    
+    return new EffectivePermissions(subject, generation, wildcard, Map.copyOf(byType));
+  }
+  
+  private static Set<String> roles(@NotNull final Collection<? extends GrantedAuthority> authorities) {
+    HashSet<String> result = new HashSet<>(authorities.size());
+    authorities.forEach(authority -> result.add(authority.getAuthority()));
+    
+    return result;
+  }
+  
+  
+  /**
+   * Checks if these permissions are still valid for the subject.
+   *
+   * @param subject the subject to check.
+   * @param generation the generation of the current policy snapshot.
+   * @return true if the permissions belong to the subject and have been derived from the given generation and the
+   *     current roles of the subject.
+   */
+  public boolean isCurrent(@NotNull final User subject, final long generation) {
+    return this.generation == generation
+        && Objects.equals(this.subject, subject.getId())
+        // the role sets of users are immutable, so the same set has the same roles.
+        && (authorities == subject.getAuthorities() || roles.equals(roles(subject.getAuthorities())));
+  }
+  
+  
+  /**
+   * Checks a single object.
+   *
+   * @param object the object to access.
+   * @param action the action mask (see {@link PolicyActions#lookup(String)}).
+   * @return true if the subject may execute the action on the object.
+   */
+  public boolean allows(@NotNull final HasOwner<UUID> object, final long action) {
+    long any = wildcard[ANY];
+    long owned = wildcard[OWNED];
+    
+    long[] typed = byType.get(object.getABACObjectName());
+    if (typed != null) {
+      any |= typed[ANY];
+      owned |= typed[OWNED];
+    }
+    
+    return covers(any, action)
+        || (covers(owned, action) && Objects.equals(object.getOwnerId(), subject));
+  }
+  
+  /**
+   * Checks a single object.
+   *
+   * @param object the object to access.
+   * @param action the action to execute.
+   * @return true if the subject may execute the action on the object.
+   */
+  public boolean allows(@NotNull final HasOwner<UUID> object, @Nullable final String action) {
+    return allows(object, PolicyActions.lookup(action));
+  }
+  
+  private static boolean covers(final long allowed, final long action) {
+    return allowed == PolicyActions.ALL || (allowed & action) != 0L;
+  }
+}
@@ -21,21 +21,20 @@ package de.kaiserpfalzedv.commons.users.domain.model.abac;
 import com.googlecode.aviator.runtime.type.AviatorBoolean;
 import com.googlecode.aviator.runtime.type.AviatorObject;
 import de.kaiserpfalzedv.commons.users.domain.model.user.User;
-import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import lombok.extern.slf4j.XSlf4j;
 import org.casbin.jcasbin.util.function.CustomFunction;
 
-import java.util.Arrays;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This is a casbin custom function to check for ownership.
  *
+ * <p>The policy line (role, object and actions) is compiled into a {@link CompiledPolicy} on first use and cached, so
+ * the policy strings are not parsed again on every call.</p>
+ *
  * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
  * @since 01.05.2025
  */
@@ -44,6 +43,10 @@ public class OwnedBy extends CustomFunction {
   public static final String OWNED = "owned";
   public static final String SELF = "self";
   
+  /** Compiled policies by role, object and actions of the policy line. */
+  private final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, CompiledPolicy>>> compiled
+      = new ConcurrentHashMap<>();
+  
   @Override
   public String getName() {
     return "ownedBy";
@@ -58,54 +61,39 @@ public class OwnedBy extends CustomFunction {
     
     log.entry(user, tar, pol, env);
     
-    log.debug("Checking access. policy={}, target={}/{}/{}, subject={}/{}/{}", pol,
-        tar.getABACObjectName(), tar.getId(), tar.getOwnerId(),
-        user.getId(), user.getNameSpace(), user.getName());
+    CompiledPolicy compiledPolicy = compile((String) env.get("p_sub"), pol, (String) env.get("p_act"));
+    String action = (String) env.get("r_act");
     
-    if (
-          checkRole(user, env)
-          && checkTarget(tar, pol, env)
-          && checkAction(tar, pol, env)
-          && checkOwnership(user, tar, pol)
-    ) {
-      log.info("Policy check passed. policy={}, target={}/{}/{}, subject={}/{}/{}", pol,
+    if (compiledPolicy.allows(user, tar, getTargetTypeName(tar), PolicyActions.lookup(action))) {
+      log.debug("Policy check passed. policy={}, action={}, target={}/{}/{}, subject={}/{}/{}", compiledPolicy, action,
           tar.getABACObjectName(), tar.getId(), tar.getOwnerId(),
           user.getId(), user.getNameSpace(), user.getName());
       return log.exit(AviatorBoolean.TRUE);
     }
-
+    
+    log.trace("Policy does not apply. policy={}, action={}, subject={}/{}/{}", compiledPolicy, action,
+        user.getId(), user.getNameSpace(), user.getName());
     return log.exit(AviatorBoolean.FALSE);
   }
   
-  private boolean checkRole(@NotNull final User caller, @NotNull @NotEmpty final Map<String, Object> env) {
-    log.entry(caller);
-    
-    String role = "ROLE_" + env.get("p_sub");
-    
-    if (! caller.hasRole(role)) {
-      log.debug("Policy does not apply. User doesn't have role. role='{}', user='{}/{}'", role, caller.getNameSpace(), caller.getName());
-      return false;
+  private CompiledPolicy compile(@NotNull final String role, @NotNull final String object, @NotNull final String actions) {
+    ConcurrentHashMap<String, ConcurrentHashMap<String, CompiledPolicy>> byObject = compiled.get(role);
+    if (byObject == null) {
+      byObject = compiled.computeIfAbsent(role, k -> new ConcurrentHashMap<>());
     }
     
-    log.trace("Policy may apply. User has role. role='{}', user='{}/{}'", role, caller.getNameSpace(), caller.getName());
-    return log.exit(true);
-  }
-  
-  
-  private boolean checkTarget(@NotNull final Object target, @NotNull final String policy, @NotNull @NotEmpty final Map<String, Object> env) {
-    log.entry(target, policy, env);
-    
-    String[] policyParts = policy.split("/");
-    String policyName = policyParts[0];
-
-    String targetName = getTargetTypeName(target);
+    ConcurrentHashMap<String, CompiledPolicy> byActions = byObject.get(object);
+    if (byActions == null) {
+      byActions = byObject.computeIfAbsent(object, k -> new ConcurrentHashMap<>());
+    }
     
-    if (!targetName.equals(policyName) && ! "*".equals(policyName)) {
-      log.debug("Policy does not match. target='{}', policyName='{}'", targetName, policyName);
-      return log.exit(false);
+    CompiledPolicy result = byActions.get(actions);
+    if (result == null) {
+      result = byActions.computeIfAbsent(actions, k -> CompiledPolicy.compile(role, object, actions));
+      log.debug("Compiled policy. role='{}', object='{}', actions='{}', policy={}", role, object, actions, result);
     }
     
-    return log.exit(true);
+    return result;
   }
   
   private String getTargetTypeName(Object target) {
@@ -119,66 +107,4 @@ public class OwnedBy extends CustomFunction {
     
     return target.getClass().getSimpleName();
   }
-  
-  
-  private boolean checkOwnership(@NotNull final User user, @NotNull final HasOwner<UUID> target, @NotBlank final String policy) {
-    log.entry(user, target.getABACObjectName(), target.getId(), policy);
-    
-    String[] policyParts = policy.split("/");
-    String policyName = policyParts[0];
-    String policyId = (policyParts.length > 1) ? policyParts[1] : "*";
-    
-    if (
-        "*".equals(policyId)
-        || checkOwnership(user, policyId, OWNED, target.getOwnerId(), user.getId())
-        || checkOwnership(user, policyId, SELF, target.getOwnerId(), user.getId())
-    ) {
-      log.trace("Policy does match. policy='{}', policyId='{}' owner='{}'", policyName, policyId, target.getOwnerId());
-      return log.exit(true);
-    }
-    
-    log.debug("Wrong owner. policy='{}', expected='{}'", policy, target.getOwnerId());
-    return log.exit(false);
-  }
-  
-  private boolean checkOwnership(@NotNull final User user, @NotBlank final String policy, @NotEmpty final String ownerType, @NotNull final UUID expected, @NotNull final UUID actual) {
-    log.entry(user, ownerType, policy, expected, actual);
-    
-    
-    if (ownerType.equals("*")
-        || (ownerType.equals(policy) && expected.equals(actual))
-    ) {
-      return log.exit(true);
-    }
-    
-    return log.exit(false);
-  }
-  
-  
-  private boolean checkAction(@NotNull final HasOwner<UUID> target, @NotNull final String policy,
-                           @NotNull final Map<String, Object> env) {
-    log.entry(target, policy);
-    
-    Set<String> allowed = getAllowedActions(env);
-    String action = (String) env.get("r_act");
-    
-    if (
-        !(
-          allowed.contains("*")
-          || allowed.contains(action)
-        )
-    ) {
-      log.debug("Policy does not match. action='{}', allowed={}", action, allowed);
-      return log.exit(false);
-    }
-    
-    log.trace("Policy does match. action='{}', policy='{}'", action, allowed);
-    return log.exit(true);
-  }
-  
-  private Set<String> getAllowedActions(@NotNull final Map<String, Object> env) {
-    log.entry(env);
-    
-    return log.exit(Arrays.stream(((String) env.get("p_act")).split(" ")).collect(Collectors.toSet()));
-  }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.model.abac;
+
+
+import jakarta.annotation.Nullable;
+
+import java.util.UUID;
+
+
+/**
+ * The ownership condition of a policy. It is the part after the "/" of the policy object (e.g. {@code User/self}).
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-21
+ */
+public enum OwnershipMode {
+  /** No ownership condition ({@code User} or {@code User/*}). */
+  ANY {
+    @Override
+    public boolean matches(@Nullable final UUID owner, @Nullable final UUID subject) {
+      return true;
+    }
+  },
+  
+  /** The object has to be owned by the subject ({@code User/owned}). */
+  OWNED,
+  
+  /** The object has to be the subject itself ({@code User/self}). */
+  SELF,
+  
+  /** An unknown ownership condition. Such a policy never matches. */
+  NONE {
+    @Override
+    public boolean matches(@Nullable final UUID owner, @Nullable final UUID subject) {
+      return false;
+    }
+  };
+  
+  
+  /**
+   * Checks the ownership condition.
+   *
+   * @param owner the owner of the object.
+   * @param subject the id of the subject requesting access.
+   * @return true if the condition is met.
+   */
+  public boolean matches(@Nullable final UUID owner, @Nullable final UUID subject) {
+    return owner != null && owner.equals(subject);
+  }
+  
+  /**
+   * Parses the ownership part of a policy object.
+   *
+   * @param mode the ownership part (may be null if the policy object has none).
+   * @return the ownership mode.
+   */
+  public static OwnershipMode of(@Nullable final String mode) {
+    if (mode == null || "*".equals(mode)) {
+      return ANY;
+    }
+    
+    return switch (mode) {
+      case OwnedBy.OWNED -> OWNED;
+      case OwnedBy.SELF -> SELF;
+      default -> NONE;
+    };
+  }
+}
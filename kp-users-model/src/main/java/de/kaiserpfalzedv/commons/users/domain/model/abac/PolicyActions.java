@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.model.abac;
+
+
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * The JVM-wide registry of ABAC actions.
+ *
+ * <p>Every action gets one bit of a {@code long}, so the actions of a policy can be stored as a bitmask and checked
+ * with a single AND. Actions are registered when policies are compiled. The policies of this application use about a
+ * dozen actions, far below the limit of {@value #MAX_ACTIONS}.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-21
+ */
+public final class PolicyActions {
+  /** The mask of the wildcard action "*". */
+  public static final long ALL = -1L;
+  
+  /** The mask of an action unknown to all policies. */
+  public static final long NONE = 0L;
+  
+  /** The maximum number of distinct actions. */
+  public static final int MAX_ACTIONS = Long.SIZE;
+  
+  private static final ConcurrentHashMap<String, Long> MASKS = new ConcurrentHashMap<>();
+  private static final AtomicInteger NEXT_BIT = new AtomicInteger();
+  
+  
+  private PolicyActions() {}
+  
+  
+  /**
+   * Returns the mask of an action without registering it.
+   *
+   * @param action the action to look up.
+   * @return the mask of the action or {@link #NONE} if no policy knows this action.
+   */
+  public static long lookup(@Nullable final String action) {
+    if (action == null) {
+      return NONE;
+    }
+    
+    Long result = MASKS.get(action);
+    return result != null ? result : NONE;
+  }
+  
+  /**
+   * Returns the mask of an action and registers the action if it is not known yet.
+   *
+   * @param action the action.
+   * @return the mask of this action.
+   * @throws IllegalStateException if more than {@value #MAX_ACTIONS} actions are registered.
+   */
+  public static long register(@NotNull final String action) {
+    if ("*".equals(action)) {
+      return ALL;
+    }
+    
+    Long result = MASKS.get(action);
+    
+    if (result == null) {
+      result = MASKS.computeIfAbsent(action, a -> {
+        int bit = NEXT_BIT.getAndIncrement();
+        
+        if (bit >= MAX_ACTIONS) {
+          throw new IllegalStateException("Too many ABAC actions. Only " + MAX_ACTIONS + " are supported.");
+        }
+        
+        return 1L << bit;
+      });
+    }
+    
+    return result;
+  }
+  
+  /**
+   * Compiles the action list of a policy (actions separated by blanks) into a mask.
+   *
+   * @param actions the action list of the policy.
+   * @return the mask of all listed actions.
+   */
+  public static long compile(@Nullable final String actions) {
+    if (actions == null) {
+      return NONE;
+    }
+    
+    long result = NONE;
+    for (String action : actions.trim().split("\\s+")) {
+      if (!action.isEmpty()) {
+        result |= register(action);
+      }
+    }
+    
+    return result;
+  }
+}
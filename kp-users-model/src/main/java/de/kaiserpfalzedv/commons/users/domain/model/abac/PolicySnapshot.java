@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.model.abac;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+
+/**
+ * An immutable state of the ABAC engine: the compiled policies and the decision cache belonging to them.
+ *
+ * <p>The policies consist of the base policies (compiled from the casbin enforcer) and the managed policies (changed
+ * at runtime, see {@link de.kaiserpfalzedv.commons.users.domain.model.policy.Policy}). A managed policy is compiled
+ * once when it is added; adding or removing one does not touch any other policy.</p>
+ *
+ * <p>The snapshot is never changed. A policy reload or a role change creates a new snapshot with a new (empty)
+ * decision cache and a higher generation. Readers take the current snapshot and evaluate it without any locking.
+ * Since the cache is part of the snapshot, a decision computed with old policies can never end up in the cache of new
+ * policies.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-21
+ */
+@Getter
+@ToString(of = {"generation", "policies"})
+public final class PolicySnapshot {
+  /** The state before any policy has been loaded. Denies everything. */
+  public static final PolicySnapshot EMPTY = new PolicySnapshot(
+      0L, CompiledPolicies.EMPTY, Map.of(), DecisionCache.DEFAULT_MAX_SIZE
+  );
+  
+  /** Increased with every new snapshot. */
+  private final long generation;
+  
+  /** All policies (base and managed). */
+  private final CompiledPolicies policies;
+  
+  @Getter(AccessLevel.NONE)
+  private final CompiledPolicies base;
+  
+  @Getter(AccessLevel.NONE)
+  private final Map<UUID, CompiledPolicy> managed;
+  
+  @Getter(AccessLevel.NONE)
+  private final DecisionCache decisions;
+  
+  
+  private PolicySnapshot(final long generation, @NotNull final CompiledPolicies base,
+                         @NotNull final Map<UUID, CompiledPolicy> managed, @Min(1) final int cacheSize) {
+    this.generation = generation;
+    this.base = base;
+    this.managed = Map.copyOf(managed);
+    this.decisions = new DecisionCache(cacheSize);
+    
+    if (this.managed.isEmpty()) {
+      this.policies = base;
+    } else {
+      ArrayList<CompiledPolicy> all = new ArrayList<>(base.getPolicies());
+      all.addAll(this.managed.values());
+      this.policies = CompiledPolicies.of(all);
+    }
+  }
+  
+  /**
+   * @param base the new base policies.
+   * @return a new snapshot with the new base policies and an empty decision cache. Managed policies are kept.
+   */
+  public PolicySnapshot withPolicies(@NotNull final CompiledPolicies base) {
+    return withPolicies(base, decisions.getMaxSize());
+  }
+  
+  /**
+   * @param base the new base policies.
+   * @param cacheSize the maximum size of the new decision cache.
+   * @return a new snapshot with the new base policies and an empty decision cache. Managed policies are kept.
+   */
+  public PolicySnapshot withPolicies(@NotNull final CompiledPolicies base, @Min(1) final int cacheSize) {
+    return new PolicySnapshot(generation + 1, base, managed, cacheSize);
+  }
+  
+  /**
+   * @param id the id of the managed policy.
+   * @param policy the compiled policy.
+   * @return a new snapshot with the managed policy added or replaced.
+   */
+  public PolicySnapshot withPolicy(@NotNull final UUID id, @NotNull final CompiledPolicy policy) {
+    HashMap<UUID, CompiledPolicy> result = new HashMap<>(managed);
+    result.put(id, policy);
+    
+    return new PolicySnapshot(generation + 1, base, result, decisions.getMaxSize());
+  }
+  
+  /**
+   * @param id the id of the managed policy.
+   * @return a new snapshot without the managed policy.
+   */
+  public PolicySnapshot withoutPolicy(@NotNull final UUID id) {
+    HashMap<UUID, CompiledPolicy> result = new HashMap<>(managed);
+    result.remove(id);
+    
+    return new PolicySnapshot(generation + 1, base, result, decisions.getMaxSize());
+  }
+  
+  /**
+   * @return a new snapshot with the same policies and an empty decision cache.
+   */
+  public PolicySnapshot invalidated() {
+    return withPolicies(base);
+  }
+  
+  /**
+   * @return the number of managed policies.
+   */
+  public int getManagedPolicies() {
+    return managed.size();
+  }
+  
+  
+  /**
+   * Checks if the subject may execute the action on the object. Decisions are cached.
+   *
+   * @param subject the user requesting access.
+   * @param object the object to access.
+   * @param action the action to execute.
+   * @return true if the access is allowed.
+   */
+  public boolean enforce(@NotNull final User subject, @NotNull final HasOwner<UUID> object, @NotNull final String action) {
+    return decisions.decide(policies, subject, object, action);
+  }
+  
+  /**
+   * @param subject the subject.
+   * @return the permissions of the subject according to this snapshot.
+   */
+  public EffectivePermissions permissions(@NotNull final User subject) {
+    return EffectivePermissions.of(policies, subject, generation);
+  }
+  
+  /**
+   * @return the number of cached decisions.
+   */
+  public int getCachedDecisions() {
+    return decisions.size();
+  }
+}
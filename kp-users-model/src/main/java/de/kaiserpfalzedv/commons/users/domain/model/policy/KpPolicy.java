@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.model.policy;
+
+
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import lombok.extern.jackson.Jacksonized;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+
+/**
+ * The implementation of the policy for the user management application.
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-22
+ */
+@Jacksonized
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+@Getter
+@ToString
+@EqualsAndHashCode(of = {"id"})
+public class KpPolicy implements Policy {
+  /** Internal policy id */
+  @Builder.Default
+  private UUID id = UUID.randomUUID();
+  
+  /** Policy created at. */
+  @Builder.Default
+  private OffsetDateTime created = OffsetDateTime.now(Clock.systemUTC());
+  
+  /** Policy last modified at */
+  @Builder.Default
+  private OffsetDateTime modified = OffsetDateTime.now(Clock.systemUTC());
+  
+  /** Policy deleted at */
+  private OffsetDateTime deleted;
+  
+  /** role the policy applies to */
+  private String role;
+  
+  /** object of the policy */
+  private String object;
+  
+  /** allowed actions */
+  private String actions;
+  
+  
+  /**
+   * @param policy the policy to copy.
+   * @return the policy as {@link KpPolicy}.
+   */
+  public static KpPolicy of(@NotNull final Policy policy) {
+    if (policy instanceof KpPolicy result) {
+      return result;
+    }
+    
+    return KpPolicy.builder()
+        .id(policy.getId())
+        .created(policy.getCreated())
+        .modified(policy.getModified())
+        .deleted(policy.getDeleted())
+        .role(policy.getRole())
+        .object(policy.getObject())
+        .actions(policy.getActions())
+        .build();
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.model.policy;
+
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import de.kaiserpfalzedv.commons.api.resources.HasId;
+import de.kaiserpfalzedv.commons.api.resources.HasTimestamps;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+
+/**
+ * An ABAC policy line managed at runtime.
+ *
+ * <p>It has the same three parts as a line of {@code abac/users.csv}: the role (without the prefix {@code ROLE_}),
+ * the object ({@code Type[/owned|self]}) and the allowed actions separated by blanks.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-22
+ */
+@JsonDeserialize(as = KpPolicy.class)
+public interface Policy extends HasId<UUID>, HasTimestamps, Serializable {
+  /**
+   * @return the role the policy applies to (e.g. {@code PLAYER}).
+   */
+  String getRole();
+  
+  /**
+   * @return the object of the policy (e.g. {@code User/self} or {@code *}).
+   */
+  String getObject();
+  
+  /**
+   * @return the allowed actions separated by blanks (e.g. {@code view list update} or {@code *}).
+   */
+  String getActions();
+}
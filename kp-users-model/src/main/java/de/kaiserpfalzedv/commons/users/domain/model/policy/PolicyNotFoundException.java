@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.model.policy;
+
+
+import de.kaiserpfalzedv.commons.api.BaseException;
+import jakarta.annotation.Nullable;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.UUID;
+
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-22
+ */
+@Getter
+@ToString(callSuper = true)
+public class PolicyNotFoundException extends BaseException {
+  private final UUID policyId;
+  
+  public PolicyNotFoundException(@Nullable final UUID id) {
+    super(createMessage(id));
+    
+    this.policyId = id;
+  }
+  
+  private static String createMessage(@Nullable final UUID id) {
+    return "Policy with id '%s' not found".formatted(id);
+  }
+}
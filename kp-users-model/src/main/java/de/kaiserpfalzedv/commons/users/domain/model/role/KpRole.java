@@ -21,6 +21,7 @@ package de.kaiserpfalzedv.commons.users.domain.model.role;
 import lombok.*;
 import lombok.extern.jackson.Jacksonized;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.security.core.GrantedAuthority;
 
 import java.time.Clock;
@@ -64,4 +65,10 @@ public class KpRole implements Role, GrantedAuthority {
   
   /** Role deleted at */
   private OffsetDateTime deleted;
+  
+  /** The authority of this role, resolved once from the {@link RoleRegistry}. */
+  @Transient
+  @ToString.Exclude
+  @Getter(lazy = true)
+  private final String authority = RoleRegistry.authority(name);
 }
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2025. Roland T. Lichti, Kaiserpfalz EDV-Service.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package de.kaiserpfalzedv.commons.users.domain.model.role;
+
+
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.*;
+
+
+/**
+ * A compact, immutable set of roles backed by a plain array.
+ *
+ * <p>Users carry only a handful of roles, so a linear scan over an array is faster and much smaller than a
+ * {@link HashSet} with its table and entry objects. The set holds the role instances it has been given, which are the
+ * canonical instances of the role catalog when the user has been hydrated by the store. That way all cached users
+ * share the same role objects.</p>
+ *
+ * <p>Next to the roles the set keeps a bitset of the {@link RoleRegistry} ordinals of their authorities. That way
+ * {@link #hasAuthority(String)} is a constant time bit test without allocating anything.</p>
+ *
+ * <p>The set never changes after construction, so it can be shared between threads and caches without copying.
+ * {@link #with(KpRole)} and {@link #without(Object)} return new sets, the mutating methods of {@link Set} throw an
+ * {@link UnsupportedOperationException}.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-21
+ */
+public final class KpRoleSet extends AbstractSet<KpRole> implements Serializable {
+  @Serial
+  private static final long serialVersionUID = 1L;
+
+  private static final KpRole[] NONE = new KpRole[0];
+  private static final long[] NO_BITS = new long[0];
+
+  /** The set without any role. */
+  public static final KpRoleSet EMPTY = new KpRoleSet(NONE);
+
+  private final KpRole[] roles;
+  private final long[] bits;
+  private final int authorityHash;
+
+
+  private KpRoleSet(@NotNull final KpRole[] roles) {
+    this.roles = roles;
+    this.bits = bitsOf(roles);
+    this.authorityHash = Arrays.hashCode(bits);
+  }
+
+  /**
+   * Creates a role set from the given roles. Duplicates (by role id) are dropped, the first instance wins.
+   *
+   * @param roles the roles to put into the set.
+   * @return the compact role set. A role set is returned as it is.
+   */
+  public static KpRoleSet of(@Nullable final Collection<? extends KpRole> roles) {
+    if (roles instanceof KpRoleSet set) {
+      return set;
+    }
+
+    if (roles == null || roles.isEmpty()) {
+      return EMPTY;
+    }
+
+    ArrayList<KpRole> result = new ArrayList<>(roles.size());
+    for (KpRole role : roles) {
+      if (role != null && !result.contains(role)) {
+        result.add(role);
+      }
+    }
+
+    return result.isEmpty() ? EMPTY : new KpRoleSet(result.toArray(NONE));
+  }
+
+
+  /**
+   * Returns a set containing the given role.
+   *
+   * @param role the role to add.
+   * @return the new set or this set if the role is already contained.
+   */
+  public KpRoleSet with(@NotNull final KpRole role) {
+    if (indexOf(roles, role) >= 0) {
+      return this;
+    }
+
+    KpRole[] result = Arrays.copyOf(roles, roles.length + 1);
+    result[roles.length] = role;
+
+    return new KpRoleSet(result);
+  }
+
+  /**
+   * Returns a set without the given role.
+   *
+   * @param role the role to remove.
+   * @return the new set or this set if the role is not contained.
+   */
+  public KpRoleSet without(@Nullable final Object role) {
+    int index = indexOf(roles, role);
+
+    if (index < 0) {
+      return this;
+    }
+
+    if (roles.length == 1) {
+      return EMPTY;
+    }
+
+    KpRole[] result = new KpRole[roles.length - 1];
+    System.arraycopy(roles, 0, result, 0, index);
+    System.arraycopy(roles, index + 1, result, index, roles.length - index - 1);
+
+    return new KpRoleSet(result);
+  }
+
+
+  /**
+   * Checks if the set contains a role with the given authority.
+   *
+   * @param authority the authority to check (with the prefix {@value RoleRegistry#PREFIX}).
+   * @return true if a role with this authority is part of the set.
+   */
+  public boolean hasAuthority(@Nullable final String authority) {
+    int ordinal = RoleRegistry.lookup(authority);
+
+    if (ordinal < 0) {
+      return false;
+    }
+
+    int word = ordinal >>> 6;
+    return word < bits.length && (bits[word] & (1L << ordinal)) != 0L;
+  }
+
+
+  /**
+   * @return a copy of the bitset of the {@link RoleRegistry} ordinals of all roles in this set.
+   */
+  public long[] getAuthorityBits() {
+    return bits.clone();
+  }
+
+  /**
+   * @return the hash of the bitset of the authorities, computed once ({@link Arrays#hashCode(long[])}).
+   */
+  public int getAuthorityHash() {
+    return authorityHash;
+  }
+
+  /**
+   * @return the bitset without copying it, for the {@link RoleRegistry} only.
+   */
+  long[] bits() {
+    return bits;
+  }
+
+
+  @Override
+  public Iterator<KpRole> iterator() {
+    return new Iterator<>() {
+      private int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return index < roles.length;
+      }
+
+      @Override
+      public KpRole next() {
+        if (index >= roles.length) {
+          throw new NoSuchElementException();
+        }
+
+        return roles[index++];
+      }
+    };
+  }
+
+  @Override
+  public int size() {
+    return roles.length;
+  }
+
+  @Override
+  public boolean contains(@Nullable final Object o) {
+    return indexOf(roles, o) >= 0;
+  }
+
+  @Override
+  public boolean add(final KpRole role) {
+    throw new UnsupportedOperationException("The role set is immutable. Use with(KpRole) instead.");
+  }
+
+  @Override
+  public boolean remove(final Object o) {
+    throw new UnsupportedOperationException("The role set is immutable. Use without(Object) instead.");
+  }
+
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException("The role set is immutable.");
+  }
+
+  @Override
+  public Object[] toArray() {
+    return roles.clone();
+  }
+
+
+  private static long[] bitsOf(@NotNull final KpRole[] roles) {
+    if (roles.length == 0) {
+      return NO_BITS;
+    }
+
+    long[] result = new long[1];
+    for (KpRole role : roles) {
+      int ordinal = RoleRegistry.ordinal(role.getAuthority());
+      int word = ordinal >>> 6;
+
+      if (word >= result.length) {
+        result = Arrays.copyOf(result, word + 1);
+      }
+
+      result[word] |= 1L << ordinal;
+    }
+
+    return result;
+  }
+
+  private static int indexOf(@NotNull final KpRole[] roles, @Nullable final Object o) {
+    if (o == null) {
+      return -1;
+    }
+
+    for (int i = 0; i < roles.length; i++) {
+      if (roles[i] == o || roles[i].equals(o)) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+}
@@ -36,9 +36,10 @@ import java.util.UUID;
 
 public interface Role extends GrantedAuthority, HasId<UUID>, HasNameSpace, HasName, HasTimestamps, Serializable {
   /**
-   * @return The name of the authority. In spring traditionally with a "ROLE_" prefix.
+   * @return The name of the authority. In spring traditionally with a "ROLE_" prefix. The string is shared via the
+   *     {@link RoleRegistry}.
    */
   default String getAuthority() {
-    return "ROLE_" + getName();
+    return RoleRegistry.authority(getName());
   }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2025. Roland T. Lichti, Kaiserpfalz EDV-Service.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package de.kaiserpfalzedv.commons.users.domain.model.role;
+
+
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * The JVM-wide registry of role authorities.
+ *
+ * <p>Every authority string (the role name with the spring prefix {@value #PREFIX}) is created once and then reused.
+ * Each authority gets a small ordinal, so a set of roles can be stored as a bitset and a role check is a single bit
+ * test.</p>
+ *
+ * <p>Only the roles of the catalog ({@link KpRoleSet}) and of the policies get an ordinal. Any other authority (e.g.
+ * scopes of an external identity provider) is never registered, so the registry can't be grown by callers. Ordinals
+ * are never reused or removed. The number of distinct roles is small and a removed role only wastes one bit.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-21
+ */
+public final class RoleRegistry {
+  /** The prefix spring security expects for role authorities. */
+  public static final String PREFIX = "ROLE_";
+
+  private static final ConcurrentHashMap<String, String> AUTHORITIES = new ConcurrentHashMap<>();
+  private static final ConcurrentHashMap<String, Integer> ORDINALS = new ConcurrentHashMap<>();
+  private static final AtomicInteger NEXT_ORDINAL = new AtomicInteger();
+
+
+  private RoleRegistry() {}
+
+
+  /**
+   * Returns the shared authority string for a role name.
+   *
+   * @param name the name of the role (without prefix).
+   * @return the authority string, always the same instance for the same name.
+   */
+  public static String authority(@Nullable final String name) {
+    String key = String.valueOf(name);
+    String result = AUTHORITIES.get(key);
+
+    if (result == null) {
+      result = AUTHORITIES.computeIfAbsent(key, n -> (PREFIX + n).intern());
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the ordinal of an authority and registers the authority if it is not known yet. Only to be called for the
+   * roles of the catalog and of the policies.
+   *
+   * @param authority the authority string (with prefix).
+   * @return the ordinal of the authority.
+   */
+  public static int ordinal(@NotNull final String authority) {
+    Integer result = ORDINALS.get(authority);
+
+    if (result == null) {
+      result = ORDINALS.computeIfAbsent(authority, a -> NEXT_ORDINAL.getAndIncrement());
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the bitset of the ordinals of the given authorities. Unknown authorities are left out, they can't match
+   * any role of the catalog or of the policies.
+   *
+   * @param authorities the authorities (e.g. of a user).
+   * @return the bitset. Two collections with the same known authorities return equal arrays. The bitset of a
+   *     {@link KpRoleSet} is returned without copying it and must not be changed.
+   */
+  public static long[] bitsOf(@NotNull final Collection<? extends GrantedAuthority> authorities) {
+    if (authorities instanceof KpRoleSet roles) {
+      return roles.bits();
+    }
+
+    long[] result = new long[0];
+    for (GrantedAuthority authority : authorities) {
+      int ordinal = lookup(authority.getAuthority());
+      if (ordinal < 0) {
+        continue;
+      }
+
+      int word = ordinal >>> 6;
+
+      if (word >= result.length) {
+        result = Arrays.copyOf(result, word + 1);
+      }
+
+      result[word] |= 1L << ordinal;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the ordinal of an authority without registering it.
+   *
+   * @param authority the authority string (with prefix).
+   * @return the ordinal of the authority or -1 if no role with this authority has ever been registered.
+   */
+  public static int lookup(@Nullable final String authority) {
+    if (authority == null) {
+      return -1;
+    }
+
+    Integer result = ORDINALS.get(authority);
+    return result != null ? result : -1;
+  }
+}
@@ -19,6 +19,7 @@
 package de.kaiserpfalzedv.commons.users.domain.model.user;
 
 import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRoleSet;
 import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.RoleAddedToUserEvent;
 import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.RoleRemovedFromUserEvent;
 import de.kaiserpfalzedv.commons.users.domain.model.user.events.state.*;
@@ -33,10 +34,24 @@ import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.annotation.Id;
 
 import java.time.*;
-import java.util.HashSet;
-import java.util.Set;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.UUID;
 
+/**
+ * The user as immutable snapshot.
+ *
+ * <p>An instance never changes after it has been built. All transitions ({@link #detain(ApplicationEventPublisher, long)},
+ * {@link #ban(ApplicationEventPublisher)}, {@link #addRole(KpRole, ApplicationEventPublisher)}, ...) return a new
+ * instance and publish it in their event. The authorities are an immutable {@link KpRoleSet}. So a user can be shared
+ * between caches and concurrent readers without copying or locking.</p>
+ *
+ * <p>Every change sets {@link #getModified() modified} to the {@link #nextModification() next modification
+ * timestamp}, which serves as revision of the user.</p>
+ *
+ * <p>The fields are not final since the persistence mapping fills them after calling the no-args constructor. There
+ * is no way to change them afterwards.</p>
+ */
 @Jacksonized
 @Builder(toBuilder = true)
 @AllArgsConstructor
@@ -73,71 +88,122 @@ public class KpUserDetails implements User {
     private String discord;
     
     @Builder.Default
-    private final Set<KpRole> authorities = new HashSet<>();
+    private final KpRoleSet authorities = KpRoleSet.EMPTY;
+    
+    
+    public static class KpUserDetailsBuilder {
+        /**
+         * Sets the authorities of the user. Any collection is converted into an immutable {@link KpRoleSet}.
+         *
+         * @param authorities the roles of the user.
+         * @return the builder.
+         */
+        public KpUserDetailsBuilder authorities(final Collection<? extends KpRole> authorities) {
+            this.authorities$value = KpRoleSet.of(authorities);
+            this.authorities$set = true;
+            
+            return this;
+        }
+    }
+    
+    
+    /**
+     * Starts a change of the user. The builder has the next modification timestamp set.
+     *
+     * @return the builder for the changed user.
+     * @see #nextModification()
+     */
+    public KpUserDetailsBuilder modify() {
+        return toBuilder().modified(nextModification());
+    }
+    
+    /**
+     * Returns the modification timestamp for the next change of this user.
+     *
+     * <p>The modification timestamp is the revision of the user: it is set on every change and strictly grows with
+     * every change of the user, even if the clock stands still or has been set back. It has microsecond precision
+     * like the database columns.</p>
+     *
+     * @return the current time or the last modification plus 1 microsecond, whatever is later.
+     */
+    public OffsetDateTime nextModification() {
+        OffsetDateTime now = OffsetDateTime.now(Clock.systemUTC()).truncatedTo(ChronoUnit.MICROS);
+        
+        return modified != null && !now.isAfter(modified) ? modified.plus(1L, ChronoUnit.MICROS) : now;
+    }
     
     
     @Override
     public KpUserDetails detain(@NotNull ApplicationEventPublisher bus, @Min(1) @Max(1095) long days) {
         log.entry(bus, days);
         
-        detainmentDuration = Duration.ofDays(days);
+        KpUserDetails result = modify()
+            .detainmentDuration(Duration.ofDays(days))
+            .detainedTill(LocalDate.now()
+                .atStartOfDay(ZoneId.of("UTC"))
+                .plusDays(1 + days) // today end of day (1) + days
+                .toOffsetDateTime())
+            .build();
         
-        detainedTill = LocalDate.now()
-            .atStartOfDay(ZoneId.of("UTC"))
-            .plusDays(1 + days) // today end of day (1) + days
-            .toOffsetDateTime();
+        bus.publishEvent(UserDetainedEvent.builder().user(result).days(days).build());
         
-        bus.publishEvent(UserDetainedEvent.builder().user(this).days(days).build());
-        
-        return log.exit(this);
+        return log.exit(result);
     }
     
     @Override
     public KpUserDetails release(@NotNull ApplicationEventPublisher bus) {
         log.entry(bus);
         
-        detainmentDuration = null;
-        detainedTill = null;
-        bannedOn = null;
+        KpUserDetails result = modify()
+            .detainmentDuration(null)
+            .detainedTill(null)
+            .bannedOn(null)
+            .build();
         
-        bus.publishEvent(UserReleasedEvent.builder().user(this).build());
+        bus.publishEvent(UserReleasedEvent.builder().user(result).build());
         
-        return log.exit(this);
+        return log.exit(result);
     }
     
     @Override
     public KpUserDetails ban(@NotNull ApplicationEventPublisher bus) {
         log.entry(bus);
 
-        bannedOn = OffsetDateTime.now(Clock.systemUTC());
+        KpUserDetails result = modify()
+            .bannedOn(OffsetDateTime.now(Clock.systemUTC()))
+            .build();
         
-        bus.publishEvent(UserBannedEvent.builder().user(this).timestamp(bannedOn).build());
+        bus.publishEvent(UserBannedEvent.builder().user(result).timestamp(result.bannedOn).build());
         
-        return log.exit(this);
+        return log.exit(result);
     }
     
     @Override
     public KpUserDetails delete(@NotNull ApplicationEventPublisher bus) {
         log.entry(bus);
         
-        this.deleted = OffsetDateTime.now(Clock.systemUTC());
+        KpUserDetails result = modify()
+            .deleted(OffsetDateTime.now(Clock.systemUTC()))
+            .build();
         
-        bus.publishEvent(UserDeletedEvent.builder().user(this).timestamp(deleted).build());
-        log.info("Deleted user. banned={}, detained={}, deleted={}", isBanned(), isDetained(), isDeleted());
+        bus.publishEvent(UserDeletedEvent.builder().user(result).timestamp(result.deleted).build());
+        log.info("Deleted user. banned={}, detained={}, deleted={}", result.isBanned(), result.isDetained(), result.isDeleted());
         
-        return log.exit(this);
+        return log.exit(result);
     }
     
     @Override
     public KpUserDetails undelete(@NotNull ApplicationEventPublisher bus) {
         log.entry(bus);
         
-        this.deleted = null;
+        KpUserDetails result = modify()
+            .deleted(null)
+            .build();
         
-        bus.publishEvent(UserActivatedEvent.builder().user(this).build());
-        log.info("Undeleted user. banned={}, detained={}", isBanned(), isDetained());
+        bus.publishEvent(UserActivatedEvent.builder().user(result).build());
+        log.info("Undeleted user. banned={}, detained={}", result.isBanned(), result.isDetained());
         
-        return log.exit(this);
+        return log.exit(result);
     }
     
     @Override
@@ -145,23 +211,47 @@ public class KpUserDetails implements User {
         // nothing to do, there are no credentials anywhere ...
     }
     
-    public void addRole(@NotNull final KpRole role, ApplicationEventPublisher bus) {
+    /**
+     * Returns the user with the given roles. No event is published, this is used when loading the user.
+     *
+     * @param roles the roles of the user.
+     * @return the user with the roles.
+     */
+    public KpUserDetails withAuthorities(@NotNull final Collection<? extends KpRole> roles) {
+        KpRoleSet result = KpRoleSet.of(roles);
+        
+        return result.equals(authorities) ? this : toBuilder().authorities(result).build();
+    }
+    
+    public KpUserDetails addRole(@NotNull final KpRole role, ApplicationEventPublisher bus) {
         log.entry(role, bus);
         
-        if (authorities.add(role) && bus != null) {
-            bus.publishEvent(RoleAddedToUserEvent.builder().user(this).role(role).build());
+        KpRoleSet roles = authorities.with(role);
+        if (roles == authorities) {
+            return log.exit(this);
+        }
+        
+        KpUserDetails result = modify().authorities(roles).build();
+        if (bus != null) {
+            bus.publishEvent(RoleAddedToUserEvent.builder().user(result).role(role).build());
         }
         
-        log.exit();
+        return log.exit(result);
     }
     
-    public void removeRole(@NotNull final KpRole role, ApplicationEventPublisher bus) {
+    public KpUserDetails removeRole(@NotNull final KpRole role, ApplicationEventPublisher bus) {
         log.entry(role, bus);
         
-        if (authorities.remove(role) && bus != null) {
-            bus.publishEvent(RoleRemovedFromUserEvent.builder().user(this).role(role).build());
+        KpRoleSet roles = authorities.without(role);
+        if (roles == authorities) {
+            return log.exit(this);
+        }
+        
+        KpUserDetails result = modify().authorities(roles).build();
+        if (bus != null) {
+            bus.publishEvent(RoleRemovedFromUserEvent.builder().user(result).role(role).build());
         }
         
-        log.exit();
+        return log.exit(result);
     }
 }
@@ -26,7 +26,9 @@ import de.kaiserpfalzedv.commons.api.resources.HasName;
 import de.kaiserpfalzedv.commons.api.resources.HasNameSpace;
 import de.kaiserpfalzedv.commons.api.resources.HasTimestamps;
 import de.kaiserpfalzedv.commons.users.domain.model.abac.HasOwner;
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRoleSet;
 import de.kaiserpfalzedv.commons.users.domain.model.user.state.UserState;
+import de.kaiserpfalzedv.commons.users.domain.model.user.state.UserStatus;
 import jakarta.validation.constraints.*;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.CredentialsContainer;
@@ -184,10 +186,25 @@ public interface User extends Principal, UserDetails, CredentialsContainer, HasI
   }
   
   default boolean hasRole(@NotBlank final String role) {
+    if (getAuthorities() instanceof KpRoleSet roles) {
+      return roles.hasAuthority(role);
+    }
+    
     return getAuthorities().stream()
         .map(GrantedAuthority::getAuthority).anyMatch(role::equals);
   }
   
+  /**
+   * Derives the status of the user without creating any objects. Use it for checks and with the transitions of
+   * {@link UserStatus}.
+   *
+   * @return the current status of the user.
+   */
+  @JsonIgnore
+  default UserStatus getStatus() {
+    return UserStatus.of(this);
+  }
+  
   /**
    * Creates the user state from the user data itself.
    *
@@ -195,7 +212,7 @@ public interface User extends Principal, UserDetails, CredentialsContainer, HasI
    * @return the current user state.
    */
   default UserState getState(ApplicationEventPublisher bus) {
-    return UserState.Factory.fromUser(this, bus);
+    return getStatus().state(this, bus);
   }
   
   /**
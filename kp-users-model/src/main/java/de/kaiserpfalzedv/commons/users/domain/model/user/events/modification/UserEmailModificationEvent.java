@@ -18,6 +18,9 @@
 package de.kaiserpfalzedv.commons.users.domain.model.user.events.modification;
 
 
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import jakarta.validation.constraints.NotNull;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -40,4 +43,13 @@ import lombok.extern.jackson.Jacksonized;
 public class UserEmailModificationEvent extends UserModificationBaseEvent {
   @Builder.Default
   private final String i18nKey = "user.modification.issuer-and-sub";
+  
+  @Override
+  protected KpUserDetails.KpUserDetailsBuilder changed(
+      @NotNull final KpUserDetails.KpUserDetailsBuilder delta,
+      @NotNull final User user
+  ) {
+    return delta
+        .email(user.getEmail());
+  }
 }
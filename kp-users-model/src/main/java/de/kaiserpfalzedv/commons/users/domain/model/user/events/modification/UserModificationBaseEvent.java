@@ -18,7 +18,11 @@
 package de.kaiserpfalzedv.commons.users.domain.model.user.events.modification;
 
 
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
 import de.kaiserpfalzedv.commons.users.domain.model.user.events.UserBaseEvent;
+import jakarta.validation.constraints.NotNull;
+import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
@@ -26,6 +30,13 @@ import lombok.experimental.SuperBuilder;
 
 
 /**
+ * Base of the events changing single fields of a user.
+ *
+ * <p>Sent to other nodes, the event only needs the user id and the changed fields. {@link #toDelta()} reduces the user
+ * to the id, the modification timestamp (the revision of the user) and the fields changed by the event. Consumers of
+ * a {@link #isDelta() delta} event must not read any other field of the user, the full user has to be read by its
+ * id.</p>
+ *
  * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
  * @since 09.11.24
  */
@@ -34,4 +45,43 @@ import lombok.experimental.SuperBuilder;
 @ToString(callSuper = true)
 @EqualsAndHashCode(callSuper = true)
 public abstract class UserModificationBaseEvent extends UserBaseEvent {
+  /** true if the user only contains the id, the modification timestamp and the changed fields. */
+  @Builder.Default
+  @EqualsAndHashCode.Exclude
+  private final boolean delta = false;
+  
+  
+  /**
+   * @return this event with the user reduced to the id, the modification timestamp and the changed fields.
+   */
+  public UserModificationBaseEvent toDelta() {
+    if (delta || getUser() == null) {
+      return this;
+    }
+    
+    KpUserDetails.KpUserDetailsBuilder user = KpUserDetails.builder()
+        .id(getUser().getId())
+        .created(null)
+        .modified(getUser().getModified())
+        .nameSpace(null);
+    
+    return toBuilder()
+        .user(changed(user, getUser()).build())
+        .delta(true)
+        .build();
+  }
+  
+  /**
+   * Copies the fields changed by this event into the delta user.
+   *
+   * @param delta the delta user containing the id and the modification timestamp.
+   * @param user the full user.
+   * @return the delta user.
+   */
+  protected KpUserDetails.KpUserDetailsBuilder changed(
+      @NotNull final KpUserDetails.KpUserDetailsBuilder delta,
+      @NotNull final User user
+  ) {
+    return delta;
+  }
 }
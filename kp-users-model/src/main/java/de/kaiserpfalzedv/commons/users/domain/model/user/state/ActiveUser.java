@@ -20,8 +20,7 @@ package de.kaiserpfalzedv.commons.users.domain.model.user.state;
 
 
 import de.kaiserpfalzedv.commons.users.domain.model.user.User;
-import de.kaiserpfalzedv.commons.users.domain.model.user.events.arbitration.UserPetitionedEvent;
-import de.kaiserpfalzedv.commons.users.domain.model.user.events.state.UserRemovedEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.state.UserStatus.Transition;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -45,51 +44,51 @@ public class ActiveUser implements UserState {
   final private User user;
   final private ApplicationEventPublisher bus;
   
+  @Override
+  public UserStatus getStatus() {
+    return UserStatus.ACTIVE;
+  }
+  
   @Override
   public UserState activate() {
-    return this;
+    return next(Transition.ACTIVATE, UserStatus.ACTIVE.activate(user, bus));
   }
   
   @Override
   public UserState detain(final long days) {
-    user.detain(bus, days);
-    
-    return DetainedUser.builder().user(user).bus(bus).build();
+    return next(Transition.DETAIN, UserStatus.ACTIVE.detain(user, bus, days));
   }
   
   @Override
   public UserState release() {
-    return this;
+    return next(Transition.RELEASE, UserStatus.ACTIVE.release(user, bus));
   }
   
   @Override
   public UserState ban() {
-    user.ban(bus);
-    
-    return BannedUser.builder().user(user).bus(bus).build();
+    return next(Transition.BAN, UserStatus.ACTIVE.ban(user, bus));
   }
   
   @Override
   public UserState delete() {
-    user.delete(bus);
-    
-    return DeletedUser.builder().user(user).bus(bus).build();
+    return next(Transition.DELETE, UserStatus.ACTIVE.delete(user, bus));
   }
   
   
   @Override
   public UserState remove(final boolean delete) {
-    user.delete(bus);
-
-    bus.publishEvent(UserRemovedEvent.builder().user(user).delete(delete).build());
-    
-    return RemovedUser.builder().user(user).bus(bus).build();
+    return next(Transition.REMOVE, UserStatus.ACTIVE.remove(user, bus, delete));
   }
   
   @Override
   public UserState petition(final UUID petition) {
-    bus.publishEvent(UserPetitionedEvent.builder().user(user).petition(petition).build());
+    UserStatus.ACTIVE.petition(user, bus, petition);
     
     return this;
   }
+  
+  
+  private UserState next(final Transition transition, final User changed) {
+    return Factory.next(this, transition, changed, bus);
+  }
 }
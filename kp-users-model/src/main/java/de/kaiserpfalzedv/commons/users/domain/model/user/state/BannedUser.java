@@ -20,13 +20,12 @@ package de.kaiserpfalzedv.commons.users.domain.model.user.state;
 
 
 import de.kaiserpfalzedv.commons.users.domain.model.user.User;
-import de.kaiserpfalzedv.commons.users.domain.model.user.events.arbitration.UserPetitionedEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.state.UserStatus.Transition;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.ToString;
 import lombok.extern.jackson.Jacksonized;
-import lombok.extern.slf4j.XSlf4j;
 import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.UUID;
@@ -40,59 +39,56 @@ import java.util.UUID;
 @Builder(toBuilder = true)
 @AllArgsConstructor
 @ToString(of = {"user"})
-@XSlf4j
 public class BannedUser implements UserState {
   @Getter
   final private User user;
   final private ApplicationEventPublisher bus;
   
+  @Override
+  public UserStatus getStatus() {
+    return UserStatus.BANNED;
+  }
+  
   @Override
   public UserState activate() {
-    return this;
+    return next(Transition.ACTIVATE, UserStatus.BANNED.activate(user, bus));
   }
   
   @Override
   public UserState detain(final long days) {
-    return this;
+    return next(Transition.DETAIN, UserStatus.BANNED.detain(user, bus, days));
   }
   
   @Override
   public UserState release() {
-    log.entry(user);
-    
-    user.release(bus);
-    
-    if (user.isDeleted()) {
-      return log.exit(DeletedUser.builder().user(user).bus(bus).build());
-    }
-    
-    return log.exit(ActiveUser.builder().user(user).bus(bus).build());
+    return next(Transition.RELEASE, UserStatus.BANNED.release(user, bus));
   }
   
   @Override
   public UserState ban() {
-    return this;
+    return next(Transition.BAN, UserStatus.BANNED.ban(user, bus));
   }
   
   @Override
   public UserState delete() {
-    user.delete(bus);
-    
-    return DeletedUser.builder().user(user).bus(bus).build();
+    return next(Transition.DELETE, UserStatus.BANNED.delete(user, bus));
   }
   
   
   @Override
   public UserState remove(final boolean delete) {
-    user.delete(bus);
-    
-    return DeletedUser.builder().user(user).bus(bus).build();
+    return next(Transition.REMOVE, UserStatus.BANNED.remove(user, bus, delete));
   }
   
   @Override
   public UserState petition(final UUID petition) {
-    bus.publishEvent(UserPetitionedEvent.builder().user(user).petition(petition).build());
-
+    UserStatus.BANNED.petition(user, bus, petition);
+    
     return this;
   }
+  
+  
+  private UserState next(final Transition transition, final User changed) {
+    return Factory.next(this, transition, changed, bus);
+  }
 }
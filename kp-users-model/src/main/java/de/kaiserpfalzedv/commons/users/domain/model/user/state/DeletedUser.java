@@ -20,8 +20,7 @@ package de.kaiserpfalzedv.commons.users.domain.model.user.state;
 
 
 import de.kaiserpfalzedv.commons.users.domain.model.user.User;
-import de.kaiserpfalzedv.commons.users.domain.model.user.events.arbitration.UserPetitionedEvent;
-import de.kaiserpfalzedv.commons.users.domain.model.user.events.state.UserRemovedEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.state.UserStatus.Transition;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -45,55 +44,51 @@ public class DeletedUser implements UserState {
   final private User user;
   final private ApplicationEventPublisher bus;
   
+  @Override
+  public UserStatus getStatus() {
+    return UserStatus.DELETED;
+  }
+  
   @Override
   public UserState activate() {
-    user.undelete(bus);
-    
-    if (user.isBanned()) {
-      return BannedUser.builder().user(user).bus(bus).build();
-    } else if (user.isDetained()) {
-      return DetainedUser.builder().user(user).bus(bus).build();
-    }
-    
-    return ActiveUser.builder().user(user).bus(bus).build();
+    return next(Transition.ACTIVATE, UserStatus.DELETED.activate(user, bus));
   }
   
   @Override
   public UserState detain(final long days) {
-    return this;
+    return next(Transition.DETAIN, UserStatus.DELETED.detain(user, bus, days));
   }
   
   @Override
   public UserState release() {
-    user.release(bus);
-    
-    return this;
+    return next(Transition.RELEASE, UserStatus.DELETED.release(user, bus));
   }
   
   @Override
   public UserState ban() {
-    user.ban(bus);
-    
-    return this;
+    return next(Transition.BAN, UserStatus.DELETED.ban(user, bus));
   }
   
   @Override
   public UserState delete() {
-    return this;
+    return next(Transition.DELETE, UserStatus.DELETED.delete(user, bus));
   }
   
   
   @Override
   public UserState remove(final boolean delete) {
-    bus.publishEvent(UserRemovedEvent.builder().user(user).delete(delete).build());
-    
-    return RemovedUser.builder().user(user).bus(bus).build();
+    return next(Transition.REMOVE, UserStatus.DELETED.remove(user, bus, delete));
   }
   
   @Override
   public UserState petition(final UUID petition) {
-    bus.publishEvent(UserPetitionedEvent.builder().user(user).petition(petition).build());
+    UserStatus.DELETED.petition(user, bus, petition);
     
     return this;
   }
+  
+  
+  private UserState next(final Transition transition, final User changed) {
+    return Factory.next(this, transition, changed, bus);
+  }
 }
@@ -20,13 +20,12 @@ package de.kaiserpfalzedv.commons.users.domain.model.user.state;
 
 
 import de.kaiserpfalzedv.commons.users.domain.model.user.User;
-import de.kaiserpfalzedv.commons.users.domain.model.user.events.arbitration.UserPetitionedEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.state.UserStatus.Transition;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.ToString;
 import lombok.extern.jackson.Jacksonized;
-import lombok.extern.slf4j.XSlf4j;
 import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.UUID;
@@ -40,63 +39,56 @@ import java.util.UUID;
 @Builder(toBuilder = true)
 @AllArgsConstructor
 @ToString(of = {"user"})
-@XSlf4j
 public class DetainedUser implements UserState {
   @Getter
   final private User user;
   final private ApplicationEventPublisher bus;
   
+  @Override
+  public UserStatus getStatus() {
+    return UserStatus.DETAINED;
+  }
+  
   @Override
   public UserState activate() {
-    return this;
+    return next(Transition.ACTIVATE, UserStatus.DETAINED.activate(user, bus));
   }
   
   @Override
   public UserState detain(final long days) {
-    user.detain(bus, days);
-    
-    return DetainedUser.builder().user(user).bus(bus).build();
+    return next(Transition.DETAIN, UserStatus.DETAINED.detain(user, bus, days));
   }
   
   @Override
   public UserState release() {
-    user.release(bus);
-    
-    if (user.isDeleted()) {
-      return DeletedUser.builder().user(user).bus(bus).build();
-    }
-
-    return ActiveUser.builder().user(user).bus(bus).build();
+    return next(Transition.RELEASE, UserStatus.DETAINED.release(user, bus));
   }
   
   @Override
   public UserState ban() {
-    user.ban(bus);
-    
-    return BannedUser.builder().user(user).bus(bus).build();
+    return next(Transition.BAN, UserStatus.DETAINED.ban(user, bus));
   }
   
   @Override
   public UserState delete() {
-    user.delete(bus);
-    
-    return DeletedUser.builder().user(user).bus(bus).build();
+    return next(Transition.DELETE, UserStatus.DETAINED.delete(user, bus));
   }
   
   
   @Override
   public UserState remove(final boolean delete) {
-    user.delete(bus);
-    
-    log.warn("Will not delete user since it is detained. It has to be removed after the detention is ended. detainedTill={}", user.getDetainedTill());
-    
-    return DeletedUser.builder().user(user).bus(bus).build();
+    return next(Transition.REMOVE, UserStatus.DETAINED.remove(user, bus, delete));
   }
   
   @Override
   public UserState petition(final UUID petition) {
-    bus.publishEvent(UserPetitionedEvent.builder().user(user).petition(petition).build());
+    UserStatus.DETAINED.petition(user, bus, petition);
     
     return this;
   }
+  
+  
+  private UserState next(final Transition transition, final User changed) {
+    return Factory.next(this, transition, changed, bus);
+  }
 }
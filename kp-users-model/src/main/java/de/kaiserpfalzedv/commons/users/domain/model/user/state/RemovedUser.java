@@ -20,7 +20,7 @@ package de.kaiserpfalzedv.commons.users.domain.model.user.state;
 
 
 import de.kaiserpfalzedv.commons.users.domain.model.user.User;
-import de.kaiserpfalzedv.commons.users.domain.model.user.events.arbitration.UserPetitionedEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.state.UserStatus.Transition;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -44,53 +44,51 @@ public class RemovedUser implements UserState {
   final private User user;
   final private ApplicationEventPublisher bus;
   
+  @Override
+  public UserStatus getStatus() {
+    return UserStatus.REMOVED;
+  }
+  
   @Override
   public UserState activate() {
-    user.undelete(bus);
-    
-    if (user.isBanned()) {
-      return BannedUser.builder().user(user).bus(bus).build();
-    } else if (user.isDetained()) {
-      return DetainedUser.builder().user(user).bus(bus).build();
-    }
-    
-    return ActiveUser.builder().user(user).bus(bus).build();
+    return next(Transition.ACTIVATE, UserStatus.REMOVED.activate(user, bus));
   }
   
   @Override
   public UserState detain(final long days) {
-    return this;
+    return next(Transition.DETAIN, UserStatus.REMOVED.detain(user, bus, days));
   }
   
   @Override
   public UserState release() {
-    user.release(bus);
-    
-    return this;
+    return next(Transition.RELEASE, UserStatus.REMOVED.release(user, bus));
   }
   
   @Override
   public UserState ban() {
-    user.ban(bus);
-    
-    return this;
+    return next(Transition.BAN, UserStatus.REMOVED.ban(user, bus));
   }
   
   @Override
   public UserState delete() {
-    return this;
+    return next(Transition.DELETE, UserStatus.REMOVED.delete(user, bus));
   }
   
   
   @Override
   public UserState remove(final boolean delete) {
-    return this;
+    return next(Transition.REMOVE, UserStatus.REMOVED.remove(user, bus, delete));
   }
   
   @Override
   public UserState petition(final UUID petition) {
-    bus.publishEvent(UserPetitionedEvent.builder().user(user).petition(petition).build());
-
+    UserStatus.REMOVED.petition(user, bus, petition);
+    
     return this;
   }
+  
+  
+  private UserState next(final Transition transition, final User changed) {
+    return Factory.next(this, transition, changed, bus);
+  }
 }
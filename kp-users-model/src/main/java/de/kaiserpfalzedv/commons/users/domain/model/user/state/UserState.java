@@ -19,6 +19,7 @@
 package de.kaiserpfalzedv.commons.users.domain.model.user.state;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import de.kaiserpfalzedv.commons.users.domain.model.user.User;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.context.ApplicationEventPublisher;
@@ -29,6 +30,11 @@ import java.util.UUID;
 /**
  * This is the state machine for user.
  *
+ * <p>The transitions themselves are defined by the stateless {@link UserStatus}. This interface binds a status to a
+ * user and an event bus for callers that want to chain transitions. The states are created by
+ * {@link UserStatus#state(User, ApplicationEventPublisher)} without builders, and a transition not changing the user
+ * keeps its state. Code on hot paths should use {@link UserStatus} directly, which doesn't create any objects.</p>
+ *
  * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
  * @since 12.04.25
  */
@@ -36,35 +42,43 @@ import java.util.UUID;
 public interface UserState {
   class Factory {
     static public UserState fromUser(@NotNull final User user, @NotNull final ApplicationEventPublisher bus) {
-      if  (user.isActive()) {
-        return ActiveUser.builder()
-            .user(user)
-            .bus(bus)
-            .build();
-      } else if (user.isBanned()) {
-        return BannedUser.builder()
-            .user(user)
-            .bus(bus)
-            .build();
-      } else if (user.isDetained()) {
-        return DetainedUser.builder()
-            .user(user)
-            .bus(bus)
-            .build();
-      } else {
-        // If the user is not active, banned, nor detained. It has to be deleted!
-        
-        return DeletedUser.builder()
-            .user(user)
-            .bus(bus)
-            .build();
+      return of(UserStatus.of(user), user, bus);
+    }
+    
+    static public UserState of(@NotNull final UserStatus status, @NotNull final User user, @NotNull final ApplicationEventPublisher bus) {
+      return status.state(user, bus);
+    }
+    
+    /**
+     * Returns the state after a transition. The current state is reused if neither the status nor the user changed.
+     *
+     * @param current the state before the transition.
+     * @param transition the transition executed.
+     * @param changed the user after the transition.
+     * @param bus the event bus.
+     * @return the state after the transition.
+     */
+    static UserState next(@NotNull final UserState current, @NotNull final UserStatus.Transition transition,
+                          @NotNull final User changed, @NotNull final ApplicationEventPublisher bus) {
+      UserStatus status = current.getStatus().next(transition, changed);
+      
+      if (status == current.getStatus() && changed == current.getUser()) {
+        return current;
       }
+      
+      return of(status, changed, bus);
     }
   }
   
   
   User getUser();
   
+  /**
+   * @return the status of the state machine.
+   */
+  @JsonIgnore
+  UserStatus getStatus();
+  
   /**
    * A petition concerning this user has been created.
    * @param petition The ID of the created pertition.
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.model.user.state;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.arbitration.UserPetitionedEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.state.UserRemovedEvent;
+import jakarta.validation.constraints.NotNull;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.UUID;
+
+
+/**
+ * The stateless state machine of users.
+ *
+ * <p>The status is derived from the user by {@link #of(User)} without creating anything. Each transition works on the
+ * user and an event sink: it returns the changed user (or the same instance if nothing changes) and publishes the
+ * events. {@link #next(Transition, User)} is the transition table and returns the status after a transition.</p>
+ *
+ * <p>{@link #REMOVED} can't be derived from the user data. It is only reached by {@link Transition#REMOVE}.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-23
+ */
+@XSlf4j
+public enum UserStatus {
+  ACTIVE,
+  BANNED,
+  DETAINED,
+  DELETED,
+  REMOVED;
+  
+  
+  /** The transitions of the state machine. */
+  public enum Transition {
+    ACTIVATE,
+    DETAIN,
+    RELEASE,
+    BAN,
+    DELETE,
+    REMOVE
+  }
+  
+  
+  /**
+   * Derives the status from the user data.
+   *
+   * @param user the user.
+   * @return the status of the user.
+   */
+  public static UserStatus of(@NotNull final User user) {
+    if (user.isActive()) {
+      return ACTIVE;
+    } else if (user.isBanned()) {
+      return BANNED;
+    } else if (user.isDetained()) {
+      return DETAINED;
+    }
+    
+    // If the user is not active, banned, nor detained. It has to be deleted!
+    return DELETED;
+  }
+  
+  /**
+   * Binds this status to a user for callers chaining transitions on a {@link UserState}. The state is created by its
+   * constructor, so this is the only object created.
+   *
+   * @param user the user.
+   * @param bus the event sink used by the transitions.
+   * @return the state of the user.
+   */
+  public UserState state(@NotNull final User user, @NotNull final ApplicationEventPublisher bus) {
+    return switch (this) {
+      case ACTIVE -> new ActiveUser(user, bus);
+      case BANNED -> new BannedUser(user, bus);
+      case DETAINED -> new DetainedUser(user, bus);
+      case DELETED -> new DeletedUser(user, bus);
+      case REMOVED -> new RemovedUser(user, bus);
+    };
+  }
+  
+  /**
+   * The transition table.
+   *
+   * @param transition the transition executed.
+   * @param changed the user after the transition.
+   * @return the status after the transition.
+   */
+  public UserStatus next(@NotNull final Transition transition, @NotNull final User changed) {
+    return switch (this) {
+      case ACTIVE -> switch (transition) {
+        case ACTIVATE, RELEASE -> ACTIVE;
+        case DETAIN -> DETAINED;
+        case BAN -> BANNED;
+        case DELETE -> DELETED;
+        case REMOVE -> REMOVED;
+      };
+      case BANNED -> switch (transition) {
+        case ACTIVATE, DETAIN, BAN -> BANNED;
+        case RELEASE -> changed.isDeleted() ? DELETED : ACTIVE;
+        case DELETE, REMOVE -> DELETED;
+      };
+      case DETAINED -> switch (transition) {
+        case ACTIVATE, DETAIN -> DETAINED;
+        case RELEASE -> changed.isDeleted() ? DELETED : ACTIVE;
+        case BAN -> BANNED;
+        case DELETE, REMOVE -> DELETED;
+      };
+      case DELETED -> switch (transition) {
+        case ACTIVATE -> of(changed);
+        case DETAIN, RELEASE, BAN, DELETE -> DELETED;
+        case REMOVE -> REMOVED;
+      };
+      case REMOVED -> transition == Transition.ACTIVATE ? of(changed) : REMOVED;
+    };
+  }
+  
+  
+  /**
+   * Activates a deleted or removed user again.
+   *
+   * @param user the user.
+   * @param bus the event sink.
+   * @return the changed user.
+   */
+  public User activate(@NotNull final User user, @NotNull final ApplicationEventPublisher bus) {
+    return switch (this) {
+      case DELETED, REMOVED -> user.undelete(bus);
+      default -> user;
+    };
+  }
+  
+  /**
+   * Detains an active or detained user. Detaining a detained user replaces the detainment.
+   *
+   * @param user the user.
+   * @param bus the event sink.
+   * @param days the number of days the user is detained.
+   * @return the changed user.
+   */
+  public User detain(@NotNull final User user, @NotNull final ApplicationEventPublisher bus, final long days) {
+    return switch (this) {
+      case ACTIVE, DETAINED -> user.detain(bus, days);
+      default -> user;
+    };
+  }
+  
+  /**
+   * Releases the user from bans and detainments.
+   *
+   * @param user the user.
+   * @param bus the event sink.
+   * @return the changed user.
+   */
+  public User release(@NotNull final User user, @NotNull final ApplicationEventPublisher bus) {
+    return this == ACTIVE ? user : user.release(bus);
+  }
+  
+  /**
+   * Bans the user.
+   *
+   * @param user the user.
+   * @param bus the event sink.
+   * @return the changed user.
+   */
+  public User ban(@NotNull final User user, @NotNull final ApplicationEventPublisher bus) {
+    return this == BANNED ? user : user.ban(bus);
+  }
+  
+  /**
+   * Deletes the user.
+   *
+   * @param user the user.
+   * @param bus the event sink.
+   * @return the changed user.
+   */
+  public User delete(@NotNull final User user, @NotNull final ApplicationEventPublisher bus) {
+    return switch (this) {
+      case ACTIVE, BANNED, DETAINED -> user.delete(bus);
+      default -> user;
+    };
+  }
+  
+  /**
+   * Removes the user. Banned and detained users are only deleted, they have to be removed after the ban or detention
+   * ended.
+   *
+   * @param user the user.
+   * @param bus the event sink.
+   * @param delete if the user data should be deleted instead of anonymized.
+   * @return the changed user.
+   */
+  public User remove(@NotNull final User user, @NotNull final ApplicationEventPublisher bus, final boolean delete) {
+    return switch (this) {
+      case ACTIVE -> {
+        User deleted = user.delete(bus);
+        bus.publishEvent(UserRemovedEvent.builder().user(deleted).delete(delete).build());
+        yield deleted;
+      }
+      case BANNED -> user.delete(bus);
+      case DETAINED -> {
+        User deleted = user.delete(bus);
+        log.warn("Will not delete user since it is detained. It has to be removed after the detention is ended. detainedTill={}", deleted.getDetainedTill());
+        yield deleted;
+      }
+      case DELETED -> {
+        bus.publishEvent(UserRemovedEvent.builder().user(user).delete(delete).build());
+        yield user;
+      }
+      case REMOVED -> user;
+    };
+  }
+  
+  /**
+   * A petition concerning the user has been created.
+   *
+   * @param user the user.
+   * @param bus the event sink.
+   * @param petition the id of the petition.
+   */
+  public void petition(@NotNull final User user, @NotNull final ApplicationEventPublisher bus, final UUID petition) {
+    bus.publishEvent(UserPetitionedEvent.builder().user(user).petition(petition).build());
+  }
+}
@@ -18,20 +18,76 @@
 package de.kaiserpfalzedv.commons.users.domain.services;
 
 
+import de.kaiserpfalzedv.commons.users.domain.model.abac.CompiledPolicies;
+import de.kaiserpfalzedv.commons.users.domain.model.abac.CompiledPolicy;
+import de.kaiserpfalzedv.commons.users.domain.model.abac.DecisionCache;
+import de.kaiserpfalzedv.commons.users.domain.model.abac.EffectivePermissions;
 import de.kaiserpfalzedv.commons.users.domain.model.abac.HasOwner;
 import de.kaiserpfalzedv.commons.users.domain.model.abac.OwnedBy;
+import de.kaiserpfalzedv.commons.users.domain.model.abac.PolicyActions;
+import de.kaiserpfalzedv.commons.users.domain.model.abac.PolicySnapshot;
+import de.kaiserpfalzedv.commons.users.domain.model.policy.Policy;
+import de.kaiserpfalzedv.commons.users.domain.model.policy.events.PolicyChangedEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRoleSet;
+import de.kaiserpfalzedv.commons.users.domain.model.role.Role;
+import de.kaiserpfalzedv.commons.users.domain.model.role.events.RoleBaseEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
 import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.RoleAddedToUserEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.RoleRemovedFromUserEvent;
+import jakarta.annotation.Nullable;
 import jakarta.annotation.PostConstruct;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.XSlf4j;
 import org.casbin.jcasbin.main.Enforcer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Scope;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
+ * Checks ABAC policies.
+ *
+ * <p>The policies of the casbin enforcer are compiled into {@link CompiledPolicies} when the service starts and
+ * whenever {@link #reload()} is called. Requests are checked against the compiled policies, which gives the same
+ * results as the casbin matcher {@code ownedBy(p.obj, r.obj, r.sub)} without going through the expression engine.</p>
+ *
+ * <p>Compiled policies and the {@link DecisionCache} form an immutable {@link PolicySnapshot} kept in an
+ * {@link AtomicReference}. Checks take the current snapshot and evaluate it without locks; the shared casbin
+ * {@link Enforcer} is only read while reloading. A policy reload or a role change swaps in a new snapshot
+ * (copy-on-write), so running checks finish on the snapshot they started with.</p>
+ *
+ * <p>The policies of the enforcer ({@code abac/users.csv}) are the base. If a {@link PolicyReadService} is available,
+ * its policies are loaded on start before the service is used. If they can't be loaded within
+ * {@code kp-users.abac.policy-load-timeout} the service fails to start instead of deciding without them. Afterwards
+ * every {@link PolicyChangedEvent} (local or received via messaging) is applied to the running snapshot by compiling
+ * only the changed policy.</p>
+ *
+ * <p>Subjects are often kept for a whole session (e.g. the principal of an authentication) and don't see roles granted
+ * or revoked later. Every {@link RoleAddedToUserEvent} and {@link RoleRemovedFromUserEvent} is recorded per user and
+ * applied to the subject before its permissions are derived or checked. Granting and revoking are idempotent, so it
+ * doesn't matter whether the subject has been loaded before or after the change.</p>
+ *
+ * <p>To check many objects for the same subject and action use {@link #enforceAll(User, String, Collection)} or the
+ * {@code filter} methods. They derive the {@link EffectivePermissions} of the subject once and only check type and
+ * ownership per object.</p>
+ *
  * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
  * @since 01.05.2025
  */
@@ -39,15 +95,262 @@ import java.util.UUID;
 @Singleton
 @Scope("singleton")
 @RequiredArgsConstructor(onConstructor = @__(@Inject))
+@XSlf4j
 public class AbacService {
   private final Enforcer enforcer;
+  private final ObjectProvider<PolicyReadService> policyStore;
+  
+  @Value("${kp-users.abac.decision-cache-size:10000}")
+  private int decisionCacheSize = DecisionCache.DEFAULT_MAX_SIZE;
+  
+  @Value("${kp-users.abac.policy-load-timeout:PT30S}")
+  private Duration policyLoadTimeout = Duration.ofSeconds(30L);
+  
+  private final AtomicReference<PolicySnapshot> snapshot = new AtomicReference<>(PolicySnapshot.EMPTY);
+  
+  /** The roles granted ({@code true}) or revoked ({@code false}) per user since the start. The maps are immutable. */
+  private final ConcurrentHashMap<UUID, Map<KpRole, Boolean>> roleChanges = new ConcurrentHashMap<>();
   
   @PostConstruct
   public void init() {
     enforcer.addFunction("ownedBy", new OwnedBy());
+    reload();
+    loadManagedPolicies();
+  }
+  
+  private void loadManagedPolicies() {
+    log.entry();
+    
+    PolicyReadService store = policyStore.getIfAvailable();
+    if (store == null) {
+      log.debug("No policy store available. Using only the static policies.");
+      log.exit();
+      return;
+    }
+    
+    try {
+      store.retrieveAll()
+          .doOnNext(this::apply)
+          .then()
+          .block(policyLoadTimeout);
+    } catch (RuntimeException e) {
+      // without the managed policies revoking rules would be missing, so the service does not start at all.
+      throw log.throwing(new IllegalStateException("Could not load managed ABAC policies: " + e.getMessage(), e));
+    }
+    
+    log.info("Loaded managed ABAC policies. count={}", snapshot.get().getManagedPolicies());
+    log.exit();
+  }
+  
+  /**
+   * Compiles the current policies of the enforcer and swaps in a new snapshot. Has to be called after the policies of
+   * the enforcer changed.
+   */
+  public synchronized void reload() {
+    log.entry();
+    
+    CompiledPolicies policies = CompiledPolicies.compile(enforcer.getPolicy());
+    PolicySnapshot result = snapshot.updateAndGet(current -> current.withPolicies(policies, decisionCacheSize));
+    log.info("Compiled ABAC policies. generation={}, count={}", result.getGeneration(), policies.size());
+    
+    log.exit();
+  }
+  
+  /**
+   * @return the current policy snapshot.
+   */
+  public PolicySnapshot getSnapshot() {
+    return snapshot.get();
   }
   
   public boolean enforce(final User subject, final HasOwner<UUID> object, final String action) {
-    return enforcer.enforce(subject, object, action);
+    return snapshot.get().enforce(current(subject), object, action);
+  }
+  
+  /**
+   * @param subject the subject.
+   * @return the permissions of the subject according to the current policies and roles.
+   */
+  public EffectivePermissions permissions(final User subject) {
+    return snapshot.get().permissions(current(subject));
+  }
+  
+  /**
+   * Returns the given permissions if they are still current and derives new ones otherwise. This is used with
+   * permissions that have been materialized at login: they are reused until a policy reload, a policy change or a role
+   * change creates a new snapshot, or until the roles of the subject change (also by a role granted or revoked after
+   * the subject has been loaded).
+   *
+   * @param subject the subject.
+   * @param permissions the permissions derived earlier (may be null).
+   * @return permissions of the subject valid for the current policies.
+   */
+  public EffectivePermissions permissions(final User subject, @Nullable final EffectivePermissions permissions) {
+    PolicySnapshot current = snapshot.get();
+    User user = current(subject);
+    
+    if (permissions != null && permissions.isCurrent(user, current.getGeneration())) {
+      return permissions;
+    }
+    
+    return current.permissions(user);
+  }
+  
+  /**
+   * Applies the roles granted or revoked since the start to the subject.
+   *
+   * @param subject the subject as it has been loaded.
+   * @return the subject with its current roles.
+   */
+  public User current(final User subject) {
+    Map<KpRole, Boolean> changes = roleChanges.isEmpty() ? null : roleChanges.get(subject.getId());
+    if (changes == null || !(subject instanceof KpUserDetails user)) {
+      return subject;
+    }
+    
+    KpRoleSet roles = user.getAuthorities();
+    for (Map.Entry<KpRole, Boolean> change : changes.entrySet()) {
+      roles = change.getValue() ? roles.with(change.getKey()) : roles.without(change.getKey());
+    }
+    
+    return user.withAuthorities(roles);
+  }
+  
+  /**
+   * Checks if the subject may execute the action on all objects.
+   *
+   * @param subject the user requesting access.
+   * @param action the action to execute.
+   * @param objects the objects to access.
+   * @return true if the action is allowed on every object.
+   */
+  public boolean enforceAll(final User subject, final String action, final Collection<? extends HasOwner<UUID>> objects) {
+    EffectivePermissions permissions = permissions(subject);
+    long mask = PolicyActions.lookup(action);
+    
+    for (HasOwner<UUID> object : objects) {
+      if (!permissions.allows(object, mask)) {
+        return false;
+      }
+    }
+    
+    return true;
+  }
+  
+  /**
+   * Returns the objects the subject may execute the action on.
+   *
+   * @param subject the user requesting access.
+   * @param action the action to execute.
+   * @param objects the objects to check.
+   * @return the allowed objects in their original order.
+   * @param <T> the type of the objects.
+   */
+  public <T extends HasOwner<UUID>> List<T> filter(final User subject, final String action, final Collection<T> objects) {
+    EffectivePermissions permissions = permissions(subject);
+    long mask = PolicyActions.lookup(action);
+    
+    ArrayList<T> result = new ArrayList<>(objects.size());
+    for (T object : objects) {
+      if (permissions.allows(object, mask)) {
+        result.add(object);
+      }
+    }
+    
+    return result;
+  }
+  
+  /**
+   * Filters a stream of objects to the ones the subject may execute the action on. The permissions of the subject are
+   * derived once per subscription.
+   *
+   * @param subject the user requesting access.
+   * @param action the action to execute.
+   * @param objects the objects to check.
+   * @return the allowed objects.
+   * @param <T> the type of the objects.
+   */
+  public <T extends HasOwner<UUID>> Flux<T> filter(final User subject, final String action, final Flux<T> objects) {
+    return Flux.defer(() -> {
+      EffectivePermissions permissions = permissions(subject);
+      long mask = PolicyActions.lookup(action);
+      
+      return objects.filter(object -> permissions.allows(object, mask));
+    });
+  }
+  
+  /**
+   * Applies a single policy change to the running snapshot.
+   *
+   * @param event the policy change.
+   */
+  @EventListener
+  public void event(@NotNull final PolicyChangedEvent event) {
+    log.entry(event);
+    
+    if (event.getChange() == PolicyChangedEvent.Change.REMOVED) {
+      UUID id = event.getPolicy().getId();
+      snapshot.updateAndGet(current -> current.withoutPolicy(id));
+      log.info("Removed managed ABAC policy. id={}", id);
+    } else {
+      apply(event.getPolicy());
+    }
+    
+    log.exit();
+  }
+  
+  private void apply(@NotNull final Policy policy) {
+    log.entry(policy);
+    
+    if (policy.getDeleted() != null) {
+      snapshot.updateAndGet(current -> current.withoutPolicy(policy.getId()));
+    } else {
+      CompiledPolicy compiled = CompiledPolicy.compile(policy.getRole(), policy.getObject(), policy.getActions());
+      snapshot.updateAndGet(current -> current.withPolicy(policy.getId(), compiled));
+      log.debug("Applied managed ABAC policy. id={}, policy={}", policy.getId(), compiled);
+    }
+    
+    log.exit();
+  }
+  
+  @EventListener
+  public void event(final RoleBaseEvent event) {
+    log.entry(event);
+    
+    snapshot.updateAndGet(PolicySnapshot::invalidated);
+    
+    log.exit();
+  }
+  
+  @EventListener
+  public void event(@NotNull final RoleAddedToUserEvent event) {
+    log.entry(event);
+    
+    changeRole(event.getUser(), event.getRole(), true);
+    
+    log.exit();
+  }
+  
+  @EventListener
+  public void event(@NotNull final RoleRemovedFromUserEvent event) {
+    log.entry(event);
+    
+    changeRole(event.getUser(), event.getRole(), false);
+    
+    log.exit();
+  }
+  
+  private void changeRole(@Nullable final User user, @Nullable final Role role, final boolean granted) {
+    if (user == null || user.getId() == null || !(role instanceof KpRole kpRole)) {
+      log.warn("Can't apply role change without user and role. user={}, role={}", user, role);
+      return;
+    }
+    
+    roleChanges.compute(user.getId(), (id, changes) -> {
+      HashMap<KpRole, Boolean> result = changes != null ? new HashMap<>(changes) : new HashMap<>();
+      result.put(kpRole, granted);
+      return Map.copyOf(result);
+    });
+    log.info("Changed role of user. user={}, role={}, granted={}", user.getId(), kpRole.getAuthority(), granted);
   }
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2025. Roland T. Lichti, Kaiserpfalz EDV-Service.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package de.kaiserpfalzedv.commons.users.domain.services;
+
+
+/**
+ * Published on the local bus when the store becomes saturated or recovers.
+ *
+ * <p>The store publishes it only on changes of {@link #saturated()}. Consumers of external events use it to stop
+ * taking more work while the store can't keep up.</p>
+ *
+ * @param saturated true if the store can't keep up with its work.
+ * @param pending the number of requests waiting for a database connection.
+ * @param acquired the number of database connections in use.
+ * @param maxAllocated the maximum number of database connections.
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+public record StoreSaturationEvent(
+    boolean saturated,
+    int pending,
+    int acquired,
+    int maxAllocated
+) {}
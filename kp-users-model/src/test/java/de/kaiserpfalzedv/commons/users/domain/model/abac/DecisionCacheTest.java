@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.model.abac;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRoleSet;
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-21
+ */
+@ExtendWith(MockitoExtension.class)
+@XSlf4j
+class DecisionCacheTest {
+  private static final KpRole PLAYER = KpRole.builder().name("PLAYER").build();
+  
+  private static final KpUserDetails ANDREW = createUser("andrew");
+  private static final KpUserDetails MARY = createUser("mary");
+  private static final KpUserDetails PAUL = createUser("paul");
+  
+  @Mock
+  private CompiledPolicies policies;
+  
+  private DecisionCache sut;
+  
+  
+  @BeforeEach
+  void setUp() {
+    reset(policies);
+    sut = new DecisionCache(2);
+  }
+  
+  @AfterEach
+  void tearDown() {
+    validateMockitoUsage();
+    verifyNoMoreInteractions(policies);
+  }
+  
+  
+  @Test
+  void shouldEvaluateOnlyOnceWhenRolesTypeActionAndOwnershipAreTheSame() {
+    log.entry();
+    
+    when(policies.enforce(ANDREW, MARY, "update")).thenReturn(false);
+    
+    assertFalse(sut.decide(policies, ANDREW, MARY, "update"));
+    assertFalse(sut.decide(policies, ANDREW, PAUL, "update"));
+    assertFalse(sut.decide(policies, MARY, PAUL, "update"));
+    
+    verify(policies, times(1)).enforce(ANDREW, MARY, "update");
+    assertEquals(1, sut.size());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldEvaluateAgainWhenOwnershipDiffers() {
+    log.entry();
+    
+    when(policies.enforce(ANDREW, MARY, "update")).thenReturn(false);
+    when(policies.enforce(ANDREW, ANDREW, "update")).thenReturn(true);
+    
+    assertFalse(sut.decide(policies, ANDREW, MARY, "update"));
+    assertTrue(sut.decide(policies, ANDREW, ANDREW, "update"));
+    
+    assertEquals(2, sut.size());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldEvaluateAgainWhenCacheHasBeenCleared() {
+    log.entry();
+    
+    when(policies.enforce(ANDREW, MARY, "update")).thenReturn(false);
+    
+    sut.decide(policies, ANDREW, MARY, "update");
+    sut.clear();
+    sut.decide(policies, ANDREW, MARY, "update");
+    
+    verify(policies, times(2)).enforce(ANDREW, MARY, "update");
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldStayBoundedWhenMoreKeysThanMaximumAreUsed() {
+    log.entry();
+    
+    when(policies.enforce(eq(ANDREW), eq(MARY), anyString())).thenReturn(false);
+    
+    sut.decide(policies, ANDREW, MARY, "view");
+    sut.decide(policies, ANDREW, MARY, "list");
+    sut.decide(policies, ANDREW, MARY, "update");
+    
+    assertTrue(sut.size() <= sut.getMaxSize());
+    
+    log.exit();
+  }
+  
+  
+  private static KpUserDetails createUser(final String name) {
+    return KpUserDetails.builder()
+        .issuer("issuer")
+        .subject(name)
+        .nameSpace("test")
+        .name(name)
+        .authorities(KpRoleSet.of(List.of(PLAYER)))
+        .build();
+  }
+}
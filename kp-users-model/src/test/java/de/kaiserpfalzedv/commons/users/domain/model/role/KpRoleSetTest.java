@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2025. Roland T. Lichti, Kaiserpfalz EDV-Service.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package de.kaiserpfalzedv.commons.users.domain.model.role;
+
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-21
+ */
+@XSlf4j
+class KpRoleSetTest {
+  private static final KpRole PLAYER = KpRole.builder().name("PLAYER").build();
+  private static final KpRole JUDGE = KpRole.builder().name("JUDGE").build();
+
+  private KpRoleSet sut;
+
+
+  @BeforeEach
+  void setUp() {
+    sut = KpRoleSet.of(List.of(PLAYER, PLAYER));
+  }
+
+  @Test
+  void shouldDropDuplicatesWhenCreatedFromCollection() {
+    log.entry("shouldDropDuplicatesWhenCreatedFromCollection");
+
+    assertEquals(1, sut.size());
+    assertTrue(sut.contains(PLAYER));
+
+    log.exit();
+  }
+
+  @Test
+  void shouldFindAuthorityWhenRoleIsContained() {
+    log.entry("shouldFindAuthorityWhenRoleIsContained");
+
+    assertTrue(sut.hasAuthority("ROLE_PLAYER"));
+    assertFalse(sut.hasAuthority("ROLE_JUDGE"));
+    assertFalse(sut.hasAuthority("ROLE_UNKNOWN_" + System.nanoTime()));
+
+    log.exit();
+  }
+
+  @Test
+  void shouldUpdateAuthoritiesWhenRolesAreAddedAndRemoved() {
+    log.entry("shouldUpdateAuthoritiesWhenRolesAreAddedAndRemoved");
+
+    KpRoleSet added = sut.with(JUDGE);
+    assertSame(added, added.with(JUDGE));
+    assertTrue(added.hasAuthority("ROLE_JUDGE"));
+
+    KpRoleSet removed = added.without(PLAYER);
+    assertFalse(removed.hasAuthority("ROLE_PLAYER"));
+    assertTrue(removed.hasAuthority("ROLE_JUDGE"));
+    assertEquals(1, removed.size());
+
+    assertSame(KpRoleSet.EMPTY, removed.without(JUDGE));
+
+    log.exit();
+  }
+
+  @Test
+  void shouldNotChangeWhenModified() {
+    log.entry("shouldNotChangeWhenModified");
+
+    sut.with(JUDGE);
+
+    assertThrows(UnsupportedOperationException.class, () -> sut.add(JUDGE));
+    assertThrows(UnsupportedOperationException.class, () -> sut.remove(PLAYER));
+    assertThrows(UnsupportedOperationException.class, () -> sut.clear());
+    assertEquals(1, sut.size());
+    assertFalse(sut.hasAuthority("ROLE_JUDGE"));
+    assertSame(sut, KpRoleSet.of(sut));
+
+    log.exit();
+  }
+
+  @Test
+  void shouldShareAuthorityStringWhenRolesHaveTheSameName() {
+    log.entry("shouldShareAuthorityStringWhenRolesHaveTheSameName");
+
+    KpRole other = KpRole.builder().name("PLAYER").build();
+
+    assertSame(PLAYER.getAuthority(), other.getAuthority());
+    assertSame(PLAYER.getAuthority(), RoleRegistry.authority("PLAYER"));
+
+    log.exit();
+  }
+
+  @Test
+  void shouldNotRegisterAuthorityWhenItIsNoRole() {
+    log.entry("shouldNotRegisterAuthorityWhenItIsNoRole");
+
+    String scope = "SCOPE_" + System.nanoTime();
+    long[] result = RoleRegistry.bitsOf(List.of(new SimpleGrantedAuthority(scope), PLAYER));
+
+    assertArrayEquals(sut.getAuthorityBits(), result);
+    assertEquals(-1, RoleRegistry.lookup(scope));
+
+    log.exit();
+  }
+}
@@ -23,6 +23,7 @@ import lombok.extern.slf4j.XSlf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -63,7 +64,7 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldDetainTheUserWhenUserIsActive() {
-    sut.detain(bus, 100L);
+    sut = sut.detain(bus, 100L);
     
     verify(bus, times(1)).publishEvent(any(UserDetainedEvent.class));
     
@@ -78,10 +79,10 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldPutInNewDetainmentWhenUserIsAlreadyDetained() {
-    sut.detain(bus, 100L);
+    sut = sut.detain(bus, 100L);
     reset(bus);
     
-    sut.detain(bus, 10L);
+    sut = sut.detain(bus, 10L);
     verify(bus, times(1)).publishEvent(any(UserDetainedEvent.class));
     
     assertTrue(sut.isDetained());
@@ -91,10 +92,10 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldNotChangedBannedWhenDetainingAUser() {
-    sut.ban(bus);
+    sut = sut.ban(bus);
     reset(bus);
     
-    sut.detain(bus, 100L);
+    sut = sut.detain(bus, 100L);
     verify(bus, times(1)).publishEvent(any(UserDetainedEvent.class));
     
     assertTrue(sut.isBanned());
@@ -103,10 +104,10 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldNotChangeDeletedWhenDetainingAUser() {
-    sut.delete(bus);
+    sut = sut.delete(bus);
     reset(bus);
     
-    sut.detain(bus, 100L);
+    sut = sut.detain(bus, 100L);
     verify(bus, times(1)).publishEvent(any(UserDetainedEvent.class));
     
     assertTrue(sut.isDeleted());
@@ -116,7 +117,7 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldDoNothingWhenReleasingAnActiveUser() {
-    sut.release(bus);
+    sut = sut.release(bus);
     verify(bus, times(1)).publishEvent(any(UserReleasedEvent.class));
     
     assertTrue(sut.isActive());
@@ -124,10 +125,10 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldReleaseABannedUser() {
-    sut.ban(bus);
+    sut = sut.ban(bus);
     reset(bus);
     
-    sut.release(bus);
+    sut = sut.release(bus);
     verify(bus, times(1)).publishEvent(any(UserReleasedEvent.class));
     
     assertTrue(sut.isActive());
@@ -136,10 +137,10 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldReleaseADetainedUser() {
-    sut.detain(bus, 100L);
+    sut = sut.detain(bus, 100L);
     reset(bus);
     
-    sut.release(bus);
+    sut = sut.release(bus);
     verify(bus, times(1)).publishEvent(any(UserReleasedEvent.class));
     
     assertTrue(sut.isActive());
@@ -148,11 +149,11 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldReleaseADeletedDetainedUser() {
-    sut.delete(bus);
-    sut.detain(bus, 100L);
+    sut = sut.delete(bus);
+    sut = sut.detain(bus, 100L);
     reset(bus);
     
-    sut.release(bus);
+    sut = sut.release(bus);
     verify(bus, times(1)).publishEvent(any(UserReleasedEvent.class));
     
     assertTrue(sut.isDeleted());
@@ -161,11 +162,11 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldReleaseADeletedBannedUser() {
-    sut.delete(bus);
-    sut.ban(bus);
+    sut = sut.delete(bus);
+    sut = sut.ban(bus);
     reset(bus);
     
-    sut.release(bus);
+    sut = sut.release(bus);
     verify(bus, times(1)).publishEvent(any(UserReleasedEvent.class));
     
     assertTrue(sut.isDeleted());
@@ -175,7 +176,7 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldBanAnActiveUser() {
-    sut.ban(bus);
+    sut = sut.ban(bus);
     verify(bus, times(1)).publishEvent(any(UserBannedEvent.class));
     
     assertFalse(sut.isActive());
@@ -184,10 +185,10 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldBanAnDetainedUser() {
-    sut.detain(bus, 100L);
+    sut = sut.detain(bus, 100L);
     reset(bus);
     
-    sut.ban(bus);
+    sut = sut.ban(bus);
     verify(bus, times(1)).publishEvent(any(UserBannedEvent.class));
     
     assertTrue(sut.isBanned());
@@ -196,10 +197,10 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldBanAnBannedUser() {
-    sut.ban(bus);
+    sut = sut.ban(bus);
     reset(bus);
     
-    sut.ban(bus);
+    sut = sut.ban(bus);
     verify(bus, times(1)).publishEvent(any(UserBannedEvent.class));
     
     assertTrue(sut.isBanned());
@@ -207,10 +208,10 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldBanAnDeletedUser() {
-    sut.delete(bus);
+    sut = sut.delete(bus);
     reset(bus);
     
-    sut.ban(bus);
+    sut = sut.ban(bus);
     verify(bus, times(1)).publishEvent(any(UserBannedEvent.class));
     
     assertTrue(sut.isDeleted());
@@ -220,7 +221,7 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldDeleteAnActiveUser() {
-    sut.delete(bus);
+    sut = sut.delete(bus);
     verify(bus, times(1)).publishEvent(any(UserDeletedEvent.class));
     
     assertFalse(sut.isActive());
@@ -229,7 +230,7 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldUndeleteAnActiveUser() {
-    sut.undelete(bus);
+    sut = sut.undelete(bus);
     verify(bus, times(1)).publishEvent(any(UserActivatedEvent.class));
     
     assertTrue(sut.isActive());
@@ -238,10 +239,10 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldUndeleteAnDeletedUser() {
-    sut.delete(bus);
+    sut = sut.delete(bus);
     reset(bus);
     
-    sut.undelete(bus);
+    sut = sut.undelete(bus);
     verify(bus, times(1)).publishEvent(any(UserActivatedEvent.class));
     
     assertFalse(sut.isDeleted());
@@ -250,11 +251,11 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldKeepTheDetainedStateWhenUndeletingADetainedUser() {
-    sut.detain(bus, 100L);
-    sut.delete(bus);
+    sut = sut.detain(bus, 100L);
+    sut = sut.delete(bus);
     reset(bus);
     
-    sut.undelete(bus);
+    sut = sut.undelete(bus);
     verify(bus, times(1)).publishEvent(any(UserActivatedEvent.class));
     
     assertTrue(sut.isDetained(), "The user should be detained!");
@@ -263,8 +264,8 @@ public class KpUserDetailsTest {
   
   @Test
   void shouldKeepTheBannedStateWhenUndeletingABannedUser() {
-    sut.ban(bus);
-    sut.delete(bus);
+    sut = sut.ban(bus);
+    sut = sut.delete(bus);
     reset(bus);
     
     User result = sut.undelete(bus);
@@ -273,8 +274,48 @@ public class KpUserDetailsTest {
     verify(bus, times(1)).publishEvent(any(UserActivatedEvent.class));
     
     assertEquals(result, sut);
-    assertTrue(sut.isBanned(), "The user should be banned!");
-    assertFalse(sut.isDeleted(), "The user should not be deleted anymore!");
+    assertTrue(result.isBanned(), "The user should be banned!");
+    assertFalse(result.isDeleted(), "The user should not be deleted anymore!");
+  }
+  
+  @Test
+  void shouldNotChangeTheOriginalUserWhenTransitioning() {
+    KpUserDetails result = sut.ban(bus).detain(bus, 10L).delete(bus);
+    
+    assertNotSame(sut, result);
+    assertEquals(sut, result);
+    assertTrue(sut.isActive());
+    assertTrue(result.isBanned());
+    assertTrue(result.isDetained());
+    assertTrue(result.isDeleted());
+  }
+  
+  @Test
+  void shouldPublishTheNewUserWhenTransitioning() {
+    KpUserDetails result = sut.ban(bus);
+    
+    ArgumentCaptor<UserBannedEvent> event = ArgumentCaptor.forClass(UserBannedEvent.class);
+    verify(bus).publishEvent(event.capture());
+    
+    assertSame(result, event.getValue().getUser());
+  }
+  
+  @Test
+  void shouldIncreaseTheModificationWhenTransitioning() {
+    KpUserDetails banned = sut.ban(bus);
+    KpUserDetails released = banned.release(bus);
+    
+    assertTrue(banned.getModified().isAfter(sut.getModified()));
+    assertTrue(released.getModified().isAfter(banned.getModified()));
+  }
+  
+  @Test
+  void shouldIncreaseTheModificationWhenItIsInTheFuture() {
+    OffsetDateTime future = OffsetDateTime.now().plusHours(1L);
+    
+    KpUserDetails result = sut.toBuilder().modified(future).build().modify().build();
+    
+    assertEquals(future.plusNanos(1_000L), result.getModified());
   }
   
   @Test
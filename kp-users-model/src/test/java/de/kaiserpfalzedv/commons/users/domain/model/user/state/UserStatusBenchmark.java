@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.model.user.state;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import de.kaiserpfalzedv.commons.users.domain.model.user.state.UserStatus.Transition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Compares the state objects of {@link UserState} with the stateless {@link UserStatus}.
+ *
+ * <p>The main method runs with the GC profiler. {@code gc.alloc.rate.norm} has to be 0 bytes per operation for the
+ * {@code status*} benchmarks. The {@code state*} benchmarks measure the public {@link User#getState} path, which may
+ * allocate the state object itself but nothing else. It is not part of the unit tests.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-23
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserStatusBenchmark {
+  private static final ApplicationEventPublisher BUS = event -> {};
+  
+  private User active;
+  private User banned;
+  
+  
+  @Setup
+  public void setUp() {
+    active = KpUserDetails.builder().build();
+    banned = KpUserDetails.builder().bannedOn(OffsetDateTime.now()).build();
+  }
+  
+  
+  @Benchmark
+  public boolean stateLoginCheck() {
+    return active.getState(BUS).isActive();
+  }
+  
+  @Benchmark
+  public boolean statusLoginCheck() {
+    return active.getStatus() == UserStatus.ACTIVE;
+  }
+  
+  @Benchmark
+  public UserState stateNoopTransition() {
+    return banned.getState(BUS).ban();
+  }
+  
+  @Benchmark
+  public UserStatus statusNoopTransition() {
+    UserStatus status = banned.getStatus();
+    return status.next(Transition.BAN, status.ban(banned, BUS));
+  }
+  
+  
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder()
+            .include(UserStatusBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()
+    ).run();
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.model.user.state;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.state.UserBannedEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.state.UserRemovedEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.state.UserStatus.Transition;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-23
+ */
+@ExtendWith(MockitoExtension.class)
+@XSlf4j
+public class UserStatusTest {
+  @Mock private ApplicationEventPublisher bus;
+  
+  
+  @AfterEach
+  public void tearDown() {
+    validateMockitoUsage();
+    verifyNoMoreInteractions(bus);
+  }
+  
+  
+  @Test
+  public void shouldDeriveTheSameStatusAsTheStateFactory() {
+    log.entry();
+    
+    for (User user : new User[] {ACTIVE, BANNED, DETAINED, DELETED}) {
+      assertEquals(UserState.Factory.fromUser(user, bus).getStatus(), user.getStatus());
+    }
+    
+    log.exit();
+  }
+  
+  @Test
+  public void shouldNotChangeTheUserWhenBanningABannedUser() {
+    log.entry();
+    
+    User result = UserStatus.BANNED.ban(BANNED, bus);
+    
+    assertSame(BANNED, result);
+    assertEquals(UserStatus.BANNED, UserStatus.BANNED.next(Transition.BAN, result));
+    
+    log.exit();
+  }
+  
+  @Test
+  public void shouldStayDeletedWhenBanningADeletedUser() {
+    log.entry();
+    
+    User result = UserStatus.DELETED.ban(DELETED, bus);
+    
+    verify(bus).publishEvent(any(UserBannedEvent.class));
+    assertTrue(result.isBanned());
+    assertEquals(UserStatus.DELETED, UserStatus.DELETED.next(Transition.BAN, result));
+    
+    log.exit();
+  }
+  
+  @Test
+  public void shouldBeRemovedWhenRemovingAnActiveUser() {
+    log.entry();
+    
+    User result = UserStatus.ACTIVE.remove(ACTIVE, bus, true);
+    
+    verify(bus, times(2)).publishEvent(any());
+    verify(bus).publishEvent(any(UserRemovedEvent.class));
+    assertTrue(result.isDeleted());
+    assertEquals(UserStatus.REMOVED, UserStatus.ACTIVE.next(Transition.REMOVE, result));
+    
+    log.exit();
+  }
+  
+  @Test
+  public void shouldDeriveStatusWhenActivatingADeletedBannedUser() {
+    log.entry();
+    
+    User deleted = ((KpUserDetails) BANNED).toBuilder().deleted(OffsetDateTime.now()).build();
+    
+    User result = UserStatus.DELETED.activate(deleted, bus);
+    
+    verify(bus).publishEvent(any());
+    assertEquals(UserStatus.BANNED, UserStatus.DELETED.next(Transition.ACTIVATE, result));
+    
+    log.exit();
+  }
+  
+  @Test
+  public void shouldReuseTheStateWhenNothingChanges() {
+    log.entry();
+    
+    UserState state = ACTIVE.getState(bus);
+    
+    assertSame(state, state.release());
+    assertSame(state, state.activate());
+    
+    log.exit();
+  }
+  
+  
+  private static final User ACTIVE = KpUserDetails.builder().build();
+  private static final User BANNED = KpUserDetails.builder().bannedOn(OffsetDateTime.now().minusDays(1L)).build();
+  private static final User DETAINED = KpUserDetails.builder().detainedTill(OffsetDateTime.now().plusDays(1L)).build();
+  private static final User DELETED = KpUserDetails.builder().deleted(OffsetDateTime.now().minusDays(1L)).build();
+}
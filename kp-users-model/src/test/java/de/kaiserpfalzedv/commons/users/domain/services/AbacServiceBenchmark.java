@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.services;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.abac.OwnedBy;
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRoleSet;
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import org.casbin.jcasbin.main.Enforcer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Compares the throughput of the casbin enforcer with the compiled policies of the {@link AbacService}.
+ *
+ * <p>Run it from the IDE (main method) or with the JMH runner from the test classpath. It is not part of the unit
+ * tests.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-21
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AbacServiceBenchmark {
+  private static final String CONFIG = "target/classes/abac/users.conf";
+  private static final String POLICIES = "target/classes/abac/users.csv";
+  
+  private Enforcer casbin;
+  private AbacService compiled;
+  
+  private User player;
+  private User judge;
+  
+  
+  @Setup
+  public void setUp() {
+    casbin = new Enforcer(CONFIG, POLICIES);
+    casbin.addFunction("ownedBy", new OwnedBy());
+    
+    compiled = new AbacService(
+        new Enforcer(CONFIG, POLICIES),
+        new StaticListableBeanFactory().getBeanProvider(PolicyReadService.class)
+    );
+    compiled.init();
+    
+    player = createUser("player", "PLAYER");
+    judge = createUser("judge", "JUDGE", "PLAYER");
+  }
+  
+  
+  @Benchmark
+  public boolean casbinOwnObject() {
+    return casbin.enforce(player, player, "update");
+  }
+  
+  @Benchmark
+  public boolean compiledOwnObject() {
+    return compiled.enforce(player, player, "update");
+  }
+  
+  @Benchmark
+  public boolean casbinDenied() {
+    return casbin.enforce(player, judge, "ban");
+  }
+  
+  @Benchmark
+  public boolean compiledDenied() {
+    return compiled.enforce(player, judge, "ban");
+  }
+  
+  @Benchmark
+  public boolean casbinForeignObject() {
+    return casbin.enforce(judge, player, "ban");
+  }
+  
+  @Benchmark
+  public boolean compiledForeignObject() {
+    return compiled.enforce(judge, player, "ban");
+  }
+  
+  
+  private static User createUser(final String name, final String... roles) {
+    return KpUserDetails.builder()
+        .issuer("https://sso.kaiserpfalz-edv.de/realms/Paladins-Inn")
+        .subject(UUID.randomUUID().toString())
+        .nameSpace("benchmark")
+        .name(name)
+        .authorities(KpRoleSet.of(
+            List.of(roles).stream().map(role -> KpRole.builder().name(role).build()).toList()
+        ))
+        .build();
+  }
+  
+  
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder()
+            .include(AbacServiceBenchmark.class.getSimpleName())
+            .build()
+    ).run();
+  }
+}
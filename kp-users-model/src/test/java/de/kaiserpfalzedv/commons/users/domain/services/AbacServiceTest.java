@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.domain.services;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.abac.EffectivePermissions;
+import de.kaiserpfalzedv.commons.users.domain.model.abac.OwnedBy;
+import de.kaiserpfalzedv.commons.users.domain.model.policy.KpPolicy;
+import de.kaiserpfalzedv.commons.users.domain.model.policy.Policy;
+import de.kaiserpfalzedv.commons.users.domain.model.policy.events.PolicyChangedEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.RoleAddedToUserEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.RoleRemovedFromUserEvent;
+import jakarta.validation.constraints.NotNull;
+import lombok.extern.slf4j.XSlf4j;
+import org.casbin.jcasbin.main.Enforcer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Checks that the compiled policies of the {@link AbacService} give the same results as the casbin enforcer.
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-21
+ */
+@XSlf4j
+class AbacServiceTest {
+  private static final List<String> ACTIONS = List.of(
+      "view", "list", "create", "update", "delete", "remove", "detain", "ban", "release", "unknown"
+  );
+  
+  private static final List<User> USERS = List.of(
+      createUser("Peter", "ADMIN", "PLAYER"),
+      createUser("Paul", "ORGA", "PLAYER"),
+      createUser("Judy", "JUDGE"),
+      createUser("Mary", "GM", "PLAYER"),
+      createUser("Andrew", "PLAYER"),
+      createUser("Nobody")
+  );
+  
+  private static Enforcer casbin;
+  private static AbacService sut;
+  
+  
+  @BeforeAll
+  public static void setUp() {
+    log.entry();
+    
+    casbin = new Enforcer("target/classes/abac/users.conf", "target/classes/abac/users.csv");
+    casbin.addFunction("ownedBy", new OwnedBy());
+    
+    sut = new AbacService(
+        new Enforcer("target/classes/abac/users.conf", "target/classes/abac/users.csv"),
+        new StaticListableBeanFactory().getBeanProvider(PolicyReadService.class)
+    );
+    sut.init();
+    
+    log.exit(sut);
+  }
+  
+  
+  @Test
+  void shouldDecideLikeCasbinWhenCheckingAllCombinations() {
+    log.entry();
+    
+    for (User subject : USERS) {
+      for (User object : USERS) {
+        for (String action : ACTIONS) {
+          assertEquals(
+              casbin.enforce(subject, object, action),
+              sut.enforce(subject, object, action),
+              () -> "subject=" + subject.getName() + ", object=" + object.getName() + ", action=" + action
+          );
+        }
+      }
+    }
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldFilterLikeSingleChecksWhenFilteringCollections() {
+    log.entry();
+    
+    for (User subject : USERS) {
+      for (String action : ACTIONS) {
+        List<User> expected = USERS.stream().filter(object -> sut.enforce(subject, object, action)).toList();
+        
+        assertEquals(expected, sut.filter(subject, action, USERS));
+        assertEquals(expected, sut.filter(subject, action, Flux.fromIterable(USERS)).collectList().block());
+        assertEquals(expected.size() == USERS.size(), sut.enforceAll(subject, action, USERS));
+      }
+    }
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldSwapSnapshotWhenPoliciesAreReloaded() {
+    log.entry();
+    
+    long generation = sut.getSnapshot().getGeneration();
+    
+    sut.reload();
+    
+    assertEquals(generation + 1, sut.getSnapshot().getGeneration());
+    assertEquals(0, sut.getSnapshot().getCachedDecisions());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldDecideConsistentlyWhenReloadingWhileEnforcing() {
+    log.entry();
+    
+    User andrew = USERS.get(4);
+    User mary = USERS.get(3);
+    
+    IntStream.range(0, 10_000).parallel().forEach(i -> {
+      if (i % 1_000 == 0) {
+        sut.reload();
+      }
+      
+      assertTrue(sut.enforce(andrew, andrew, "update"));
+      assertFalse(sut.enforce(andrew, mary, "update"));
+    });
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldApplyPolicyChangesWithoutReloadingWhenPolicyChangedEventIsReceived() {
+    log.entry();
+    
+    User gm = USERS.get(3);
+    User andrew = USERS.get(4);
+    KpPolicy policy = KpPolicy.builder().role("GM").object("User").actions("ban").build();
+    assertFalse(sut.enforce(gm, andrew, "ban"));
+    
+    sut.event(PolicyChangedEvent.builder().application("test").policy(policy).change(PolicyChangedEvent.Change.CREATED).build());
+    assertTrue(sut.enforce(gm, andrew, "ban"));
+    assertEquals(1, sut.getSnapshot().getManagedPolicies());
+    
+    sut.reload();
+    assertTrue(sut.enforce(gm, andrew, "ban"));
+    
+    sut.event(PolicyChangedEvent.builder().application("test").policy(policy).change(PolicyChangedEvent.Change.REMOVED).build());
+    assertFalse(sut.enforce(gm, andrew, "ban"));
+    assertEquals(0, sut.getSnapshot().getManagedPolicies());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldApplyManagedPoliciesWhenStarted() {
+    log.entry();
+    
+    KpPolicy policy = KpPolicy.builder().role("GM").object("User").actions("ban").build();
+    AbacService service = createService(() -> Flux.just(policy));
+    
+    service.init();
+    
+    assertEquals(1, service.getSnapshot().getManagedPolicies());
+    assertTrue(service.enforce(USERS.get(3), USERS.get(4), "ban"));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldNotStartWhenManagedPoliciesCanNotBeLoaded() {
+    log.entry();
+    
+    AbacService service = createService(() -> Flux.error(new IllegalStateException("database unavailable")));
+    
+    assertThrows(IllegalStateException.class, service::init);
+    
+    log.exit();
+  }
+  
+  private static AbacService createService(@NotNull final Supplier<Flux<? extends Policy>> policies) {
+    StaticListableBeanFactory beans = new StaticListableBeanFactory();
+    beans.addBean("policyReadService", new PolicyReadService() {
+      @Override
+      public Mono<? extends Policy> retrieve(@NotNull final UUID id) {
+        return Mono.empty();
+      }
+      
+      @Override
+      public Flux<? extends Policy> retrieveAll() {
+        return policies.get();
+      }
+    });
+    
+    return new AbacService(
+        new Enforcer("target/classes/abac/users.conf", "target/classes/abac/users.csv"),
+        beans.getBeanProvider(PolicyReadService.class)
+    );
+  }
+  
+  @Test
+  void shouldReusePermissionsUntilPoliciesChange() {
+    log.entry();
+    
+    User andrew = USERS.get(4);
+    User mary = USERS.get(3);
+    EffectivePermissions permissions = sut.permissions(andrew);
+    
+    assertSame(permissions, sut.permissions(andrew, permissions));
+    assertNotSame(permissions, sut.permissions(mary, permissions));
+    
+    sut.reload();
+    
+    EffectivePermissions refreshed = sut.permissions(andrew, permissions);
+    assertNotSame(permissions, refreshed);
+    assertEquals(sut.getSnapshot().getGeneration(), refreshed.getGeneration());
+    assertTrue(refreshed.allows(andrew, "update"));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldDerivePermissionsAgainWhenRolesOfSubjectChange() {
+    log.entry();
+    
+    KpUserDetails andrew = (KpUserDetails) USERS.get(4);
+    EffectivePermissions permissions = sut.permissions(andrew);
+    
+    KpUserDetails same = andrew.withAuthorities(List.of(KpRole.builder().name("PLAYER").build()));
+    assertSame(permissions, sut.permissions(same, permissions));
+    
+    KpUserDetails gm = andrew.withAuthorities(List.of(
+        KpRole.builder().name("PLAYER").build(),
+        KpRole.builder().name("GM").build()
+    ));
+    EffectivePermissions refreshed = sut.permissions(gm, permissions);
+    
+    assertNotSame(permissions, refreshed);
+    assertTrue(refreshed.isCurrent(gm, sut.getSnapshot().getGeneration()));
+    assertFalse(permissions.isCurrent(gm, sut.getSnapshot().getGeneration()));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldDerivePermissionsAgainWhenRoleIsGrantedAfterLogin() {
+    log.entry();
+    
+    User carol = createUser("Carol", "PLAYER");
+    User other = USERS.get(4);
+    KpRole judge = KpRole.builder().name("JUDGE").build();
+    EffectivePermissions permissions = sut.permissions(carol);
+    assertFalse(permissions.allows(other, "ban"));
+    
+    sut.event(RoleAddedToUserEvent.builder()
+        .application("test")
+        .user(KpUserDetails.builder().id(carol.getId()).build())
+        .role(judge)
+        .build());
+    
+    EffectivePermissions granted = sut.permissions(carol, permissions);
+    assertNotSame(permissions, granted);
+    assertTrue(granted.allows(other, "ban"));
+    assertTrue(sut.enforce(carol, other, "ban"));
+    assertSame(granted, sut.permissions(carol, granted));
+    
+    sut.event(RoleRemovedFromUserEvent.builder()
+        .application("test")
+        .user(KpUserDetails.builder().id(carol.getId()).build())
+        .role(judge)
+        .build());
+    
+    EffectivePermissions revoked = sut.permissions(carol, granted);
+    assertNotSame(granted, revoked);
+    assertFalse(revoked.allows(other, "ban"));
+    assertFalse(sut.enforce(carol, other, "ban"));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldAllowUpdatingSelfWhenUserIsPlayer() {
+    User andrew = USERS.get(4);
+    
+    assertTrue(sut.enforce(andrew, andrew, "update"));
+    assertFalse(sut.enforce(andrew, USERS.get(3), "update"));
+  }
+  
+  @Test
+  void shouldAllowEverythingWhenUserIsAdmin() {
+    User peter = USERS.get(0);
+    
+    assertTrue(sut.enforce(peter, USERS.get(1), "unknown"));
+  }
+  
+  
+  private static User createUser(final String name, final String... roles) {
+    return KpUserDetails.builder()
+        .issuer("https://sso.kaiserpfalz-edv.de/realms/Paladins-Inn")
+        .subject(UUID.randomUUID().toString())
+        .nameSpace("Torganized Play")
+        .name(name)
+        .authorities(Set.of(
+            List.of(roles).stream().map(role -> KpRole.builder().name(role).build()).toArray(KpRole[]::new)
+        ))
+        .build();
+  }
+}
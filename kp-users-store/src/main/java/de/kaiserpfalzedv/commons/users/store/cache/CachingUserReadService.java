@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.UserBaseEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.activity.UserActivityBaseEvent;
+import de.kaiserpfalzedv.commons.users.domain.services.UserReadService;
+import de.kaiserpfalzedv.commons.users.store.model.user.R2dbcUserRepository;
+import io.micrometer.core.annotation.Counted;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.validation.constraints.NotNull;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+
+/**
+ * Reads users via the {@link UserSnapshotStore} and falls back to the database.
+ *
+ * <p>Users are kept in their {@link CompactUser} form and only decoded when they are read. Every user event except
+ * the activity events evicts the user, so the next read fetches the current state from the database. Changes missed
+ * by the events are evicted by the {@link UserCacheRevalidator}.</p>
+ *
+ * <p>The cache is read when the returned {@link Mono} is subscribed, not when it is created.</p>
+ *
+ * <p>A database read may overtake an eviction: the read gets the old state, the event evicts the user and only then
+ * the old state is put into the cache. So every eviction gets a sequence number which is kept per stripe of user ids.
+ * A user read from the database is removed again right after putting it into the cache when its stripe has been
+ * evicted since the read started. Other users of the same stripe are only read again from the database.</p>
+ *
+ * <p>The timestamp of the newest event seen is kept as high-water mark. It is written with every
+ * {@link UserCacheSnapshot} and tells how current a snapshot is.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-23
+ */
+@Primary
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Inject))
+@ToString(of = {"store"})
+@XSlf4j
+public class CachingUserReadService implements UserReadService<User> {
+  private static final int STRIPES = 1 << 10;
+  
+  private final R2dbcUserRepository repository;
+  private final UserSnapshotStore store;
+  private final CompactUserCodec codec;
+  
+  /** Epoch nanos of the newest user event seen, {@link CompactUser#NONE} if there hasn't been any. */
+  private final AtomicLong highWater = new AtomicLong(CompactUser.NONE);
+  
+  /** Sequence of the evictions. */
+  private final AtomicLong evictions = new AtomicLong();
+  /** Sequence of the last eviction per stripe of user ids. */
+  private final AtomicLongArray evicted = new AtomicLongArray(STRIPES);
+  
+  
+  @Override
+  @Counted
+  @Timed
+  public Mono<User> findById(@NotNull final UUID id) {
+    log.entry(id);
+    
+    return log.exit(cached(() -> store.get(id), () -> repository.findById(id)));
+  }
+  
+  @Override
+  @Counted
+  @Timed
+  public Mono<User> findByUsername(@NotNull final String nameSpace, @NotNull final String name) {
+    log.entry(nameSpace, name);
+    
+    return log.exit(cached(
+        () -> {
+          int code = codec.getStrings().lookup(nameSpace);
+          return code != Dictionary.NONE ? store.getByName(code, name) : null;
+        },
+        () -> repository.findByUsername(nameSpace, name)
+    ));
+  }
+  
+  @Override
+  @Counted
+  @Timed
+  public Mono<User> findByIssuerAndSubject(@NotNull final String issuer, @NotNull final String sub) {
+    log.entry(issuer, sub);
+    
+    return log.exit(cached(
+        () -> {
+          int code = codec.getStrings().lookup(issuer);
+          return code != Dictionary.NONE ? store.getByIssuerAndSubject(code, sub) : null;
+        },
+        () -> repository.findByIssuerAndSubject(issuer, sub)
+    ));
+  }
+  
+  private Mono<User> cached(
+      @NotNull final Supplier<CompactUser> cache,
+      @NotNull final Supplier<Mono<User>> database
+  ) {
+    return Mono.defer(() -> {
+      long generation = evictions.get();
+      
+      CompactUser cached = cache.get();
+      if (cached != null) {
+        return Mono.just(codec.decode(cached));
+      }
+      
+      return database.get().doOnNext(user -> remember(user, generation));
+    });
+  }
+  
+  @Override
+  public Flux<User> findAll() {
+    log.entry();
+    
+    return log.exit(Flux.defer(() -> {
+      long generation = evictions.get();
+      return repository.findAll().doOnNext(user -> remember(user, generation));
+    }));
+  }
+  
+  @Override
+  public Flux<User> findByNamespace(@NotNull final String nameSpace) {
+    log.entry(nameSpace);
+    
+    return log.exit(Flux.defer(() -> {
+      long generation = evictions.get();
+      return repository.findByNamespace(nameSpace).doOnNext(user -> remember(user, generation));
+    }));
+  }
+  
+  /**
+   * Puts the user into the cache unless it has been evicted since the read started.
+   *
+   * <p>The check is done after the put. An eviction after the check removes the user after the put anyway.</p>
+   *
+   * @param user the user read from the database.
+   * @param generation the eviction sequence when the read started.
+   */
+  private void remember(@NotNull final User user, final long generation) {
+    store.put(codec.encode(user));
+    
+    if (evicted.get(stripe(user.getId())) > generation) {
+      log.debug("User has been evicted while it has been read. id={}, generation={}", user.getId(), generation);
+      store.remove(user.getId());
+    }
+  }
+  
+  /**
+   * Removes the user from the cache. A read of the user running at the same time doesn't put it back.
+   *
+   * @param id the id of the user.
+   */
+  void evict(@NotNull final UUID id) {
+    evicted.accumulateAndGet(stripe(id), evictions.incrementAndGet(), Math::max);
+    store.remove(id);
+  }
+  
+  private static int stripe(@NotNull final UUID id) {
+    return id.hashCode() & (STRIPES - 1);
+  }
+  
+  
+  @EventListener
+  public void event(@NotNull final UserBaseEvent event) {
+    log.entry(event);
+    
+    if (!(event instanceof UserActivityBaseEvent)) {
+      // locally removed users are published with the user id as event id and without user data.
+      evict(event.getUser() != null ? event.getUser().getId() : event.getId());
+    }
+    
+    long timestamp = CompactUser.toEpochNanos(event.getTimestamp());
+    highWater.accumulateAndGet(timestamp, Math::max);
+    
+    log.exit();
+  }
+  
+  /**
+   * @return epoch nanos of the newest user event seen, {@link CompactUser#NONE} if there hasn't been any.
+   */
+  public long getHighWater() {
+    return highWater.get();
+  }
+  
+  /**
+   * Raises the high-water mark, e.g. to the mark of a restored snapshot.
+   *
+   * @param epochNanos epoch nanos of the newest event contained.
+   */
+  public void raiseHighWater(final long epochNanos) {
+    highWater.accumulateAndGet(epochNanos, Math::max);
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import jakarta.annotation.Nullable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+
+/**
+ * The compact form of a user kept in the user cache.
+ *
+ * <p>A cached {@link de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails} holds a {@link UUID}, up to five
+ * {@link OffsetDateTime}s, a {@link Duration} and a role set, each of them an object with its own header. This record
+ * stores the id and all timestamps as primitive longs and the values repeating across users (name space, issuer,
+ * roles) as codes of a {@link Dictionary}. It is converted back into a user by the {@link CompactUserCodec} only when
+ * it is read.</p>
+ *
+ * <p>Timestamps are nanoseconds since the epoch in UTC, {@link #NONE} means {@code null}.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-23
+ */
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@Getter
+@ToString(of = {"idMostSignificantBits", "idLeastSignificantBits", "nameSpace", "name"})
+@EqualsAndHashCode(of = {"idMostSignificantBits", "idLeastSignificantBits"})
+public final class CompactUser {
+  /** The value of unset timestamps and durations. */
+  public static final long NONE = Long.MIN_VALUE;
+  
+  private static final int[] NO_ROLES = new int[0];
+  
+  private final long idMostSignificantBits;
+  private final long idLeastSignificantBits;
+  
+  private final long created;
+  private final long modified;
+  private final long deleted;
+  
+  /** The detainment duration in seconds. */
+  private final long detainmentDuration;
+  private final long detainedTill;
+  private final long bannedOn;
+  
+  /** Dictionary code of the name space. */
+  private final int nameSpace;
+  private final String name;
+  
+  /** Dictionary code of the issuer. */
+  private final int issuer;
+  private final String subject;
+  
+  private final String email;
+  private final String phone;
+  private final String discord;
+  
+  /** Dictionary codes of the role ids. */
+  @Builder.Default
+  private final int[] roles = NO_ROLES;
+  
+  
+  /**
+   * @return the id of the user.
+   */
+  public UUID getId() {
+    return new UUID(idMostSignificantBits, idLeastSignificantBits);
+  }
+  
+  /**
+   * Checks the id without creating a {@link UUID}.
+   *
+   * @param id the id to check.
+   * @return true if this is the user with the given id.
+   */
+  public boolean hasId(@Nullable final UUID id) {
+    return id != null
+        && id.getMostSignificantBits() == idMostSignificantBits
+        && id.getLeastSignificantBits() == idLeastSignificantBits;
+  }
+  
+  
+  /**
+   * @param timestamp the timestamp to convert.
+   * @return nanoseconds since the epoch or {@link #NONE}.
+   */
+  public static long toEpochNanos(@Nullable final OffsetDateTime timestamp) {
+    if (timestamp == null) {
+      return NONE;
+    }
+    
+    Instant instant = timestamp.toInstant();
+    return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+  }
+  
+  /**
+   * @param epochNanos nanoseconds since the epoch or {@link #NONE}.
+   * @return the timestamp in UTC.
+   */
+  @Nullable
+  public static OffsetDateTime toOffsetDateTime(final long epochNanos) {
+    if (epochNanos == NONE) {
+      return null;
+    }
+    
+    return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L), Math.floorMod(epochNanos, 1_000_000_000L))
+        .atOffset(ZoneOffset.UTC);
+  }
+  
+  /**
+   * @param duration the duration to convert.
+   * @return the duration in seconds or {@link #NONE}.
+   */
+  public static long toSeconds(@Nullable final Duration duration) {
+    return duration != null ? duration.getSeconds() : NONE;
+  }
+  
+  /**
+   * @param seconds the duration in seconds or {@link #NONE}.
+   * @return the duration.
+   */
+  @Nullable
+  public static Duration toDuration(final long seconds) {
+    return seconds != NONE ? Duration.ofSeconds(seconds) : null;
+  }
+}
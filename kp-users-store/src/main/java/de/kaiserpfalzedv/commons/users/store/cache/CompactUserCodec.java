@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import de.kaiserpfalzedv.commons.users.store.model.role.R2dbcRoleReadService;
+import de.kaiserpfalzedv.commons.users.store.model.role.RoleCatalog;
+import jakarta.inject.Inject;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.UUID;
+
+
+/**
+ * Converts users into their {@link CompactUser} form and back.
+ *
+ * <p>Name spaces and issuers share one string dictionary, role ids have their own. Roles are resolved via the
+ * {@link RoleCatalog} when the user is decoded, so a decoded user always carries the current canonical role
+ * instances. Roles removed in the meantime are dropped.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-23
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Inject))
+@ToString(of = {"strings", "roleIds"})
+@XSlf4j
+public class CompactUserCodec {
+  private final R2dbcRoleReadService roles;
+  
+  @Getter
+  private final Dictionary<String> strings = new Dictionary<>();
+  @Getter
+  private final Dictionary<UUID> roleIds = new Dictionary<>();
+  
+  
+  /**
+   * @param user the user to encode.
+   * @return the compact form of the user.
+   */
+  public CompactUser encode(@NotNull final User user) {
+    return CompactUser.builder()
+        .idMostSignificantBits(user.getId().getMostSignificantBits())
+        .idLeastSignificantBits(user.getId().getLeastSignificantBits())
+        .created(CompactUser.toEpochNanos(user.getCreated()))
+        .modified(CompactUser.toEpochNanos(user.getModified()))
+        .deleted(CompactUser.toEpochNanos(user.getDeleted()))
+        .detainmentDuration(CompactUser.toSeconds(user.getDetainmentDuration()))
+        .detainedTill(CompactUser.toEpochNanos(user.getDetainedTill()))
+        .bannedOn(CompactUser.toEpochNanos(user.getBannedOn()))
+        .nameSpace(strings.code(user.getNameSpace()))
+        .name(user.getName())
+        .issuer(strings.code(user.getIssuer()))
+        .subject(user.getSubject())
+        .email(user.getEmail())
+        .phone(user.getPhone())
+        .discord(user.getDiscord())
+        .roles(encodeRoles(user.getAuthorities()))
+        .build();
+  }
+  
+  private int[] encodeRoles(@NotNull final Collection<? extends GrantedAuthority> authorities) {
+    int[] result = new int[authorities.size()];
+    int count = 0;
+    
+    for (GrantedAuthority authority : authorities) {
+      if (authority instanceof KpRole role && role.getId() != null) {
+        result[count++] = roleIds.code(role.getId());
+      }
+    }
+    
+    return count == result.length ? result : Arrays.copyOf(result, count);
+  }
+  
+  /**
+   * @param user the compact form of the user.
+   * @return the user.
+   */
+  public KpUserDetails decode(@NotNull final CompactUser user) {
+    return KpUserDetails.builder()
+        .id(user.getId())
+        .created(CompactUser.toOffsetDateTime(user.getCreated()))
+        .modified(CompactUser.toOffsetDateTime(user.getModified()))
+        .deleted(CompactUser.toOffsetDateTime(user.getDeleted()))
+        .detainmentDuration(CompactUser.toDuration(user.getDetainmentDuration()))
+        .detainedTill(CompactUser.toOffsetDateTime(user.getDetainedTill()))
+        .bannedOn(CompactUser.toOffsetDateTime(user.getBannedOn()))
+        .nameSpace(strings.value(user.getNameSpace()))
+        .name(user.getName())
+        .issuer(strings.value(user.getIssuer()))
+        .subject(user.getSubject())
+        .email(user.getEmail())
+        .phone(user.getPhone())
+        .discord(user.getDiscord())
+        .authorities(decodeRoles(user.getRoles()))
+        .build();
+  }
+  
+  private Collection<KpRole> decodeRoles(@NotNull final int[] codes) {
+    RoleCatalog catalog = roles.getCatalog();
+    ArrayList<KpRole> result = new ArrayList<>(codes.length);
+    
+    for (int code : codes) {
+      catalog.findById(roleIds.value(code)).ifPresentOrElse(
+          result::add,
+          () -> log.debug("Dropping role not in the catalog. role={}", roleIds.value(code))
+      );
+    }
+    
+    return result;
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * The binary layout of a {@link CompactUser} in a {@link ByteBuffer}.
+ *
+ * <p>A record starts with its total length (int), followed by the id, the timestamps and the duration (longs), the
+ * name space and issuer codes (ints), the strings (int length, -1 for {@code null}, followed by the UTF-8 bytes) and
+ * the role codes (int count followed by the codes).</p>
+ *
+ * <p>Records are read with absolute operations only, so any number of threads may read the same buffer.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-24
+ */
+public final class CompactUserFormat {
+  private static final int FIXED_SIZE = Integer.BYTES + 8 * Long.BYTES + 2 * Integer.BYTES + Integer.BYTES;
+  private static final int NULL_STRING = -1;
+  
+  
+  private CompactUserFormat() {}
+  
+  
+  /**
+   * @param user the user to serialize.
+   * @return the record including its length.
+   */
+  public static byte[] encode(@NotNull final CompactUser user) {
+    byte[][] strings = {
+        bytes(user.getName()),
+        bytes(user.getSubject()),
+        bytes(user.getEmail()),
+        bytes(user.getPhone()),
+        bytes(user.getDiscord())
+    };
+    
+    int length = FIXED_SIZE + user.getRoles().length * Integer.BYTES;
+    for (byte[] string : strings) {
+      length += Integer.BYTES + (string != null ? string.length : 0);
+    }
+    
+    ByteBuffer result = ByteBuffer.allocate(length)
+        .putInt(length)
+        .putLong(user.getIdMostSignificantBits())
+        .putLong(user.getIdLeastSignificantBits())
+        .putLong(user.getCreated())
+        .putLong(user.getModified())
+        .putLong(user.getDeleted())
+        .putLong(user.getDetainmentDuration())
+        .putLong(user.getDetainedTill())
+        .putLong(user.getBannedOn())
+        .putInt(user.getNameSpace())
+        .putInt(user.getIssuer());
+    
+    for (byte[] string : strings) {
+      if (string != null) {
+        result.putInt(string.length).put(string);
+      } else {
+        result.putInt(NULL_STRING);
+      }
+    }
+    
+    result.putInt(user.getRoles().length);
+    for (int role : user.getRoles()) {
+      result.putInt(role);
+    }
+    
+    return result.array();
+  }
+  
+  private static byte[] bytes(@Nullable final String value) {
+    return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+  }
+  
+  /**
+   * @param buffer the buffer containing the record.
+   * @param offset the start of the record.
+   * @return the length of the record in bytes.
+   */
+  public static int length(@NotNull final ByteBuffer buffer, final int offset) {
+    return buffer.getInt(offset);
+  }
+  
+  /**
+   * @param buffer the buffer containing the record.
+   * @param offset the start of the record.
+   * @return the user.
+   */
+  public static CompactUser decode(@NotNull final ByteBuffer buffer, final int offset) {
+    int position = offset + Integer.BYTES;
+    
+    CompactUser.CompactUserBuilder result = CompactUser.builder()
+        .idMostSignificantBits(buffer.getLong(position))
+        .idLeastSignificantBits(buffer.getLong(position + 8))
+        .created(buffer.getLong(position + 16))
+        .modified(buffer.getLong(position + 24))
+        .deleted(buffer.getLong(position + 32))
+        .detainmentDuration(buffer.getLong(position + 40))
+        .detainedTill(buffer.getLong(position + 48))
+        .bannedOn(buffer.getLong(position + 56))
+        .nameSpace(buffer.getInt(position + 64))
+        .issuer(buffer.getInt(position + 68));
+    position += 72;
+    
+    String[] strings = new String[5];
+    for (int i = 0; i < strings.length; i++) {
+      int length = buffer.getInt(position);
+      position += Integer.BYTES;
+      
+      if (length != NULL_STRING) {
+        byte[] string = new byte[length];
+        buffer.get(position, string);
+        strings[i] = new String(string, StandardCharsets.UTF_8);
+        position += length;
+      }
+    }
+    
+    int[] roles = new int[buffer.getInt(position)];
+    position += Integer.BYTES;
+    for (int i = 0; i < roles.length; i++) {
+      roles[i] = buffer.getInt(position + i * Integer.BYTES);
+    }
+    
+    return result
+        .name(strings[0])
+        .subject(strings[1])
+        .email(strings[2])
+        .phone(strings[3])
+        .discord(strings[4])
+        .roles(roles)
+        .build();
+  }
+}
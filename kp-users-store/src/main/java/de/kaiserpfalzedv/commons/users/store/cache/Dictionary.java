@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import jakarta.annotation.Nullable;
+import lombok.ToString;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * An append-only dictionary mapping values to small int codes.
+ *
+ * <p>Values that repeat across many users (name spaces, issuers, role ids) are stored once and referenced by their
+ * code. Codes are never reused or removed, the number of distinct values is small compared to the number of
+ * users.</p>
+ *
+ * <p>Lookups of known values and of codes don't lock. Only adding a new value is synchronized.</p>
+ *
+ * @param <T> the type of the values.
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-23
+ */
+@ToString(of = {"size"})
+public final class Dictionary<T> {
+  /** The code of {@code null}. */
+  public static final int NONE = -1;
+  
+  private final ConcurrentHashMap<T, Integer> codes = new ConcurrentHashMap<>();
+  private volatile Object[] values = new Object[64];
+  private volatile int size = 0;
+  
+  
+  /**
+   * Returns the code of the value and adds the value if it is not known yet.
+   *
+   * @param value the value to encode.
+   * @return the code of the value or {@link #NONE} for {@code null}.
+   */
+  public int code(@Nullable final T value) {
+    if (value == null) {
+      return NONE;
+    }
+    
+    Integer result = codes.get(value);
+    if (result != null) {
+      return result;
+    }
+    
+    synchronized (this) {
+      result = codes.get(value);
+      if (result != null) {
+        return result;
+      }
+      
+      int code = size;
+      Object[] current = values;
+      if (code >= current.length) {
+        current = Arrays.copyOf(current, current.length * 2);
+      }
+      current[code] = value;
+      values = current;
+      size = code + 1;
+      codes.put(value, code);
+      
+      return code;
+    }
+  }
+  
+  /**
+   * Returns the code of the value without adding it.
+   *
+   * @param value the value to look up.
+   * @return the code of the value or {@link #NONE} if the value is {@code null} or not known.
+   */
+  public int lookup(@Nullable final T value) {
+    if (value == null) {
+      return NONE;
+    }
+    
+    Integer result = codes.get(value);
+    return result != null ? result : NONE;
+  }
+  
+  /**
+   * Returns the value of a code.
+   *
+   * @param code the code (as returned by {@link #code(Object)}).
+   * @return the value or {@code null} for {@link #NONE}.
+   * @throws IndexOutOfBoundsException if the code has never been returned by this dictionary.
+   */
+  @Nullable
+  public T value(final int code) {
+    if (code == NONE) {
+      return null;
+    }
+    
+    if (code < 0 || code >= size) {
+      throw new IndexOutOfBoundsException("Unknown dictionary code: " + code);
+    }
+    
+    //noinspection unchecked
+    return (T) values[code];
+  }
+  
+  /**
+   * @return the number of values in the dictionary.
+   */
+  public int size() {
+    return size;
+  }
+}
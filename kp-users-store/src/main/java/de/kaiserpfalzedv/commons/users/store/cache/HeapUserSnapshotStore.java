@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+
+/**
+ * Keeps the cached users on the java heap.
+ *
+ * <p>The store is bounded by a maximum number of users. When it is full, new users are not stored and are
+ * read from the database again. Known users are still replaced.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-23
+ */
+@ToString(of = {"maxSize"})
+@XSlf4j
+public class HeapUserSnapshotStore implements UserSnapshotStore {
+  private final ConcurrentHashMap<UUID, CompactUser> byId = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Key, UUID> byName = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Key, UUID> byIssuerAndSubject = new ConcurrentHashMap<>();
+  
+  private final int maxSize;
+  
+  
+  /**
+   * @param maxSize the maximum number of users.
+   */
+  public HeapUserSnapshotStore(final int maxSize) {
+    this.maxSize = maxSize;
+  }
+  
+  
+  /** Index key of a dictionary code and a string. */
+  private record Key(int code, String value) {}
+  
+  
+  @Override
+  @Nullable
+  public CompactUser get(@NotNull final UUID id) {
+    return byId.get(id);
+  }
+  
+  @Override
+  @Nullable
+  public CompactUser getByName(final int nameSpace, @NotNull final String name) {
+    return resolve(byName.get(new Key(nameSpace, name)));
+  }
+  
+  @Override
+  @Nullable
+  public CompactUser getByIssuerAndSubject(final int issuer, @NotNull final String subject) {
+    return resolve(byIssuerAndSubject.get(new Key(issuer, subject)));
+  }
+  
+  private CompactUser resolve(@Nullable final UUID id) {
+    return id != null ? byId.get(id) : null;
+  }
+  
+  @Override
+  public boolean put(@NotNull final CompactUser user) {
+    UUID id = user.getId();
+    
+    if (byId.size() >= maxSize && !byId.containsKey(id)) {
+      log.debug("User cache is full. size={}, user={}", byId.size(), user);
+      return false;
+    }
+    
+    CompactUser old = byId.put(id, user);
+    if (old != null) {
+      unindex(old);
+    }
+    
+    byName.put(new Key(user.getNameSpace(), user.getName()), id);
+    if (user.getSubject() != null) {
+      byIssuerAndSubject.put(new Key(user.getIssuer(), user.getSubject()), id);
+    }
+    
+    return true;
+  }
+  
+  @Override
+  public void remove(@NotNull final UUID id) {
+    CompactUser old = byId.remove(id);
+    
+    if (old != null) {
+      unindex(old);
+    }
+  }
+  
+  private void unindex(@NotNull final CompactUser user) {
+    UUID id = user.getId();
+    
+    byName.remove(new Key(user.getNameSpace(), user.getName()), id);
+    if (user.getSubject() != null) {
+      byIssuerAndSubject.remove(new Key(user.getIssuer(), user.getSubject()), id);
+    }
+  }
+  
+  @Override
+  public void clear() {
+    byId.clear();
+    byName.clear();
+    byIssuerAndSubject.clear();
+  }
+  
+  @Override
+  public void forEach(@NotNull final Consumer<CompactUser> action) {
+    byId.values().forEach(action);
+  }
+  
+  @Override
+  public int size() {
+    return byId.size();
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import lombok.ToString;
+
+import java.util.Arrays;
+
+
+/**
+ * An open addressing hash map from a pair of longs to a long, kept in three primitive arrays.
+ *
+ * <p>The index holds millions of entries without a single object per entry, so the garbage collector only sees three
+ * arrays without references. Collisions are resolved by linear probing, removals shift the following entries back, so
+ * there are no tombstones.</p>
+ *
+ * <p>The index is not thread safe. The owner has to guard it.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-24
+ */
+@ToString(of = {"size"})
+final class LongHashIndex {
+  /** The value returned for unknown keys. Can't be stored. */
+  static final long EMPTY = -1L;
+  
+  private long[] keys1;
+  private long[] keys2;
+  private long[] values;
+  private int mask;
+  private int size;
+  
+  
+  LongHashIndex(final int expected) {
+    allocate(Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1);
+  }
+  
+  private void allocate(final int capacity) {
+    keys1 = new long[capacity];
+    keys2 = new long[capacity];
+    values = new long[capacity];
+    Arrays.fill(values, EMPTY);
+    mask = capacity - 1;
+    size = 0;
+  }
+  
+  
+  long get(final long key1, final long key2) {
+    for (int i = slot(key1, key2); values[i] != EMPTY; i = (i + 1) & mask) {
+      if (keys1[i] == key1 && keys2[i] == key2) {
+        return values[i];
+      }
+    }
+    
+    return EMPTY;
+  }
+  
+  void put(final long key1, final long key2, final long value) {
+    if ((size + 1) * 2 > values.length) {
+      grow();
+    }
+    
+    int i = slot(key1, key2);
+    while (values[i] != EMPTY) {
+      if (keys1[i] == key1 && keys2[i] == key2) {
+        values[i] = value;
+        return;
+      }
+      
+      i = (i + 1) & mask;
+    }
+    
+    keys1[i] = key1;
+    keys2[i] = key2;
+    values[i] = value;
+    size++;
+  }
+  
+  /**
+   * Removes the key if it is mapped to the given value.
+   *
+   * @return true if the key has been removed.
+   */
+  boolean remove(final long key1, final long key2, final long value) {
+    int i = slot(key1, key2);
+    while (values[i] != EMPTY && (keys1[i] != key1 || keys2[i] != key2)) {
+      i = (i + 1) & mask;
+    }
+    
+    if (values[i] == EMPTY || values[i] != value) {
+      return false;
+    }
+    
+    // shift back all following entries of the probe sequence that would not be found anymore.
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      if (values[j] == EMPTY) {
+        break;
+      }
+      
+      int home = slot(keys1[j], keys2[j]);
+      boolean between = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+      if (!between) {
+        keys1[i] = keys1[j];
+        keys2[i] = keys2[j];
+        values[i] = values[j];
+        i = j;
+      }
+    }
+    
+    values[i] = EMPTY;
+    size--;
+    return true;
+  }
+  
+  /**
+   * @return all values of the index in no particular order.
+   */
+  long[] values() {
+    long[] result = new long[size];
+    int count = 0;
+    
+    for (long value : values) {
+      if (value != EMPTY) {
+        result[count++] = value;
+      }
+    }
+    
+    return result;
+  }
+  
+  void clear() {
+    Arrays.fill(values, EMPTY);
+    size = 0;
+  }
+  
+  int size() {
+    return size;
+  }
+  
+  
+  private void grow() {
+    long[] oldKeys1 = keys1;
+    long[] oldKeys2 = keys2;
+    long[] oldValues = values;
+    
+    allocate(oldValues.length << 1);
+    
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != EMPTY) {
+        put(oldKeys1[i], oldKeys2[i], oldValues[i]);
+      }
+    }
+  }
+  
+  private int slot(final long key1, final long key2) {
+    long h = key1 * 0x9E3779B97F4A7C15L + key2;
+    h ^= h >>> 32;
+    h *= 0xBF58476D1CE4E5B9L;
+    h ^= h >>> 29;
+    
+    return (int) h & mask;
+  }
+  
+  /**
+   * @return a 64 bit hash of the string, used as the second key of the secondary indexes.
+   */
+  static long hash(final String value) {
+    long h = 0xCBF29CE484222325L;
+    
+    for (int i = 0; i < value.length(); i++) {
+      h ^= value.charAt(i);
+      h *= 0x100000001B3L;
+    }
+    
+    return h;
+  }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+
+/**
+ * Keeps the cached users outside the java heap.
+ *
+ * <p>The users are serialized in the {@link CompactUserFormat} into direct byte buffers (segments) which are filled
+ * one after the other. The indexes by id, by name space and name and by issuer and subject are {@link LongHashIndex}es
+ * mapping to the address of the record (segment number in the upper, offset in the lower 32 bits). Besides these
+ * primitive arrays the store holds no objects per user, so its size doesn't affect garbage collection.</p>
+ *
+ * <p>The secondary indexes use a hash of the name or subject. A read checks the record it found and answers
+ * {@code null} on a hash collision, which only costs a database read.</p>
+ *
+ * <p>Replaced and removed records leave garbage in the segments. When all segments are used, the live records are
+ * moved to the front in place, segment by segment and in the order of their addresses. The segments emptied that way
+ * are kept for reuse, so the store never allocates more than {@code maxBytes}. If compacting does not free enough
+ * memory, the store is full and rejects new users.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-24
+ */
+@ToString(of = {"maxSize", "segmentSize", "maxSegments", "garbage"})
+@XSlf4j
+public class OffHeapUserSnapshotStore implements UserSnapshotStore {
+  private final int maxSize;
+  private final int segmentSize;
+  private final int maxSegments;
+  
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  
+  private final LongHashIndex byId;
+  private final LongHashIndex byName;
+  private final LongHashIndex byIssuerAndSubject;
+  
+  private ArrayList<ByteBuffer> segments = new ArrayList<>();
+  /** Segments emptied by {@link #compact()}, they are used before new ones are allocated. */
+  private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+  private int position;
+  private long garbage;
+  
+  
+  /**
+   * @param maxSize the maximum number of users.
+   * @param segmentSize the size of a single segment in bytes.
+   * @param maxBytes the maximum off-heap memory used for records.
+   */
+  public OffHeapUserSnapshotStore(final int maxSize, final int segmentSize, final long maxBytes) {
+    this.maxSize = maxSize;
+    this.segmentSize = segmentSize;
+    this.maxSegments = (int) Math.max(1L, maxBytes / segmentSize);
+    
+    int expected = Math.min(maxSize, 1 << 16);
+    this.byId = new LongHashIndex(expected);
+    this.byName = new LongHashIndex(expected);
+    this.byIssuerAndSubject = new LongHashIndex(expected);
+    
+    this.position = segmentSize; // forces the allocation of the first segment.
+  }
+  
+  
+  @Override
+  @Nullable
+  public CompactUser get(@NotNull final UUID id) {
+    lock.readLock().lock();
+    try {
+      return read(byId.get(id.getMostSignificantBits(), id.getLeastSignificantBits()));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+  
+  @Override
+  @Nullable
+  public CompactUser getByName(final int nameSpace, @NotNull final String name) {
+    CompactUser result;
+    
+    lock.readLock().lock();
+    try {
+      result = read(byName.get(nameSpace, LongHashIndex.hash(name)));
+    } finally {
+      lock.readLock().unlock();
+    }
+    
+    return result != null && result.getNameSpace() == nameSpace && name.equals(result.getName()) ? result : null;
+  }
+  
+  @Override
+  @Nullable
+  public CompactUser getByIssuerAndSubject(final int issuer, @NotNull final String subject) {
+    CompactUser result;
+    
+    lock.readLock().lock();
+    try {
+      result = read(byIssuerAndSubject.get(issuer, LongHashIndex.hash(subject)));
+    } finally {
+      lock.readLock().unlock();
+    }
+    
+    return result != null && result.getIssuer() == issuer && subject.equals(result.getSubject()) ? result : null;
+  }
+  
+  private CompactUser read(final long address) {
+    if (address == LongHashIndex.EMPTY) {
+      return null;
+    }
+    
+    return CompactUserFormat.decode(segments.get(segment(address)), offset(address));
+  }
+  
+  
+  @Override
+  public boolean put(@NotNull final CompactUser user) {
+    byte[] record = CompactUserFormat.encode(user);
+    
+    if (record.length > segmentSize) {
+      log.warn("User too large for the off-heap cache. user={}, size={}", user, record.length);
+      return false;
+    }
+    
+    lock.writeLock().lock();
+    try {
+      long old = byId.get(user.getIdMostSignificantBits(), user.getIdLeastSignificantBits());
+      
+      if (old == LongHashIndex.EMPTY && byId.size() >= maxSize) {
+        log.debug("User cache is full. size={}, user={}", byId.size(), user);
+        return false;
+      }
+      
+      if (old != LongHashIndex.EMPTY) {
+        unindex(old);
+      }
+      
+      long address = allocate(record.length);
+      if (address == LongHashIndex.EMPTY) {
+        log.debug("Off-heap user cache is out of memory. store={}, user={}", this, user);
+        return false;
+      }
+      
+      segments.get(segment(address)).put(offset(address), record);
+      index(user, address);
+      
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+  
+  @Override
+  public void remove(@NotNull final UUID id) {
+    lock.writeLock().lock();
+    try {
+      long address = byId.get(id.getMostSignificantBits(), id.getLeastSignificantBits());
+      
+      if (address != LongHashIndex.EMPTY) {
+        unindex(address);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+  
+  @Override
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      byId.clear();
+      byName.clear();
+      byIssuerAndSubject.clear();
+      
+      segments = new ArrayList<>();
+      free.clear();
+      position = segmentSize;
+      garbage = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+  
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The read lock is held during the whole iteration, so writers wait until it is done.</p>
+   */
+  @Override
+  public void forEach(@NotNull final Consumer<CompactUser> action) {
+    lock.readLock().lock();
+    try {
+      for (long address : byId.values()) {
+        action.accept(read(address));
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+  
+  @Override
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return byId.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+  
+  
+  private void index(@NotNull final CompactUser user, final long address) {
+    byId.put(user.getIdMostSignificantBits(), user.getIdLeastSignificantBits(), address);
+    byName.put(user.getNameSpace(), LongHashIndex.hash(String.valueOf(user.getName())), address);
+    
+    if (user.getSubject() != null) {
+      byIssuerAndSubject.put(user.getIssuer(), LongHashIndex.hash(user.getSubject()), address);
+    }
+  }
+  
+  private void unindex(final long address) {
+    ByteBuffer segment = segments.get(segment(address));
+    CompactUser user = CompactUserFormat.decode(segment, offset(address));
+    
+    byId.remove(user.getIdMostSignificantBits(), user.getIdLeastSignificantBits(), address);
+    byName.remove(user.getNameSpace(), LongHashIndex.hash(String.valueOf(user.getName())), address);
+    
+    if (user.getSubject() != null) {
+      byIssuerAndSubject.remove(user.getIssuer(), LongHashIndex.hash(user.getSubject()), address);
+    }
+    
+    garbage += CompactUserFormat.length(segment, offset(address));
+  }
+  
+  /**
+   * Reserves the space for a record. Has to be called with the write lock held.
+   *
+   * @return the address of the reserved space or {@link LongHashIndex#EMPTY} if there is no memory left.
+   */
+  private long allocate(final int length) {
+    if (position + length > segmentSize) {
+      if (segments.size() >= maxSegments) {
+        compact();
+        
+        if (position + length > segmentSize && segments.size() >= maxSegments) {
+          return LongHashIndex.EMPTY;
+        }
+      }
+      
+      if (position + length > segmentSize) {
+        segments.add(free.isEmpty() ? ByteBuffer.allocateDirect(segmentSize) : free.pop());
+        position = 0;
+      }
+    }
+    
+    long result = address(segments.size() - 1, position);
+    position += length;
+    
+    return result;
+  }
+  
+  /**
+   * Moves all live records to the front of the segments. Has to be called with the write lock held.
+   *
+   * <p>The records are moved in the order of their addresses, so a record is never written behind its old place and
+   * never overwrites a live record not moved yet. A record is copied via a small buffer since it may overlap its old
+   * place.</p>
+   */
+  private void compact() {
+    if (garbage == 0) {
+      return;
+    }
+    
+    log.info("Compacting off-heap user cache. store={}, users={}", this, byId.size());
+    
+    long[] addresses = byId.values();
+    Arrays.sort(addresses);
+    
+    byId.clear();
+    byName.clear();
+    byIssuerAndSubject.clear();
+    
+    byte[] buffer = new byte[0];
+    int target = -1;
+    position = segmentSize;
+    
+    for (long address : addresses) {
+      ByteBuffer segment = segments.get(segment(address));
+      int offset = offset(address);
+      int length = CompactUserFormat.length(segment, offset);
+      CompactUser user = CompactUserFormat.decode(segment, offset);
+      
+      if (position + length > segmentSize) {
+        target++;
+        position = 0;
+      }
+      
+      if (buffer.length < length) {
+        buffer = new byte[length];
+      }
+      segment.get(offset, buffer, 0, length);
+      segments.get(target).put(position, buffer, 0, length);
+      
+      index(user, address(target, position));
+      position += length;
+    }
+    
+    while (segments.size() > target + 1) {
+      free.push(segments.remove(segments.size() - 1));
+    }
+    
+    garbage = 0;
+  }
+  
+  
+  private static long address(final int segment, final int offset) {
+    return ((long) segment << 32) | (offset & 0xFFFFFFFFL);
+  }
+  
+  private static int segment(final long address) {
+    return (int) (address >>> 32);
+  }
+  
+  private static int offset(final long address) {
+    return (int) address;
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.store.model.role.R2dbcRoleReadService;
+import de.kaiserpfalzedv.commons.users.store.model.role.RoleCatalog;
+import de.kaiserpfalzedv.commons.users.store.model.user.KpUsersRoles;
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+import static org.springframework.data.relational.core.query.Criteria.where;
+import static org.springframework.data.relational.core.query.Query.query;
+
+
+/**
+ * Fills the role catalog and the user cache before the node accepts traffic.
+ *
+ * <p>The users modified within {@code kp-users.cache.prewarm.window} are read newest first in keyset pages of
+ * {@code kp-users.cache.prewarm.page-size} users (by {@code MODIFIED} and {@code ID}, so no page is read twice or
+ * skipped when users change meanwhile). {@code MODIFIED} is set on every change of a user (see
+ * {@link KpUserDetails#modify()}), so these are the recently changed users and not only the recently created ones.
+ * The roles of a page are read with a single query and resolved via the role catalog. While the roles of up to
+ * {@code kp-users.cache.prewarm.concurrency} pages are read, the next page is already fetched.</p>
+ *
+ * <p>The pre-warming runs as a lifecycle bean in an early phase, so it is done before the web server starts and the
+ * node reports ready. It stops after {@code kp-users.cache.prewarm.max-users} users or
+ * {@code kp-users.cache.prewarm.timeout}, the node starts with a partly warmed cache then.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-24
+ */
+@Component
+@ToString(of = {"enabled", "window", "pageSize", "concurrency", "maxUsers", "timeout"})
+@XSlf4j
+public class UserCachePrewarmer implements SmartLifecycle {
+  /** Before the web server (which starts in the last phases). */
+  private static final int PHASE = 0;
+  
+  private final R2dbcEntityTemplate template;
+  private final R2dbcRoleReadService roles;
+  private final UserSnapshotStore store;
+  private final CompactUserCodec codec;
+  
+  private final boolean enabled;
+  private final Duration window;
+  private final int pageSize;
+  private final int concurrency;
+  private final int maxUsers;
+  private final Duration timeout;
+  
+  private volatile boolean running = false;
+  
+  
+  public UserCachePrewarmer(
+      final R2dbcEntityTemplate template,
+      final R2dbcRoleReadService roles,
+      final UserSnapshotStore store,
+      final CompactUserCodec codec,
+      @Value("${kp-users.cache.prewarm.enabled:false}") final boolean enabled,
+      @Value("${kp-users.cache.prewarm.window:P7D}") final Duration window,
+      @Value("${kp-users.cache.prewarm.page-size:1000}") final int pageSize,
+      @Value("${kp-users.cache.prewarm.concurrency:4}") final int concurrency,
+      @Value("${kp-users.cache.prewarm.max-users:100000}") final int maxUsers,
+      @Value("${kp-users.cache.prewarm.timeout:PT2M}") final Duration timeout
+  ) {
+    this.template = template;
+    this.roles = roles;
+    this.store = store;
+    this.codec = codec;
+    this.enabled = enabled;
+    this.window = window;
+    this.pageSize = pageSize;
+    this.concurrency = concurrency;
+    this.maxUsers = maxUsers;
+    this.timeout = timeout;
+  }
+  
+  
+  @Override
+  public void start() {
+    log.entry();
+    
+    running = true;
+    
+    if (!enabled) {
+      log.exit();
+      return;
+    }
+    
+    try {
+      Long count = prewarm().block(timeout);
+      log.info("Pre-warmed user cache. users={}, cached={}", count, store.size());
+    } catch (RuntimeException e) {
+      log.warn("Pre-warming the user cache failed. Starting with the cache as it is. cached={}, error={}",
+          store.size(), e.getMessage());
+    }
+    
+    log.exit();
+  }
+  
+  @Override
+  public void stop() {
+    running = false;
+  }
+  
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+  
+  @Override
+  public int getPhase() {
+    return PHASE;
+  }
+  
+  
+  /**
+   * Reads the role catalog and the recently modified users into the caches.
+   *
+   * @return the number of users read.
+   */
+  public Mono<Long> prewarm() {
+    log.entry();
+    
+    OffsetDateTime since = OffsetDateTime.now(Clock.systemUTC()).minus(window);
+    long pages = Math.max(1L, (maxUsers + pageSize - 1L) / pageSize);
+    
+    Mono<Long> result = roles.refresh()
+        .then(page(since, null)
+            .expand(page -> page.size() < pageSize ? Mono.empty() : page(since, page.get(page.size() - 1)))
+            .take(pages)
+            .flatMap(this::hydrate, concurrency)
+            .doOnNext(user -> store.put(codec.encode(user)))
+            .count()
+        );
+    
+    return log.exit(result);
+  }
+  
+  private Mono<List<KpUserDetails>> page(@NotNull final OffsetDateTime since, @Nullable final KpUserDetails last) {
+    Criteria criteria = where("modified").greaterThanOrEquals(since);
+    
+    if (last != null) {
+      criteria = criteria.and(
+          where("modified").lessThan(last.getModified())
+              .or(where("modified").is(last.getModified()).and("id").lessThan(last.getId()))
+      );
+    }
+    
+    return template.select(KpUserDetails.class)
+        .matching(query(criteria)
+            .sort(Sort.by(Sort.Order.desc("modified"), Sort.Order.desc("id")))
+            .limit(pageSize))
+        .all()
+        .collectList()
+        .filter(page -> !page.isEmpty());
+  }
+  
+  private Flux<KpUserDetails> hydrate(@NotNull final List<KpUserDetails> page) {
+    ArrayList<UUID> ids = new ArrayList<>(page.size());
+    page.forEach(user -> ids.add(user.getId()));
+    
+    return template.select(KpUsersRoles.class)
+        .matching(query(where("USER_ID").in(ids)))
+        .all()
+        .collectMultimap(KpUsersRoles::getUserId, KpUsersRoles::getRoleId)
+        .flatMapMany(assignments -> {
+          RoleCatalog catalog = roles.getCatalog();
+          
+          return Flux.fromIterable(page)
+              .map(user -> user.withAuthorities(
+                  rolesOf(catalog, assignments.getOrDefault(user.getId(), List.of()))
+              ));
+        });
+  }
+  
+  private static List<KpRole> rolesOf(@NotNull final RoleCatalog catalog, @NotNull final Collection<UUID> ids) {
+    ArrayList<KpRole> result = new ArrayList<>(ids.size());
+    ids.forEach(id -> catalog.findById(id).ifPresent(result::add));
+    
+    return result;
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.relational.core.query.Criteria.where;
+import static org.springframework.data.relational.core.query.Query.query;
+
+
+/**
+ * Evicts cached users that have been changed or removed in the database without the cache seeing an event.
+ *
+ * <p>The {@link CachingUserReadService} is only invalidated by events. Events get lost when the broker is down, and
+ * other applications may write the database directly. So every {@code kp-users.cache.revalidation.interval} all users
+ * with a {@code MODIFIED} timestamp since the last run (minus {@code kp-users.cache.revalidation.clock-skew}, the
+ * timestamps come from the clocks of other nodes) are evicted. Removed users leave no trace, so every
+ * {@code kp-users.cache.revalidation.max-age} the ids of all cached users are checked against the database in batches
+ * of {@value #BATCH} and the missing ones are evicted. A changed user is served from the cache for at most the
+ * interval, a removed one for at most the max age.</p>
+ *
+ * <p>The {@link UserCacheSnapshot} uses the same checks after restoring a snapshot. The periodic revalidation is
+ * disabled with an interval of zero.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@Component
+@ToString(of = {"interval", "maxAge", "clockSkew"})
+@XSlf4j
+public class UserCacheRevalidator {
+  private static final Duration TIMEOUT = Duration.ofSeconds(30L);
+  private static final int BATCH = 1000;
+  
+  private final UserSnapshotStore store;
+  private final CachingUserReadService users;
+  private final R2dbcEntityTemplate template;
+  
+  private final Duration interval;
+  private final Duration maxAge;
+  private final Duration clockSkew;
+  
+  /** The start of the last run, changes since then (minus the clock skew) are checked by the next run. */
+  private OffsetDateTime checked;
+  /** The nano time of the last check for removed users. */
+  private long checkedRemoved;
+  
+  private ScheduledExecutorService scheduler;
+  
+  
+  public UserCacheRevalidator(
+      final UserSnapshotStore store,
+      final CachingUserReadService users,
+      final R2dbcEntityTemplate template,
+      @Value("${kp-users.cache.revalidation.interval:PT1M}") final Duration interval,
+      @Value("${kp-users.cache.revalidation.max-age:PT15M}") final Duration maxAge,
+      @Value("${kp-users.cache.revalidation.clock-skew:PT5M}") final Duration clockSkew
+  ) {
+    this.store = store;
+    this.users = users;
+    this.template = template;
+    this.interval = interval;
+    this.maxAge = maxAge;
+    this.clockSkew = clockSkew;
+  }
+  
+  
+  @PostConstruct
+  public void init() {
+    log.entry();
+    
+    if (interval.isZero() || interval.isNegative()) {
+      log.info("Periodic revalidation of the user cache is disabled.");
+      log.exit();
+      return;
+    }
+    
+    checked = OffsetDateTime.now(Clock.systemUTC());
+    checkedRemoved = System.nanoTime();
+    
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread result = new Thread(r, "kp-users-cache-revalidation");
+      result.setDaemon(true);
+      return result;
+    });
+    scheduler.scheduleWithFixedDelay(this::revalidateSafely, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    
+    log.info("Started periodic revalidation of the user cache. revalidator={}", this);
+    log.exit();
+  }
+  
+  @PreDestroy
+  public void close() {
+    log.entry();
+    
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+    
+    log.exit();
+  }
+  
+  private void revalidateSafely() {
+    try {
+      revalidate();
+    } catch (RuntimeException e) {
+      log.warn("Could not revalidate the user cache. error={}", e.getMessage());
+    }
+  }
+  
+  
+  /**
+   * Evicts the users changed since the last run and, once per max age, the users removed from the database.
+   *
+   * @return the number of evicted users.
+   */
+  public long revalidate() {
+    log.entry();
+    
+    OffsetDateTime now = OffsetDateTime.now(Clock.systemUTC());
+    long result = evictChanged(checked.minus(clockSkew));
+    checked = now;
+    
+    long start = System.nanoTime();
+    if (start - checkedRemoved >= maxAge.toNanos()) {
+      result += evictRemoved();
+      checkedRemoved = start;
+    }
+    
+    if (result > 0) {
+      log.info("Revalidated user cache. evicted={}", result);
+    }
+    return log.exit(result);
+  }
+  
+  /**
+   * Evicts all users changed in the database since the given time.
+   *
+   * @param since the time since when changes may be missing in the cache.
+   * @return the number of users changed.
+   */
+  public long evictChanged(@NotNull final OffsetDateTime since) {
+    log.entry(since);
+    
+    Long result = template.select(KpUserDetails.class)
+        .matching(query(where("modified").greaterThanOrEquals(since)).columns("id"))
+        .all()
+        .doOnNext(user -> users.evict(user.getId()))
+        .count()
+        .block(TIMEOUT);
+    
+    return log.exit(result != null ? result : 0L);
+  }
+  
+  /**
+   * Evicts all cached users that are no longer in the database.
+   *
+   * @return the number of evicted users.
+   */
+  public long evictRemoved() {
+    log.entry();
+    
+    ArrayList<UUID> cached = new ArrayList<>(store.size());
+    store.forEach(user -> cached.add(user.getId()));
+    
+    Long result = Flux.fromIterable(cached)
+        .buffer(BATCH)
+        .concatMap(this::missing)
+        .doOnNext(users::evict)
+        .count()
+        .block(TIMEOUT);
+    
+    return log.exit(result != null ? result : 0L);
+  }
+  
+  /**
+   * @param ids the ids of cached users.
+   * @return the ids of the users not in the database.
+   */
+  private Flux<UUID> missing(@NotNull final List<UUID> ids) {
+    return template.select(KpUserDetails.class)
+        .matching(query(where("id").in(ids)).columns("id"))
+        .all()
+        .map(KpUserDetails::getId)
+        .collect(Collectors.toSet())
+        .flatMapIterable(existing -> ids.stream().filter(id -> !existing.contains(id)).toList());
+  }
+}
@@ -0,0 +1,467 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
+import de.kaiserpfalzedv.commons.users.store.model.role.R2dbcRoleReadService;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Writes the user cache and the role catalog to a local file and restores them at startup.
+ *
+ * <p>The snapshot is written every {@code kp-users.cache.snapshot.interval} and when the node shuts down. It is
+ * written into a temporary file which then replaces the old snapshot, so a crash never leaves a broken snapshot. At
+ * startup the snapshot is memory-mapped and the user records are read directly from the mapping, they have the same
+ * {@link CompactUserFormat} as in the off-heap store.</p>
+ *
+ * <p>The snapshot contains the high-water mark of the {@link CachingUserReadService}, the timestamp of the newest
+ * user event seen. A snapshot whose mark is older than {@code kp-users.cache.snapshot.max-age} is not restored, since
+ * the messaging layer won't deliver all events missed since then. Newer events are delivered by the messaging layer
+ * after the restart and evict the changed users as usual.</p>
+ *
+ * <p>Events may have been lost while the node was down, and the mark comes from the clocks of other nodes. So after a
+ * restore the role catalog is read again and all users with a {@code MODIFIED} timestamp after the older of the mark
+ * and the time the snapshot has been written (minus {@code kp-users.cache.snapshot.clock-skew}) are evicted. Users
+ * are removed from the database without a trace, so the ids of all cached users are checked against the database and
+ * the missing ones are evicted too (see {@link UserCacheRevalidator}). If that fails, the restored users are
+ * dropped.</p>
+ *
+ * <p>The records are copied out of the store before the file is written, so the store is only locked for the copy
+ * and not for the disk I/O.</p>
+ *
+ * <p>Snapshots are disabled unless {@code kp-users.cache.snapshot.file} is set.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-24
+ */
+@Component
+@ToString(of = {"file", "interval", "maxAge", "clockSkew"})
+@XSlf4j
+public class UserCacheSnapshot {
+  private static final int MAGIC = 0x4B505553; // "KPUS"
+  private static final int VERSION = 1;
+  private static final int NULL_STRING = -1;
+  private static final int WINDOW = 1 << 28;
+  private static final Duration REVALIDATION_TIMEOUT = Duration.ofSeconds(30L);
+  
+  private final UserSnapshotStore store;
+  private final CompactUserCodec codec;
+  private final R2dbcRoleReadService roles;
+  private final CachingUserReadService users;
+  private final UserCacheRevalidator revalidator;
+  
+  @Nullable
+  private final Path file;
+  private final Duration interval;
+  private final Duration maxAge;
+  private final Duration clockSkew;
+  
+  private ScheduledExecutorService scheduler;
+  
+  
+  public UserCacheSnapshot(
+      final UserSnapshotStore store,
+      final CompactUserCodec codec,
+      final R2dbcRoleReadService roles,
+      final CachingUserReadService users,
+      final UserCacheRevalidator revalidator,
+      @Value("${kp-users.cache.snapshot.file:}") final String file,
+      @Value("${kp-users.cache.snapshot.interval:PT5M}") final Duration interval,
+      @Value("${kp-users.cache.snapshot.max-age:PT1H}") final Duration maxAge,
+      @Value("${kp-users.cache.snapshot.clock-skew:PT5M}") final Duration clockSkew
+  ) {
+    this.store = store;
+    this.codec = codec;
+    this.roles = roles;
+    this.users = users;
+    this.revalidator = revalidator;
+    this.file = file.isBlank() ? null : Path.of(file);
+    this.interval = interval;
+    this.maxAge = maxAge;
+    this.clockSkew = clockSkew;
+  }
+  
+  
+  @PostConstruct
+  public void init() {
+    log.entry();
+    
+    if (file == null) {
+      log.info("User cache snapshots are disabled.");
+      log.exit();
+      return;
+    }
+    
+    try {
+      OffsetDateTime since = restore();
+      
+      if (since != null) {
+        revalidate(since);
+      }
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not restore user cache snapshot. Starting with an empty cache. file={}, error={}",
+          file, e.getMessage());
+      store.clear();
+    }
+    
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread result = new Thread(r, "kp-users-cache-snapshot");
+      result.setDaemon(true);
+      return result;
+    });
+    scheduler.scheduleWithFixedDelay(this::writeSafely, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    
+    log.exit();
+  }
+  
+  @PreDestroy
+  public void close() {
+    log.entry();
+    
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      writeSafely();
+    }
+    
+    log.exit();
+  }
+  
+  private void writeSafely() {
+    try {
+      write();
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not write user cache snapshot. file={}, error={}", file, e.getMessage());
+    }
+  }
+  
+  
+  /**
+   * Writes the current cache into the snapshot file.
+   *
+   * @throws IOException if the file can't be written.
+   */
+  public void write() throws IOException {
+    log.entry(file);
+    
+    // the mark is taken first, every event after it may or may not be contained in the snapshot.
+    long highWater = users.getHighWater();
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    
+    Dictionary<String> strings = codec.getStrings();
+    int stringCount = strings.size();
+    Dictionary<UUID> roleIds = codec.getRoleIds();
+    int roleIdCount = roleIds.size();
+    
+    ArrayList<byte[]> records = new ArrayList<>(store.size());
+    store.forEach(user -> {
+      // codes added after the dictionaries have been written can't be restored.
+      if (isWritten(user, stringCount, roleIdCount)) {
+        records.add(CompactUserFormat.encode(user));
+      }
+    });
+    
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(CompactUser.toEpochNanos(OffsetDateTime.now(Clock.systemUTC())));
+      out.writeLong(highWater);
+      
+      out.writeInt(stringCount);
+      for (int i = 0; i < stringCount; i++) {
+        writeString(out, strings.value(i));
+      }
+      
+      out.writeInt(roleIdCount);
+      for (int i = 0; i < roleIdCount; i++) {
+        writeUuid(out, roleIds.value(i));
+      }
+      
+      ArrayList<KpRole> catalog = new ArrayList<>(roles.getCatalog().findAll());
+      out.writeInt(catalog.size());
+      for (KpRole role : catalog) {
+        writeUuid(out, role.getId());
+        writeString(out, role.getNameSpace());
+        writeString(out, role.getName());
+        out.writeLong(CompactUser.toEpochNanos(role.getCreated()));
+        out.writeLong(CompactUser.toEpochNanos(role.getModified()));
+        out.writeLong(CompactUser.toEpochNanos(role.getDeleted()));
+      }
+      
+      // users last, they are read until the end of the file.
+      for (byte[] record : records) {
+        out.write(record);
+      }
+    }
+    
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    
+    log.info("Wrote user cache snapshot. file={}, users={}", file, records.size());
+    log.exit();
+  }
+  
+  private static boolean isWritten(@NotNull final CompactUser user, final int strings, final int roleIds) {
+    if (user.getNameSpace() >= strings || user.getIssuer() >= strings) {
+      return false;
+    }
+    
+    for (int role : user.getRoles()) {
+      if (role >= roleIds) {
+        return false;
+      }
+    }
+    
+    return true;
+  }
+  
+  private static void writeString(@NotNull final DataOutputStream out, @Nullable final String value)
+      throws IOException {
+    if (value == null) {
+      out.writeInt(NULL_STRING);
+      return;
+    }
+    
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+  
+  private static void writeUuid(@NotNull final DataOutputStream out, @NotNull final UUID value) throws IOException {
+    out.writeLong(value.getMostSignificantBits());
+    out.writeLong(value.getLeastSignificantBits());
+  }
+  
+  
+  /**
+   * Loads the snapshot file into the cache.
+   *
+   * @return the time since when changes may be missing in the restored cache, null if nothing has been restored.
+   * @throws IOException if the file can't be read.
+   * @see #revalidate(OffsetDateTime)
+   */
+  @Nullable
+  public OffsetDateTime restore() throws IOException {
+    log.entry(file);
+    
+    if (!Files.isReadable(file)) {
+      log.info("No user cache snapshot to restore. file={}", file);
+      return log.exit(null);
+    }
+    
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      Reader in = new Reader(channel);
+      
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Not a user cache snapshot of version " + VERSION);
+      }
+      
+      long written = in.readLong();
+      long highWater = in.readLong();
+      OffsetDateTime mark = CompactUser.toOffsetDateTime(highWater != CompactUser.NONE ? highWater : written);
+      if (mark.plus(maxAge).isBefore(OffsetDateTime.now(Clock.systemUTC()))) {
+        log.info("User cache snapshot is too old. file={}, mark={}, maxAge={}", file, mark, maxAge);
+        return log.exit(null);
+      }
+      
+      int[] stringCodes = new int[in.readInt()];
+      for (int i = 0; i < stringCodes.length; i++) {
+        stringCodes[i] = codec.getStrings().code(in.readString());
+      }
+      
+      int[] roleCodes = new int[in.readInt()];
+      for (int i = 0; i < roleCodes.length; i++) {
+        roleCodes[i] = codec.getRoleIds().code(in.readUuid());
+      }
+      
+      int roleCount = in.readInt();
+      ArrayList<KpRole> catalog = new ArrayList<>(roleCount);
+      for (int i = 0; i < roleCount; i++) {
+        catalog.add(KpRole.builder()
+            .id(in.readUuid())
+            .nameSpace(in.readString())
+            .name(in.readString())
+            .created(CompactUser.toOffsetDateTime(in.readLong()))
+            .modified(CompactUser.toOffsetDateTime(in.readLong()))
+            .deleted(CompactUser.toOffsetDateTime(in.readLong()))
+            .build());
+      }
+      roles.restore(catalog);
+      
+      long count = 0;
+      while (in.hasRemaining()) {
+        ByteBuffer buffer = in.record();
+        store.put(remap(CompactUserFormat.decode(buffer, buffer.position()), stringCodes, roleCodes));
+        count++;
+      }
+      
+      users.raiseHighWater(highWater);
+      
+      log.info("Restored user cache snapshot. file={}, users={}, roles={}, mark={}", file, count, roleCount, mark);
+      
+      OffsetDateTime writtenAt = CompactUser.toOffsetDateTime(written);
+      return log.exit((writtenAt.isBefore(mark) ? writtenAt : mark).minus(clockSkew));
+    }
+  }
+  
+  /**
+   * Reads the role catalog again and evicts the users changed in the database since the given time and the users no
+   * longer in the database.
+   *
+   * @param since the time since when changes may be missing in the cache.
+   * @return the number of evicted users.
+   */
+  public long revalidate(@NotNull final OffsetDateTime since) {
+    log.entry(since);
+    
+    roles.refresh().block(REVALIDATION_TIMEOUT);
+    
+    long changed = revalidator.evictChanged(since);
+    long removed = revalidator.evictRemoved();
+    
+    log.info("Revalidated restored user cache. since={}, changed={}, removed={}", since, changed, removed);
+    return log.exit(changed + removed);
+  }
+  
+  private static CompactUser remap(
+      @NotNull final CompactUser user,
+      @NotNull final int[] strings,
+      @NotNull final int[] roleIds
+  ) {
+    int[] roles = user.getRoles().clone();
+    for (int i = 0; i < roles.length; i++) {
+      roles[i] = roleIds[roles[i]];
+    }
+    
+    return user.toBuilder()
+        .nameSpace(remap(user.getNameSpace(), strings))
+        .issuer(remap(user.getIssuer(), strings))
+        .roles(roles)
+        .build();
+  }
+  
+  private static int remap(final int code, @NotNull final int[] codes) {
+    return code != Dictionary.NONE ? codes[code] : Dictionary.NONE;
+  }
+  
+  
+  /**
+   * Reads the snapshot through a window of the file mapped into memory. The window is moved when a value doesn't fit
+   * into it, so files larger than a single mapping can be read.
+   */
+  private static final class Reader {
+    private final FileChannel channel;
+    private final long size;
+    
+    private MappedByteBuffer window;
+    private long start;
+    
+    Reader(@NotNull final FileChannel channel) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+      map(0);
+    }
+    
+    private void map(final long position) throws IOException {
+      start = position;
+      window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+    }
+    
+    private ByteBuffer require(final int length) throws IOException {
+      if (window.remaining() < length) {
+        long position = start + window.position();
+        
+        if (position + length > size) {
+          throw new EOFException("User cache snapshot is truncated.");
+        }
+        
+        map(position);
+      }
+      
+      return window;
+    }
+    
+    boolean hasRemaining() {
+      return start + window.position() < size;
+    }
+    
+    int readInt() throws IOException {
+      return require(Integer.BYTES).getInt();
+    }
+    
+    long readLong() throws IOException {
+      return require(Long.BYTES).getLong();
+    }
+    
+    UUID readUuid() throws IOException {
+      return new UUID(readLong(), readLong());
+    }
+    
+    @Nullable
+    String readString() throws IOException {
+      int length = readInt();
+      
+      if (length == NULL_STRING) {
+        return null;
+      }
+      
+      byte[] result = new byte[length];
+      require(length).get(result);
+      return new String(result, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * @return the window positioned at the start of the next user record. The record is skipped.
+     */
+    ByteBuffer record() throws IOException {
+      int length = CompactUserFormat.length(require(Integer.BYTES), window.position());
+      ByteBuffer result = require(length).duplicate();
+      
+      window.position(window.position() + length);
+      return result;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+
+/**
+ * The storage of the cached users in their {@link CompactUser} form.
+ *
+ * <p>Name spaces and issuers are passed as codes of the {@link CompactUserCodec#getStrings() string dictionary}.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-23
+ */
+public interface UserSnapshotStore {
+  @Nullable
+  CompactUser get(@NotNull UUID id);
+  
+  @Nullable
+  CompactUser getByName(int nameSpace, @NotNull String name);
+  
+  @Nullable
+  CompactUser getByIssuerAndSubject(int issuer, @NotNull String subject);
+  
+  /**
+   * Stores the user. An existing user with the same id is replaced.
+   *
+   * @param user the user to store.
+   * @return true if the user has been stored, false if the store is full.
+   */
+  boolean put(@NotNull CompactUser user);
+  
+  void remove(@NotNull UUID id);
+  
+  void clear();
+  
+  /**
+   * Calls the action for every stored user. Changes during the iteration may or may not be seen.
+   *
+   * @param action the action to call.
+   */
+  void forEach(@NotNull Consumer<CompactUser> action);
+  
+  int size();
+}
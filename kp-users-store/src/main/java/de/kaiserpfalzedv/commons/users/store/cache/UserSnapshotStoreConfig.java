@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+
+/**
+ * Selects the {@link UserSnapshotStore} of the user cache.
+ *
+ * <p>{@code kp-users.cache.users.store} is either {@code heap} (default) or {@code off-heap}. The off-heap store is
+ * meant for caches with millions of users, where a heap store would lead to long garbage collection pauses.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-24
+ */
+@Configuration
+@ToString
+@XSlf4j
+public class UserSnapshotStoreConfig {
+  @Bean
+  public UserSnapshotStore userSnapshotStore(
+      @Value("${kp-users.cache.users.store:heap}") final String type,
+      @Value("${kp-users.cache.users.max-size:1000000}") final int maxSize,
+      @Value("${kp-users.cache.users.off-heap.segment-size:67108864}") final int segmentSize,
+      @Value("${kp-users.cache.users.off-heap.max-bytes:1073741824}") final long maxBytes
+  ) {
+    log.entry(type, maxSize, segmentSize, maxBytes);
+    
+    UserSnapshotStore result = switch (type) {
+      case "heap" -> new HeapUserSnapshotStore(maxSize);
+      case "off-heap" -> new OffHeapUserSnapshotStore(maxSize, segmentSize, maxBytes);
+      default -> throw new IllegalArgumentException("Unknown user cache store: " + type);
+    };
+    
+    log.info("Created user cache store. store={}", result);
+    return log.exit(result);
+  }
+}
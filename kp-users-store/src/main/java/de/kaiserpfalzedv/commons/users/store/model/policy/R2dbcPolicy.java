@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.model.policy;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.policy.Policy;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+
+/**
+ * The database representation of a managed ABAC policy.
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-22
+ */
+@Table("POLICIES")
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+@Getter
+@ToString
+@EqualsAndHashCode(of = {"id"})
+public class R2dbcPolicy implements Policy {
+  @Id
+  @Column("ID")
+  @Builder.Default
+  private UUID id = UUID.randomUUID();
+  
+  @Column("CREATED")
+  @Builder.Default
+  private OffsetDateTime created = OffsetDateTime.now(Clock.systemUTC());
+  
+  @Column("MODIFIED")
+  @Builder.Default
+  private OffsetDateTime modified = OffsetDateTime.now(Clock.systemUTC());
+  
+  @Column("DELETED")
+  private OffsetDateTime deleted;
+  
+  @Column("ROLE_NAME")
+  private String role;
+  
+  @Column("OBJECT_NAME")
+  private String object;
+  
+  @Column("ACTIONS")
+  private String actions;
+  
+  
+  /**
+   * @param policy the policy to copy.
+   * @return the policy as database entity.
+   */
+  public static R2dbcPolicy of(@NotNull final Policy policy) {
+    if (policy instanceof R2dbcPolicy result) {
+      return result;
+    }
+    
+    return R2dbcPolicy.builder()
+        .id(policy.getId() != null ? policy.getId() : UUID.randomUUID())
+        .created(policy.getCreated() != null ? policy.getCreated() : OffsetDateTime.now(Clock.systemUTC()))
+        .modified(policy.getModified() != null ? policy.getModified() : OffsetDateTime.now(Clock.systemUTC()))
+        .deleted(policy.getDeleted())
+        .role(policy.getRole())
+        .object(policy.getObject())
+        .actions(policy.getActions())
+        .build();
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.model.policy;
+
+
+import de.kaiserpfalzedv.commons.users.domain.services.PolicyReadService;
+import io.micrometer.core.annotation.Counted;
+import io.micrometer.core.annotation.Timed;
+import jakarta.inject.Inject;
+import jakarta.validation.constraints.NotNull;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-22
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Inject))
+@ToString(onlyExplicitlyIncluded = true)
+@XSlf4j
+public class R2dbcPolicyReadService implements PolicyReadService {
+  private final R2dbcPolicyRepository repository;
+  
+  
+  @Timed
+  @Counted
+  @Override
+  public Mono<R2dbcPolicy> retrieve(@NotNull final UUID id) {
+    log.entry(id);
+    return log.exit(repository.findById(id));
+  }
+  
+  /**
+   * @return all policies that are not deleted.
+   */
+  @Timed
+  @Counted
+  @Override
+  public Flux<R2dbcPolicy> retrieveAll() {
+    log.entry();
+    return log.exit(repository.findByDeletedIsNull());
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.model.policy;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.policy.KpPolicy;
+import de.kaiserpfalzedv.commons.users.domain.model.policy.Policy;
+import de.kaiserpfalzedv.commons.users.domain.model.policy.PolicyNotFoundException;
+import de.kaiserpfalzedv.commons.users.domain.model.policy.events.PolicyChangedEvent;
+import de.kaiserpfalzedv.commons.users.domain.services.PolicyWriteService;
+import io.micrometer.core.annotation.Counted;
+import io.micrometer.core.annotation.Timed;
+import jakarta.inject.Inject;
+import jakarta.validation.constraints.NotNull;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+
+/**
+ * Changes the managed ABAC policies. Every change is published as {@link PolicyChangedEvent}, so the running
+ * enforcers (locally and via messaging on other nodes) apply it without a reload. Removed policies are only marked as
+ * deleted and can't be changed any more.
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-22
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Inject))
+@ToString(onlyExplicitlyIncluded = true)
+@XSlf4j
+public class R2dbcPolicyWriteService implements PolicyWriteService {
+  private final R2dbcPolicyRepository repository;
+  private final R2dbcEntityTemplate template;
+  private final ApplicationEventPublisher bus;
+  
+  @Value("${spring.application.name:kp-users}")
+  private String application = "kp-users";
+  
+  
+  @Timed
+  @Counted
+  @Override
+  public Mono<R2dbcPolicy> create(@NotNull final Policy policy) {
+    log.entry(policy);
+    
+    Mono<R2dbcPolicy> result = template.insert(R2dbcPolicy.of(policy))
+        .doOnSuccess(p -> {
+          log.info("Created policy. policy={}", p);
+          publish(p, PolicyChangedEvent.Change.CREATED);
+        });
+    
+    return log.exit(result);
+  }
+  
+  @Timed
+  @Counted
+  @Override
+  public Mono<R2dbcPolicy> update(@NotNull final Policy policy) {
+    log.entry(policy);
+    
+    Mono<R2dbcPolicy> result = repository.findByIdAndDeletedIsNull(policy.getId())
+        .switchIfEmpty(Mono.error(new PolicyNotFoundException(policy.getId())))
+        .map(p -> p.toBuilder()
+            .role(policy.getRole())
+            .object(policy.getObject())
+            .actions(policy.getActions())
+            .modified(OffsetDateTime.now(Clock.systemUTC()))
+            .build())
+        .flatMap(repository::save)
+        .doOnSuccess(p -> {
+          log.info("Updated policy. policy={}", p);
+          publish(p, PolicyChangedEvent.Change.UPDATED);
+        });
+    
+    return log.exit(result);
+  }
+  
+  @Timed
+  @Counted
+  @Override
+  public Mono<Void> remove(@NotNull final UUID id) {
+    log.entry(id);
+    
+    Mono<Void> result = repository.findByIdAndDeletedIsNull(id)
+        .switchIfEmpty(Mono.error(new PolicyNotFoundException(id)))
+        .map(p -> {
+          OffsetDateTime now = OffsetDateTime.now(Clock.systemUTC());
+          
+          return p.toBuilder()
+              .modified(now)
+              .deleted(now)
+              .build();
+        })
+        .flatMap(repository::save)
+        .doOnSuccess(p -> {
+          log.info("Removed policy. id={}", id);
+          publish(p, PolicyChangedEvent.Change.REMOVED);
+        })
+        .doOnError(e -> log.error("Error while removing policy. id={}", id))
+        .then();
+    
+    return log.exit(result);
+  }
+  
+  
+  private void publish(@NotNull final R2dbcPolicy policy, @NotNull final PolicyChangedEvent.Change change) {
+    bus.publishEvent(PolicyChangedEvent.builder()
+        .application(application)
+        .policy(KpPolicy.of(policy))
+        .change(change)
+        .build());
+  }
+}
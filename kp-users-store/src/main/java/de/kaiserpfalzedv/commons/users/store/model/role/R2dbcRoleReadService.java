@@ -19,23 +19,48 @@ package de.kaiserpfalzedv.commons.users.store.model.role;
 
 
 import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
+import de.kaiserpfalzedv.commons.users.domain.model.role.Role;
+import de.kaiserpfalzedv.commons.users.domain.model.role.RoleToImpl;
+import de.kaiserpfalzedv.commons.users.domain.model.role.events.RoleCreatedEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.role.events.RoleRemovedEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.role.events.RoleUpdateNameEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.role.events.RoleUpdateNameSpaceEvent;
 import de.kaiserpfalzedv.commons.users.domain.services.RoleReadService;
 import io.micrometer.core.annotation.Counted;
 import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.extern.slf4j.XSlf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 
 /**
+ * Reads roles from the in-memory {@link RoleCatalog} and falls back to the database only while the catalog is not
+ * loaded or a role is unknown.
+ *
+ * <p>The catalog is loaded at startup and kept current by the role events. Lookups read the current snapshot from an
+ * {@link AtomicReference} without any locking; changes replace the snapshot (copy-on-write).</p>
+ *
+ * <p>While the catalog is (re-)loaded, the changes by role events are recorded too. The loaded catalog is only
+ * installed with these changes applied on top, so an event received during the load is not overwritten by the older
+ * state read from the database.</p>
+ *
  * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
  * @since 2025-05-11
  */
@@ -45,6 +70,89 @@ import java.util.UUID;
 @XSlf4j
 public class R2dbcRoleReadService implements RoleReadService {
   private final R2dbcRoleRepository repository;
+  private final RoleToImpl toImpl;
+  
+  /** The current role catalog snapshot. */
+  @ToString.Include
+  private final AtomicReference<RoleCatalog> catalog = new AtomicReference<>(RoleCatalog.EMPTY);
+  
+  /** The changes of the currently running loads. */
+  private final CopyOnWriteArrayList<Queue<UnaryOperator<RoleCatalog>>> loads = new CopyOnWriteArrayList<>();
+  
+  
+  @PostConstruct
+  public void init() {
+    log.entry();
+    
+    refresh().subscribe(
+        c -> log.info("Loaded role catalog. roles={}", c.size()),
+        e -> log.warn("Could not load role catalog. Reading roles from database. error={}", e.getMessage())
+    );
+    
+    log.exit();
+  }
+  
+  /**
+   * Reloads the complete catalog from the database and replaces the current snapshot. Changes received while loading
+   * are applied to the loaded catalog.
+   *
+   * @return the newly loaded catalog.
+   */
+  public Mono<RoleCatalog> refresh() {
+    log.entry();
+    
+    Mono<RoleCatalog> result = Mono.defer(() -> {
+      Queue<UnaryOperator<RoleCatalog>> changes = new ConcurrentLinkedQueue<>();
+      loads.add(changes);
+      
+      return repository.findAll()
+          .collectList()
+          .map(roles -> catalog.updateAndGet(c -> {
+            RoleCatalog loaded = RoleCatalog.of(roles);
+            
+            for (UnaryOperator<RoleCatalog> change : changes) {
+              loaded = change.apply(loaded);
+            }
+            
+            return loaded;
+          }))
+          .doFinally(signal -> loads.remove(changes));
+    });
+    
+    return log.exit(result);
+  }
+  
+  /**
+   * Adds roles known from a previous run (e.g. a cache snapshot) to a catalog that is not loaded yet. A loaded catalog
+   * is left alone, the database is authoritative.
+   *
+   * @param roles the roles to add.
+   */
+  public void restore(@NotNull final Collection<KpRole> roles) {
+    log.entry(roles.size());
+    
+    catalog.updateAndGet(c -> {
+      RoleCatalog result = c;
+      
+      if (!c.isLoaded()) {
+        for (KpRole role : roles) {
+          result = result.with(role);
+        }
+      }
+      
+      return result;
+    });
+    
+    log.exit();
+  }
+  
+  /**
+   * @return the current catalog snapshot.
+   */
+  public RoleCatalog getCatalog() {
+    return catalog.get();
+  }
+  
   
   @Override
   @Counted
@@ -52,13 +160,23 @@ public class R2dbcRoleReadService implements RoleReadService {
   public Mono<KpRole> retrieve(@NotNull final UUID id) {
     log.entry(id);
     
-    return log.exit(repository.findById(id));
+    Optional<KpRole> cached = catalog.get().findById(id);
+    if (cached.isPresent()) {
+      return log.exit(Mono.just(cached.get()));
+    }
+    
+    return log.exit(repository.findById(id).doOnNext(this::remember));
   }
   
   @Override
   public Flux<KpRole> retrieveByName(@NotNull String name) {
     log.entry(name);
     
+    RoleCatalog current = catalog.get();
+    if (current.isLoaded()) {
+      return log.exit(Flux.fromIterable(current.findByName(name)));
+    }
+    
     return log.exit(repository.findByName(name));
   }
   
@@ -68,6 +186,11 @@ public class R2dbcRoleReadService implements RoleReadService {
   public Flux<KpRole> retrieveAll() {
     log.entry();
     
+    RoleCatalog current = catalog.get();
+    if (current.isLoaded()) {
+      return log.exit(Flux.fromIterable(current.findAll()));
+    }
+    
     return log.exit(repository.findAll());
   }
   
@@ -77,6 +200,72 @@ public class R2dbcRoleReadService implements RoleReadService {
   public Flux<KpRole> retrieveAllFromNamespace(@NotBlank final String namespace) {
     log.entry(namespace);
     
+    RoleCatalog current = catalog.get();
+    if (current.isLoaded()) {
+      return log.exit(Flux.fromIterable(current.findByNameSpace(namespace)));
+    }
+    
     return log.exit(repository.findByNameSpace(namespace));
   }
+  
+  
+  @EventListener
+  public void event(@NotNull final RoleCreatedEvent event) {
+    log.entry(event);
+    
+    remember(event.getRole());
+    
+    log.exit();
+  }
+  
+  @EventListener
+  public void event(@NotNull final RoleUpdateNameEvent event) {
+    log.entry(event);
+    
+    remember(event.getRole());
+    
+    log.exit();
+  }
+  
+  @EventListener
+  public void event(@NotNull final RoleUpdateNameSpaceEvent event) {
+    log.entry(event);
+    
+    remember(event.getRole());
+    
+    log.exit();
+  }
+  
+  @EventListener
+  public void event(@NotNull final RoleRemovedEvent event) {
+    log.entry(event);
+    
+    // locally removed roles are published with the role id as event id and without role data.
+    UUID id = event.getRole() != null ? event.getRole().getId() : event.getId();
+    change(c -> c.without(id));
+    
+    log.exit();
+  }
+  
+  private void remember(final Role role) {
+    log.entry(role);
+    
+    if (role != null && role.getId() != null) {
+      KpRole data = role instanceof KpRole kpRole ? kpRole : toImpl.apply(role);
+      change(c -> c.with(data));
+    }
+    
+    log.exit();
+  }
+  
+  /**
+   * Applies a change to the current catalog and records it for the running loads. It is recorded first, so a load
+   * finishing in between contains the change. Applying a change twice does no harm.
+   *
+   * @param change the change to apply.
+   */
+  private void change(@NotNull final UnaryOperator<RoleCatalog> change) {
+    loads.forEach(changes -> changes.add(change));
+    catalog.updateAndGet(change);
+  }
 }
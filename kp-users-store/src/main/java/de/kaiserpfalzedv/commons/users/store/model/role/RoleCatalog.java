@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2025. Roland T. Lichti, Kaiserpfalz EDV-Service.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package de.kaiserpfalzedv.commons.users.store.model.role;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.*;
+
+
+/**
+ * An immutable snapshot of all roles known to this node.
+ *
+ * <p>The catalog is indexed by id, name and namespace. Changes never modify an existing catalog but return a new one
+ * (copy-on-write), so a catalog can be read by any number of threads without locking. The roles table is small and
+ * rarely changes, so copying the indexes on every change is cheap compared to a database round trip per lookup.</p>
+ *
+ * <p>A catalog is {@link #isLoaded() loaded} when it has been created from the full roles table. Only a loaded
+ * catalog may answer queries by name or namespace, since a partial catalog can't know about roles it has never
+ * seen.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-21
+ */
+@Getter
+@ToString(of = {"loaded"})
+@EqualsAndHashCode(of = {"loaded", "byId"})
+public final class RoleCatalog {
+  /** The catalog before the roles table has been read. */
+  public static final RoleCatalog EMPTY = new RoleCatalog(false, Map.of());
+
+  /** true if the catalog has been created from the full roles table. */
+  private final boolean loaded;
+
+  @Getter(AccessLevel.NONE)
+  private final Map<UUID, KpRole> byId;
+  @Getter(AccessLevel.NONE)
+  private final Map<String, List<KpRole>> byName;
+  @Getter(AccessLevel.NONE)
+  private final Map<String, List<KpRole>> byNameSpace;
+
+
+  private RoleCatalog(final boolean loaded, @NotNull final Map<UUID, KpRole> byId) {
+    this.loaded = loaded;
+    this.byId = Map.copyOf(byId);
+
+    HashMap<String, List<KpRole>> names = new HashMap<>();
+    HashMap<String, List<KpRole>> nameSpaces = new HashMap<>();
+
+    this.byId.values().forEach(role -> {
+      names.computeIfAbsent(role.getName(), k -> new ArrayList<>()).add(role);
+      nameSpaces.computeIfAbsent(role.getNameSpace(), k -> new ArrayList<>()).add(role);
+    });
+
+    this.byName = freeze(names);
+    this.byNameSpace = freeze(nameSpaces);
+  }
+
+  private static Map<String, List<KpRole>> freeze(@NotNull final Map<String, List<KpRole>> index) {
+    HashMap<String, List<KpRole>> result = new HashMap<>(index.size());
+
+    index.forEach((key, roles) -> {
+      if (key != null) {
+        result.put(key, List.copyOf(roles));
+      }
+    });
+
+    return Map.copyOf(result);
+  }
+
+
+  /**
+   * Creates a loaded catalog from the full list of roles.
+   *
+   * @param roles all roles of the roles table.
+   * @return the loaded catalog.
+   */
+  public static RoleCatalog of(@NotNull final Collection<? extends KpRole> roles) {
+    HashMap<UUID, KpRole> index = new HashMap<>(roles.size());
+    roles.forEach(role -> index.put(role.getId(), role));
+
+    return new RoleCatalog(true, index);
+  }
+
+  /**
+   * Returns a catalog containing the given role. An existing role with the same id is replaced.
+   *
+   * @param role the role to add or replace.
+   * @return the new catalog.
+   */
+  public RoleCatalog with(@NotNull final KpRole role) {
+    if (byId.get(role.getId()) == role) {
+      return this;
+    }
+
+    HashMap<UUID, KpRole> index = new HashMap<>(byId);
+    index.put(role.getId(), role);
+
+    return new RoleCatalog(loaded, index);
+  }
+
+  /**
+   * Returns a catalog without the role with the given id.
+   *
+   * @param id the id of the role to remove.
+   * @return the new catalog.
+   */
+  public RoleCatalog without(@Nullable final UUID id) {
+    if (id == null || !byId.containsKey(id)) {
+      return this;
+    }
+
+    HashMap<UUID, KpRole> index = new HashMap<>(byId);
+    index.remove(id);
+
+    return new RoleCatalog(loaded, index);
+  }
+
+
+  public Optional<KpRole> findById(@Nullable final UUID id) {
+    return id != null ? Optional.ofNullable(byId.get(id)) : Optional.empty();
+  }
+
+  public List<KpRole> findByName(@Nullable final String name) {
+    return name != null ? byName.getOrDefault(name, List.of()) : List.of();
+  }
+
+  public List<KpRole> findByNameSpace(@Nullable final String nameSpace) {
+    return nameSpace != null ? byNameSpace.getOrDefault(nameSpace, List.of()) : List.of();
+  }
+
+  public Collection<KpRole> findAll() {
+    return byId.values();
+  }
+
+  public int size() {
+    return byId.size();
+  }
+}
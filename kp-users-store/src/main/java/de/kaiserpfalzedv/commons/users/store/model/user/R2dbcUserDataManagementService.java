@@ -71,7 +71,7 @@ public class R2dbcUserDataManagementService extends R2dbcAbstractManagementServi
     Mono<User> result = repository.findById(id)
         .switchIfEmpty(Mono.error(new UserNotFoundException(id)))
         .onErrorMap(UserNotFoundException.class, log::throwing)
-        .map(u -> ((KpUserDetails)u).toBuilder().issuer(issuer).subject(sub).build())
+        .map(u -> ((KpUserDetails)u).modify().issuer(issuer).subject(sub).build())
         .publishOn(Schedulers.boundedElastic())
         .mapNotNull(u -> saveUser(u,
             UserSubjectModificationEvent.builder().application(system).user(u).build(),
@@ -91,7 +91,7 @@ public class R2dbcUserDataManagementService extends R2dbcAbstractManagementServi
     Mono<User> result = repository.findById(id)
         .switchIfEmpty(Mono.error(new UserNotFoundException(id)))
         .onErrorMap(UserNotFoundException.class, log::throwing)
-        .map(u -> ((KpUserDetails)u).toBuilder().nameSpace(namespace).build())
+        .map(u -> ((KpUserDetails)u).modify().nameSpace(namespace).build())
         .flatMap(u -> saveUser(u,
             UserNamespaceModificationEvent.builder().application(system).user(u).build(),
             "User namespace updated",
@@ -108,7 +108,7 @@ public class R2dbcUserDataManagementService extends R2dbcAbstractManagementServi
     
     Mono<User> result = repository.findById(id)
         .switchIfEmpty(Mono.error(() -> new UserNotFoundException(id)))
-        .map(u -> ((KpUserDetails)u).toBuilder().name(name).build())
+        .map(u -> ((KpUserDetails)u).modify().name(name).build())
         .flatMap(u -> saveUser(
             u,
             UserNameModificationEvent.builder().application(system).user(u).build(),
@@ -126,7 +126,7 @@ public class R2dbcUserDataManagementService extends R2dbcAbstractManagementServi
     
     Mono<User> result = repository.findById(id)
         .switchIfEmpty(Mono.error(() -> new UserNotFoundException(id)))
-        .map(u -> ((KpUserDetails)u).toBuilder().nameSpace(namespace).name(name).build())
+        .map(u -> ((KpUserDetails)u).modify().nameSpace(namespace).name(name).build())
         .flatMap(u -> saveUser(
             u,
             UserNamespaceAndNameModificationEvent.builder().application(system).user(u).build(),
@@ -144,7 +144,7 @@ public class R2dbcUserDataManagementService extends R2dbcAbstractManagementServi
     
     Mono<User> result = repository.findById(id)
         .switchIfEmpty(Mono.error(() -> new UserNotFoundException(id)))
-        .map(u -> ((KpUserDetails)u).toBuilder().email(email).build())
+        .map(u -> ((KpUserDetails)u).modify().email(email).build())
         .flatMap(u -> saveUser(
             u,
             UserEmailModificationEvent.builder().application(system).user(u).build(),
@@ -162,7 +162,7 @@ public class R2dbcUserDataManagementService extends R2dbcAbstractManagementServi
     
     Mono<User> result = repository.findById(id)
         .switchIfEmpty(Mono.error(() -> new UserNotFoundException(id)))
-        .map(u -> ((KpUserDetails)u).toBuilder().discord(discord).build())
+        .map(u -> ((KpUserDetails)u).modify().discord(discord).build())
         .flatMap(u -> saveUser(
             u,
             UserDiscordModificationEvent.builder().application(system).user(u).build(),
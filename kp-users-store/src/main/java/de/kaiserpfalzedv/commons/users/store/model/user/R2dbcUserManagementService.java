@@ -68,7 +68,7 @@ public class R2dbcUserManagementService extends R2dbcAbstractManagementService i
   public Mono<User> create(@NotNull final User user) {
     log.entry(user);
     
-    Mono<User> result = repository.save(toImpl.apply(user))
+    Mono<User> result = repository.save(withModification(toImpl.apply(user)))
         .onErrorMap(IllegalArgumentException.class, e -> new UserCantBeCreatedException(user, e))
         .onErrorMap(OptimisticLockingFailureException.class, e -> new UserCantBeCreatedException(user, e))
         .switchIfEmpty(Mono.error(new UserCantBeCreatedException(user)))
@@ -82,6 +82,18 @@ public class R2dbcUserManagementService extends R2dbcAbstractManagementService i
   }
   
   
+  /**
+   * New users get their first modification timestamp (the revision of the user), users created from events of other
+   * nodes keep theirs.
+   *
+   * @param user the user to create.
+   * @return the user with the modification timestamp set.
+   */
+  private static KpUserDetails withModification(@NotNull final KpUserDetails user) {
+    return user.getModified() != null ? user : user.modify().build();
+  }
+  
+  
   @Override
   public Mono<User> delete(final UUID id) {
     log.entry(id);
@@ -108,7 +120,7 @@ public class R2dbcUserManagementService extends R2dbcAbstractManagementService i
     
     Mono<User> result = repository.findById(id)
         .switchIfEmpty(Mono.error(new UserNotFoundException(id)))
-        .map(u -> ((KpUserDetails)u).toBuilder().deleted(null).build())
+        .map(u -> ((KpUserDetails)u).modify().deleted(null).build())
         .publishOn(Schedulers.boundedElastic())
         .mapNotNull(u -> saveUser(
             u,
@@ -6,6 +6,7 @@ import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
 import de.kaiserpfalzedv.commons.users.domain.model.user.User;
 import de.kaiserpfalzedv.commons.users.domain.model.user.events.state.UserRemovedEvent;
 import de.kaiserpfalzedv.commons.users.domain.services.UserReadService;
+import de.kaiserpfalzedv.commons.users.store.model.role.R2dbcRoleReadService;
 import jakarta.inject.Inject;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
@@ -33,6 +34,7 @@ public class R2dbcUserRepository implements UserReadService<User> {
   private final R2dbcUserInternalRepository repository;
   private final R2dbcEntityTemplate template;
   private final ApplicationEventPublisher bus;
+  private final R2dbcRoleReadService roles;
   
   @Value("${spring.application.system:kp-users}")
   private String system = "kp-users";
@@ -52,10 +54,7 @@ public class R2dbcUserRepository implements UserReadService<User> {
     Mono<User> result = user
         .flatMap(u  -> loadRolesForUser(u.getId())
                 .collectList()
-                .flatMap(roles -> {
-                  roles.forEach(role -> u.addRole(role, null));
-                  return Mono.just(u);
-                })
+                .map(u::withAuthorities)
         );
     
     return log.exit(result);
@@ -106,10 +105,7 @@ public class R2dbcUserRepository implements UserReadService<User> {
     Flux<KpUserDetails> result = user
         .flatMap(u  -> loadRolesForUser(u.getId())
               .collectList()
-              .flatMap(roles -> {
-                roles.forEach(role -> u.addRole(role, null));
-                return Mono.just(u);
-              })
+              .map(u::withAuthorities)
         );
     
     return log.exit(result);
@@ -122,11 +118,9 @@ public class R2dbcUserRepository implements UserReadService<User> {
     return log.exit(template.select(KpUsersRoles.class)
         .matching(query(where("USER_ID").is(userId)))
         .all()
-        // Dann für jede Verknüpfung die zugehörige Rolle abrufen
-        .flatMap(userRole -> template.selectOne(
-            query(where("ID").is(userRole.getRoleId())),
-            KpRole.class)
-        )
+        // Dann für jede Verknüpfung die gemeinsame Instanz aus dem Rollenkatalog verwenden, damit alle Benutzer
+        // dieselben Rollenobjekte referenzieren.
+        .concatMap(userRole -> roles.retrieve(userRole.getRoleId()))
     );
   }
   
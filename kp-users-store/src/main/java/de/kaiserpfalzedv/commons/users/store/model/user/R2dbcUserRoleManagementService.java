@@ -25,7 +25,7 @@ import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
 import de.kaiserpfalzedv.commons.users.domain.model.user.User;
 import de.kaiserpfalzedv.commons.users.domain.model.user.UserNotFoundException;
 import de.kaiserpfalzedv.commons.users.domain.services.UserRoleManagementService;
-import de.kaiserpfalzedv.commons.users.store.model.role.R2dbcRoleRepository;
+import de.kaiserpfalzedv.commons.users.store.model.role.R2dbcRoleReadService;
 import jakarta.annotation.PreDestroy;
 import jakarta.inject.Inject;
 import lombok.RequiredArgsConstructor;
@@ -56,7 +56,7 @@ import static org.springframework.data.relational.core.query.Query.query;
 @ToString(callSuper = true, onlyExplicitlyIncluded = true)
 @XSlf4j
 public class R2dbcUserRoleManagementService implements UserRoleManagementService, AutoCloseable {
-  private final R2dbcRoleRepository roleRepository;
+  private final R2dbcRoleReadService roles;
   private final R2dbcUserRepository userRepository;
   private final R2dbcEntityTemplate template;
   private final ApplicationEventPublisher bus;
@@ -67,7 +67,7 @@ public class R2dbcUserRoleManagementService implements UserRoleManagementService
   
   @PreDestroy
   public void close() {
-    log.entry(userRepository, roleRepository, roleToImpl, bus, system);
+    log.entry(userRepository, roles, roleToImpl, bus, system);
     log.exit();
   }
   
@@ -76,15 +76,15 @@ public class R2dbcUserRoleManagementService implements UserRoleManagementService
   public Mono<User> addRole(final UUID id, final Role role) {
     log.entry(id, role);
     
-    Mono<User> result = roleRepository.findById(role.getId())
+    Mono<User> result = roles.retrieve(role.getId())
         .switchIfEmpty(Mono.error(new RoleNotFoundException(role.getId())))
         .publishOn(Schedulers.boundedElastic())
         .mapNotNull(r -> userRepository.findById(id)
             .switchIfEmpty(Mono.error(new UserNotFoundException(id)))
-            .map(u -> { ((KpUserDetails)u).addRole(r, bus); return u; })
+            .map(u -> ((KpUserDetails)u).addRole(r, bus))
             .publishOn(Schedulers.boundedElastic())
             .mapNotNull(
-                u -> userRepository.save(((KpUserDetails)u)).block()
+                u -> userRepository.save(u).block()
             ).block()
         );
     
@@ -95,16 +95,16 @@ public class R2dbcUserRoleManagementService implements UserRoleManagementService
   public Mono<User> removeRole(final UUID id, final Role role) {
     log.entry(id, role);
     
-    Mono<User> result = roleRepository.findById(role.getId())
+    Mono<User> result = roles.retrieve(role.getId())
         .switchIfEmpty(Mono.error(new RoleNotFoundException(role.getId())))
         .filter(Objects::nonNull)
         .publishOn(Schedulers.boundedElastic())
         .mapNotNull(r -> userRepository.findById(id)
             .switchIfEmpty(Mono.defer(() -> Mono.error(() -> new UserNotFoundException(id))))
             .filter(Objects::nonNull)
-            .map(u -> { ((KpUserDetails)u).removeRole(r, bus); return u; })
+            .map(u -> ((KpUserDetails)u).removeRole(r, bus))
             .publishOn(Schedulers.boundedElastic())
-            .mapNotNull(u -> userRepository.save(((KpUserDetails)u)).block())
+            .mapNotNull(u -> userRepository.save(u).block())
             .block()
         );
         
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package de.kaiserpfalzedv.commons.users.store.service;
+
+
+import de.kaiserpfalzedv.commons.users.domain.services.StoreSaturationEvent;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Watches the R2DBC connection pool and reports its saturation as {@link StoreSaturationEvent}.
+ *
+ * <p>Every {@code kp-users.store.saturation.interval} the metrics of the pool are read. The store is saturated when
+ * at least {@code pending-high} requests wait for a connection (default: the maximum pool size). A queue that is
+ * never empty but short is a busy pool, not a saturated one, so only the number of waiting requests counts.</p>
+ *
+ * <p>The store has recovered when at most {@code pending-low} requests have been waiting for {@code recovery}. The
+ * gap between the thresholds keeps the consumers from flapping between paused and running.</p>
+ *
+ * <p>The monitor is disabled when the connection factory is not a {@link ConnectionPool} or the pool has no
+ * metrics.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@Service
+@ToString(of = {"interval", "pendingHigh", "pendingLow", "recovery", "saturated"})
+@XSlf4j
+public class ConnectionPoolMonitor {
+  private final ObjectProvider<ConnectionFactory> connectionFactory;
+  private final ApplicationEventPublisher bus;
+  
+  private final Duration interval;
+  private final int pendingHigh;
+  private final int pendingLow;
+  private final long recovery;
+  
+  /** Nano time since when the pool is below the low threshold, 0 if it isn't. */
+  private long recoveringSince = 0L;
+  private volatile boolean saturated = false;
+  
+  private ScheduledExecutorService scheduler;
+  
+  
+  public ConnectionPoolMonitor(
+      final ObjectProvider<ConnectionFactory> connectionFactory,
+      final ApplicationEventPublisher bus,
+      @Value("${kp-users.store.saturation.interval:PT0.1S}") final Duration interval,
+      @Value("${kp-users.store.saturation.pending-high:0}") final int pendingHigh,
+      @Value("${kp-users.store.saturation.pending-low:0}") final int pendingLow,
+      @Value("${kp-users.store.saturation.recovery:PT2S}") final Duration recovery
+  ) {
+    this.connectionFactory = connectionFactory;
+    this.bus = bus;
+    this.interval = interval;
+    this.pendingHigh = pendingHigh;
+    this.pendingLow = pendingLow;
+    this.recovery = recovery.toNanos();
+  }
+  
+  
+  @PostConstruct
+  public void init() {
+    log.entry();
+    
+    PoolMetrics metrics = metrics();
+    if (metrics == null || interval.isZero() || interval.isNegative()) {
+      log.info("Connection pool saturation is not monitored.");
+      log.exit();
+      return;
+    }
+    
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread result = new Thread(r, "kp-users-pool-monitor");
+      result.setDaemon(true);
+      return result;
+    });
+    scheduler.scheduleWithFixedDelay(() -> checkSafely(metrics), interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    
+    log.info("Monitoring connection pool saturation. monitor={}", this);
+    log.exit();
+  }
+  
+  @PreDestroy
+  public void close() {
+    log.entry();
+    
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+    
+    log.exit();
+  }
+  
+  @Nullable
+  private PoolMetrics metrics() {
+    Object factory = connectionFactory.getIfAvailable();
+    
+    if (!(factory instanceof ConnectionPool) && factory instanceof Wrapped<?> wrapped) {
+      factory = wrapped.unwrap();
+    }
+    
+    return factory instanceof ConnectionPool pool ? pool.getMetrics().orElse(null) : null;
+  }
+  
+  private void checkSafely(@NotNull final PoolMetrics metrics) {
+    try {
+      check(metrics, System.nanoTime());
+    } catch (RuntimeException e) {
+      log.warn("Could not check connection pool saturation. error={}", e.getMessage());
+    }
+  }
+  
+  
+  /**
+   * Checks the pool and publishes a {@link StoreSaturationEvent} if the saturation changed.
+   *
+   * @param metrics the metrics of the pool.
+   * @param now the current nano time.
+   * @return true if the store is saturated.
+   */
+  synchronized boolean check(@NotNull final PoolMetrics metrics, final long now) {
+    int pending = metrics.pendingAcquireSize();
+    
+    if (!saturated) {
+      int high = pendingHigh > 0 ? pendingHigh : Math.max(1, metrics.getMaxAllocatedSize());
+      
+      if (pending >= high) {
+        saturated = true;
+        recoveringSince = 0L;
+        publish(metrics, pending);
+      }
+    } else if (pending <= pendingLow) {
+      if (recoveringSince == 0L) {
+        recoveringSince = now;
+      }
+      
+      if (now - recoveringSince >= recovery) {
+        saturated = false;
+        recoveringSince = 0L;
+        publish(metrics, pending);
+      }
+    } else {
+      recoveringSince = 0L;
+    }
+    
+    return saturated;
+  }
+  
+  private void publish(@NotNull final PoolMetrics metrics, final int pending) {
+    StoreSaturationEvent event = new StoreSaturationEvent(
+        saturated, pending, metrics.acquiredSize(), metrics.getMaxAllocatedSize()
+    );
+    
+    if (saturated) {
+      log.warn("Connection pool is saturated. event={}", event);
+    } else {
+      log.info("Connection pool has recovered. event={}", event);
+    }
+    
+    bus.publishEvent(event);
+  }
+  
+  
+  public boolean isSaturated() {
+    return saturated;
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package de.kaiserpfalzedv.commons.users.store.service;
+
+
+import de.kaiserpfalzedv.commons.api.events.BaseEvent;
+import jakarta.validation.constraints.NotNull;
+import lombok.ToString;
+import lombok.extern.slf4j.XSlf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Drops external events that have already been applied to the store.
+ *
+ * <p>Broker redeliveries and replays hand the same event to the handlers again. Every applied event id is kept for
+ * {@code kp-users.events.dedup.window} (at most {@code kp-users.events.dedup.max-size} ids), an event seen within
+ * the window is dropped before it reaches the store.</p>
+ *
+ * <p>Events are only compared by their id. The modification timestamps within the events are set by the clocks of
+ * different nodes and set again by the receiving node, so they can't tell which of two events is newer. Ordering
+ * events across a restart or a longer replay needs a version of the user counted by the database and carried in the
+ * events.</p>
+ *
+ * <p>The check ({@link #isNew(BaseEvent)}) and the recording ({@link #applied(BaseEvent)}) are separate, so an event
+ * failing in the store is not recorded and will be applied on redelivery. Two deliveries of the same event arriving
+ * at the very same time may both be applied.</p>
+ *
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@Service
+@ToString(of = {"window", "maxSize", "dropped"})
+@XSlf4j
+public class EventDeduplicator {
+  private final long window;
+  private final int maxSize;
+  
+  /** The applied event ids in the order they have been applied with the nano time of their recording. */
+  @ToString.Exclude
+  private final LinkedHashMap<UUID, Long> seen = new LinkedHashMap<>();
+  
+  private final AtomicLong dropped = new AtomicLong();
+  
+  
+  public EventDeduplicator(
+      @Value("${kp-users.events.dedup.window:PT10M}") final Duration window,
+      @Value("${kp-users.events.dedup.max-size:100000}") final int maxSize
+  ) {
+    this.window = window.toNanos();
+    this.maxSize = maxSize;
+  }
+  
+  
+  /**
+   * Checks if an event has not been applied yet.
+   *
+   * @param event the event to check.
+   * @return true if the event has to be applied, false if it is a duplicate.
+   */
+  public boolean isNew(@NotNull final BaseEvent event) {
+    log.entry(event);
+    
+    UUID id = event.getId();
+    if (id == null) {
+      return log.exit(true);
+    }
+    
+    synchronized (seen) {
+      expire(System.nanoTime());
+      
+      if (seen.containsKey(id)) {
+        dropped.incrementAndGet();
+        log.debug("Event has already been applied. Dropping it. id={}, event={}", id, event);
+        
+        return log.exit(false);
+      }
+    }
+    
+    return log.exit(true);
+  }
+  
+  /**
+   * Records an event as applied.
+   *
+   * @param event the event applied to the store.
+   */
+  public void applied(@NotNull final BaseEvent event) {
+    log.entry(event);
+    
+    UUID id = event.getId();
+    if (id == null) {
+      log.exit();
+      return;
+    }
+    
+    synchronized (seen) {
+      seen.put(id, System.nanoTime());
+      
+      Iterator<UUID> oldest = seen.keySet().iterator();
+      while (seen.size() > maxSize && oldest.hasNext()) {
+        oldest.next();
+        oldest.remove();
+      }
+    }
+    
+    log.exit();
+  }
+  
+  /**
+   * @return the number of dropped events since startup.
+   */
+  public long getDropped() {
+    return dropped.get();
+  }
+  
+  
+  private void expire(final long now) {
+    Iterator<Long> oldest = seen.values().iterator();
+    
+    while (oldest.hasNext() && now - oldest.next() > window) {
+      oldest.remove();
+    }
+  }
+}
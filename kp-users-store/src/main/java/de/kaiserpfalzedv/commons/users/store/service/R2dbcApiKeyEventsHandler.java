@@ -45,6 +45,7 @@ import java.time.Duration;
 public class R2dbcApiKeyEventsHandler implements ApiKeyEventsHandler, AutoCloseable {
   public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(1L);
   private final R2dbcApiKeyRepository writeService;
+  private final EventDeduplicator deduplicator;
   
   @Value("${spring.application.system:kp-users}")
   private String system = "kp-users";
@@ -69,8 +70,10 @@ public class R2dbcApiKeyEventsHandler implements ApiKeyEventsHandler, AutoClosea
   public void event(@NotNull final ApiKeyCreatedEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       writeService.create(event.getApiKey()).block(DEFAULT_TIMEOUT);
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -81,8 +84,10 @@ public class R2dbcApiKeyEventsHandler implements ApiKeyEventsHandler, AutoClosea
   public void event(@NotNull final ApiKeyRevokedEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       writeService.deleteById(event.getApiKey().getId());
+      
+      deduplicator.applied(event);
     }
 
     log.exit();
@@ -96,6 +101,17 @@ public class R2dbcApiKeyEventsHandler implements ApiKeyEventsHandler, AutoClosea
   }
   
   
+  /**
+   * Check if the event has to be applied to the store: it is from an external application and has not been applied
+   * before.
+   *
+   * @param event The event to check.
+   * @return True if the event has to be applied, false otherwise.
+   */
+  private boolean eventHasToBeApplied(final ApiKeyBaseEvent event) {
+    return eventIsFromExternalSystem(event) && deduplicator.isNew(event);
+  }
+  
   /**
    * Check if the event is from an external application.
    * @param event The event to check.
@@ -48,6 +48,7 @@ public class R2dbcRoleEventsHandler implements RoleEventsHandler, AutoCloseable
   
   private final R2dbcRoleWriteService writeService;
   private final R2dbcUserRoleManagementService userRoleManagement;
+  private final EventDeduplicator deduplicator;
   
   @Value("${spring.application.system:kp-users}")
   private String system = "kp-users";
@@ -72,8 +73,10 @@ public class R2dbcRoleEventsHandler implements RoleEventsHandler, AutoCloseable
   public void event(@NotNull final RoleCreatedEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       writeService.create(event.getRole()).block(DEFAULT_TIMEOUT);
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -84,8 +87,10 @@ public class R2dbcRoleEventsHandler implements RoleEventsHandler, AutoCloseable
   public void event(@NotNull final RoleUpdateNameSpaceEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       writeService.updateNameSpace(event.getRole().getId(), event.getRole().getNameSpace()).block(DEFAULT_TIMEOUT);
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -97,8 +102,10 @@ public class R2dbcRoleEventsHandler implements RoleEventsHandler, AutoCloseable
   public void event(@NotNull final RoleUpdateNameEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       writeService.updateName(event.getRole().getId(), event.getRole().getName()).block(DEFAULT_TIMEOUT);
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -110,16 +117,29 @@ public class R2dbcRoleEventsHandler implements RoleEventsHandler, AutoCloseable
   public void event(@NotNull final RoleRemovedEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       Long count = userRoleManagement.revokeRoleFromAllUsers(event.getRole()).block();
       log.info("Removed Role from all users. count={}, role={}", count, event.getRole());
       writeService.remove(event.getRole().getId()).block(DEFAULT_TIMEOUT);
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
   }
   
   
+  /**
+   * Check if the event has to be applied to the store: it is from an external application and has not been applied
+   * before.
+   *
+   * @param event The event to check.
+   * @return True if the event has to be applied, false otherwise.
+   */
+  private boolean eventHasToBeApplied(final RoleBaseEvent event) {
+    return eventIsFromExternalSystem(event) && deduplicator.isNew(event);
+  }
+  
   /**
    * Check if the event is from an external application.
    *
@@ -63,6 +63,7 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   private final R2dbcUserDataManagementService dataService;
   private final R2dbcUserRoleManagementService roleService;
   private final R2dbcUserStateManagementService stateService;
+  private final EventDeduplicator deduplicator;
   
   
   @Value("${spring.application.application:kp-users}")
@@ -88,7 +89,7 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final UserActivatedEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       try {
         service.undelete(event.getUser().getId()).block(DEFAULT_TIMEOUT);
       } catch (Exception e) {
@@ -98,6 +99,8 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
           throw e;
         }
       }
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -108,7 +111,7 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final UserCreatedEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       try {
         service.create(event.getUser()).block(DEFAULT_TIMEOUT);
       } catch (Exception e) {
@@ -118,6 +121,8 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
           throw e;
         }
       }
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -128,7 +133,7 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final UserDeletedEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       try {
         service.delete(event.getUser().getId()).block(DEFAULT_TIMEOUT);
       } catch (Exception e) {
@@ -138,6 +143,8 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
           throw e;
         }
       }
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -148,8 +155,10 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final UserRemovedEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       service.remove(event.getUser().getId()).block(DEFAULT_TIMEOUT);
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -160,17 +169,18 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final UserBannedEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       try {
         stateService.ban(event.getUser().getId()).block(DEFAULT_TIMEOUT);
       } catch (Exception e) {
         if (e.getCause() instanceof UserNotFoundException) {
           log.warn("User not found for this id. id={}", event.getUser().getId());
         } else {
-          // This is a general error, so we log it as an error.
-          log.warn(e.getMessage(), e);
+          throw e;
         }
       }
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -181,7 +191,7 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final UserDetainedEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       try {
         stateService.detain(event.getUser().getId(), event.getDays()).block(DEFAULT_TIMEOUT);
       } catch (Exception e) {
@@ -191,6 +201,8 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
           throw e;
         }
       }
+      
+      deduplicator.applied(event);
     }
     log.exit();
   }
@@ -200,8 +212,10 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final UserPetitionedEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       log.info("User petitioned event not yet implemented!");
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -212,7 +226,7 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final UserReleasedEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       try {
         // Release the user from detention.
         stateService.release(event.getUser().getId()).block(DEFAULT_TIMEOUT);
@@ -223,6 +237,8 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
           throw e;
         }
       }
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -233,9 +249,11 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final UserLoginEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       // TODO 2025-05-10 klenkes74 Implement a user log database.
       log.info("User logged in. user={}", event.getUser());
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -246,9 +264,11 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final UserLogoutEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       // TODO 2025-05-10 klenkes74 Implement a user log database.
       log.info("User logged out. user={}", event.getUser());
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -259,7 +279,7 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final RoleAddedToUserEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       try {
         // Add the role to the user.
         roleService.addRole(event.getUser().getId(), event.getRole()).block(DEFAULT_TIMEOUT);
@@ -272,6 +292,8 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
           throw e;
         }
       }
+      
+      deduplicator.applied(event);
     }
   }
   
@@ -280,7 +302,7 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final RoleRemovedFromUserEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       try {
         // Remove the role from the user.
         roleService.removeRole(event.getUser().getId(), event.getRole()).block(DEFAULT_TIMEOUT);
@@ -293,6 +315,8 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
           throw e;
         }
       }
+      
+      deduplicator.applied(event);
     }
   }
   
@@ -304,7 +328,7 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
     
     log.info("Modifying user subject. user={}", event.getUser());
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       try {
         dataService.updateSubject(event.getUser().getId(), event.getUser().getIssuer(), event.getUser().getSubject()).block(DEFAULT_TIMEOUT);
       } catch (Exception e) {
@@ -314,6 +338,8 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
           throw e;
         }
       }
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -324,7 +350,7 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final UserNamespaceAndNameModificationEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       try {
         dataService.updateNamespaceAndName(event.getUser().getId(), event.getUser().getNameSpace(), event.getUser().getName()).block(DEFAULT_TIMEOUT);
       } catch (Exception e) {
@@ -334,6 +360,8 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
           throw e;
         }
       }
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -344,7 +372,7 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final UserNamespaceModificationEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       try {
         dataService.updateNamespace(event.getUser().getId(), event.getUser().getNameSpace()).block(DEFAULT_TIMEOUT);
       } catch (Exception e) {
@@ -354,6 +382,8 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
           throw e;
         }
       }
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -364,7 +394,7 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final UserNameModificationEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       try {
         dataService.updateName(event.getUser().getId(), event.getUser().getName()).block(DEFAULT_TIMEOUT);
       } catch (Exception e) {
@@ -374,6 +404,8 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
           throw e;
         }
       }
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -384,7 +416,7 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final UserEmailModificationEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       try {
         dataService.updateEmail(event.getUser().getId(), event.getUser().getEmail()).block(DEFAULT_TIMEOUT);
       } catch (Exception e) {
@@ -394,6 +426,8 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
           throw e;
         }
       }
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
@@ -404,7 +438,7 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
   public void event(final UserDiscordModificationEvent event) {
     log.entry(event);
     
-    if (eventIsFromExternalSystem(event)) {
+    if (eventHasToBeApplied(event)) {
       try {
         dataService.updateDiscord(event.getUser().getId(), event.getUser().getDiscord()).block(DEFAULT_TIMEOUT);
       } catch (Exception e) {
@@ -414,12 +448,25 @@ public class R2dbcUserEventsHandler implements UserEventsHandler, AutoCloseable
           throw e;
         }
       }
+      
+      deduplicator.applied(event);
     }
     
     log.exit();
   }
   
   
+  /**
+   * Check if the event has to be applied to the store: it is from an external application and has not been applied
+   * before.
+   *
+   * @param event The event to check.
+   * @return True if the event has to be applied, false otherwise.
+   */
+  private boolean eventHasToBeApplied(final UserBaseEvent event) {
+    return eventIsFromExternalSystem(event) && deduplicator.isNew(event);
+  }
+  
   /**
    * Check if the event is from an external application.
    *
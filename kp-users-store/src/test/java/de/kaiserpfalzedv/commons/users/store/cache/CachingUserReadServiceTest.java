@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.UserEmailModificationEvent;
+import de.kaiserpfalzedv.commons.users.store.model.role.R2dbcRoleReadService;
+import de.kaiserpfalzedv.commons.users.store.model.role.RoleCatalog;
+import de.kaiserpfalzedv.commons.users.store.model.user.R2dbcUserRepository;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@ExtendWith(MockitoExtension.class)
+@XSlf4j
+public class CachingUserReadServiceTest {
+  private static final KpUserDetails USER = KpUserDetails.builder()
+      .id(UUID.randomUUID())
+      .nameSpace("kp")
+      .name("user")
+      .issuer("https://sso.example.com")
+      .subject("subject")
+      .build();
+  
+  @Mock private R2dbcUserRepository repository;
+  @Mock private R2dbcRoleReadService roles;
+  
+  private HeapUserSnapshotStore store;
+  private CompactUserCodec codec;
+  private CachingUserReadService sut;
+  
+  
+  @BeforeEach
+  public void setUp() {
+    reset(repository, roles);
+    
+    store = new HeapUserSnapshotStore(10);
+    codec = new CompactUserCodec(roles);
+    sut = new CachingUserReadService(repository, store, codec);
+  }
+  
+  @AfterEach
+  public void tearDown() {
+    validateMockitoUsage(); // validate if the mocks are used as expected.
+    verifyNoMoreInteractions(repository, roles);
+  }
+  
+  
+  @Test
+  void shouldCacheUserWhenReadFromDatabase() {
+    log.entry("shouldCacheUserWhenReadFromDatabase");
+    
+    when(repository.findById(USER.getId())).thenReturn(Mono.just(USER));
+    
+    User result = sut.findById(USER.getId()).block();
+    
+    assertEquals(USER, result);
+    assertNotNull(store.get(USER.getId()));
+    
+    verify(repository).findById(USER.getId());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldNotCacheUserWhenEvictedWhileReadFromDatabase() {
+    log.entry("shouldNotCacheUserWhenEvictedWhileReadFromDatabase");
+    
+    // the event is handled after the database has returned the old state but before it is put into the cache.
+    when(repository.findById(USER.getId())).thenReturn(Mono.fromSupplier(() -> {
+      sut.event(modification());
+      return USER;
+    }));
+    
+    User result = sut.findById(USER.getId()).block();
+    
+    assertEquals(USER, result);
+    assertNull(store.get(USER.getId()));
+    
+    verify(repository).findById(USER.getId());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldCacheUserWhenEvictedBeforeReadFromDatabase() {
+    log.entry("shouldCacheUserWhenEvictedBeforeReadFromDatabase");
+    
+    when(repository.findById(USER.getId())).thenReturn(Mono.just(USER));
+    sut.event(modification());
+    
+    sut.findById(USER.getId()).block();
+    
+    assertNotNull(store.get(USER.getId()));
+    
+    verify(repository).findById(USER.getId());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldReadCacheWhenSubscribed() {
+    log.entry("shouldReadCacheWhenSubscribed");
+    
+    when(roles.getCatalog()).thenReturn(RoleCatalog.EMPTY);
+    
+    Mono<User> lookup = sut.findById(USER.getId());
+    store.put(codec.encode(USER));
+    
+    User result = lookup.block();
+    
+    assertNotNull(result);
+    assertEquals(USER.getId(), result.getId());
+    
+    verify(roles).getCatalog();
+    
+    log.exit();
+  }
+  
+  
+  private static UserEmailModificationEvent modification() {
+    return UserEmailModificationEvent.builder()
+        .id(UUID.randomUUID())
+        .application("external")
+        .user(USER.toBuilder().email("email@email.email").build())
+        .build();
+  }
+}
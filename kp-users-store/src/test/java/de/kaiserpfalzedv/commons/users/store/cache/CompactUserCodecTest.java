@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.store.model.role.R2dbcRoleReadService;
+import de.kaiserpfalzedv.commons.users.store.model.role.RoleCatalog;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-23
+ */
+@ExtendWith(MockitoExtension.class)
+@XSlf4j
+public class CompactUserCodecTest {
+  private static final OffsetDateTime NOW = OffsetDateTime.of(2025, 6, 23, 12, 0, 0, 123_456_789, ZoneOffset.UTC);
+  
+  private static final KpRole PLAYER = KpRole.builder()
+      .id(UUID.randomUUID())
+      .nameSpace("kp")
+      .name("PLAYER")
+      .build();
+  private static final KpRole JUDGE = KpRole.builder()
+      .id(UUID.randomUUID())
+      .nameSpace("kp")
+      .name("JUDGE")
+      .build();
+  
+  private static final KpUserDetails USER = KpUserDetails.builder()
+      .id(UUID.randomUUID())
+      .created(NOW)
+      .modified(NOW)
+      .detainmentDuration(Duration.ofDays(7))
+      .detainedTill(NOW.plusDays(7))
+      .nameSpace("kp")
+      .name("user")
+      .issuer("https://sso.example.com")
+      .subject("subject")
+      .email("user@example.com")
+      .authorities(List.of(PLAYER, JUDGE))
+      .build();
+  
+  private CompactUserCodec sut;
+  
+  @Mock private R2dbcRoleReadService roles;
+  
+  
+  @BeforeEach
+  public void setUp() {
+    reset(roles);
+    
+    sut = new CompactUserCodec(roles);
+  }
+  
+  @AfterEach
+  public void tearDown() {
+    validateMockitoUsage(); // validate if the mocks are used as expected.
+    verifyNoMoreInteractions(roles);
+  }
+  
+  
+  @Test
+  void shouldRestoreUserWhenEncodedAndDecoded() {
+    log.entry("shouldRestoreUserWhenEncodedAndDecoded");
+    
+    when(roles.getCatalog()).thenReturn(RoleCatalog.of(List.of(PLAYER, JUDGE)));
+    
+    KpUserDetails result = sut.decode(sut.encode(USER));
+    log.debug("result. user={}", result);
+    
+    assertEquals(USER.getId(), result.getId());
+    assertEquals(NOW, result.getCreated());
+    assertNull(result.getDeleted());
+    assertEquals(USER.getDetainedTill(), result.getDetainedTill());
+    assertEquals(Duration.ofDays(7), result.getDetainmentDuration());
+    assertSame(USER.getNameSpace(), result.getNameSpace());
+    assertEquals(USER.getIssuer(), result.getIssuer());
+    assertEquals(USER.getSubject(), result.getSubject());
+    assertEquals(USER.getEmail(), result.getEmail());
+    assertEquals(USER.getAuthorities(), result.getAuthorities());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldShareDictionaryEntriesWhenUsersHaveTheSameNameSpace() {
+    log.entry("shouldShareDictionaryEntriesWhenUsersHaveTheSameNameSpace");
+    
+    CompactUser first = sut.encode(USER);
+    CompactUser second = sut.encode(USER.toBuilder().id(UUID.randomUUID()).name("other").build());
+    
+    assertEquals(first.getNameSpace(), second.getNameSpace());
+    assertArrayEquals(first.getRoles(), second.getRoles());
+    assertEquals(2, sut.getStrings().size());
+    assertEquals(2, sut.getRoleIds().size());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldDropRoleWhenRoleIsNotInTheCatalogAnymore() {
+    log.entry("shouldDropRoleWhenRoleIsNotInTheCatalogAnymore");
+    
+    when(roles.getCatalog()).thenReturn(RoleCatalog.of(List.of(PLAYER)));
+    
+    KpUserDetails result = sut.decode(sut.encode(USER));
+    
+    assertEquals(1, result.getAuthorities().size());
+    assertTrue(result.getAuthorities().contains(PLAYER));
+    
+    log.exit();
+  }
+}
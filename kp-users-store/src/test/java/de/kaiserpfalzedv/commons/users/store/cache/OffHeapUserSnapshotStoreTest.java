@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-24
+ */
+@XSlf4j
+public class OffHeapUserSnapshotStoreTest {
+  private static final int NAMESPACE = 0;
+  private static final int ISSUER = 1;
+  
+  private OffHeapUserSnapshotStore sut;
+  
+  
+  @BeforeEach
+  public void setUp() {
+    sut = new OffHeapUserSnapshotStore(1000, 4096, 4 * 4096);
+  }
+  
+  
+  @Test
+  void shouldFindUserByAllKeysWhenUserIsStored() {
+    log.entry("shouldFindUserByAllKeysWhenUserIsStored");
+    
+    CompactUser user = user(UUID.randomUUID(), "user");
+    assertTrue(sut.put(user));
+    
+    CompactUser result = sut.get(user.getId());
+    log.debug("result. user={}", result);
+    
+    assertNotNull(result);
+    assertEquals(user.getName(), result.getName());
+    assertArrayEquals(user.getRoles(), result.getRoles());
+    assertEquals(user, sut.getByName(NAMESPACE, "user"));
+    assertEquals(user, sut.getByIssuerAndSubject(ISSUER, "subject-user"));
+    assertNull(sut.getByName(NAMESPACE, "other"));
+    assertNull(sut.getByName(ISSUER, "user"));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldReplaceIndexesWhenUserIsRenamed() {
+    log.entry("shouldReplaceIndexesWhenUserIsRenamed");
+    
+    UUID id = UUID.randomUUID();
+    sut.put(user(id, "user"));
+    sut.put(user(id, "renamed"));
+    
+    assertEquals(1, sut.size());
+    assertNull(sut.getByName(NAMESPACE, "user"));
+    assertEquals("renamed", sut.getByName(NAMESPACE, "renamed").getName());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldForgetUserWhenUserIsRemoved() {
+    log.entry("shouldForgetUserWhenUserIsRemoved");
+    
+    CompactUser user = user(UUID.randomUUID(), "user");
+    sut.put(user);
+    sut.remove(user.getId());
+    
+    assertEquals(0, sut.size());
+    assertNull(sut.get(user.getId()));
+    assertNull(sut.getByIssuerAndSubject(ISSUER, "subject-user"));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldKeepLiveUsersWhenSegmentsAreCompacted() {
+    log.entry("shouldKeepLiveUsersWhenSegmentsAreCompacted");
+    
+    UUID id = UUID.randomUUID();
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(sut.put(user(id, "user-" + i)));
+    }
+    
+    assertEquals(1, sut.size());
+    assertEquals("user-999", sut.get(id).getName());
+    assertEquals(id, sut.getByName(NAMESPACE, "user-999").getId());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldMoveLiveUsersInPlaceWhenSegmentsAreCompacted() {
+    log.entry("shouldMoveLiveUsersInPlaceWhenSegmentsAreCompacted");
+    
+    ArrayList<UUID> ids = new ArrayList<>();
+    while (true) {
+      UUID id = UUID.randomUUID();
+      if (!sut.put(user(id, "user-" + ids.size()))) {
+        break;
+      }
+      ids.add(id);
+    }
+    
+    for (int i = 0; i < ids.size(); i += 2) {
+      sut.remove(ids.get(i));
+    }
+    
+    int added = 0;
+    while (sut.put(user(UUID.randomUUID(), "added-" + added))) {
+      added++;
+    }
+    
+    assertTrue(added > 0);
+    for (int i = 1; i < ids.size(); i += 2) {
+      assertEquals(ids.get(i), sut.get(ids.get(i)).getId());
+      assertEquals(ids.get(i), sut.getByName(NAMESPACE, "user-" + i).getId());
+      assertEquals(ids.get(i), sut.getByIssuerAndSubject(ISSUER, "subject-user-" + i).getId());
+    }
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldRejectUsersWhenMemoryIsExhausted() {
+    log.entry("shouldRejectUsersWhenMemoryIsExhausted");
+    
+    int stored = 0;
+    while (sut.put(user(UUID.randomUUID(), "user-" + stored))) {
+      stored++;
+    }
+    
+    assertTrue(stored > 0);
+    assertEquals(stored, sut.size());
+    
+    log.exit();
+  }
+  
+  
+  private static CompactUser user(final UUID id, final String name) {
+    return CompactUser.builder()
+        .idMostSignificantBits(id.getMostSignificantBits())
+        .idLeastSignificantBits(id.getLeastSignificantBits())
+        .created(CompactUser.NONE)
+        .modified(CompactUser.NONE)
+        .deleted(CompactUser.NONE)
+        .detainmentDuration(CompactUser.NONE)
+        .detainedTill(CompactUser.NONE)
+        .bannedOn(CompactUser.NONE)
+        .nameSpace(NAMESPACE)
+        .name(name)
+        .issuer(ISSUER)
+        .subject("subject-" + name)
+        .roles(new int[] {1, 2})
+        .build();
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.store.model.role.R2dbcRoleReadService;
+import de.kaiserpfalzedv.commons.users.store.model.role.RoleCatalog;
+import de.kaiserpfalzedv.commons.users.store.model.user.KpUsersRoles;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.core.ReactiveSelectOperation;
+import org.springframework.data.relational.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@ExtendWith(MockitoExtension.class)
+@XSlf4j
+public class UserCachePrewarmerTest {
+  private static final OffsetDateTime NOW = OffsetDateTime.now(ZoneOffset.UTC);
+  
+  private static final KpRole PLAYER = KpRole.builder()
+      .id(UUID.randomUUID())
+      .nameSpace("kp")
+      .name("PLAYER")
+      .build();
+  private static final RoleCatalog CATALOG = RoleCatalog.of(List.of(PLAYER));
+  
+  private static final KpUserDetails NEWEST = user(NOW);
+  private static final KpUserDetails NEWER = user(NOW.minusMinutes(1L));
+  private static final KpUserDetails OLDEST = user(NOW.minusMinutes(2L));
+  
+  @Mock private R2dbcEntityTemplate template;
+  @Mock private R2dbcRoleReadService roles;
+  @Mock private ReactiveSelectOperation.ReactiveSelect<KpUserDetails> users;
+  @Mock private ReactiveSelectOperation.TerminatingSelect<KpUserDetails> userQuery;
+  @Mock private ReactiveSelectOperation.ReactiveSelect<KpUsersRoles> assignments;
+  @Mock private ReactiveSelectOperation.TerminatingSelect<KpUsersRoles> assignmentQuery;
+  
+  private HeapUserSnapshotStore store;
+  private UserCachePrewarmer sut;
+  
+  
+  @BeforeEach
+  public void setUp() {
+    reset(template, roles, users, userQuery, assignments, assignmentQuery);
+    
+    store = new HeapUserSnapshotStore(100);
+    sut = new UserCachePrewarmer(
+        template, roles, store, new CompactUserCodec(roles),
+        true, Duration.ofDays(7L), 2, 1, 100, Duration.ofSeconds(10L)
+    );
+  }
+  
+  @AfterEach
+  public void tearDown() {
+    validateMockitoUsage();
+    verifyNoMoreInteractions(template, roles, users, userQuery, assignments, assignmentQuery);
+  }
+  
+  
+  @Test
+  void shouldReadRecentlyModifiedUsersNewestFirstInPages() {
+    log.entry("shouldReadRecentlyModifiedUsersNewestFirstInPages");
+    
+    when(roles.refresh()).thenReturn(Mono.just(CATALOG));
+    when(roles.getCatalog()).thenReturn(CATALOG);
+    when(template.select(KpUserDetails.class)).thenReturn(users);
+    when(users.matching(any(Query.class))).thenReturn(userQuery);
+    when(userQuery.all()).thenReturn(Flux.just(NEWEST, NEWER), Flux.just(OLDEST));
+    when(template.select(KpUsersRoles.class)).thenReturn(assignments);
+    when(assignments.matching(any(Query.class))).thenReturn(assignmentQuery);
+    when(assignmentQuery.all()).thenReturn(
+        Flux.just(KpUsersRoles.builder().userId(NEWEST.getId()).roleId(PLAYER.getId()).build()),
+        Flux.empty()
+    );
+    
+    assertEquals(3L, sut.prewarm().block(Duration.ofSeconds(10L)));
+    assertEquals(3, store.size());
+    assertNotNull(store.get(OLDEST.getId()));
+    
+    ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+    verify(users, times(2)).matching(queries.capture());
+    
+    Query first = queries.getAllValues().get(0);
+    assertEquals(Sort.Direction.DESC, first.getSort().getOrderFor("modified").getDirection());
+    assertEquals(2, first.getLimit());
+    
+    // the second page continues after the last user of the first page
+    String keyset = queries.getAllValues().get(1).getCriteria().orElseThrow().toString();
+    assertTrue(keyset.contains(NEWER.getId().toString()), keyset);
+    
+    verify(roles).refresh();
+    verify(roles, times(2)).getCatalog();
+    verify(template, times(2)).select(KpUserDetails.class);
+    verify(template, times(2)).select(KpUsersRoles.class);
+    verify(assignments, times(2)).matching(any(Query.class));
+    verify(userQuery, times(2)).all();
+    verify(assignmentQuery, times(2)).all();
+    
+    log.exit();
+  }
+  
+  
+  private static KpUserDetails user(final OffsetDateTime modified) {
+    return KpUserDetails.builder()
+        .id(UUID.randomUUID())
+        .created(NOW.minusDays(1L))
+        .modified(modified)
+        .nameSpace("kp")
+        .name("user-" + modified.toEpochSecond())
+        .build();
+  }
+}
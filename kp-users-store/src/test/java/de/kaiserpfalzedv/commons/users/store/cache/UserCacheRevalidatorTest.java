@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.store.model.role.R2dbcRoleReadService;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.core.ReactiveSelectOperation;
+import org.springframework.data.relational.core.query.Query;
+import reactor.core.publisher.Flux;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@ExtendWith(MockitoExtension.class)
+@XSlf4j
+public class UserCacheRevalidatorTest {
+  private static final KpRole PLAYER = KpRole.builder().id(UUID.randomUUID()).nameSpace("kp").name("PLAYER").build();
+  
+  private static final KpUserDetails USER = KpUserDetails.builder()
+      .id(UUID.randomUUID())
+      .nameSpace("kp")
+      .name("user")
+      .issuer("https://sso.example.com")
+      .subject("subject")
+      .authorities(List.of(PLAYER))
+      .build();
+  
+  @Mock private R2dbcRoleReadService roles;
+  @Mock private CachingUserReadService users;
+  @Mock private R2dbcEntityTemplate template;
+  @Mock private ReactiveSelectOperation.ReactiveSelect<KpUserDetails> select;
+  @Mock private ReactiveSelectOperation.TerminatingSelect<KpUserDetails> selectQuery;
+  
+  
+  @BeforeEach
+  public void setUp() {
+    reset(roles, users, template, select, selectQuery);
+  }
+  
+  @AfterEach
+  public void tearDown() {
+    validateMockitoUsage(); // validate if the mocks are used as expected.
+    verifyNoMoreInteractions(roles, users, template, select, selectQuery);
+  }
+  
+  
+  @Test
+  void shouldEvictUsersChangedSinceGivenTime() {
+    log.entry("shouldEvictUsersChangedSinceGivenTime");
+    
+    OffsetDateTime since = OffsetDateTime.now(Clock.systemUTC()).minusMinutes(10);
+    when(template.select(KpUserDetails.class)).thenReturn(select);
+    when(select.matching(any(Query.class))).thenReturn(selectQuery);
+    when(selectQuery.all()).thenReturn(Flux.just(KpUserDetails.builder().id(USER.getId()).build()));
+    
+    long result = createSut(new HeapUserSnapshotStore(10)).evictChanged(since);
+    
+    assertEquals(1L, result);
+    
+    verify(users).evict(USER.getId());
+    verify(template).select(KpUserDetails.class);
+    verify(select).matching(argThat((Query query) -> query.getCriteria().isPresent()
+        && query.getCriteria().get().toString().contains("modified")));
+    verify(selectQuery).all();
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldEvictUsersRemovedFromDatabase() {
+    log.entry("shouldEvictUsersRemovedFromDatabase");
+    
+    KpUserDetails removed = USER.toBuilder().id(UUID.randomUUID()).name("removed").subject("removed").build();
+    when(template.select(KpUserDetails.class)).thenReturn(select);
+    when(select.matching(any(Query.class))).thenReturn(selectQuery);
+    when(selectQuery.all()).thenReturn(Flux.just(KpUserDetails.builder().id(USER.getId()).build()));
+    
+    CompactUserCodec codec = new CompactUserCodec(roles);
+    HeapUserSnapshotStore store = new HeapUserSnapshotStore(10);
+    store.put(codec.encode(USER));
+    store.put(codec.encode(removed));
+    
+    long result = createSut(store).evictRemoved();
+    
+    assertEquals(1L, result);
+    
+    verify(users).evict(removed.getId());
+    verify(template).select(KpUserDetails.class);
+    verify(select).matching(argThat((Query query) -> query.getCriteria().isPresent()
+        && query.getCriteria().get().toString().contains("id")));
+    verify(selectQuery).all();
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldNotCheckRemovedUsersBeforeMaxAge() {
+    log.entry("shouldNotCheckRemovedUsersBeforeMaxAge");
+    
+    when(template.select(KpUserDetails.class)).thenReturn(select);
+    when(select.matching(any(Query.class))).thenReturn(selectQuery);
+    when(selectQuery.all()).thenReturn(Flux.empty());
+    
+    UserCacheRevalidator sut = createSut(new HeapUserSnapshotStore(10));
+    sut.init();
+    try {
+      assertEquals(0L, sut.revalidate());
+    } finally {
+      sut.close();
+    }
+    
+    // only the query for changed users, the ids are checked after the max age.
+    verify(template).select(KpUserDetails.class);
+    verify(select).matching(argThat((Query query) -> query.getCriteria().isPresent()
+        && query.getCriteria().get().toString().contains("modified")));
+    verify(selectQuery).all();
+    
+    log.exit();
+  }
+  
+  
+  private UserCacheRevalidator createSut(final UserSnapshotStore store) {
+    return new UserCacheRevalidator(
+        store, users, template, Duration.ofHours(1), Duration.ofHours(1), Duration.ofMinutes(5)
+    );
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.cache;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.store.model.role.R2dbcRoleReadService;
+import de.kaiserpfalzedv.commons.users.store.model.role.RoleCatalog;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-24
+ */
+@ExtendWith(MockitoExtension.class)
+@XSlf4j
+public class UserCacheSnapshotTest {
+  private static final KpRole PLAYER = KpRole.builder().id(UUID.randomUUID()).nameSpace("kp").name("PLAYER").build();
+  
+  private static final KpUserDetails USER = KpUserDetails.builder()
+      .id(UUID.randomUUID())
+      .nameSpace("kp")
+      .name("user")
+      .issuer("https://sso.example.com")
+      .subject("subject")
+      .authorities(List.of(PLAYER))
+      .build();
+  
+  private static final Duration CLOCK_SKEW = Duration.ofMinutes(5);
+  
+  @TempDir private Path directory;
+  
+  @Mock private R2dbcRoleReadService roles;
+  @Mock private CachingUserReadService users;
+  @Mock private UserCacheRevalidator revalidator;
+  
+  
+  @BeforeEach
+  public void setUp() {
+    reset(roles, users, revalidator);
+  }
+  
+  @AfterEach
+  public void tearDown() {
+    validateMockitoUsage(); // validate if the mocks are used as expected.
+    verifyNoMoreInteractions(roles, users, revalidator);
+  }
+  
+  
+  @Test
+  void shouldRestoreUsersAndRolesWhenSnapshotHasBeenWritten() throws IOException {
+    log.entry("shouldRestoreUsersAndRolesWhenSnapshotHasBeenWritten");
+    
+    long now = CompactUser.toEpochNanos(OffsetDateTime.now(Clock.systemUTC()));
+    when(roles.getCatalog()).thenReturn(RoleCatalog.of(List.of(PLAYER)));
+    when(users.getHighWater()).thenReturn(now);
+    
+    CompactUserCodec writerCodec = new CompactUserCodec(roles);
+    writerCodec.getStrings().code("unused");
+    HeapUserSnapshotStore writerStore = new HeapUserSnapshotStore(10);
+    writerStore.put(writerCodec.encode(USER));
+    createSut(writerStore, writerCodec, Duration.ofHours(1)).write();
+    
+    CompactUserCodec readerCodec = new CompactUserCodec(roles);
+    HeapUserSnapshotStore readerStore = new HeapUserSnapshotStore(10);
+    OffsetDateTime since = createSut(readerStore, readerCodec, Duration.ofHours(1)).restore();
+    
+    assertNotNull(since);
+    assertFalse(since.isAfter(CompactUser.toOffsetDateTime(now).minus(CLOCK_SKEW)));
+    
+    int issuer = readerCodec.getStrings().lookup(USER.getIssuer());
+    CompactUser restored = readerStore.getByIssuerAndSubject(issuer, USER.getSubject());
+    assertNotNull(restored);
+    
+    KpUserDetails result = readerCodec.decode(restored);
+    log.debug("result. user={}", result);
+    
+    assertEquals(USER.getId(), result.getId());
+    assertEquals(USER.getNameSpace(), result.getNameSpace());
+    assertEquals(USER.getAuthorities(), result.getAuthorities());
+    
+    verify(roles).restore(argThat(restoredRoles -> restoredRoles.contains(PLAYER)));
+    verify(roles, times(2)).getCatalog();
+    verify(users).getHighWater();
+    verify(users).raiseHighWater(now);
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldIgnoreSnapshotWhenSnapshotIsTooOld() throws IOException {
+    log.entry("shouldIgnoreSnapshotWhenSnapshotIsTooOld");
+    
+    when(roles.getCatalog()).thenReturn(RoleCatalog.of(List.of(PLAYER)));
+    when(users.getHighWater()).thenReturn(CompactUser.toEpochNanos(OffsetDateTime.now(Clock.systemUTC()).minusDays(1)));
+    
+    CompactUserCodec codec = new CompactUserCodec(roles);
+    HeapUserSnapshotStore store = new HeapUserSnapshotStore(10);
+    store.put(codec.encode(USER));
+    createSut(store, codec, Duration.ofHours(1)).write();
+    
+    HeapUserSnapshotStore result = new HeapUserSnapshotStore(10);
+    OffsetDateTime since = createSut(result, new CompactUserCodec(roles), Duration.ofHours(1)).restore();
+    
+    assertNull(since);
+    assertEquals(0, result.size());
+    
+    verify(roles).getCatalog();
+    verify(users).getHighWater();
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldEvictChangedAndRemovedUsersWhenRevalidating() {
+    log.entry("shouldEvictChangedAndRemovedUsersWhenRevalidating");
+    
+    OffsetDateTime since = OffsetDateTime.now(Clock.systemUTC()).minusMinutes(10);
+    when(roles.refresh()).thenReturn(Mono.just(RoleCatalog.of(List.of(PLAYER))));
+    when(revalidator.evictChanged(since)).thenReturn(2L);
+    when(revalidator.evictRemoved()).thenReturn(1L);
+    
+    long result = createSut(new HeapUserSnapshotStore(10), new CompactUserCodec(roles), Duration.ofHours(1))
+        .revalidate(since);
+    
+    assertEquals(3L, result);
+    
+    verify(roles).refresh();
+    verify(revalidator).evictChanged(since);
+    verify(revalidator).evictRemoved();
+    
+    log.exit();
+  }
+  
+  
+  private UserCacheSnapshot createSut(
+      final UserSnapshotStore store,
+      final CompactUserCodec codec,
+      final Duration maxAge
+  ) {
+    return new UserCacheSnapshot(
+        store, codec, roles, users, revalidator,
+        directory.resolve("users.snapshot").toString(), Duration.ofMinutes(5), maxAge, CLOCK_SKEW
+    );
+  }
+}
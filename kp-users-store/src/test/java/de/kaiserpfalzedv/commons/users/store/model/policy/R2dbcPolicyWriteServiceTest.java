@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package de.kaiserpfalzedv.commons.users.store.model.policy;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.policy.KpPolicy;
+import de.kaiserpfalzedv.commons.users.domain.model.policy.PolicyNotFoundException;
+import de.kaiserpfalzedv.commons.users.domain.model.policy.events.PolicyChangedEvent;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-22
+ */
+@ExtendWith(MockitoExtension.class)
+@XSlf4j
+public class R2dbcPolicyWriteServiceTest {
+  @InjectMocks private R2dbcPolicyWriteService sut;
+  @Mock private R2dbcPolicyRepository repository;
+  @Mock private R2dbcEntityTemplate template;
+  @Mock private ApplicationEventPublisher bus;
+  
+  
+  @BeforeEach
+  public void setUp() {
+    reset(repository, template, bus);
+  }
+  
+  @AfterEach
+  public void tearDown() {
+    validateMockitoUsage();
+    verifyNoMoreInteractions(repository, template, bus);
+  }
+  
+  
+  @Test
+  void shouldPublishCreatedEventWhenPolicyIsCreated() {
+    log.entry();
+    
+    when(template.insert(any(R2dbcPolicy.class))).thenReturn(Mono.just(DEFAULT_POLICY));
+    
+    sut.create(DEFAULT_POLICY).block();
+    
+    PolicyChangedEvent event = captureEvent();
+    assertEquals(PolicyChangedEvent.Change.CREATED, event.getChange());
+    assertEquals(DEFAULT_ID, event.getPolicy().getId());
+    assertInstanceOf(KpPolicy.class, event.getPolicy());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldPublishUpdatedEventWhenPolicyIsUpdated() {
+    log.entry();
+    
+    when(repository.findByIdAndDeletedIsNull(DEFAULT_ID)).thenReturn(Mono.just(DEFAULT_POLICY));
+    when(repository.save(any(R2dbcPolicy.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    
+    sut.update(DEFAULT_POLICY.toBuilder().actions("view list update").build()).block();
+    
+    PolicyChangedEvent event = captureEvent();
+    assertEquals(PolicyChangedEvent.Change.UPDATED, event.getChange());
+    assertEquals("view list update", event.getPolicy().getActions());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldThrowPolicyNotFoundExceptionWhenUpdatingANonExistingPolicy() {
+    log.entry();
+    
+    when(repository.findByIdAndDeletedIsNull(DEFAULT_ID)).thenReturn(Mono.empty());
+    
+    Mono<R2dbcPolicy> result = sut.update(DEFAULT_POLICY);
+    
+    Exception e = assertThrows(Exception.class, result::block);
+    assertInstanceOf(PolicyNotFoundException.class, e.getCause() != null ? e.getCause() : e);
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldPublishRemovedEventWhenPolicyIsRemoved() {
+    log.entry();
+    
+    when(repository.findByIdAndDeletedIsNull(DEFAULT_ID)).thenReturn(Mono.just(DEFAULT_POLICY));
+    when(repository.save(any(R2dbcPolicy.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    
+    sut.remove(DEFAULT_ID).block();
+    
+    ArgumentCaptor<R2dbcPolicy> saved = ArgumentCaptor.forClass(R2dbcPolicy.class);
+    verify(repository).save(saved.capture());
+    assertEquals(DEFAULT_ID, saved.getValue().getId());
+    assertNotNull(saved.getValue().getDeleted());
+    
+    PolicyChangedEvent event = captureEvent();
+    assertEquals(PolicyChangedEvent.Change.REMOVED, event.getChange());
+    assertEquals(DEFAULT_ID, event.getPolicy().getId());
+    
+    log.exit();
+  }
+  
+  
+  private PolicyChangedEvent captureEvent() {
+    ArgumentCaptor<PolicyChangedEvent> captor = ArgumentCaptor.forClass(PolicyChangedEvent.class);
+    verify(bus).publishEvent(captor.capture());
+    
+    return captor.getValue();
+  }
+  
+  
+  private static final UUID DEFAULT_ID = UUID.randomUUID();
+  private static final R2dbcPolicy DEFAULT_POLICY = R2dbcPolicy.builder()
+      .id(DEFAULT_ID)
+      .role("GM")
+      .object("User")
+      .actions("view list")
+      .build();
+}
@@ -19,6 +19,10 @@ package de.kaiserpfalzedv.commons.users.store.model.role;
 
 
 import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
+import de.kaiserpfalzedv.commons.users.domain.model.role.RoleToImpl;
+import de.kaiserpfalzedv.commons.users.domain.model.role.events.RoleCreatedEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.role.events.RoleRemovedEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.role.events.RoleUpdateNameEvent;
 import lombok.extern.slf4j.XSlf4j;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -48,17 +52,18 @@ public class R2dbcRoleReadServiceTest {
   @InjectMocks private R2dbcRoleReadService sut;
   
   @Mock private R2dbcRoleRepository r2dbcRoleRepository;
+  @Mock private RoleToImpl toImpl;
   
   
   @BeforeEach
   public void setUp() {
-    reset(r2dbcRoleRepository);
+    reset(r2dbcRoleRepository, toImpl);
   }
   
   @AfterEach
   public void tearDown() {
     validateMockitoUsage(); // validate if the mocks are used as expected.
-    verifyNoMoreInteractions(r2dbcRoleRepository);
+    verifyNoMoreInteractions(r2dbcRoleRepository, toImpl);
   }
   
   
@@ -136,6 +141,93 @@ public class R2dbcRoleReadServiceTest {
   }
   
   
+  @Test
+  void shouldReadRolesFromCatalogWhenCatalogIsLoaded() {
+    log.entry();
+    
+    when(r2dbcRoleRepository.findAll()).thenReturn(Flux.just(DEFAULT_ROLE));
+    sut.refresh().block();
+    
+    KpRole result = sut.retrieve(DEFAULT_ROLE.getId()).block();
+    List<KpRole> byName = sut.retrieveByName(DEFAULT_ROLE.getName()).collectList().block();
+    List<KpRole> byNameSpace = sut.retrieveAllFromNamespace(DEFAULT_ROLE.getNameSpace()).collectList().block();
+    List<KpRole> all = sut.retrieveAll().collectList().block();
+    log.debug("result. role={}, byName={}, byNameSpace={}, all={}", result, byName, byNameSpace, all);
+    
+    assertSame(DEFAULT_ROLE, result);
+    assertEquals(List.of(DEFAULT_ROLE), byName);
+    assertEquals(List.of(DEFAULT_ROLE), byNameSpace);
+    assertEquals(List.of(DEFAULT_ROLE), all);
+    verify(r2dbcRoleRepository, times(1)).findAll();
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldRememberRoleReadFromDatabaseWhenRoleIsNotInCatalog() {
+    log.entry();
+    
+    when(r2dbcRoleRepository.findById(DEFAULT_ROLE.getId())).thenReturn(Mono.just(DEFAULT_ROLE));
+    
+    sut.retrieve(DEFAULT_ROLE.getId()).block();
+    KpRole result = sut.retrieve(DEFAULT_ROLE.getId()).block();
+    log.debug("result. role={}", result);
+    
+    assertSame(DEFAULT_ROLE, result);
+    verify(r2dbcRoleRepository, times(1)).findById(DEFAULT_ROLE.getId());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldUpdateCatalogWhenRoleEventsAreReceived() {
+    log.entry();
+    
+    when(r2dbcRoleRepository.findAll()).thenReturn(Flux.empty());
+    sut.refresh().block();
+    
+    RoleCreatedEvent created = mock(RoleCreatedEvent.class);
+    when(created.getRole()).thenReturn(DEFAULT_ROLE);
+    sut.event(created);
+    
+    assertEquals(List.of(DEFAULT_ROLE), sut.retrieveByName(DEFAULT_ROLE.getName()).collectList().block());
+    
+    KpRole renamed = DEFAULT_ROLE.toBuilder().name("renamed").build();
+    RoleUpdateNameEvent updated = mock(RoleUpdateNameEvent.class);
+    when(updated.getRole()).thenReturn(renamed);
+    sut.event(updated);
+    
+    assertEquals(List.of(), sut.retrieveByName(DEFAULT_ROLE.getName()).collectList().block());
+    assertSame(renamed, sut.retrieve(DEFAULT_ROLE.getId()).block());
+    
+    RoleRemovedEvent removed = mock(RoleRemovedEvent.class);
+    when(removed.getRole()).thenReturn(renamed);
+    sut.event(removed);
+    
+    assertEquals(List.of(), sut.retrieveAll().collectList().block());
+    
+    log.exit();
+  }
+  
+  
+  @Test
+  void shouldKeepRoleEventsReceivedWhileCatalogIsLoading() {
+    log.entry();
+    
+    RoleCreatedEvent created = mock(RoleCreatedEvent.class);
+    when(created.getRole()).thenReturn(DEFAULT_ROLE);
+    
+    // the role is created after the roles table has been read but before the catalog is installed.
+    when(r2dbcRoleRepository.findAll()).thenReturn(Flux.<KpRole>empty().doOnComplete(() -> sut.event(created)));
+    sut.refresh().block();
+    
+    assertTrue(sut.getCatalog().isLoaded());
+    assertEquals(List.of(DEFAULT_ROLE), sut.retrieveByName(DEFAULT_ROLE.getName()).collectList().block());
+    
+    log.exit();
+  }
+  
+  
   private static final UUID DEFAULT_ID = UUID.randomUUID();
   private static final OffsetDateTime CREATED_AT = OffsetDateTime.now();
   private static final KpRole DEFAULT_ROLE = KpRole.builder()
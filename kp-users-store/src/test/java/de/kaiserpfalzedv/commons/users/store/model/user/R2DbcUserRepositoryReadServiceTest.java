@@ -21,6 +21,7 @@ package de.kaiserpfalzedv.commons.users.store.model.user;
 import de.kaiserpfalzedv.commons.users.domain.model.role.KpRole;
 import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
 import de.kaiserpfalzedv.commons.users.domain.model.user.User;
+import de.kaiserpfalzedv.commons.users.store.model.role.R2dbcRoleReadService;
 import lombok.extern.slf4j.XSlf4j;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -41,6 +42,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -63,16 +65,18 @@ public class R2DbcUserRepositoryReadServiceTest {
 
   @Mock private ApplicationEventPublisher bus;
   
+  @Mock private R2dbcRoleReadService roles;
+  
   
   @BeforeEach
   public void setUp() {
-    reset(repository, template, bus);
+    reset(repository, template, bus, roles);
   }
   
   @AfterEach
   public void tearDown() {
     validateMockitoUsage();
-    verifyNoMoreInteractions(repository, template, bus);
+    verifyNoMoreInteractions(repository, template, bus, roles);
   }
   
   
@@ -139,6 +143,23 @@ public class R2DbcUserRepositoryReadServiceTest {
     log.exit();
   }
   
+  @Test
+  void shouldShareRoleInstancesBetweenUsersWhenRolesAreHydrated() {
+    log.entry();
+    
+    KpUserDetails other = DEFAULT_USER.toBuilder().id(UUID.randomUUID()).name("other").build();
+    when(repository.findAll()).thenReturn(Flux.just(DEFAULT_USER.toBuilder().build(), other));
+    prepareRoleAddingToUser();
+    
+    List<User> result = sut.findAll().collectList().block();
+    log.debug("Result: users={}", result);
+    
+    assertNotNull(result);
+    result.forEach(user -> assertSame(DEFAULT_ROLE, user.getAuthorities().iterator().next()));
+    
+    log.exit();
+  }
+  
   @Test
   void shouldReturnEmptyListWhenNoUsersExist() {
     log.entry();
@@ -176,7 +197,7 @@ public class R2DbcUserRepositoryReadServiceTest {
     when(template.select(KpUsersRoles.class)).thenReturn(reactiveSelect);
     when(reactiveSelect.matching(any())).thenReturn(terminatingSelect);
     when(terminatingSelect.all()).thenReturn(Flux.just(KpUsersRoles.builder().userId(DEFAULT_ID).roleId(DEFAULT_ROLE_ID).build()));
-    when(template.selectOne(any(),any())).thenReturn(Mono.just(DEFAULT_ROLE));
+    when(roles.retrieve(DEFAULT_ROLE_ID)).thenReturn(Mono.just(DEFAULT_ROLE));
   }
   
   @Test
@@ -25,7 +25,7 @@ import de.kaiserpfalzedv.commons.users.domain.model.user.User;
 import de.kaiserpfalzedv.commons.users.domain.model.user.UserNotFoundException;
 import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.RoleAddedToUserEvent;
 import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.RoleRemovedFromUserEvent;
-import de.kaiserpfalzedv.commons.users.store.model.role.R2dbcRoleRepository;
+import de.kaiserpfalzedv.commons.users.store.model.role.R2dbcRoleReadService;
 import lombok.extern.slf4j.XSlf4j;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -52,7 +52,7 @@ public class R2DbcUserRepositoryRoleManagementServiceTest {
   
   @InjectMocks private R2dbcUserRoleManagementService sut;
   @Mock private R2dbcUserRepository userRepository;
-  @Mock private R2dbcRoleRepository roleRepository;
+  @Mock private R2dbcRoleReadService roleReadService;
   @Mock private R2dbcEntityTemplate template;
   @Mock private ApplicationEventPublisher bus;
   @Mock private RoleToImpl toRole;
@@ -67,7 +67,7 @@ public class R2DbcUserRepositoryRoleManagementServiceTest {
   
   @BeforeEach
   public void setUp() {
-    reset(bus, userRepository, roleRepository, template, toRole);
+    reset(bus, userRepository, roleReadService, template, toRole);
     
     user = KpUserDetails.builder()
         .id(DEFAULT_ID)
@@ -100,7 +100,7 @@ public class R2DbcUserRepositoryRoleManagementServiceTest {
   @AfterEach
   public void tearDown() {
     validateMockitoUsage();
-    verifyNoMoreInteractions(bus, userRepository, roleRepository, template, toRole);
+    verifyNoMoreInteractions(bus, userRepository, roleReadService, template, toRole);
   }
   
   
@@ -108,7 +108,7 @@ public class R2DbcUserRepositoryRoleManagementServiceTest {
   void shouldAddRoleToUserWhenUserExists() {
     log.entry();
     
-    when(roleRepository.findById(DEFAULT_ROLE_ID)).thenReturn(Mono.just(role));
+    when(roleReadService.retrieve(DEFAULT_ROLE_ID)).thenReturn(Mono.just(role));
     when(userRepository.findById(DEFAULT_ID)).thenReturn(Mono.just(user));
     when(userRepository.save(any(KpUserDetails.class))).thenReturn(Mono.just(user));
     
@@ -124,10 +124,10 @@ public class R2DbcUserRepositoryRoleManagementServiceTest {
   void shouldDoNothingWhenUserHasRoleAlready() {
     log.entry();
     
-    user.addRole(role, null);
+    user = user.addRole(role, null);
     
     when(userRepository.findById(DEFAULT_ID)).thenReturn(Mono.just(user));
-    when(roleRepository.findById(DEFAULT_ROLE_ID)).thenReturn(Mono.just(role));
+    when(roleReadService.retrieve(DEFAULT_ROLE_ID)).thenReturn(Mono.just(role));
     when(userRepository.save(any(KpUserDetails.class))).thenReturn(Mono.just(user));
     
     sut.addRole(DEFAULT_ID, role).block();
@@ -142,7 +142,7 @@ public class R2DbcUserRepositoryRoleManagementServiceTest {
   void shouldThrowRoleNotFoundExceptionWhenRoleDoesNotExistForAddRole() {
     log.entry();
     
-    when(roleRepository.findById(DEFAULT_ROLE_ID)).thenReturn(Mono.error(new RoleNotFoundException(DEFAULT_ROLE_ID)));
+    when(roleReadService.retrieve(DEFAULT_ROLE_ID)).thenReturn(Mono.error(new RoleNotFoundException(DEFAULT_ROLE_ID)));
     Exception expected = new RoleNotFoundException(DEFAULT_ROLE_ID);
     
     Mono<User> result = sut.addRole(DEFAULT_ID, role);
@@ -157,7 +157,7 @@ public class R2DbcUserRepositoryRoleManagementServiceTest {
     log.entry();
     
     when(userRepository.findById(DEFAULT_ID)).thenReturn(Mono.empty());
-    when(roleRepository.findById(DEFAULT_ROLE_ID)).thenReturn(Mono.just(role));
+    when(roleReadService.retrieve(DEFAULT_ROLE_ID)).thenReturn(Mono.just(role));
     
     Exception expected = new UserNotFoundException(DEFAULT_ID);
     
@@ -172,11 +172,11 @@ public class R2DbcUserRepositoryRoleManagementServiceTest {
   void shouldRemoveRoleFromUserWhenUserWithRoleExists() {
     log.entry();
     
-    user.addRole(role, bus);
+    user = user.addRole(role, bus);
     reset(bus);
     
     when(userRepository.findById(DEFAULT_ID)).thenReturn(Mono.just(user));
-    when(roleRepository.findById(DEFAULT_ROLE_ID)).thenReturn(Mono.just(role));
+    when(roleReadService.retrieve(DEFAULT_ROLE_ID)).thenReturn(Mono.just(role));
     when(userRepository.save(any(KpUserDetails.class))).thenReturn(Mono.just(user));
     
     sut.removeRole(DEFAULT_ID, role).block();
@@ -191,7 +191,7 @@ public class R2DbcUserRepositoryRoleManagementServiceTest {
   void shouldDoNothingWhenUserWithoutRoleExists() {
     log.entry();
     
-    when(roleRepository.findById(DEFAULT_ROLE_ID)).thenReturn(Mono.just(role));
+    when(roleReadService.retrieve(DEFAULT_ROLE_ID)).thenReturn(Mono.just(role));
     when(userRepository.findById(DEFAULT_ID)).thenReturn(Mono.just(user));
     when(userRepository.save(any(KpUserDetails.class))).thenReturn(Mono.just(user));
     
@@ -207,7 +207,7 @@ public class R2DbcUserRepositoryRoleManagementServiceTest {
   void shouldThrowUserNotFoundExceptionWhenUserDoesNotExistForRemoveRole() {
     log.entry();
     
-    when(roleRepository.findById(DEFAULT_ROLE_ID)).thenReturn(Mono.just(role));
+    when(roleReadService.retrieve(DEFAULT_ROLE_ID)).thenReturn(Mono.just(role));
     when(userRepository.findById(DEFAULT_ID)).thenReturn(Mono.empty());
     UserNotFoundException expected = new UserNotFoundException(DEFAULT_ID);
     
@@ -222,7 +222,7 @@ public class R2DbcUserRepositoryRoleManagementServiceTest {
   void shouldThrowRoleNotFoundExceptionWhenRoleDoesNotExistForRemoveRole() {
     log.entry();
     
-    when(roleRepository.findById(DEFAULT_ROLE_ID)).thenReturn(Mono.empty());
+    when(roleReadService.retrieve(DEFAULT_ROLE_ID)).thenReturn(Mono.empty());
     Exception expected = new RoleNotFoundException(DEFAULT_ROLE_ID);
     
     Mono<User> result = sut.removeRole(DEFAULT_ID, role);
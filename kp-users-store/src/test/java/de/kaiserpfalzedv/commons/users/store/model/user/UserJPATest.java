@@ -69,7 +69,7 @@ class UserJPATest {
   void shouldSendEventsAndDetainTheUserWhenUserIsValid() {
     log.entry();
     
-    user.detain(bus, 5);
+    user = user.detain(bus, 5);
 
     verify(bus).publishEvent(any(UserDetainedEvent.class));
     assertNotNull(user.getDetainedTill());
@@ -83,10 +83,10 @@ class UserJPATest {
   void shouldSendEventsAndReleaseUserWhenUserIsDetained() {
     log.entry();
     
-    user.detain(bus, 5);
+    user = user.detain(bus, 5);
     reset(bus);
     
-    user.release(bus);
+    user = user.release(bus);
     
     verify(bus).publishEvent(any(UserReleasedEvent.class));
     assertNull(user.getDetainedTill());
@@ -99,10 +99,10 @@ class UserJPATest {
   void shouldSendEventsAndReleaseUserWhenUserIsBanned() {
     log.entry();
     
-    user.ban(bus);
+    user = user.ban(bus);
     reset(bus);
     
-    user.release(bus);
+    user = user.release(bus);
     
     verify(bus).publishEvent(any(UserReleasedEvent.class));
     assertNull(user.getBannedOn());
@@ -114,7 +114,7 @@ class UserJPATest {
   void shouldBanUserWhenUserIsActive() {
     log.entry();
     
-    user.ban(bus);
+    user = user.ban(bus);
     
     verify(bus).publishEvent(any(UserBannedEvent.class));
     assertNotNull(user.getBannedOn());
@@ -126,7 +126,7 @@ class UserJPATest {
   void shouldMarkUserAsDeletedWhenUserIsActive() {
     log.entry();
     
-    user.delete(bus);
+    user = user.delete(bus);
     
     verify(bus).publishEvent(any(UserDeletedEvent.class));
     assertNotNull(user.getDeleted());
@@ -138,7 +138,7 @@ class UserJPATest {
   void shouldUnmarkUserWhenUserIsDeleted() {
     log.entry();
     
-    user.undelete(bus);
+    user = user.undelete(bus);
     
     verify(bus).publishEvent(any(UserActivatedEvent.class));
     assertNull(user.getDeleted());
@@ -150,7 +150,7 @@ class UserJPATest {
   void shouldAddRoleWhenUserDoesNotHaveTheRole() {
     log.entry();
     
-    user.addRole(DEFAULT_ROLE, bus);
+    user = user.addRole(DEFAULT_ROLE, bus);
 
     verify(bus).publishEvent(any(RoleAddedToUserEvent.class));
     assertTrue(user.getAuthorities().contains(DEFAULT_ROLE));
@@ -162,10 +162,10 @@ class UserJPATest {
   void shouldNotAddRoleWhenUserDoesHaveTheRoleAlready() {
     log.entry();
     
-    user.addRole(DEFAULT_ROLE, bus);
+    user = user.addRole(DEFAULT_ROLE, bus);
     reset(bus);
     
-    user.addRole(DEFAULT_ROLE, bus);
+    user = user.addRole(DEFAULT_ROLE, bus);
     
     verify(bus, never()).publishEvent(any(RoleAddedToUserEvent.class));
     assertTrue(user.getAuthorities().contains(DEFAULT_ROLE));
@@ -177,10 +177,10 @@ class UserJPATest {
   void shouldRemoveTheRoleWhenUserDoesHaveTheRole() {
     log.entry();
     
-    user.addRole(DEFAULT_ROLE, bus);
+    user = user.addRole(DEFAULT_ROLE, bus);
     reset(bus);
     
-    user.removeRole(DEFAULT_ROLE, bus);
+    user = user.removeRole(DEFAULT_ROLE, bus);
     verify(bus).publishEvent(any(RoleRemovedFromUserEvent.class));
     
     assertFalse(user.getAuthorities().contains(DEFAULT_ROLE));
@@ -192,7 +192,7 @@ class UserJPATest {
   void shouldNotRemoveTheRoleWhenUserDoesNotHaveTheRole() {
     log.entry();
     
-    user.removeRole(DEFAULT_ROLE, bus);
+    user = user.removeRole(DEFAULT_ROLE, bus);
     verify(bus, never()).publishEvent(any(RoleRemovedFromUserEvent.class));
     
     log.exit();
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package de.kaiserpfalzedv.commons.users.store.service;
+
+
+import de.kaiserpfalzedv.commons.users.domain.services.StoreSaturationEvent;
+import io.r2dbc.pool.PoolMetrics;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@ExtendWith(MockitoExtension.class)
+@XSlf4j
+public class ConnectionPoolMonitorTest {
+  private static final long START = 1_000L;
+  private static final Duration RECOVERY = Duration.ofSeconds(2L);
+  
+  @Mock private ApplicationEventPublisher bus;
+  @Mock private PoolMetrics metrics;
+  
+  private ConnectionPoolMonitor sut;
+  
+  
+  @BeforeEach
+  void setUp() {
+    reset(bus, metrics);
+    
+    sut = new ConnectionPoolMonitor(null, bus, Duration.ofMillis(100L), 5, 0, RECOVERY);
+  }
+  
+  @AfterEach
+  public void tearDown() {
+    validateMockitoUsage();
+    verifyNoMoreInteractions(bus);
+  }
+  
+  
+  @Test
+  void shouldBeSaturatedWhenTooManyRequestsAreWaiting() {
+    log.entry("shouldBeSaturatedWhenTooManyRequestsAreWaiting");
+    
+    when(metrics.pendingAcquireSize()).thenReturn(5);
+    when(metrics.acquiredSize()).thenReturn(10);
+    when(metrics.getMaxAllocatedSize()).thenReturn(10);
+    
+    assertTrue(sut.check(metrics, START));
+    assertTrue(sut.isSaturated());
+    
+    verify(bus).publishEvent(new StoreSaturationEvent(true, 5, 10, 10));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldNotBeSaturatedWhenFewRequestsAreWaitingForLong() {
+    log.entry("shouldNotBeSaturatedWhenFewRequestsAreWaitingForLong");
+    
+    when(metrics.pendingAcquireSize()).thenReturn(1);
+    
+    assertFalse(sut.check(metrics, START));
+    assertFalse(sut.check(metrics, START + Duration.ofMinutes(1L).toNanos()));
+    assertFalse(sut.isSaturated());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldRecoverWhenQueueStaysEmptyForRecoveryTime() {
+    log.entry("shouldRecoverWhenQueueStaysEmptyForRecoveryTime");
+    
+    when(metrics.pendingAcquireSize()).thenReturn(5, 0, 2, 0, 0, 0);
+    when(metrics.acquiredSize()).thenReturn(10, 3);
+    when(metrics.getMaxAllocatedSize()).thenReturn(10);
+    
+    assertTrue(sut.check(metrics, START));
+    assertTrue(sut.check(metrics, START + 1L));
+    assertTrue(sut.check(metrics, START + 2L), "the recovery starts again when requests are waiting");
+    assertTrue(sut.check(metrics, START + 3L));
+    assertTrue(sut.check(metrics, START + 2L + RECOVERY.toNanos()));
+    assertFalse(sut.check(metrics, START + 3L + RECOVERY.toNanos()));
+    
+    verify(bus).publishEvent(new StoreSaturationEvent(true, 5, 10, 10));
+    verify(bus).publishEvent(new StoreSaturationEvent(false, 0, 3, 10));
+    
+    log.exit();
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2025. Kaiserpfalz EDV-Service, Roland T. Lichti
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 3 of the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Lesser General Public License
+ *  along with this program; if not, write to the Free Software Foundation,
+ *  Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+
+package de.kaiserpfalzedv.commons.users.store.service;
+
+
+import de.kaiserpfalzedv.commons.users.domain.model.user.KpUserDetails;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.activity.UserLoginEvent;
+import de.kaiserpfalzedv.commons.users.domain.model.user.events.modification.UserEmailModificationEvent;
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.XSlf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * @author klenkes74 {@literal <rlichti@kaiserpfalz-edv.de>}
+ * @since 2025-06-26
+ */
+@XSlf4j
+public class EventDeduplicatorTest {
+  private static final String EXTERNAL_SYSTEM = "other-application";
+  private static final UUID USER_ID = UUID.randomUUID();
+  private static final OffsetDateTime NOW = OffsetDateTime.now();
+  
+  private EventDeduplicator sut;
+  
+  
+  @BeforeEach
+  void setUp() {
+    sut = new EventDeduplicator(Duration.ofMinutes(10L), 2);
+  }
+  
+  
+  @Test
+  void shouldDropEventWhenItHasAlreadyBeenApplied() {
+    log.entry("shouldDropEventWhenItHasAlreadyBeenApplied");
+    
+    UserLoginEvent event = login();
+    
+    assertTrue(sut.isNew(event));
+    sut.applied(event);
+    
+    assertFalse(sut.isNew(event));
+    assertTrue(sut.isNew(login()));
+    assertEquals(1L, sut.getDropped());
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldForgetOldestEventWhenMaxSizeIsReached() {
+    log.entry("shouldForgetOldestEventWhenMaxSizeIsReached");
+    
+    UserLoginEvent first = login();
+    sut.applied(first);
+    sut.applied(login());
+    sut.applied(login());
+    
+    assertTrue(sut.isNew(first));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldApplyModificationWhenItHasAnOlderTimestamp() {
+    log.entry("shouldApplyModificationWhenItHasAnOlderTimestamp");
+    
+    UserEmailModificationEvent event = modification(NOW);
+    sut.applied(event);
+    
+    // timestamps of different nodes can't be compared, only the event id counts.
+    assertTrue(sut.isNew(modification(NOW.minusMinutes(1L))));
+    assertFalse(sut.isNew(event));
+    
+    log.exit();
+  }
+  
+  @Test
+  void shouldApplyModificationWhenUserHasNoTimestamp() {
+    log.entry("shouldApplyModificationWhenUserHasNoTimestamp");
+    
+    UserEmailModificationEvent event = modification(null);
+    
+    assertTrue(sut.isNew(event));
+    sut.applied(event);
+    
+    assertTrue(sut.isNew(modification(null)));
+    
+    log.exit();
+  }
+  
+  
+  private static UserLoginEvent login() {
+    return UserLoginEvent.builder()
+        .id(UUID.randomUUID())
+        .application(EXTERNAL_SYSTEM)
+        .user(KpUserDetails.builder().id(USER_ID).modified(NOW).build())
+        .build();
+  }
+  
+  private static UserEmailModificationEvent modification(@Nullable final OffsetDateTime revision) {
+    return UserEmailModificationEvent.builder()
+        .id(UUID.randomUUID())
+        .application(EXTERNAL_SYSTEM)
+        .user(KpUserDetails.builder().id(USER_ID).email("email@email.email").modified(revision).build())
+        .build();
+  }
+}
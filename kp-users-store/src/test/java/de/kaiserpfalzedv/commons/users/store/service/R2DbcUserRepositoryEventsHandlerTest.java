@@ -37,13 +37,16 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 /**
@@ -59,6 +62,9 @@ public class R2DbcUserRepositoryEventsHandlerTest {
   @Mock private R2dbcUserStateManagementService userStateManagement;
   @Mock private R2dbcUserRoleManagementService userRoleManagement;
   @Mock private ApplicationEventPublisher bus;
+
+  @Spy
+  private EventDeduplicator deduplicator = new EventDeduplicator(Duration.ofMinutes(10L), 100);
   
   private static final String LOCAL_SYSTEM = "kp-users";
   private static final String EXTERNAL_SYSTEM = "other-application";
@@ -376,6 +382,25 @@ public class R2DbcUserRepositoryEventsHandlerTest {
     log.exit();
   }
   
+  @Test
+  void shouldRethrowAndNotRecordBanWhenStoreFails() {
+    log.entry();
+    
+    // given
+    UserBannedEvent event = mock(UserBannedEvent.class);
+    when(event.getApplication()).thenReturn(EXTERNAL_SYSTEM);
+    when(event.getUser()).thenReturn(user);
+    when(userStateManagement.ban(USER_ID)).thenReturn(Mono.error(new IllegalStateException("database unavailable")));
+    
+    // when
+    assertThrows(IllegalStateException.class, () -> sut.event(event));
+    
+    // then
+    verify(deduplicator, never()).applied(event);
+    
+    log.exit();
+  }
+  
   @Test
   void shouldIgnoreBanUserWhenEventIsFromLocalSystem() {
     log.entry();
@@ -32,9 +32,11 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.UUID;
 
@@ -50,6 +52,9 @@ public class R2dbcApiKeyEventsHandlerTest {
   @InjectMocks private R2dbcApiKeyEventsHandler sut;
   @Mock private R2dbcApiKeyRepository writeService;
   @Mock private EventBus bus;
+
+  @Spy
+  private EventDeduplicator deduplicator = new EventDeduplicator(Duration.ofMinutes(10L), 100);
   
   private static final String LOCAL_SYSTEM = "kp-users";
   private static final String EXTERNAL_SYSTEM = "other-application";
@@ -33,10 +33,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.UUID;
 
@@ -62,6 +64,9 @@ public class R2dbcRoleEventsHandlerTest {
 
   @Mock
   private ApplicationEventPublisher bus;
+
+  @Spy
+  private EventDeduplicator deduplicator = new EventDeduplicator(Duration.ofMinutes(10L), 100);
   
   private static final String LOCAL_SYSTEM = "kp-users";
   private static final String EXTERNAL_SYSTEM = "other-application";